@@ -0,0 +1,49 @@
+package de.quandoo.recruitment.registry.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs JMH with the GC profiler once per thread count, since thread counts cannot be a @Param.
+// An explicit -t on the command line runs that thread count only.
+public final class BenchmarkRunner {
+
+  private static final int[] THREAD_COUNTS = {1, 4, 16, 32};
+
+  private BenchmarkRunner() {
+  }
+
+  public static void main(final String[] args) throws CommandLineOptionException, RunnerException {
+    final CommandLineOptions commandLine = new CommandLineOptions(args);
+    if (commandLine.getThreads().hasValue()) {
+      new Runner(options(commandLine).build()).run();
+      return;
+    }
+    for (final int threads : THREAD_COUNTS) {
+      final ChainedOptionsBuilder options = options(commandLine).threads(threads);
+      if (commandLine.getResult().hasValue()) {
+        options.result(perThreadCount(commandLine.getResult().get(), threads));
+      }
+      new Runner(options.build()).run();
+    }
+  }
+
+  private static ChainedOptionsBuilder options(final CommandLineOptions commandLine) {
+    final ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+    final boolean gcProfiled = commandLine.getProfilers().stream()
+        .anyMatch(profiler -> profiler.getKlass().equals("gc") || profiler.getKlass().equals(GCProfiler.class.getName()));
+    return gcProfiled ? options : options.addProfiler(GCProfiler.class);
+  }
+
+  // results.json -> results-4-threads.json
+  private static String perThreadCount(final String result, final int threads) {
+    final int extension = result.lastIndexOf('.');
+    return extension < 0
+        ? result + "-" + threads + "-threads"
+        : result.substring(0, extension) + "-" + threads + "-threads" + result.substring(extension);
+  }
+}
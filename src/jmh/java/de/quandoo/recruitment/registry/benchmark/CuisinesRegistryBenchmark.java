@@ -0,0 +1,116 @@
+package de.quandoo.recruitment.registry.benchmark;
+
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.benchmark.RegistryStack.RunningStack;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Latency of every CuisinesRegistry operation on a registry filled with customers * FOLLOWED_CUISINES registrations.
+// Cuisines are picked with Zipf skew, so reads and writes hit popular cuisines far more often than the long tail.
+// Thread counts are varied by BenchmarkRunner.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CuisinesRegistryBenchmark {
+
+  private static final int FOLLOWED_CUISINES = 3;
+  private static final int TOP_CUISINES = 10;
+
+  @Param({"IN_MEMORY", "SHARDED", "REDIS", "REDIS_FAN_OUT", "REDIS_SCRIPT"})
+  private RegistryStack stack;
+
+  @Param({"16", "1024", "65536"})
+  private int cuisines;
+
+  @Param({"0.5", "1.0", "1.5"})
+  private double skew;
+
+  @Param({"10000"})
+  private int customers;
+
+  private Workload workload;
+  private RunningStack runningStack;
+  private CuisinesRegistry registry;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    workload = new Workload(cuisines, customers, skew);
+    runningStack = stack.start();
+    registry = runningStack.registry();
+    registry.registerAll(workload.initialRegistrations(FOLLOWED_CUISINES));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    runningStack.stop().run();
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private int sample;
+    private int newCustomer;
+    private String newCustomerPrefix;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      sample = ThreadLocalRandom.current().nextInt();
+      newCustomerPrefix = "new-customer-" + Thread.currentThread().getId() + "-";
+    }
+
+    private int next() {
+      return sample++;
+    }
+
+    private Customer newCustomer() {
+      return Customer.of(newCustomerPrefix + newCustomer++);
+    }
+  }
+
+  // a customer that was never seen before follows a cuisine, the registry keeps growing over the run
+  @Benchmark
+  public void register(final Cursor cursor) {
+    registry.register(cursor.newCustomer(), workload.cuisine(cursor.next()));
+  }
+
+  // an existing customer follows one more, most likely already followed, cuisine
+  @Benchmark
+  public void registerExisting(final Cursor cursor) {
+    final int sample = cursor.next();
+    registry.register(workload.customer(sample), workload.cuisine(sample));
+  }
+
+  @Benchmark
+  public List<Cuisine> customerCuisines(final Cursor cursor) {
+    return registry.customerCuisines(workload.customer(cursor.next()));
+  }
+
+  @Benchmark
+  public List<Customer> cuisineCustomers(final Cursor cursor) {
+    return registry.cuisineCustomers(workload.cuisine(cursor.next()));
+  }
+
+  @Benchmark
+  public List<Cuisine> topCuisines() {
+    return registry.topCuisines(TOP_CUISINES);
+  }
+}
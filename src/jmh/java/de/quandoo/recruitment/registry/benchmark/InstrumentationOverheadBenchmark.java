@@ -0,0 +1,98 @@
+package de.quandoo.recruitment.registry.benchmark;
+
+import de.quandoo.recruitment.registry.CuisinesRegistryImpl;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.instrumentation.InstrumentedCuisineCustomersPort;
+import de.quandoo.recruitment.registry.instrumentation.InstrumentedCuisinesRegistry;
+import de.quandoo.recruitment.registry.instrumentation.InstrumentedCustomerCuisinesPort;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The in-memory stack with and without the instrumenting decorators around both ports and the registry,
+// the cheapest stack there is, so that the decorators' share of every call is as visible as it gets
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentationOverheadBenchmark {
+
+  @Param({"false", "true"})
+  private boolean instrumented;
+
+  @Param({"1024"})
+  private int cuisines;
+
+  @Param({"10000"})
+  private int customers;
+
+  private Workload workload;
+  private CuisinesRegistry registry;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    workload = new Workload(cuisines, customers, 1.0);
+    if (instrumented) {
+      registry = new InstrumentedCuisinesRegistry(new CuisinesRegistryImpl(
+          new InstrumentedCuisineCustomersPort(CuisineCustomersPort.getDefaultInstance(), "benchmark"),
+          new InstrumentedCustomerCuisinesPort(CustomerCuisinesPort.getDefaultInstance(), "benchmark")), "benchmark");
+    } else {
+      registry = new CuisinesRegistryImpl(CuisineCustomersPort.getDefaultInstance(), CustomerCuisinesPort.getDefaultInstance());
+    }
+    registry.registerAll(workload.initialRegistrations(3));
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private int sample;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      sample = ThreadLocalRandom.current().nextInt();
+    }
+
+    private int next() {
+      return sample++;
+    }
+  }
+
+  @Benchmark
+  public void registerExisting(final Cursor cursor) {
+    final int sample = cursor.next();
+    registry.register(workload.customer(sample), workload.cuisine(sample));
+  }
+
+  @Benchmark
+  public List<Cuisine> customerCuisines(final Cursor cursor) {
+    return registry.customerCuisines(workload.customer(cursor.next()));
+  }
+
+  @Benchmark
+  public List<Customer> cuisineCustomers(final Cursor cursor) {
+    return registry.cuisineCustomers(workload.cuisine(cursor.next()));
+  }
+
+  @Benchmark
+  public List<Cuisine> topCuisines() {
+    return registry.topCuisines(10);
+  }
+}
@@ -0,0 +1,82 @@
+package de.quandoo.recruitment.registry.benchmark;
+
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.benchmark.RegistryStack.RunningStack;
+import de.quandoo.recruitment.registry.model.Customer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Register throughput as threads are added, to be compared across the 1 to 32 thread runs of BenchmarkRunner.
+// The sharded registry returns once a write is queued, but its queues are bounded, so over an iteration it cannot
+// accept writes faster than its shards apply them. Queues are drained after every iteration.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegisterScalingBenchmark {
+
+  @Param({"IN_MEMORY", "SHARDED"})
+  private RegistryStack stack;
+
+  @Param({"1024"})
+  private int cuisines;
+
+  @Param({"1.0"})
+  private double skew;
+
+  private Workload workload;
+  private RunningStack runningStack;
+  private CuisinesRegistry registry;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    workload = new Workload(cuisines, 1, skew);
+    runningStack = stack.start();
+    registry = runningStack.registry();
+  }
+
+  // topCuisines waits for every shard, so nothing queued spills over into the next iteration
+  @TearDown(Level.Iteration)
+  public void drain() {
+    registry.topCuisines(1);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    runningStack.stop().run();
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private int sample;
+    private int newCustomer;
+    private String newCustomerPrefix;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      sample = ThreadLocalRandom.current().nextInt();
+      newCustomerPrefix = "new-customer-" + Thread.currentThread().getId() + "-";
+    }
+  }
+
+  @Benchmark
+  public void register(final Cursor cursor) {
+    registry.register(Customer.of(cursor.newCustomerPrefix + cursor.newCustomer++), workload.cuisine(cursor.sample++));
+  }
+}
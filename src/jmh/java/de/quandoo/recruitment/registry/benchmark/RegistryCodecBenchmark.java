@@ -0,0 +1,66 @@
+package de.quandoo.recruitment.registry.benchmark;
+
+import de.quandoo.recruitment.registry.adapters.redis.RegistryCodec;
+import de.quandoo.recruitment.registry.adapters.redis.entitiy.CuisineREntity;
+import de.quandoo.recruitment.registry.adapters.redis.entitiy.CustomerREntity;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.client.codec.Codec;
+import org.redisson.codec.JsonJacksonCodec;
+
+// Encoding and decoding one entity, the CPU every key and member of a Redis registration costs on the client
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistryCodecBenchmark {
+
+  @Param({"JSON", "REGISTRY"})
+  private String codecName;
+
+  private Codec codec;
+  private CuisineREntity cuisine;
+  private CustomerREntity customer;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    codec = "JSON".equals(codecName) ? new JsonJacksonCodec() : new RegistryCodec();
+    cuisine = new CuisineREntity("cuisine-42");
+    customer = new CustomerREntity(UUID.randomUUID().toString());
+  }
+
+  @Benchmark
+  public Object cuisineRoundTrip() throws IOException {
+    return roundTrip(cuisine);
+  }
+
+  @Benchmark
+  public Object customerRoundTrip() throws IOException {
+    return roundTrip(customer);
+  }
+
+  private Object roundTrip(final Object entity) throws IOException {
+    final ByteBuf encoded = codec.getValueEncoder().encode(entity);
+    try {
+      return codec.getValueDecoder().decode(encoded, null);
+    } finally {
+      encoded.release();
+    }
+  }
+}
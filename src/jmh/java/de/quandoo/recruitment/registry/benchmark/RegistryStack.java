@@ -0,0 +1,110 @@
+package de.quandoo.recruitment.registry.benchmark;
+
+import de.quandoo.recruitment.registry.CuisinesRegistryImpl;
+import de.quandoo.recruitment.registry.adapters.redis.CuisineCustomersRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.CustomerCuisinesRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.RedisScriptCuisinesRegistry;
+import de.quandoo.recruitment.registry.adapters.redis.RegistryCodec;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import de.quandoo.recruitment.registry.sharded.ShardedCuisinesRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+// The adapter stacks under benchmark, each started empty
+public enum RegistryStack {
+
+  IN_MEMORY {
+    @Override
+    RunningStack start() {
+      return new RunningStack(new CuisinesRegistryImpl(
+          CuisineCustomersPort.getDefaultInstance(),
+          CustomerCuisinesPort.getDefaultInstance()), () -> {
+      });
+    }
+  },
+
+  // one single-writer shard per core
+  SHARDED {
+    @Override
+    RunningStack start() {
+      final ShardedCuisinesRegistry registry = new ShardedCuisinesRegistry();
+      return new RunningStack(registry, registry::close);
+    }
+  },
+
+  REDIS {
+    @Override
+    RunningStack start() {
+      return startRedis(false);
+    }
+  },
+
+  // both index writes of a registration are sent concurrently
+  REDIS_FAN_OUT {
+    @Override
+    RunningStack start() {
+      return startRedis(true);
+    }
+  },
+
+  // one EVALSHA per registration writes both indexes and the popularity
+  REDIS_SCRIPT {
+    @Override
+    RunningStack start() {
+      return startRedis(RedisScriptCuisinesRegistry::new, () -> {
+      });
+    }
+  };
+
+  abstract RunningStack start();
+
+  private static RunningStack startRedis(final boolean fanOut) {
+    final ExecutorService fanOutExecutor = fanOut ? Executors.newCachedThreadPool() : null;
+    return startRedis(redissonClient -> CuisinesRegistryImpl.builder()
+        .cuisineCustomersPort(new CuisineCustomersRedisAdapter(redissonClient))
+        .customerCuisinesPort(new CustomerCuisinesRedisAdapter(redissonClient))
+        .fanOutExecutor(fanOutExecutor)
+        .build(), () -> {
+      if (fanOutExecutor != null) {
+        fanOutExecutor.shutdownNow();
+      }
+    });
+  }
+
+  private static RunningStack startRedis(final Function<RedissonClient, CuisinesRegistry> registry, final Runnable stop) {
+    final int port = freePort();
+    final RedisServer redisServer = RedisServer.builder().port(port).setting("save \"\"").build();
+    redisServer.start();
+    final Config config = new Config();
+    config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+    config.setCodec(RegistryCodec.INSTANCE);
+    final RedissonClient redissonClient = Redisson.create(config);
+    return new RunningStack(registry.apply(redissonClient), () -> {
+      stop.run();
+      redissonClient.shutdown();
+      redisServer.stop();
+    });
+  }
+
+  private static int freePort() {
+    try (ServerSocket serverSocket = new ServerSocket(0)) {
+      return serverSocket.getLocalPort();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not find a free port", e);
+    }
+  }
+
+  record RunningStack(CuisinesRegistry registry, Runnable stop) {
+
+  }
+}
@@ -0,0 +1,103 @@
+package de.quandoo.recruitment.registry.benchmark;
+
+import de.quandoo.recruitment.registry.CuisinesRegistryImpl;
+import de.quandoo.recruitment.registry.adapters.inmemory.CuisineCustomersInMemoryAdapter;
+import de.quandoo.recruitment.registry.adapters.inmemory.CustomerCuisinesInMemoryAdapter;
+import de.quandoo.recruitment.registry.adapters.inmemory.InMemorySnapshot;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.wal.Durability;
+import de.quandoo.recruitment.registry.wal.WriteAheadLog;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Startup of the in-memory registry: replaying every registration, from memory or from the write-ahead log, against
+// restoring an InMemorySnapshot. The 50M edge case needs a host with about 32GB of memory, run it on its own with
+// -p edges=50000000.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Threads(1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx32g")
+public class SnapshotRestoreBenchmark {
+
+  private static final int FOLLOWED_CUISINES = 5;
+
+  // registrations, every customer follows FOLLOWED_CUISINES cuisines, duplicates included
+  @Param({"5000000", "50000000"})
+  private int edges;
+
+  @Param({"1024"})
+  private int cuisines;
+
+  private List<Registration> registrations;
+  private Path directory;
+  private Path snapshot;
+  private Path log;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    registrations = new Workload(cuisines, edges / FOLLOWED_CUISINES, 1.0).initialRegistrations(FOLLOWED_CUISINES);
+    directory = Files.createTempDirectory("snapshot-benchmark");
+    snapshot = directory.resolve("registry.snapshot");
+    log = directory.resolve("registry.wal");
+    final CuisineCustomersInMemoryAdapter cuisineCustomers = new CuisineCustomersInMemoryAdapter();
+    final CustomerCuisinesInMemoryAdapter customerCuisines = new CustomerCuisinesInMemoryAdapter();
+    final WriteAheadLog writeAheadLog = WriteAheadLog.open(log, Durability.ASYNC);
+    new CuisinesRegistryImpl(cuisineCustomers, customerCuisines, writeAheadLog).registerAll(registrations);
+    writeAheadLog.close();
+    InMemorySnapshot.write(snapshot, cuisineCustomers, customerCuisines);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(snapshot);
+    Files.deleteIfExists(log);
+    Files.deleteIfExists(directory);
+  }
+
+  @Benchmark
+  public CuisinesRegistry replay() {
+    final CuisinesRegistry registry = new CuisinesRegistryImpl(
+        new CuisineCustomersInMemoryAdapter(), new CustomerCuisinesInMemoryAdapter());
+    registry.registerAll(registrations);
+    return registry;
+  }
+
+  @Benchmark
+  public CuisinesRegistry replayLog() {
+    final WriteAheadLog writeAheadLog = WriteAheadLog.open(log, Durability.ASYNC);
+    try {
+      return new CuisinesRegistryImpl(new CuisineCustomersInMemoryAdapter(), new CustomerCuisinesInMemoryAdapter(), writeAheadLog);
+    } finally {
+      writeAheadLog.close();
+    }
+  }
+
+  @Benchmark
+  public CuisinesRegistry restore() {
+    final CuisineCustomersInMemoryAdapter cuisineCustomers = new CuisineCustomersInMemoryAdapter();
+    final CustomerCuisinesInMemoryAdapter customerCuisines = new CustomerCuisinesInMemoryAdapter();
+    InMemorySnapshot.restore(snapshot, cuisineCustomers, customerCuisines);
+    return new CuisinesRegistryImpl(cuisineCustomers, customerCuisines);
+  }
+}
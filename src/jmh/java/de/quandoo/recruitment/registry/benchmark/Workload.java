@@ -0,0 +1,55 @@
+package de.quandoo.recruitment.registry.benchmark;
+
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.apache.commons.math3.distribution.ZipfDistribution;
+import org.apache.commons.math3.random.Well19937c;
+
+// Registrations whose cuisines follow a Zipf law: the k-th most popular cuisine is picked with a probability
+// proportional to 1 / k^skew. Samples are drawn once up front so that sampling stays out of the measurements.
+final class Workload {
+
+  private static final int SAMPLES = 1 << 16;
+  private static final long SEED = 42;
+
+  private final Cuisine[] cuisines;
+  private final Customer[] customers;
+  private final int[] cuisineSamples;
+
+  Workload(final int cuisineCount, final int customerCount, final double skew) {
+    this.cuisines = IntStream.range(0, cuisineCount).mapToObj(i -> Cuisine.of("cuisine-" + i)).toArray(Cuisine[]::new);
+    this.customers = IntStream.range(0, customerCount).mapToObj(i -> Customer.of("customer-" + i)).toArray(Customer[]::new);
+    // ZipfDistribution samples ranks from 1
+    this.cuisineSamples = IntStream.of(new ZipfDistribution(new Well19937c(SEED), cuisineCount, skew).sample(SAMPLES))
+        .map(rank -> rank - 1)
+        .toArray();
+  }
+
+  // every customer follows followedCuisines cuisines, duplicates included, as a steady state registry would hold
+  List<Registration> initialRegistrations(final int followedCuisines) {
+    final List<Registration> registrations = new ArrayList<>(customers.length * followedCuisines);
+    int sample = 0;
+    for (final Customer customer : customers) {
+      for (int i = 0; i < followedCuisines; i++) {
+        registrations.add(Registration.of(customer, cuisine(sample++)));
+      }
+    }
+    return registrations;
+  }
+
+  Cuisine cuisine(final int sample) {
+    return cuisines[cuisineSamples[sample & (SAMPLES - 1)]];
+  }
+
+  Customer customer(final int sample) {
+    return customers[Math.floorMod(sample * 0x9E3779B1, customers.length)];
+  }
+
+  int customerCount() {
+    return customers.length;
+  }
+}
@@ -0,0 +1,135 @@
+package de.quandoo.recruitment.registry;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.api.CuisinesRegistryAsync;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersAsyncPort;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesAsyncPort;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Both index writes of a registration are in flight at the same time and no thread waits for either. A lookup holds
+// no thread while it is outstanding, so the number of lookups in flight is not bounded by a pool.
+public class CuisinesRegistryAsyncImpl implements CuisinesRegistryAsync {
+
+  private final CuisineCustomersAsyncPort cuisineCustomersPort;
+  private final CustomerCuisinesAsyncPort customerCuisinesPort;
+
+  public CuisinesRegistryAsyncImpl(final CuisineCustomersAsyncPort cuisineCustomersPort,
+                                   final CustomerCuisinesAsyncPort customerCuisinesPort) {
+    this.cuisineCustomersPort = Preconditions.checkNotNull(cuisineCustomersPort, "Cuisine customers port could not be null!");
+    this.customerCuisinesPort = Preconditions.checkNotNull(customerCuisinesPort, "Customer cuisines port could not be null!");
+  }
+
+  @Override
+  public CompletableFuture<Void> registerAsync(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return bothIndexes(() -> customerCuisinesPort.registerAsync(customer, cuisine), () -> cuisineCustomersPort.registerAsync(cuisine, customer));
+  }
+
+  @Override
+  public CompletableFuture<Void> registerAllAsync(final Collection<Registration> registrations) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    return bothIndexes(() -> customerCuisinesPort.registerAllAsync(registrations), () -> cuisineCustomersPort.registerAllAsync(registrations));
+  }
+
+  @Override
+  public CompletableFuture<Void> unregisterAsync(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return bothIndexes(() -> customerCuisinesPort.unregisterAsync(customer, cuisine), () -> cuisineCustomersPort.unregisterAsync(cuisine, customer));
+  }
+
+  // the cuisine index write is chained to the customer index one, which tells the cuisines to leave
+  @Override
+  public CompletableFuture<Void> removeCustomerAsync(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    return customerCuisinesPort.removeCustomerAsync(customer)
+        .thenCompose(cuisines -> cuisineCustomersPort.removeCustomerAsync(customer, cuisines));
+  }
+
+  @Override
+  public CompletableFuture<List<Cuisine>> customerCuisinesAsync(final Customer customer) {
+    return customerCuisinesPort.customerCuisinesAsync(customer);
+  }
+
+  @Override
+  public CompletableFuture<List<Cuisine>> topCuisinesAsync(final int n) {
+    return cuisineCustomersPort.topCuisinesAsync(n);
+  }
+
+  @Override
+  public CompletableFuture<List<Customer>> cuisineCustomersAsync(final Cuisine cuisine) {
+    return cuisineCustomersPort.cuisineCustomersAsync(cuisine);
+  }
+
+  @Override
+  public CompletableFuture<Long> countCustomersAsync(final Cuisine cuisine) {
+    return cuisineCustomersPort.countCustomersAsync(cuisine);
+  }
+
+  // Same repair as CuisinesRegistryImpl's fan-out: a write that failed while the other succeeded is retried once, if
+  // the retry fails too the write stays half applied and nothing is undone. The future fails with the failure that
+  // could not be repaired, every other failure suppressed.
+  private static CompletableFuture<Void> bothIndexes(final Supplier<CompletableFuture<Void>> customerCuisinesWrite,
+                                                     final Supplier<CompletableFuture<Void>> cuisineCustomersWrite) {
+    final CompletableFuture<Void> customerCuisines = start(customerCuisinesWrite);
+    final CompletableFuture<Void> cuisineCustomers = start(cuisineCustomersWrite);
+    return CompletableFuture.allOf(customerCuisines, cuisineCustomers)
+        .handle((written, failure) -> failure)
+        .thenCompose(failure -> {
+          if (failure == null) {
+            return CompletableFuture.completedFuture(null);
+          }
+          final Throwable customerCuisinesFailure = failureOf(customerCuisines);
+          final Throwable cuisineCustomersFailure = failureOf(cuisineCustomers);
+          final CompletableFuture<Throwable> unrepaired;
+          if (customerCuisinesFailure != null && cuisineCustomersFailure != null) {
+            customerCuisinesFailure.addSuppressed(cuisineCustomersFailure);
+            unrepaired = CompletableFuture.completedFuture(customerCuisinesFailure);
+          } else if (customerCuisinesFailure != null) {
+            unrepaired = retry(customerCuisinesWrite, customerCuisinesFailure);
+          } else {
+            unrepaired = retry(cuisineCustomersWrite, cuisineCustomersFailure);
+          }
+          return unrepaired.thenCompose(unrepairedFailure -> unrepairedFailure == null
+              ? CompletableFuture.<Void>completedFuture(null)
+              : CompletableFuture.<Void>failedFuture(unrepairedFailure));
+        });
+  }
+
+  // completes with the failure and the retry's suppressed, with null once the retry succeeded
+  private static CompletableFuture<Throwable> retry(final Supplier<CompletableFuture<Void>> write, final Throwable failure) {
+    return start(write).handle((written, retryFailure) -> {
+      if (retryFailure == null) {
+        return null;
+      }
+      failure.addSuppressed(unwrap(retryFailure));
+      return failure;
+    });
+  }
+
+  // a port that fails before handing out its future fails the same way as one whose future fails
+  private static CompletableFuture<Void> start(final Supplier<CompletableFuture<Void>> write) {
+    try {
+      return write.get();
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  // the future is already done, join does not wait
+  private static Throwable failureOf(final CompletableFuture<Void> future) {
+    return future.handle((written, failure) -> failure == null ? null : unwrap(failure)).join();
+  }
+
+  private static Throwable unwrap(final Throwable failure) {
+    return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+  }
+}
@@ -1,23 +1,164 @@
 package de.quandoo.recruitment.registry;
 
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Striped;
 import de.quandoo.recruitment.registry.api.CuisinesRegistry;
 import de.quandoo.recruitment.registry.model.Cuisine;
 import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
 import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
 import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import de.quandoo.recruitment.registry.wal.WriteAheadLog;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import lombok.RequiredArgsConstructor;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.Builder;
 
-@RequiredArgsConstructor
 public class CuisinesRegistryImpl implements CuisinesRegistry {
 
+  private static final int REPLAY_BATCH_SIZE = 10_000;
+  private static final int LOG_ORDER_STRIPES = 1 << 10;
+
   private final CuisineCustomersPort cuisineCustomersPort;
   private final CustomerCuisinesPort customerCuisinesPort;
+  // null when registrations are not logged
+  private final WriteAheadLog writeAheadLog;
+  // Held from a write's append until it reached both ports, so writes of the same customer reach the ports in the
+  // order they were logged and replay ends in the same state. Writes of different customers commute. null without log.
+  private final Striped<Lock> customerLocks;
+  // null when the two index writes run one after the other on the calling thread
+  private final Executor fanOutExecutor;
+
+  public CuisinesRegistryImpl(final CuisineCustomersPort cuisineCustomersPort,
+                              final CustomerCuisinesPort customerCuisinesPort) {
+    this(cuisineCustomersPort, customerCuisinesPort, null, null);
+  }
+
+  public CuisinesRegistryImpl(final CuisineCustomersPort cuisineCustomersPort,
+                              final CustomerCuisinesPort customerCuisinesPort,
+                              final WriteAheadLog writeAheadLog) {
+    this(cuisineCustomersPort, customerCuisinesPort,
+        Preconditions.checkNotNull(writeAheadLog, "Write-ahead log could not be null!"), null);
+  }
+
+  // a write-ahead log is replayed into the ports, then every registration and removal is logged before it reaches them.
+  // With a fan-out executor the customer index is written on it while the calling thread writes the cuisine index.
+  @Builder
+  private CuisinesRegistryImpl(final CuisineCustomersPort cuisineCustomersPort,
+                               final CustomerCuisinesPort customerCuisinesPort,
+                               final WriteAheadLog writeAheadLog,
+                               final Executor fanOutExecutor) {
+    this.cuisineCustomersPort = Preconditions.checkNotNull(cuisineCustomersPort, "Cuisine customers port could not be null!");
+    this.customerCuisinesPort = Preconditions.checkNotNull(customerCuisinesPort, "Customer cuisines port could not be null!");
+    this.writeAheadLog = writeAheadLog;
+    this.customerLocks = writeAheadLog == null ? null : Striped.lock(LOG_ORDER_STRIPES);
+    this.fanOutExecutor = fanOutExecutor;
+    if (writeAheadLog != null) {
+      replay();
+    }
+  }
 
   @Override
   public void register(final Customer userId, final Cuisine cuisine) {
-    customerCuisinesPort.register(userId, cuisine);
-    cuisineCustomersPort.register(cuisine, userId);
+    if (writeAheadLog == null) {
+      applyRegister(userId, cuisine);
+      return;
+    }
+    final Registration registration = Registration.of(userId, cuisine);
+    inLogOrder(List.of(userId), () -> writeAheadLog.append(registration), () -> applyRegister(userId, cuisine));
+  }
+
+  private void applyRegister(final Customer userId, final Cuisine cuisine) {
+    if (fanOutExecutor == null) {
+      customerCuisinesPort.register(userId, cuisine);
+      cuisineCustomersPort.register(cuisine, userId);
+      return;
+    }
+    // both ports would reject them, validated here so that a bad argument is not reported as a half failed write
+    Preconditions.checkNotNull(userId, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    fanOut(() -> customerCuisinesPort.register(userId, cuisine), () -> cuisineCustomersPort.register(cuisine, userId));
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    if (writeAheadLog == null) {
+      applyRegisterAll(registrations);
+      return;
+    }
+    inLogOrder(registrations.stream().map(Registration::customer).toList(),
+        () -> writeAheadLog.appendAll(registrations), () -> applyRegisterAll(registrations));
+  }
+
+  private void applyRegisterAll(final Collection<Registration> registrations) {
+    if (fanOutExecutor == null) {
+      customerCuisinesPort.registerAll(registrations);
+      cuisineCustomersPort.registerAll(registrations);
+      return;
+    }
+    fanOut(() -> customerCuisinesPort.registerAll(registrations), () -> cuisineCustomersPort.registerAll(registrations));
+  }
+
+  // removals are idempotent like registrations and fan out the same way
+  @Override
+  public void unregister(final Customer customer, final Cuisine cuisine) {
+    if (writeAheadLog == null) {
+      applyUnregister(customer, cuisine);
+      return;
+    }
+    final Registration registration = Registration.of(customer, cuisine);
+    inLogOrder(List.of(customer), () -> writeAheadLog.appendUnregister(registration), () -> applyUnregister(customer, cuisine));
+  }
+
+  private void applyUnregister(final Customer customer, final Cuisine cuisine) {
+    if (fanOutExecutor == null) {
+      customerCuisinesPort.unregister(customer, cuisine);
+      cuisineCustomersPort.unregister(cuisine, customer);
+      return;
+    }
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    fanOut(() -> customerCuisinesPort.unregister(customer, cuisine), () -> cuisineCustomersPort.unregister(cuisine, customer));
+  }
+
+  // the customer index tells which cuisines to leave, so the two writes run one after the other
+  @Override
+  public void removeCustomer(final Customer customer) {
+    if (writeAheadLog == null) {
+      applyRemoveCustomer(customer);
+      return;
+    }
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    inLogOrder(List.of(customer), () -> writeAheadLog.appendRemoveCustomer(customer), () -> applyRemoveCustomer(customer));
+  }
+
+  private void applyRemoveCustomer(final Customer customer) {
+    final List<Cuisine> cuisines = customerCuisinesPort.removeCustomer(customer);
+    cuisineCustomersPort.removeCustomer(customer, cuisines);
+  }
+
+  // Pauses every write, commits the log, lets the snapshot persist both ports and then empties the log, so a restart
+  // restores the snapshot into the ports and replays only what was logged after it. After a crash before the log was
+  // emptied the whole log is replayed over the snapshot, which ends in the same state: replaying a customer's writes
+  // in log order gives the state of their last one whatever the state before.
+  public void checkpoint(final Runnable snapshot) {
+    Preconditions.checkNotNull(snapshot, "Snapshot could not be null!");
+    Preconditions.checkState(writeAheadLog != null, "Checkpoints need a write-ahead log!");
+    final List<Lock> locks = IntStream.range(0, customerLocks.size()).mapToObj(customerLocks::getAt).toList();
+    locked(locks, () -> {
+      writeAheadLog.sync();
+      snapshot.run();
+      writeAheadLog.truncate();
+    });
   }
 
   @Override
@@ -25,6 +166,16 @@ public class CuisinesRegistryImpl implements CuisinesRegistry {
     return cuisineCustomersPort.cuisineCustomers(cuisine);
   }
 
+  @Override
+  public Stream<Customer> streamCuisineCustomers(final Cuisine cuisine) {
+    return cuisineCustomersPort.streamCuisineCustomers(cuisine);
+  }
+
+  @Override
+  public long countCustomers(final Cuisine cuisine) {
+    return cuisineCustomersPort.countCustomers(cuisine);
+  }
+
   @Override
   public List<Cuisine> customerCuisines(final Customer customer) {
     return customerCuisinesPort.customerCuisines(customer);
@@ -34,4 +185,108 @@ public class CuisinesRegistryImpl implements CuisinesRegistry {
   public List<Cuisine> topCuisines(final int n) {
     return cuisineCustomersPort.topCuisines(n);
   }
+
+  // registrations replayed from the write-ahead log are restored, they do not trend again after a restart
+  @Override
+  public List<Cuisine> trendingCuisines(final int n, final Duration window) {
+    return cuisineCustomersPort.trendingCuisines(n, window);
+  }
+
+  // registrations are applied in batches, a removal first applies the registrations logged before it
+  private void replay() {
+    final List<Registration> batch = new ArrayList<>(REPLAY_BATCH_SIZE);
+    final Runnable flush = () -> {
+      customerCuisinesPort.registerAll(batch);
+      cuisineCustomersPort.restoreAll(batch);
+      batch.clear();
+    };
+    writeAheadLog.replay(new WriteAheadLog.Replayer() {
+      @Override
+      public void register(final Registration registration) {
+        batch.add(registration);
+        if (batch.size() == REPLAY_BATCH_SIZE) {
+          flush.run();
+        }
+      }
+
+      @Override
+      public void unregister(final Registration registration) {
+        flush.run();
+        customerCuisinesPort.unregister(registration.customer(), registration.cuisine());
+        cuisineCustomersPort.unregister(registration.cuisine(), registration.customer());
+      }
+
+      @Override
+      public void removeCustomer(final Customer customer) {
+        flush.run();
+        cuisineCustomersPort.removeCustomer(customer, customerCuisinesPort.removeCustomer(customer));
+      }
+    });
+    flush.run();
+  }
+
+  // stripes are taken in index order, as every other caller takes them
+  private void inLogOrder(final List<Customer> customers, final Runnable append, final Runnable apply) {
+    final List<Lock> locks = StreamSupport.stream(customerLocks.bulkGet(customers).spliterator(), false).distinct().toList();
+    locked(locks, () -> {
+      append.run();
+      apply.run();
+    });
+  }
+
+  private static void locked(final List<Lock> locks, final Runnable action) {
+    locks.forEach(Lock::lock);
+    try {
+      action.run();
+    } finally {
+      locks.forEach(Lock::unlock);
+    }
+  }
+
+  // Registrations are idempotent, so a write that failed while the other succeeded is retried once on the calling
+  // thread to bring both indexes back in step. If the retry fails too, the write stays half applied and the caller
+  // sees one exception, the failure that could not be repaired, with every other failure suppressed. Nothing is
+  // undone: a port does not tell whether the write changed anything, so an undo could take back a registration made
+  // before the call, and it would not be in the log. Repeating the call repairs it, as does replaying the log.
+  private void fanOut(final Runnable customerCuisinesWrite, final Runnable cuisineCustomersWrite) {
+    final CompletableFuture<Void> customerCuisines = CompletableFuture.runAsync(customerCuisinesWrite, fanOutExecutor);
+    RuntimeException cuisineCustomersFailure = null;
+    try {
+      cuisineCustomersWrite.run();
+    } catch (RuntimeException e) {
+      cuisineCustomersFailure = e;
+    }
+    RuntimeException customerCuisinesFailure = null;
+    try {
+      customerCuisines.join();
+    } catch (CompletionException e) {
+      customerCuisinesFailure = e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+
+    final RuntimeException failure;
+    if (customerCuisinesFailure != null && cuisineCustomersFailure != null) {
+      customerCuisinesFailure.addSuppressed(cuisineCustomersFailure);
+      failure = customerCuisinesFailure;
+    } else if (customerCuisinesFailure != null) {
+      failure = retry(customerCuisinesWrite, customerCuisinesFailure);
+    } else if (cuisineCustomersFailure != null) {
+      failure = retry(cuisineCustomersWrite, cuisineCustomersFailure);
+    } else {
+      return;
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  // the failure with the retry's suppressed, null once the retry succeeded
+  private static RuntimeException retry(final Runnable write, final RuntimeException failure) {
+    try {
+      write.run();
+      return null;
+    } catch (RuntimeException e) {
+      failure.addSuppressed(e);
+      return failure;
+    }
+  }
 }
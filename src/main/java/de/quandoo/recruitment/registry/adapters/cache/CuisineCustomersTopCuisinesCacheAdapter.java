@@ -0,0 +1,205 @@
+package de.quandoo.recruitment.registry.adapters.cache;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+// Caches the delegate's top cuisines in front of any CuisineCustomersPort. topCuisines(n) up to the cached size is one
+// volatile load of an immutable snapshot and a prefix of it. Every write through this adapter bumps the registration
+// epoch and schedules a refresh at most maxStaleness later, writes in between share that refresh, so the ranking
+// reflects a write within maxStaleness whatever the write rate. Writes that bypass this adapter are not seen.
+@Slf4j
+public class CuisineCustomersTopCuisinesCacheAdapter implements CuisineCustomersPort, Closeable {
+
+  private static final int DEFAULT_TOP_CUISINES_SIZE = 100;
+  private static final Duration DEFAULT_MAX_STALENESS = Duration.ofMillis(100);
+
+  private final CuisineCustomersPort delegate;
+  private final int topCuisinesSize;
+  private final long maxStalenessNanos;
+  private final AtomicLong epoch;
+  private final AtomicBoolean refreshScheduled;
+  // null until the first topCuisines
+  private final AtomicReference<TopCuisines> snapshot;
+  private final ScheduledExecutorService refresher;
+
+  @Builder
+  private CuisineCustomersTopCuisinesCacheAdapter(final CuisineCustomersPort delegate,
+                                                  final Integer topCuisinesSize,
+                                                  final Duration maxStaleness) {
+    this.delegate = Preconditions.checkNotNull(delegate, "Delegate could not be null!");
+    this.topCuisinesSize = topCuisinesSize == null ? DEFAULT_TOP_CUISINES_SIZE : topCuisinesSize;
+    Preconditions.checkArgument(this.topCuisinesSize > 0, "Top cuisines size should be greater than zero!");
+    this.maxStalenessNanos = (maxStaleness == null ? DEFAULT_MAX_STALENESS : maxStaleness).toNanos();
+    Preconditions.checkArgument(this.maxStalenessNanos >= 0, "Max staleness could not be negative!");
+    this.epoch = new AtomicLong();
+    this.refreshScheduled = new AtomicBoolean();
+    this.snapshot = new AtomicReference<>();
+    this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "top-cuisines-cache-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public void register(final Cuisine cuisine, final Customer customer) {
+    delegate.register(cuisine, customer);
+    changed();
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    delegate.registerAll(registrations);
+    changed();
+  }
+
+  @Override
+  public void restoreAll(final Collection<Registration> registrations) {
+    delegate.restoreAll(registrations);
+    changed();
+  }
+
+  @Override
+  public void unregister(final Cuisine cuisine, final Customer customer) {
+    delegate.unregister(cuisine, customer);
+    changed();
+  }
+
+  @Override
+  public void removeCustomer(final Customer customer, final Collection<Cuisine> cuisines) {
+    delegate.removeCustomer(customer, cuisines);
+    changed();
+  }
+
+  // a larger n than the cached one goes to the delegate
+  @Override
+  public List<Cuisine> topCuisines(final int n) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    if (n > topCuisinesSize) {
+      return delegate.topCuisines(n);
+    }
+    TopCuisines current = snapshot.get();
+    if (current == null) {
+      current = load();
+    }
+    return current.prefix(n);
+  }
+
+  // not cached, the window slides with the clock and not with the registration epoch
+  @Override
+  public List<Cuisine> trendingCuisines(final int n, final Duration window) {
+    return delegate.trendingCuisines(n, window);
+  }
+
+  @Override
+  public List<Customer> cuisineCustomers(final Cuisine cuisine) {
+    return delegate.cuisineCustomers(cuisine);
+  }
+
+  @Override
+  public Stream<Customer> streamCuisineCustomers(final Cuisine cuisine) {
+    return delegate.streamCuisineCustomers(cuisine);
+  }
+
+  @Override
+  public long countCustomers(final Cuisine cuisine) {
+    return delegate.countCustomers(cuisine);
+  }
+
+  // the epoch of the registrations the cached ranking reflects, -1 before it is first loaded
+  public long cachedEpoch() {
+    final TopCuisines current = snapshot.get();
+    return current == null ? -1 : current.epoch;
+  }
+
+  public long epoch() {
+    return epoch.get();
+  }
+
+  @Override
+  public void close() {
+    refresher.shutdownNow();
+  }
+
+  // nothing to refresh before the first topCuisines, load schedules the refresh for writes racing with it
+  private void changed() {
+    epoch.incrementAndGet();
+    if (snapshot.get() != null) {
+      scheduleRefresh();
+    }
+  }
+
+  private void scheduleRefresh() {
+    if (!refresher.isShutdown() && refreshScheduled.compareAndSet(false, true)) {
+      refresher.schedule(this::refresh, maxStalenessNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  // cleared before loading, so a write during the load schedules the next refresh
+  private void refresh() {
+    refreshScheduled.set(false);
+    try {
+      load();
+    } catch (RuntimeException e) {
+      // keeps serving the previous snapshot and tries again, the change must not be lost
+      log.warn("Could not refresh top cuisines", e);
+      scheduleRefresh();
+    }
+  }
+
+  // the epoch is read before the delegate, a snapshot never claims a write it may have missed
+  private TopCuisines load() {
+    final long loadedEpoch = epoch.get();
+    final TopCuisines loaded = new TopCuisines(loadedEpoch, List.copyOf(delegate.topCuisines(topCuisinesSize)));
+    // a slow load must not replace the result of a later one
+    final TopCuisines published = snapshot.accumulateAndGet(loaded,
+        (current, next) -> current != null && current.epoch > next.epoch ? current : next);
+    if (epoch.get() > published.epoch) {
+      scheduleRefresh();
+    }
+    return published;
+  }
+
+  private static final class TopCuisines {
+
+    private final long epoch;
+    private final List<Cuisine> cuisines;
+    // subList views created on first use per n and reused, racing readers at worst create one each
+    private final List<?>[] prefixes;
+
+    private TopCuisines(final long epoch, final List<Cuisine> cuisines) {
+      this.epoch = epoch;
+      this.cuisines = cuisines;
+      this.prefixes = new List<?>[cuisines.size()];
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Cuisine> prefix(final int n) {
+      if (n >= cuisines.size()) {
+        return cuisines;
+      }
+      List<Cuisine> prefix = (List<Cuisine>) prefixes[n];
+      if (prefix == null) {
+        prefix = cuisines.subList(0, n);
+        prefixes[n] = prefix;
+      }
+      return prefix;
+    }
+  }
+}
@@ -0,0 +1,275 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.CuisinePopularity;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+// Memory compact alternative to CuisineCustomersInMemoryAdapter: customers are dictionary encoded to dense ints
+// and every cuisine keeps its customers as a Roaring bitmap, which takes a few bytes or less per edge
+// instead of a set node and a Customer reference. The dictionary still holds every customer once, which dominates
+// the heap when customers follow only a few cuisines each.
+public class CuisineCustomersBitmapInMemoryAdapter implements CuisineCustomersPort {
+
+  private static final int STREAM_PAGE_SIZE = 1_024;
+
+  private final ConcurrentMap<Cuisine, CustomerBitmap> cuisineCustomers;
+  private final DenseIdDictionary<Customer> customerIds;
+  private final FrequencyBucketRanking topCuisinesRanking;
+  private final TrendingCounters trendingCounters;
+
+  public CuisineCustomersBitmapInMemoryAdapter() {
+    this(TrendingCounters.disabled());
+  }
+
+  public CuisineCustomersBitmapInMemoryAdapter(final TrendingCounters trendingCounters) {
+    this.cuisineCustomers = new ConcurrentHashMap<>();
+    this.customerIds = new DenseIdDictionary<>();
+    this.topCuisinesRanking = new FrequencyBucketRanking();
+    this.trendingCounters = Preconditions.checkNotNull(trendingCounters, "Trending counters could not be null!");
+  }
+
+  @Override
+  public void register(final Cuisine cuisine, final Customer customer) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    final CustomerBitmap customers = this.cuisineCustomers.computeIfAbsent(cuisine, c -> new CustomerBitmap());
+    if (customers.add(this.customerIds.encode(customer))) {
+      this.topCuisinesRanking.increment(cuisine);
+      this.trendingCounters.record(cuisine, 1);
+    }
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    addAll(registrations, true);
+  }
+
+  @Override
+  public void restoreAll(final Collection<Registration> registrations) {
+    addAll(registrations, false);
+  }
+
+  private void addAll(final Collection<Registration> registrations, final boolean trending) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    final Map<Cuisine, List<Integer>> customerIdsByCuisine = registrations.stream()
+        .collect(Collectors.groupingBy(Registration::cuisine,
+            Collectors.mapping(registration -> this.customerIds.encode(registration.customer()), Collectors.toList())));
+    customerIdsByCuisine.forEach((cuisine, ids) -> {
+      final int added = this.cuisineCustomers.computeIfAbsent(cuisine, c -> new CustomerBitmap())
+          .addAll(ids.stream().mapToInt(Integer::intValue).toArray());
+      if (added > 0) {
+        this.topCuisinesRanking.increment(cuisine, added);
+        if (trending) {
+          this.trendingCounters.record(cuisine, added);
+        }
+      }
+    });
+  }
+
+  // a customer that was never registered has no id, none is handed out for it here
+  @Override
+  public void unregister(final Cuisine cuisine, final Customer customer) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    removeFrom(cuisine, this.customerIds.find(customer));
+  }
+
+  // the customer keeps its id, registering it again reuses it
+  @Override
+  public void removeCustomer(final Customer customer, final Collection<Cuisine> cuisines) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisines, "Cuisines could not be null!");
+    final int customerId = this.customerIds.find(customer);
+    cuisines.forEach(cuisine -> removeFrom(cuisine, customerId));
+  }
+
+  private void removeFrom(final Cuisine cuisine, final int customerId) {
+    if (customerId == DenseIdDictionary.NOT_FOUND) {
+      return;
+    }
+    final CustomerBitmap customers = this.cuisineCustomers.get(cuisine);
+    if (customers != null && customers.remove(customerId)) {
+      this.topCuisinesRanking.decrement(cuisine, 1);
+    }
+  }
+
+  @Override
+  public List<Cuisine> topCuisines(final int n) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    return this.topCuisinesRanking.top(n);
+  }
+
+  @Override
+  public List<Cuisine> trendingCuisines(final int n, final Duration window) {
+    return this.trendingCounters.trending(n, window).stream().map(CuisinePopularity::cuisine).toList();
+  }
+
+  // copies the compressed bitmap only, customers are decoded while the list is read
+  @Override
+  public List<Customer> cuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    final CustomerBitmap customers = this.cuisineCustomers.get(cuisine);
+    return customers == null ? List.of() : new DecodingCustomerList(customers.snapshot(), this.customerIds);
+  }
+
+  // pages through the live bitmap in ascending id order, a page at a time under its lock, so nothing is copied
+  @Override
+  public Stream<Customer> streamCuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    final CustomerBitmap customers = this.cuisineCustomers.get(cuisine);
+    if (customers == null) {
+      return Stream.empty();
+    }
+    return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(new PagingIdIterator(customers),
+            Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL), false)
+        .mapToObj(this.customerIds::decode);
+  }
+
+  // read from the ranking, which already keeps the count per cuisine
+  @Override
+  public long countCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return this.topCuisinesRanking.count(cuisine);
+  }
+
+  // heap used by the bitmaps alone, without the customer dictionary, the Customer objects it holds or the ranking
+  public long postingListsSizeInBytes() {
+    return this.cuisineCustomers.values().stream().mapToLong(CustomerBitmap::sizeInBytes).sum();
+  }
+
+  private static final class CustomerBitmap {
+
+    private final RoaringBitmap bitmap = new RoaringBitmap();
+
+    private synchronized boolean add(final int customerId) {
+      return bitmap.checkedAdd(customerId);
+    }
+
+    private synchronized int addAll(final int[] customerIds) {
+      final int before = bitmap.getCardinality();
+      bitmap.add(customerIds);
+      return bitmap.getCardinality() - before;
+    }
+
+    private synchronized boolean remove(final int customerId) {
+      return bitmap.checkedRemove(customerId);
+    }
+
+    private synchronized RoaringBitmap snapshot() {
+      return bitmap.clone();
+    }
+
+    private synchronized long sizeInBytes() {
+      return bitmap.getLongSizeInBytes();
+    }
+
+    // copies up to page.length ids of at least from into page and returns how many
+    private synchronized int page(final int from, final int[] page) {
+      final PeekableIntIterator ids = bitmap.getIntIterator();
+      ids.advanceIfNeeded(from);
+      int count = 0;
+      while (count < page.length && ids.hasNext()) {
+        page[count++] = ids.next();
+      }
+      return count;
+    }
+  }
+
+  private static final class PagingIdIterator implements PrimitiveIterator.OfInt {
+
+    private final CustomerBitmap customers;
+    private final int[] page;
+    private int pageSize;
+    private int index;
+    private boolean lastPage;
+
+    private PagingIdIterator(final CustomerBitmap customers) {
+      this.customers = customers;
+      this.page = new int[STREAM_PAGE_SIZE];
+      this.pageSize = customers.page(0, page);
+      this.lastPage = pageSize < page.length;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (index == pageSize && !lastPage) {
+        // ids are dense from zero, the last one of a full page is never Integer.MAX_VALUE in practice
+        pageSize = customers.page(page[pageSize - 1] + 1, page);
+        lastPage = pageSize < page.length;
+        index = 0;
+      }
+      return index < pageSize;
+    }
+
+    @Override
+    public int nextInt() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return page[index++];
+    }
+  }
+
+  private static final class DecodingCustomerList extends AbstractList<Customer> {
+
+    private final RoaringBitmap customerIds;
+    private final DenseIdDictionary<Customer> dictionary;
+    private final int size;
+
+    private DecodingCustomerList(final RoaringBitmap customerIds, final DenseIdDictionary<Customer> dictionary) {
+      this.customerIds = customerIds;
+      this.dictionary = dictionary;
+      this.size = customerIds.getCardinality();
+    }
+
+    @Override
+    public Customer get(final int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return dictionary.decode(customerIds.select(index));
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Iterator<Customer> iterator() {
+      final IntIterator ids = customerIds.getIntIterator();
+      return new Iterator<>() {
+        @Override
+        public boolean hasNext() {
+          return ids.hasNext();
+        }
+
+        @Override
+        public Customer next() {
+          return dictionary.decode(ids.next());
+        }
+      };
+    }
+  }
+}
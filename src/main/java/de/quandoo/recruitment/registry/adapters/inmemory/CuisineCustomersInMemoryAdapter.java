@@ -2,57 +2,206 @@ package de.quandoo.recruitment.registry.adapters.inmemory;
 
 import com.google.common.base.Preconditions;
 import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.CuisinePopularity;
 import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
 import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+// Reads hand out the cuisine's current SnapshotList as is, a lookup allocates nothing and sees a point-in-time view.
 public class CuisineCustomersInMemoryAdapter implements CuisineCustomersPort {
 
-  private final ConcurrentMap<Cuisine, Set<Customer>> cuisineCustomers;
-  private final PriorityBlockingQueue<Cuisine> topCuisinesQueue;
+  private final ConcurrentMap<Cuisine, Followers> cuisineCustomers;
+  private final CuisineRanking topCuisinesRanking;
+  private final TrendingCounters trendingCounters;
 
   public CuisineCustomersInMemoryAdapter() {
-    this.cuisineCustomers = new ConcurrentHashMap<>();
-    this.topCuisinesQueue = new PriorityBlockingQueue<>(11, cuisineComparator());
+    this(new FrequencyBucketRanking());
+  }
+
+  // a SpaceSavingRanking bounds the memory of the ranking, topCuisines then becomes approximate
+  public CuisineCustomersInMemoryAdapter(final CuisineRanking topCuisinesRanking) {
+    this(topCuisinesRanking, TrendingCounters.disabled());
   }
 
-  private Comparator<Cuisine> cuisineComparator() {
-    return Comparator.comparingInt((Cuisine c) -> cuisineCustomers.get(c).size()).reversed();
+  public CuisineCustomersInMemoryAdapter(final CuisineRanking topCuisinesRanking, final TrendingCounters trendingCounters) {
+    this.cuisineCustomers = new ConcurrentHashMap<>();
+    this.topCuisinesRanking = Preconditions.checkNotNull(topCuisinesRanking, "Ranking could not be null!");
+    this.trendingCounters = Preconditions.checkNotNull(trendingCounters, "Trending counters could not be null!");
   }
 
   @Override
   public void register(final Cuisine cuisine, final Customer customer) {
     Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
     Preconditions.checkNotNull(customer, "Customer could not be null!");
-    this.cuisineCustomers.putIfAbsent(cuisine, ConcurrentHashMap.newKeySet());
-    this.cuisineCustomers.get(cuisine).add(customer);
-    updateTopCuisines(cuisine);
+    final Followers followers = this.cuisineCustomers.computeIfAbsent(cuisine, c -> new Followers());
+    // the ranking only moves when the customer is new to the cuisine
+    if (followers.add(customer)) {
+      this.topCuisinesRanking.increment(cuisine);
+      this.trendingCounters.record(cuisine, 1);
+    }
   }
 
-  private void updateTopCuisines(Cuisine cuisine) {
-    this.topCuisinesQueue.removeIf(c -> c.name().equals(cuisine.name()));
-    this.topCuisinesQueue.add(cuisine);
+  // one map lookup and one ranking move per cuisine instead of per registration
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    addAll(registrations, true);
+  }
+
+  @Override
+  public void restoreAll(final Collection<Registration> registrations) {
+    addAll(registrations, false);
+  }
+
+  private void addAll(final Collection<Registration> registrations, final boolean trending) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    final Map<Cuisine, List<Customer>> customersByCuisine = registrations.stream()
+        .collect(Collectors.groupingBy(Registration::cuisine, Collectors.mapping(Registration::customer, Collectors.toList())));
+    customersByCuisine.forEach((cuisine, newCustomers) -> {
+      final int added = this.cuisineCustomers.computeIfAbsent(cuisine, c -> new Followers()).addAll(newCustomers);
+      if (added > 0) {
+        this.topCuisinesRanking.increment(cuisine, added);
+        if (trending) {
+          this.trendingCounters.record(cuisine, added);
+        }
+      }
+    });
   }
 
   @Override
   public List<Cuisine> topCuisines(final int n) {
     Preconditions.checkArgument(n > 0, "n should be greater than zero!");
-    return this.topCuisinesQueue.stream().limit(n).toList();
+    return this.topCuisinesRanking.top(n);
+  }
+
+  // empty unless the adapter was given trending counters. Unregistering does not take a follower back out of the
+  // window it was counted in.
+  @Override
+  public List<Cuisine> trendingCuisines(final int n, final Duration window) {
+    return this.trendingCounters.trending(n, window).stream().map(CuisinePopularity::cuisine).toList();
   }
 
   @Override
   public List<Customer> cuisineCustomers(final Cuisine cuisine) {
     Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
-    return Optional.ofNullable(this.cuisineCustomers.get(cuisine))
-        .map(ArrayList::new)
-        .orElse(new ArrayList<>());
+    return snapshot(cuisine);
+  }
+
+  // streams the snapshot of the moment of the call, nothing is copied
+  @Override
+  public Stream<Customer> streamCuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return snapshot(cuisine).stream();
+  }
+
+  // the size of the snapshot, so this neither copies nor locks
+  @Override
+  public long countCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return snapshot(cuisine).size();
   }
-}
 
+  // the ranking only moves when the customer actually followed the cuisine, by one step of the bucket list
+  @Override
+  public void unregister(final Cuisine cuisine, final Customer customer) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    removeFrom(cuisine, customer);
+  }
+
+  // Also the eviction listener of a bounded CustomerCuisinesInMemoryAdapter. Emptied followers are kept, a concurrent
+  // registration may already hold them. Every removal copies the cuisine's snapshot, registrations only append to it.
+  @Override
+  public void removeCustomer(final Customer customer, final Collection<Cuisine> cuisines) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisines, "Cuisines could not be null!");
+    cuisines.forEach(cuisine -> removeFrom(cuisine, customer));
+  }
+
+  // weakly consistent, concurrent registrations may or may not be visited
+  void forEachCuisine(final BiConsumer<Cuisine, List<Customer>> consumer) {
+    this.cuisineCustomers.forEach((cuisine, followers) -> consumer.accept(cuisine, followers.snapshot));
+  }
+
+  // safe to call from many threads, the ranking is left untouched until rebuildRanking
+  void restore(final Cuisine cuisine, final Collection<Customer> customers) {
+    this.cuisineCustomers.computeIfAbsent(cuisine, c -> new Followers()).addAll(customers);
+  }
+
+  // most followed first, so that every cuisine lands at the tail of the ranking in O(1)
+  void rebuildRanking() {
+    this.cuisineCustomers.entrySet().stream()
+        .map(entry -> Map.entry(entry.getKey(), entry.getValue().snapshot.size()))
+        .filter(entry -> entry.getValue() > 0)
+        .sorted(Map.Entry.<Cuisine, Integer>comparingByValue(Comparator.reverseOrder()))
+        .forEachOrdered(entry -> this.topCuisinesRanking.increment(entry.getKey(), entry.getValue()));
+  }
+
+  private void removeFrom(final Cuisine cuisine, final Customer customer) {
+    final Followers followers = this.cuisineCustomers.get(cuisine);
+    if (followers != null && followers.remove(customer)) {
+      this.topCuisinesRanking.decrement(cuisine, 1);
+    }
+  }
+
+  private List<Customer> snapshot(final Cuisine cuisine) {
+    final Followers followers = this.cuisineCustomers.get(cuisine);
+    return followers == null ? List.of() : followers.snapshot;
+  }
+
+  boolean isEmpty() {
+    return this.cuisineCustomers.isEmpty();
+  }
+
+  // the positions answer whether a customer is new and where it sits in O(1), the snapshot is what readers get. A
+  // removal moves the last follower into the gap, so followers keep registration order only until one leaves.
+  private static final class Followers {
+
+    private final Map<Customer, Integer> positions = new HashMap<>();
+    private volatile SnapshotList<Customer> snapshot = SnapshotList.empty();
+
+    private synchronized boolean add(final Customer customer) {
+      if (positions.putIfAbsent(customer, snapshot.size()) != null) {
+        return false;
+      }
+      snapshot = snapshot.with(customer);
+      return true;
+    }
+
+    private synchronized int addAll(final Collection<Customer> customers) {
+      SnapshotList<Customer> next = snapshot;
+      for (final Customer customer : customers) {
+        if (positions.putIfAbsent(customer, next.size()) == null) {
+          next = next.with(customer);
+        }
+      }
+      final int added = next.size() - snapshot.size();
+      snapshot = next;
+      return added;
+    }
+
+    private synchronized boolean remove(final Customer customer) {
+      final Integer position = positions.remove(customer);
+      if (position == null) {
+        return false;
+      }
+      final SnapshotList<Customer> current = snapshot;
+      final Customer last = current.get(current.size() - 1);
+      if (!last.equals(customer)) {
+        positions.put(last, position);
+      }
+      snapshot = current.removeAt(position);
+      return true;
+    }
+  }
+}
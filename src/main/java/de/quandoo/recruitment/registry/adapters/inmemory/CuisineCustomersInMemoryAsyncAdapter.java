@@ -0,0 +1,73 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersAsyncPort;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// An in-memory port never waits on I/O, so it runs on the calling thread and hands back an already completed future
+// instead of taking a thread from a pool. A delegate that throws fails the future, callers never see the exception.
+public class CuisineCustomersInMemoryAsyncAdapter implements CuisineCustomersAsyncPort {
+
+  private final CuisineCustomersPort delegate;
+
+  public CuisineCustomersInMemoryAsyncAdapter(final CuisineCustomersPort delegate) {
+    this.delegate = Preconditions.checkNotNull(delegate, "Delegate could not be null!");
+  }
+
+  @Override
+  public CompletableFuture<Void> registerAsync(final Cuisine cuisine, final Customer customer) {
+    return run(() -> delegate.register(cuisine, customer));
+  }
+
+  @Override
+  public CompletableFuture<Void> registerAllAsync(final Collection<Registration> registrations) {
+    return run(() -> delegate.registerAll(registrations));
+  }
+
+  @Override
+  public CompletableFuture<Void> unregisterAsync(final Cuisine cuisine, final Customer customer) {
+    return run(() -> delegate.unregister(cuisine, customer));
+  }
+
+  @Override
+  public CompletableFuture<Void> removeCustomerAsync(final Customer customer, final Collection<Cuisine> cuisines) {
+    return run(() -> delegate.removeCustomer(customer, cuisines));
+  }
+
+  @Override
+  public CompletableFuture<List<Cuisine>> topCuisinesAsync(final int n) {
+    return supply(() -> delegate.topCuisines(n));
+  }
+
+  @Override
+  public CompletableFuture<List<Customer>> cuisineCustomersAsync(final Cuisine cuisine) {
+    return supply(() -> delegate.cuisineCustomers(cuisine));
+  }
+
+  @Override
+  public CompletableFuture<Long> countCustomersAsync(final Cuisine cuisine) {
+    return supply(() -> delegate.countCustomers(cuisine));
+  }
+
+  static CompletableFuture<Void> run(final Runnable call) {
+    return supply(() -> {
+      call.run();
+      return null;
+    });
+  }
+
+  static <T> CompletableFuture<T> supply(final Supplier<T> call) {
+    try {
+      return CompletableFuture.completedFuture(call.get());
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+}
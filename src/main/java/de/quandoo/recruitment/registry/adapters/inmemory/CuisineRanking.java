@@ -0,0 +1,21 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import de.quandoo.recruitment.registry.model.Cuisine;
+import java.util.List;
+
+// Customer counts per cuisine, ordered for topCuisines. Implementations are safe to use from many threads.
+public interface CuisineRanking {
+
+  default void increment(final Cuisine cuisine) {
+    increment(cuisine, 1);
+  }
+
+  void increment(Cuisine cuisine, long by);
+
+  // a cuisine whose count drops to zero leaves the ranking
+  void decrement(Cuisine cuisine, long by);
+
+  long count(Cuisine cuisine);
+
+  List<Cuisine> top(int n);
+}
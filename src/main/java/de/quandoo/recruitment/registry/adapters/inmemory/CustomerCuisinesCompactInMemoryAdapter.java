@@ -0,0 +1,136 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Memory compact alternative to CustomerCuisinesInMemoryAdapter for customers identified by canonical UUIDs.
+// A customer costs two longs and a small int array of interned cuisine ids instead of a String, a Customer,
+// a map node and a concurrent set. Customer ids that are not canonical lower case UUIDs are kept in a regular map.
+// Reads never lock.
+public class CustomerCuisinesCompactInMemoryAdapter implements CustomerCuisinesPort {
+
+  private static final int UUID_LENGTH = 36;
+
+  private final UuidKeyedIntArrayMap uuidCustomers;
+  private final ConcurrentMap<String, int[]> otherCustomers;
+  private final DenseIdDictionary<Cuisine> cuisineIds;
+
+  public CustomerCuisinesCompactInMemoryAdapter() {
+    this.uuidCustomers = new UuidKeyedIntArrayMap();
+    this.otherCustomers = new ConcurrentHashMap<>();
+    this.cuisineIds = new DenseIdDictionary<>();
+  }
+
+  @Override
+  public void register(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    final int cuisineId = this.cuisineIds.encode(cuisine);
+    final String uuid = customer.uuid();
+    if (isCanonicalUuid(uuid)) {
+      this.uuidCustomers.addValue(mostSigBits(uuid), leastSigBits(uuid), cuisineId);
+    } else {
+      this.otherCustomers.merge(uuid, new int[]{cuisineId}, CustomerCuisinesCompactInMemoryAdapter::union);
+    }
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    registrations.forEach(registration -> register(registration.customer(), registration.cuisine()));
+  }
+
+  @Override
+  public void unregister(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    final int cuisineId = this.cuisineIds.find(cuisine);
+    if (cuisineId == DenseIdDictionary.NOT_FOUND) {
+      return;
+    }
+    final String uuid = customer.uuid();
+    if (isCanonicalUuid(uuid)) {
+      this.uuidCustomers.removeValue(mostSigBits(uuid), leastSigBits(uuid), cuisineId);
+    } else {
+      this.otherCustomers.computeIfPresent(uuid, (key, ids) -> without(ids, cuisineId));
+    }
+  }
+
+  @Override
+  public List<Cuisine> removeCustomer(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    final String uuid = customer.uuid();
+    final int[] ids = isCanonicalUuid(uuid)
+        ? this.uuidCustomers.removeAll(mostSigBits(uuid), leastSigBits(uuid))
+        : this.otherCustomers.remove(uuid);
+    return decode(ids);
+  }
+
+  @Override
+  public List<Cuisine> customerCuisines(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    final String uuid = customer.uuid();
+    final int[] ids = isCanonicalUuid(uuid)
+        ? this.uuidCustomers.get(mostSigBits(uuid), leastSigBits(uuid))
+        : this.otherCustomers.get(uuid);
+    return decode(ids);
+  }
+
+  private List<Cuisine> decode(final int[] ids) {
+    return ids == null ? List.of() : Arrays.stream(ids).mapToObj(this.cuisineIds::decode).toList();
+  }
+
+  private static int[] union(final int[] existing, final int[] added) {
+    if (Arrays.stream(existing).anyMatch(id -> id == added[0])) {
+      return existing;
+    }
+    final int[] union = Arrays.copyOf(existing, existing.length + 1);
+    union[existing.length] = added[0];
+    return union;
+  }
+
+  // null once the last id is gone, which removes the customer from the map
+  private static int[] without(final int[] existing, final int removed) {
+    final int[] remaining = Arrays.stream(existing).filter(id -> id != removed).toArray();
+    return remaining.length == 0 ? null : remaining;
+  }
+
+  // only the canonical form maps one to one to two longs, UUID.fromString would also accept "1-1-1-1-1"
+  private static boolean isCanonicalUuid(final String uuid) {
+    if (uuid.length() != UUID_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < UUID_LENGTH; i++) {
+      final char c = uuid.charAt(i);
+      final boolean valid = i == 8 || i == 13 || i == 18 || i == 23 ? c == '-' : (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+      if (!valid) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long mostSigBits(final String uuid) {
+    return hex(uuid, 0, 8) << 32 | hex(uuid, 9, 13) << 16 | hex(uuid, 14, 18);
+  }
+
+  private static long leastSigBits(final String uuid) {
+    return hex(uuid, 19, 23) << 48 | hex(uuid, 24, 36);
+  }
+
+  private static long hex(final String uuid, final int from, final int to) {
+    long value = 0;
+    for (int i = from; i < to; i++) {
+      value = value << 4 | Character.digit(uuid.charAt(i), 16);
+    }
+    return value;
+  }
+}
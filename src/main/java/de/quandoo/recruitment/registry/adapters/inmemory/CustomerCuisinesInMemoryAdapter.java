@@ -3,37 +3,143 @@ package de.quandoo.recruitment.registry.adapters.inmemory;
 import com.google.common.base.Preconditions;
 import de.quandoo.recruitment.registry.model.Cuisine;
 import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
 import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import lombok.RequiredArgsConstructor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
-@RequiredArgsConstructor
+// Unbounded by default. With a maximum number of customers, registering a customer over the limit evicts an idle one,
+// picked by sampled LRU in O(1), and hands it with its cuisines to the eviction listener, typically
+// CuisineCustomersInMemoryAdapter::removeCustomer so that the customer leaves both indexes and the ranking.
+// Registering and looking up a customer's cuisines count as use. Bounded registrations are serialized by a lock, lookups
+// are not. A customer's cuisines are a SnapshotList written under the map's per-key lock, lookups return it as is.
 public class CustomerCuisinesInMemoryAdapter implements CustomerCuisinesPort {
 
-  private final ConcurrentMap<Customer, Set<Cuisine>> map;
+  private final ConcurrentMap<Customer, SnapshotList<Cuisine>> map;
+  // null when unbounded
+  private final SampledLru<Customer> lru;
+  private final BiConsumer<Customer, List<Cuisine>> evictionListener;
+  private final ReentrantLock lock;
 
   public CustomerCuisinesInMemoryAdapter() {
-    this(new ConcurrentHashMap<>());
+    this.map = new ConcurrentHashMap<>();
+    this.lru = null;
+    this.evictionListener = null;
+    this.lock = null;
+  }
+
+  // A customer registering at the same moment as it is evicted may be left in the other index. The most recently
+  // registered customer is never the one evicted, so this takes a limit smaller than the number of registering threads.
+  public CustomerCuisinesInMemoryAdapter(final int maxCustomers, final BiConsumer<Customer, List<Cuisine>> evictionListener) {
+    this.map = new ConcurrentHashMap<>();
+    this.lru = new SampledLru<>(maxCustomers);
+    this.evictionListener = Preconditions.checkNotNull(evictionListener, "Eviction listener could not be null!");
+    this.lock = new ReentrantLock();
   }
 
   @Override
   public void register(final Customer customer, final Cuisine cuisine) {
     Preconditions.checkNotNull(customer, "Customer could not be null!");
     Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
-    this.map.putIfAbsent(customer, ConcurrentHashMap.newKeySet());
-    this.map.get(customer).add(cuisine);
+    addCuisines(customer, List.of(cuisine));
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    registrations.stream()
+        .collect(Collectors.groupingBy(Registration::customer, Collectors.mapping(Registration::cuisine, Collectors.toSet())))
+        .forEach(this::addCuisines);
+  }
+
+  // the customer keeps its entry, and its place in a bounded adapter, when its last cuisine is unregistered
+  @Override
+  public void unregister(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    this.map.computeIfPresent(customer, (c, cuisines) -> cuisines.without(cuisine));
+  }
+
+  // a registration racing with the removal either leaves with it or starts a new entry
+  @Override
+  public List<Cuisine> removeCustomer(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    if (lru == null) {
+      return toList(this.map.remove(customer));
+    }
+    lock.lock();
+    try {
+      lru.remove(customer);
+      return toList(this.map.remove(customer));
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
   public List<Cuisine> customerCuisines(final Customer customer) {
     Preconditions.checkNotNull(customer, "Customer could not be null!");
-    return Optional.ofNullable(this.map.get(customer))
-        .map(ArrayList::new)
-        .orElse(new ArrayList<>());
+    if (lru != null) {
+      lru.touch(customer);
+    }
+    return toList(this.map.get(customer));
+  }
+
+  // weakly consistent, concurrent registrations may or may not be visited
+  void forEachCustomer(final BiConsumer<Customer, List<Cuisine>> consumer) {
+    this.map.forEach(consumer);
+  }
+
+  void restore(final Customer customer, final Collection<Cuisine> cuisines) {
+    addCuisines(customer, cuisines);
+  }
+
+  boolean isEmpty() {
+    return this.map.isEmpty();
+  }
+
+  private void addCuisines(final Customer customer, final Collection<Cuisine> cuisines) {
+    if (lru == null) {
+      this.map.compute(customer, (c, current) -> withNew(current, cuisines));
+      return;
+    }
+    lock.lock();
+    try {
+      admit(customer);
+      this.map.compute(customer, (c, current) -> withNew(current, cuisines));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // a customer follows a handful of cuisines, a linear contains is cheaper than a set per customer
+  private static SnapshotList<Cuisine> withNew(final SnapshotList<Cuisine> current, final Collection<Cuisine> cuisines) {
+    SnapshotList<Cuisine> next = current == null ? SnapshotList.empty() : current;
+    for (final Cuisine cuisine : cuisines) {
+      if (!next.contains(cuisine)) {
+        next = next.with(cuisine);
+      }
+    }
+    return next;
+  }
+
+  private static List<Cuisine> toList(final SnapshotList<Cuisine> cuisines) {
+    return cuisines == null ? List.of() : cuisines;
+  }
+
+  private void admit(final Customer customer) {
+    final Customer evicted = lru.admit(customer);
+    if (evicted == null) {
+      return;
+    }
+    final List<Cuisine> cuisines = this.map.remove(evicted);
+    if (cuisines != null) {
+      evictionListener.accept(evicted, cuisines);
+    }
   }
 }
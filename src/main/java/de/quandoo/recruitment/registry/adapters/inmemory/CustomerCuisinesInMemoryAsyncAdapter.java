@@ -0,0 +1,46 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesAsyncPort;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// runs on the calling thread and fails the future instead of throwing, like CuisineCustomersInMemoryAsyncAdapter
+public class CustomerCuisinesInMemoryAsyncAdapter implements CustomerCuisinesAsyncPort {
+
+  private final CustomerCuisinesPort delegate;
+
+  public CustomerCuisinesInMemoryAsyncAdapter(final CustomerCuisinesPort delegate) {
+    this.delegate = Preconditions.checkNotNull(delegate, "Delegate could not be null!");
+  }
+
+  @Override
+  public CompletableFuture<Void> registerAsync(final Customer customer, final Cuisine cuisine) {
+    return CuisineCustomersInMemoryAsyncAdapter.run(() -> delegate.register(customer, cuisine));
+  }
+
+  @Override
+  public CompletableFuture<Void> registerAllAsync(final Collection<Registration> registrations) {
+    return CuisineCustomersInMemoryAsyncAdapter.run(() -> delegate.registerAll(registrations));
+  }
+
+  @Override
+  public CompletableFuture<Void> unregisterAsync(final Customer customer, final Cuisine cuisine) {
+    return CuisineCustomersInMemoryAsyncAdapter.run(() -> delegate.unregister(customer, cuisine));
+  }
+
+  @Override
+  public CompletableFuture<List<Cuisine>> removeCustomerAsync(final Customer customer) {
+    return CuisineCustomersInMemoryAsyncAdapter.supply(() -> delegate.removeCustomer(customer));
+  }
+
+  @Override
+  public CompletableFuture<List<Cuisine>> customerCuisinesAsync(final Customer customer) {
+    return CuisineCustomersInMemoryAsyncAdapter.supply(() -> delegate.customerCuisines(customer));
+  }
+}
@@ -0,0 +1,68 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Assigns dense int ids (0, 1, 2, ...) to values in first-seen order and decodes them back.
+// Decoding is an array lookup; values are kept in fixed size pages so growing never copies them.
+public class DenseIdDictionary<T> {
+
+  public static final int NOT_FOUND = -1;
+
+  private static final int PAGE_BITS = 14;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private final ConcurrentMap<T, Integer> ids;
+  private volatile Object[][] pages;
+  private int size;
+
+  public DenseIdDictionary() {
+    this.ids = new ConcurrentHashMap<>();
+    this.pages = new Object[16][];
+  }
+
+  public int encode(final T value) {
+    Preconditions.checkNotNull(value, "Value could not be null!");
+    final Integer id = ids.get(value);
+    return id != null ? id : assign(value);
+  }
+
+  public int find(final T value) {
+    Preconditions.checkNotNull(value, "Value could not be null!");
+    return ids.getOrDefault(value, NOT_FOUND);
+  }
+
+  // ids are only handed out after their page slot is written, so any id obtained from encode can be decoded
+  @SuppressWarnings("unchecked")
+  public T decode(final int id) {
+    return (T) pages[id >>> PAGE_BITS][id & PAGE_MASK];
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  private synchronized int assign(final T value) {
+    final Integer existing = ids.get(value);
+    if (existing != null) {
+      return existing;
+    }
+    final int id = size;
+    final int page = id >>> PAGE_BITS;
+    Object[][] current = pages;
+    if (page == current.length) {
+      current = Arrays.copyOf(current, current.length * 2);
+    }
+    if (current[page] == null) {
+      current[page] = new Object[PAGE_SIZE];
+    }
+    current[page][id & PAGE_MASK] = value;
+    pages = current;
+    size = id + 1;
+    ids.put(value, id);
+    return id;
+  }
+}
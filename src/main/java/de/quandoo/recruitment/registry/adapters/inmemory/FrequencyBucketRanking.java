@@ -0,0 +1,165 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Keeps cuisines ordered by customer count in a doubly linked list of buckets, one bucket per distinct count,
+// highest count first (the structure behind O(1) LFU caches).
+// increment or decrement by one moves a cuisine to the neighbour bucket in O(1), top(n) walks from the head in O(n).
+// Cuisines with the same count keep the order in which they reached it.
+public class FrequencyBucketRanking implements CuisineRanking {
+
+  private final Map<Cuisine, Bucket> buckets;
+  private final ReentrantLock lock;
+  private Bucket head;
+  private Bucket tail;
+
+  public FrequencyBucketRanking() {
+    this.buckets = new HashMap<>();
+    this.lock = new ReentrantLock();
+  }
+
+  // moves the cuisine up by the given number of customers, walking only the buckets it passes
+  @Override
+  public void increment(final Cuisine cuisine, final long by) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    Preconditions.checkArgument(by > 0, "by should be greater than zero!");
+    lock.lock();
+    try {
+      final Bucket current = buckets.get(cuisine);
+      final long count = (current == null ? 0 : current.count) + by;
+      Bucket lower = current == null ? tail : current;
+      if (lower != null && lower.count > count) {
+        lower = null;
+      }
+      while (lower != null && lower.higher != null && lower.higher.count <= count) {
+        lower = lower.higher;
+      }
+      final Bucket target = lower != null && lower.count == count ? lower : insertAbove(lower, count);
+      target.cuisines.add(cuisine);
+      buckets.put(cuisine, target);
+      if (current != null) {
+        detach(current, cuisine);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // moves the cuisine down by the given number of customers, or out of the ranking when none are left
+  @Override
+  public void decrement(final Cuisine cuisine, final long by) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    Preconditions.checkArgument(by > 0, "by should be greater than zero!");
+    lock.lock();
+    try {
+      final Bucket current = buckets.get(cuisine);
+      if (current == null) {
+        return;
+      }
+      final long count = current.count - by;
+      if (count <= 0) {
+        buckets.remove(cuisine);
+        detach(current, cuisine);
+        return;
+      }
+      Bucket upper = current;
+      while (upper.lower != null && upper.lower.count >= count) {
+        upper = upper.lower;
+      }
+      final Bucket target = upper.count == count ? upper : insertAbove(upper.lower, count);
+      target.cuisines.add(cuisine);
+      buckets.put(cuisine, target);
+      detach(current, cuisine);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public long count(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    lock.lock();
+    try {
+      final Bucket bucket = buckets.get(cuisine);
+      return bucket == null ? 0 : bucket.count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public List<Cuisine> top(final int n) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    lock.lock();
+    try {
+      final List<Cuisine> top = new ArrayList<>(Math.min(n, buckets.size()));
+      for (Bucket bucket = head; bucket != null && top.size() < n; bucket = bucket.lower) {
+        for (final Cuisine cuisine : bucket.cuisines) {
+          if (top.size() == n) {
+            break;
+          }
+          top.add(cuisine);
+        }
+      }
+      return top;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // a null lower bucket means the new bucket becomes the tail
+  private Bucket insertAbove(final Bucket lower, final long count) {
+    final Bucket bucket = new Bucket(count);
+    final Bucket higher = lower == null ? tail : lower.higher;
+    bucket.lower = lower;
+    bucket.higher = higher;
+    if (lower != null) {
+      lower.higher = bucket;
+    } else {
+      tail = bucket;
+    }
+    if (higher != null) {
+      higher.lower = bucket;
+    } else {
+      head = bucket;
+    }
+    return bucket;
+  }
+
+  private void detach(final Bucket bucket, final Cuisine cuisine) {
+    bucket.cuisines.remove(cuisine);
+    if (!bucket.cuisines.isEmpty()) {
+      return;
+    }
+    if (bucket.higher != null) {
+      bucket.higher.lower = bucket.lower;
+    } else {
+      head = bucket.lower;
+    }
+    if (bucket.lower != null) {
+      bucket.lower.higher = bucket.higher;
+    } else {
+      tail = bucket.higher;
+    }
+  }
+
+  private static final class Bucket {
+
+    private final long count;
+    private final LinkedHashSet<Cuisine> cuisines;
+    private Bucket higher;
+    private Bucket lower;
+
+    private Bucket(final long count) {
+      this.count = count;
+      this.cuisines = new LinkedHashSet<>();
+    }
+  }
+}
@@ -0,0 +1,394 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+
+// Versioned binary snapshot of CuisineCustomersInMemoryAdapter and CustomerCuisinesInMemoryAdapter.
+//
+// Layout, integers in the blocks are unsigned varints and strings are a varint length followed by UTF-8 bytes:
+//  header    magic int, version int
+//  blocks    cuisine blocks: entries of cuisine id, customer count, customer uuids
+//            customer blocks: entries of customer uuid, cuisine count, cuisine ids
+//            cuisine dictionary block: count, cuisine names in id order
+//  index     dictionary block offset long and length int, then per section a block count int and
+//            the offset long and length int of every block
+//  trailer   index offset long, magic int
+// Blocks hold a bounded number of edges, a large cuisine is split over several entries, so that restore can decode
+// every block in its own fork join task.
+//
+// Writing iterates the live maps and never stops writers, the snapshot is fuzzy: registrations made while it is written
+// may be in it or not, and may be in one index only.
+public final class InMemorySnapshot {
+
+  private static final int MAGIC = 0x43524E53;
+  private static final int VERSION = 1;
+  private static final int EDGES_PER_BLOCK = 1 << 16;
+  private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+  private InMemorySnapshot() {
+  }
+
+  public static void write(final Path file,
+                           final CuisineCustomersInMemoryAdapter cuisineCustomers,
+                           final CustomerCuisinesInMemoryAdapter customerCuisines) {
+    Preconditions.checkNotNull(file, "File could not be null!");
+    final Path temporary = file.resolveSibling(file.getFileName() + ".writing");
+    try (FileChannel channel = FileChannel.open(temporary,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      final SnapshotWriter writer = new SnapshotWriter(channel);
+      writer.writeHeader();
+      final List<BlockRef> cuisineBlocks = writer.writeCuisineBlocks(cuisineCustomers);
+      final List<BlockRef> customerBlocks = writer.writeCustomerBlocks(customerCuisines);
+      final BlockRef dictionary = writer.writeDictionary();
+      writer.writeIndex(dictionary, cuisineBlocks, customerBlocks);
+      channel.force(true);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write snapshot " + file, e);
+    }
+    try {
+      Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write snapshot " + file, e);
+    }
+  }
+
+  public static void restore(final Path file,
+                             final CuisineCustomersInMemoryAdapter cuisineCustomers,
+                             final CustomerCuisinesInMemoryAdapter customerCuisines) {
+    restore(file, cuisineCustomers, customerCuisines, ForkJoinPool.commonPool());
+  }
+
+  // decodes every block in parallel into the given empty adapters, then rebuilds the top cuisines ranking
+  public static void restore(final Path file,
+                             final CuisineCustomersInMemoryAdapter cuisineCustomers,
+                             final CustomerCuisinesInMemoryAdapter customerCuisines,
+                             final ForkJoinPool pool) {
+    Preconditions.checkNotNull(file, "File could not be null!");
+    Preconditions.checkState(cuisineCustomers.isEmpty() && customerCuisines.isEmpty(), "Snapshot can only be restored into empty adapters!");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      final ByteBuffer trailer = channel.map(MapMode.READ_ONLY, size - TRAILER_SIZE, TRAILER_SIZE);
+      final long indexOffset = trailer.getLong();
+      Preconditions.checkState(trailer.getInt() == MAGIC, "%s is not a cuisines registry snapshot!", file);
+      final ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, 2 * Integer.BYTES);
+      Preconditions.checkState(header.getInt() == MAGIC, "%s is not a cuisines registry snapshot!", file);
+      final int version = header.getInt();
+      Preconditions.checkState(version == VERSION, "Unsupported snapshot version %s!", version);
+
+      final ByteBuffer index = channel.map(MapMode.READ_ONLY, indexOffset, size - TRAILER_SIZE - indexOffset);
+      final Cuisine[] dictionary = readDictionary(channel.map(MapMode.READ_ONLY, index.getLong(), index.getInt()));
+      final List<ByteBuffer> cuisineBlocks = mapBlocks(channel, index);
+      final List<ByteBuffer> customerBlocks = mapBlocks(channel, index);
+
+      pool.invoke(new DecodeBlocks(cuisineBlocks, 0, cuisineBlocks.size(),
+          block -> decodeCuisineBlock(block, dictionary, cuisineCustomers)));
+      pool.invoke(new DecodeBlocks(customerBlocks, 0, customerBlocks.size(),
+          block -> decodeCustomerBlock(block, dictionary, customerCuisines)));
+      cuisineCustomers.rebuildRanking();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not restore snapshot " + file, e);
+    }
+  }
+
+  private static List<ByteBuffer> mapBlocks(final FileChannel channel, final ByteBuffer index) throws IOException {
+    final int count = index.getInt();
+    final List<ByteBuffer> blocks = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      blocks.add(channel.map(MapMode.READ_ONLY, index.getLong(), index.getInt()));
+    }
+    return blocks;
+  }
+
+  private static Cuisine[] readDictionary(final ByteBuffer block) {
+    final Cuisine[] cuisines = new Cuisine[readVarInt(block)];
+    for (int i = 0; i < cuisines.length; i++) {
+      cuisines[i] = Cuisine.of(readString(block));
+    }
+    return cuisines;
+  }
+
+  private static void decodeCuisineBlock(final ByteBuffer block, final Cuisine[] dictionary,
+                                         final CuisineCustomersInMemoryAdapter cuisineCustomers) {
+    while (block.hasRemaining()) {
+      final Cuisine cuisine = dictionary[readVarInt(block)];
+      final Customer[] customers = new Customer[readVarInt(block)];
+      for (int i = 0; i < customers.length; i++) {
+        customers[i] = Customer.of(readString(block));
+      }
+      cuisineCustomers.restore(cuisine, Arrays.asList(customers));
+    }
+  }
+
+  private static void decodeCustomerBlock(final ByteBuffer block, final Cuisine[] dictionary,
+                                          final CustomerCuisinesInMemoryAdapter customerCuisines) {
+    while (block.hasRemaining()) {
+      final Customer customer = Customer.of(readString(block));
+      final Cuisine[] cuisines = new Cuisine[readVarInt(block)];
+      for (int i = 0; i < cuisines.length; i++) {
+        cuisines[i] = dictionary[readVarInt(block)];
+      }
+      customerCuisines.restore(customer, Arrays.asList(cuisines));
+    }
+  }
+
+  private static int readVarInt(final ByteBuffer buffer) {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      final byte b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  private static String readString(final ByteBuffer buffer) {
+    final byte[] bytes = new byte[readVarInt(buffer)];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private record BlockRef(long offset, int length) {
+
+  }
+
+  private static final class DecodeBlocks extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<ByteBuffer> blocks;
+    private final int from;
+    private final int to;
+    private final BlockDecoder decoder;
+
+    private DecodeBlocks(final List<ByteBuffer> blocks, final int from, final int to, final BlockDecoder decoder) {
+      this.blocks = blocks;
+      this.from = from;
+      this.to = to;
+      this.decoder = decoder;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        decoder.decode(blocks.get(from));
+      } else if (to - from > 1) {
+        final int middle = (from + to) >>> 1;
+        invokeAll(new DecodeBlocks(blocks, from, middle, decoder), new DecodeBlocks(blocks, middle, to, decoder));
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface BlockDecoder {
+
+    void decode(ByteBuffer block);
+  }
+
+  private static final class SnapshotWriter {
+
+    private final FileChannel channel;
+    private final Map<Cuisine, Integer> cuisineIds;
+    private final List<Cuisine> cuisines;
+    private final BlockBuffer block;
+    private long position;
+    private int blockEdges;
+
+    private SnapshotWriter(final FileChannel channel) {
+      this.channel = channel;
+      this.cuisineIds = new HashMap<>();
+      this.cuisines = new ArrayList<>();
+      this.block = new BlockBuffer();
+    }
+
+    private void writeHeader() throws IOException {
+      final ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES).putInt(MAGIC).putInt(VERSION).flip();
+      write(header);
+    }
+
+    private List<BlockRef> writeCuisineBlocks(final CuisineCustomersInMemoryAdapter adapter) throws IOException {
+      final List<BlockRef> blocks = new ArrayList<>();
+      final IoConsumer<BlockRef> collector = blocks::add;
+      final Throwing<Cuisine, List<Customer>> writeEntry = (cuisine, customers) -> {
+        // split large cuisines so that no block grows unbounded
+        final Iterator<Customer> iterator = customers.iterator();
+        while (iterator.hasNext()) {
+          final List<Customer> chunk = new ArrayList<>();
+          while (iterator.hasNext() && blockEdges + chunk.size() < EDGES_PER_BLOCK) {
+            chunk.add(iterator.next());
+          }
+          block.writeVarInt(cuisineId(cuisine));
+          block.writeVarInt(chunk.size());
+          chunk.forEach(customer -> block.writeString(customer.uuid()));
+          blockEdges += chunk.size();
+          flushIfFull(collector);
+        }
+      };
+      forEach(adapter::forEachCuisine, writeEntry);
+      flushBlock(collector);
+      return blocks;
+    }
+
+    private List<BlockRef> writeCustomerBlocks(final CustomerCuisinesInMemoryAdapter adapter) throws IOException {
+      final List<BlockRef> blocks = new ArrayList<>();
+      final IoConsumer<BlockRef> collector = blocks::add;
+      // the lists are immutable snapshots, size and elements agree without a copy
+      final Throwing<Customer, List<Cuisine>> writeEntry = (customer, snapshot) -> {
+        block.writeString(customer.uuid());
+        block.writeVarInt(snapshot.size());
+        snapshot.forEach(cuisine -> block.writeVarInt(cuisineId(cuisine)));
+        blockEdges += Math.max(1, snapshot.size());
+        flushIfFull(collector);
+      };
+      forEach(adapter::forEachCustomer, writeEntry);
+      flushBlock(collector);
+      return blocks;
+    }
+
+    private BlockRef writeDictionary() throws IOException {
+      block.writeVarInt(cuisines.size());
+      cuisines.forEach(cuisine -> block.writeString(cuisine.name()));
+      final BlockRef dictionary = new BlockRef(position, block.size());
+      write(block.toByteBuffer());
+      block.reset();
+      return dictionary;
+    }
+
+    private void writeIndex(final BlockRef dictionary, final List<BlockRef> cuisineBlocks, final List<BlockRef> customerBlocks)
+        throws IOException {
+      final int refSize = Long.BYTES + Integer.BYTES;
+      final ByteBuffer index = ByteBuffer.allocate(refSize + 2 * Integer.BYTES
+          + (cuisineBlocks.size() + customerBlocks.size()) * refSize + TRAILER_SIZE);
+      final long indexOffset = position;
+      index.putLong(dictionary.offset()).putInt(dictionary.length());
+      for (final List<BlockRef> section : List.of(cuisineBlocks, customerBlocks)) {
+        index.putInt(section.size());
+        section.forEach(ref -> index.putLong(ref.offset()).putInt(ref.length()));
+      }
+      index.putLong(indexOffset).putInt(MAGIC);
+      write(index.flip());
+    }
+
+    private int cuisineId(final Cuisine cuisine) {
+      return cuisineIds.computeIfAbsent(cuisine, c -> {
+        cuisines.add(c);
+        return cuisines.size() - 1;
+      });
+    }
+
+    private void flushIfFull(final IoConsumer<BlockRef> collector) throws IOException {
+      if (blockEdges >= EDGES_PER_BLOCK) {
+        flushBlock(collector);
+      }
+    }
+
+    private void flushBlock(final IoConsumer<BlockRef> collector) throws IOException {
+      if (block.size() > 0) {
+        collector.accept(new BlockRef(position, block.size()));
+        write(block.toByteBuffer());
+      }
+      block.reset();
+      blockEdges = 0;
+    }
+
+    private void write(final ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer);
+      }
+    }
+
+    // the map iteration callbacks cannot throw IOException, so it is tunnelled through and rethrown here
+    private <K, V> void forEach(final MapIteration<K, V> iteration, final Throwing<K, V> consumer) throws IOException {
+      try {
+        iteration.forEach((key, value) -> {
+          try {
+            consumer.accept(key, value);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface MapIteration<K, V> {
+
+    void forEach(BiConsumer<K, V> consumer);
+  }
+
+  @FunctionalInterface
+  private interface Throwing<K, V> {
+
+    void accept(K key, V value) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface IoConsumer<T> {
+
+    void accept(T value) throws IOException;
+  }
+
+  private static final class BlockBuffer {
+
+    private byte[] bytes = new byte[1 << 16];
+    private int size;
+
+    private void writeVarInt(int value) {
+      ensureCapacity(5);
+      while ((value & ~0x7F) != 0) {
+        bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[size++] = (byte) value;
+    }
+
+    private void writeString(final String string) {
+      final byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(utf8.length);
+      ensureCapacity(utf8.length);
+      System.arraycopy(utf8, 0, bytes, size, utf8.length);
+      size += utf8.length;
+    }
+
+    private void ensureCapacity(final int additional) {
+      if (size + additional > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+      }
+    }
+
+    private int size() {
+      return size;
+    }
+
+    private ByteBuffer toByteBuffer() {
+      return ByteBuffer.wrap(bytes, 0, size);
+    }
+
+    private void reset() {
+      size = 0;
+    }
+  }
+}
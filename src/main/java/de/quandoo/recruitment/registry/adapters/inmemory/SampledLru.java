@@ -0,0 +1,102 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Approximate LRU in the way Redis evicts keys: admitting a key over capacity picks a few tracked keys at random and
+// evicts the least recently used among them. Keys sit in an array with swap-remove, so sampling and eviction are O(1)
+// whatever the capacity. Touching a tracked key is a volatile write and takes no lock.
+// admit and remove are not thread safe, the caller serializes it with whatever the evicted key has to be removed from.
+final class SampledLru<K> {
+
+  private static final int SAMPLES = 5;
+
+  private final int capacity;
+  private final Map<K, Entry<K>> entries;
+  private final List<Entry<K>> slots;
+  private final AtomicLong clock;
+
+  SampledLru(final int capacity) {
+    Preconditions.checkArgument(capacity > 0, "Capacity should be greater than zero!");
+    this.capacity = capacity;
+    this.entries = new ConcurrentHashMap<>();
+    this.slots = new ArrayList<>();
+    this.clock = new AtomicLong();
+  }
+
+  void touch(final K key) {
+    final Entry<K> entry = entries.get(key);
+    if (entry != null) {
+      entry.lastAccess = clock.incrementAndGet();
+    }
+  }
+
+  // tracks the key as just used, returns the key evicted to make room for it or null
+  K admit(final K key) {
+    final Entry<K> existing = entries.get(key);
+    if (existing != null) {
+      existing.lastAccess = clock.incrementAndGet();
+      return null;
+    }
+    K evicted = null;
+    if (slots.size() == capacity) {
+      final Entry<K> victim = sample();
+      unlink(victim);
+      evicted = victim.key;
+    }
+    final Entry<K> entry = new Entry<>(key, slots.size(), clock.incrementAndGet());
+    slots.add(entry);
+    entries.put(key, entry);
+    return evicted;
+  }
+
+  void remove(final K key) {
+    final Entry<K> entry = entries.get(key);
+    if (entry != null) {
+      unlink(entry);
+    }
+  }
+
+  int size() {
+    return slots.size();
+  }
+
+  private Entry<K> sample() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    Entry<K> oldest = slots.get(random.nextInt(slots.size()));
+    for (int i = 1; i < SAMPLES; i++) {
+      final Entry<K> candidate = slots.get(random.nextInt(slots.size()));
+      if (candidate.lastAccess < oldest.lastAccess) {
+        oldest = candidate;
+      }
+    }
+    return oldest;
+  }
+
+  private void unlink(final Entry<K> entry) {
+    final Entry<K> last = slots.remove(slots.size() - 1);
+    if (last != entry) {
+      slots.set(entry.index, last);
+      last.index = entry.index;
+    }
+    entries.remove(entry.key);
+  }
+
+  private static final class Entry<K> {
+
+    private final K key;
+    private int index;
+    private volatile long lastAccess;
+
+    private Entry(final K key, final int index, final long lastAccess) {
+      this.key = key;
+      this.index = index;
+      this.lastAccess = lastAccess;
+    }
+  }
+}
@@ -0,0 +1,234 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+// Immutable list that later snapshots share structure with. The elements live in full leaves of 32 in a trie of
+// 32-wide nodes plus a tail of up to 32 elements. Appending writes the next free slot of the tail and publishes a new
+// snapshot, earlier ones never read past their own size and stay unchanged, so a register costs O(1) amortized
+// instead of a copy and readers get the published snapshot as is. Replacing or dropping an element copies the tail or
+// the path of the trie to it, O(log32 n), which is why removeAt moves the last element into the gap. Appends must be
+// serialized by the caller and always go to the latest snapshot.
+final class SnapshotList<E> extends AbstractList<E> implements RandomAccess {
+
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+  private static final int INITIAL_CAPACITY = 4;
+  private static final Object[] EMPTY_NODE = new Object[WIDTH];
+  private static final SnapshotList<?> EMPTY = new SnapshotList<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+  private final int size;
+  private final int shift;
+  private final Object[] root;
+  private final Object[] tail;
+
+  private SnapshotList(final int size, final int shift, final Object[] root, final Object[] tail) {
+    this.size = size;
+    this.shift = shift;
+    this.root = root;
+    this.tail = tail;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <E> SnapshotList<E> empty() {
+    return (SnapshotList<E>) EMPTY;
+  }
+
+  SnapshotList<E> with(final E element) {
+    final int tailSize = size - tailOffset();
+    if (tailSize < WIDTH) {
+      final Object[] target = tailSize < tail.length ? tail : Arrays.copyOf(tail, Math.min(WIDTH, Math.max(INITIAL_CAPACITY, tailSize + (tailSize >> 1))));
+      target[tailSize] = element;
+      return new SnapshotList<>(size + 1, shift, root, target);
+    }
+    final Object[] nextTail = new Object[INITIAL_CAPACITY];
+    nextTail[0] = element;
+    // the full tail becomes a leaf, the trie grows a level once its root is full
+    if ((size >>> BITS) > (1 << shift)) {
+      final Object[] nextRoot = new Object[WIDTH];
+      nextRoot[0] = root;
+      nextRoot[1] = newPath(shift, tail);
+      return new SnapshotList<>(size + 1, shift + BITS, nextRoot, nextTail);
+    }
+    return new SnapshotList<>(size + 1, shift, pushLeaf(shift, root, tail), nextTail);
+  }
+
+  // keeps the order of the others, O(n), meant for short lists
+  SnapshotList<E> without(final Object element) {
+    final int index = indexOf(element);
+    if (index < 0) {
+      return this;
+    }
+    SnapshotList<E> next = empty();
+    for (int i = 0; i < size; i++) {
+      if (i != index) {
+        next = next.with(get(i));
+      }
+    }
+    return next;
+  }
+
+  // moves the last element into the gap, O(log32 n)
+  SnapshotList<E> removeAt(final int index) {
+    Objects.checkIndex(index, size);
+    if (index == size - 1) {
+      return withoutLast();
+    }
+    return replace(index, get(size - 1)).withoutLast();
+  }
+
+  private SnapshotList<E> replace(final int index, final Object element) {
+    if (index >= tailOffset()) {
+      final Object[] target = tail.clone();
+      target[index & MASK] = element;
+      return new SnapshotList<>(size, shift, root, target);
+    }
+    return new SnapshotList<>(size, shift, replace(shift, root, index, element), tail);
+  }
+
+  private SnapshotList<E> withoutLast() {
+    if (size == 1) {
+      return empty();
+    }
+    final int tailSize = size - tailOffset();
+    if (tailSize > 1) {
+      // a copy, the next append must not write into a slot earlier snapshots still read
+      final Object[] target = tail.clone();
+      target[tailSize - 1] = null;
+      return new SnapshotList<>(size - 1, shift, root, target);
+    }
+    final Object[] nextTail = leafFor(size - 2);
+    Object[] nextRoot = popLeaf(shift, root);
+    int nextShift = shift;
+    if (nextRoot == null) {
+      nextRoot = EMPTY_NODE;
+    }
+    if (shift > BITS && nextRoot[1] == null) {
+      nextRoot = (Object[]) nextRoot[0];
+      nextShift -= BITS;
+    }
+    return new SnapshotList<>(size - 1, nextShift, nextRoot, nextTail);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(final int index) {
+    Objects.checkIndex(index, size);
+    return (E) leafFor(index)[index & MASK];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int indexOf(final Object element) {
+    for (int leaf = 0; leaf < size; leaf += WIDTH) {
+      final Object[] elements = leafFor(leaf);
+      final int length = Math.min(WIDTH, size - leaf);
+      for (int i = 0; i < length; i++) {
+        if (elements[i].equals(element)) {
+          return leaf + i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public boolean contains(final Object element) {
+    return indexOf(element) >= 0;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void forEach(final Consumer<? super E> action) {
+    for (int leaf = 0; leaf < size; leaf += WIDTH) {
+      final Object[] elements = leafFor(leaf);
+      final int length = Math.min(WIDTH, size - leaf);
+      for (int i = 0; i < length; i++) {
+        action.accept((E) elements[i]);
+      }
+    }
+  }
+
+  @Override
+  public Object[] toArray() {
+    final Object[] array = new Object[size];
+    for (int leaf = 0; leaf < size; leaf += WIDTH) {
+      System.arraycopy(leafFor(leaf), 0, array, leaf, Math.min(WIDTH, size - leaf));
+    }
+    return array;
+  }
+
+  private int tailOffset() {
+    return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+  }
+
+  private Object[] leafFor(final int index) {
+    if (index >= tailOffset()) {
+      return tail;
+    }
+    Object[] node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(index >>> level) & MASK];
+    }
+    return node;
+  }
+
+  private Object[] pushLeaf(final int level, final Object[] parent, final Object[] leaf) {
+    final int child = ((size - 1) >>> level) & MASK;
+    final Object[] node = parent.clone();
+    if (level == BITS) {
+      node[child] = leaf;
+    } else {
+      node[child] = parent[child] == null ? newPath(level - BITS, leaf) : pushLeaf(level - BITS, (Object[]) parent[child], leaf);
+    }
+    return node;
+  }
+
+  // null once the node holds nothing
+  private Object[] popLeaf(final int level, final Object[] parent) {
+    final int child = ((size - 2) >>> level) & MASK;
+    if (level > BITS) {
+      final Object[] popped = popLeaf(level - BITS, (Object[]) parent[child]);
+      if (popped == null && child == 0) {
+        return null;
+      }
+      final Object[] node = parent.clone();
+      node[child] = popped;
+      return node;
+    }
+    if (child == 0) {
+      return null;
+    }
+    final Object[] node = parent.clone();
+    node[child] = null;
+    return node;
+  }
+
+  private static Object[] newPath(final int level, final Object[] leaf) {
+    if (level == 0) {
+      return leaf;
+    }
+    final Object[] node = new Object[WIDTH];
+    node[0] = newPath(level - BITS, leaf);
+    return node;
+  }
+
+  private static Object[] replace(final int level, final Object[] parent, final int index, final Object element) {
+    final Object[] node = parent.clone();
+    if (level == 0) {
+      node[index & MASK] = element;
+    } else {
+      final int child = (index >>> level) & MASK;
+      node[child] = replace(level - BITS, (Object[]) parent[child], index, element);
+    }
+    return node;
+  }
+}
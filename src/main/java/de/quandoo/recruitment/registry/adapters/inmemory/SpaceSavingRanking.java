@@ -0,0 +1,249 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Approximate ranking in fixed memory with the Space-Saving algorithm (Metwally et al.): at most capacity cuisines are
+// monitored. A cuisine that is not monitored takes the place of the least counted one and inherits its count as
+// error, so counts are never underestimated and overestimated by at most registrations / capacity. Every cuisine
+// followed by more than that many customers is guaranteed to be monitored.
+// The monitored counters live in a min heap indexed by cuisine, increment is O(log capacity).
+public class SpaceSavingRanking implements CuisineRanking {
+
+  private final int capacity;
+  private final Map<Cuisine, Counter> counters;
+  private final ReentrantLock lock;
+  private Counter[] heap;
+  private int size;
+  private long total;
+
+  public SpaceSavingRanking(final int capacity) {
+    Preconditions.checkArgument(capacity > 0, "Capacity should be greater than zero!");
+    this.capacity = capacity;
+    this.counters = new HashMap<>();
+    this.lock = new ReentrantLock();
+    this.heap = new Counter[Math.min(capacity, 1_024)];
+  }
+
+  // enough counters for the count error to stay under maxError times the number of registrations
+  public static SpaceSavingRanking withMaxError(final double maxError) {
+    Preconditions.checkArgument(maxError > 0 && maxError < 1, "Max error should be between zero and one!");
+    return new SpaceSavingRanking((int) Math.ceil(1 / maxError));
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  @Override
+  public void increment(final Cuisine cuisine, final long by) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    Preconditions.checkArgument(by > 0, "by should be greater than zero!");
+    lock.lock();
+    try {
+      total += by;
+      add(cuisine, by);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Customers leaving a monitored cuisine lower its count, which stays an upper bound, and a cuisine left with none
+  // gives its counter up. A cuisine that is not monitored has nothing to lower.
+  @Override
+  public void decrement(final Cuisine cuisine, final long by) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    Preconditions.checkArgument(by > 0, "by should be greater than zero!");
+    lock.lock();
+    try {
+      total = Math.max(0, total - by);
+      final Counter counter = counters.get(cuisine);
+      if (counter == null) {
+        return;
+      }
+      counter.count -= by;
+      if (counter.count <= 0) {
+        remove(counter);
+        return;
+      }
+      counter.error = Math.min(counter.error, counter.count);
+      siftUp(counter.index);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // an upper bound of the cuisine's customers, 0 when it is not monitored
+  @Override
+  public long count(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    lock.lock();
+    try {
+      final Counter counter = counters.get(cuisine);
+      return counter == null ? 0 : counter.count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public List<Cuisine> top(final int n) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    return summary().counters().stream().limit(n).map(CuisineCount::cuisine).toList();
+  }
+
+  // the monitored counters, highest count first, to ship to another instance and merge there
+  public Summary summary() {
+    lock.lock();
+    try {
+      final CuisineCount[] counts = new CuisineCount[size];
+      for (int i = 0; i < size; i++) {
+        counts[i] = new CuisineCount(heap[i].cuisine, heap[i].count, heap[i].error);
+      }
+      Arrays.sort(counts, Comparator.comparingLong(CuisineCount::count).reversed());
+      return new Summary(capacity, total, List.of(counts));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Adds the counts of another summary, as if its registrations had been made here. A cuisine missing from a full
+  // summary may have had up to that summary's lowest count, which it gets added as count and error, so the merged
+  // counts stay upper bounds with an error of at most all registrations / capacity.
+  public void merge(final Summary other) {
+    Preconditions.checkNotNull(other, "Summary could not be null!");
+    lock.lock();
+    try {
+      final long thisMissing = size == capacity ? heap[0].count : 0;
+      final long otherMissing = other.counters().size() == other.capacity()
+          ? other.counters().get(other.counters().size() - 1).count() : 0;
+      final Map<Cuisine, Counter> merged = new HashMap<>();
+      counters.forEach((cuisine, counter) -> merged.put(cuisine,
+          new Counter(cuisine, counter.count + otherMissing, counter.error + otherMissing)));
+      for (final CuisineCount count : other.counters()) {
+        final Counter counter = merged.get(count.cuisine());
+        if (counter == null) {
+          merged.put(count.cuisine(),
+              new Counter(count.cuisine(), count.count() + thisMissing, count.error() + thisMissing));
+        } else {
+          counter.count += count.count() - otherMissing;
+          counter.error += count.error() - otherMissing;
+        }
+      }
+      final List<Counter> kept = new ArrayList<>(merged.values());
+      kept.sort(Comparator.comparingLong((Counter counter) -> counter.count).reversed());
+      counters.clear();
+      size = 0;
+      for (final Counter counter : kept.subList(0, Math.min(capacity, kept.size()))) {
+        counters.put(counter.cuisine, counter);
+        push(counter);
+      }
+      total += other.total();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void add(final Cuisine cuisine, final long by) {
+    Counter counter = counters.get(cuisine);
+    if (counter == null && size == capacity) {
+      // the least counted cuisine gives its counter away, its count becomes the newcomer's error
+      counter = heap[0];
+      counters.remove(counter.cuisine);
+      counter.error = counter.count;
+      counter.cuisine = cuisine;
+      counters.put(cuisine, counter);
+    } else if (counter == null) {
+      counter = new Counter(cuisine, 0, 0);
+      counters.put(cuisine, counter);
+      push(counter);
+    }
+    counter.count += by;
+    siftDown(counter.index);
+  }
+
+  private void push(final Counter counter) {
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, Math.min(capacity, heap.length * 2));
+    }
+    counter.index = size;
+    heap[size++] = counter;
+    siftUp(counter.index);
+  }
+
+  private void remove(final Counter counter) {
+    counters.remove(counter.cuisine);
+    final Counter last = heap[--size];
+    heap[size] = null;
+    if (last != counter) {
+      place(last, counter.index);
+      siftDown(last.index);
+      siftUp(last.index);
+    }
+  }
+
+  private void siftUp(int index) {
+    final Counter counter = heap[index];
+    while (index > 0) {
+      final int parent = (index - 1) >>> 1;
+      if (heap[parent].count <= counter.count) {
+        break;
+      }
+      place(heap[parent], index);
+      index = parent;
+    }
+    place(counter, index);
+  }
+
+  private void siftDown(int index) {
+    final Counter counter = heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+        child++;
+      }
+      if (counter.count <= heap[child].count) {
+        break;
+      }
+      place(heap[child], index);
+      index = child;
+    }
+    place(counter, index);
+  }
+
+  private void place(final Counter counter, final int index) {
+    heap[index] = counter;
+    counter.index = index;
+  }
+
+  public record CuisineCount(Cuisine cuisine, long count, long error) {
+  }
+
+  // total is the number of registrations counted, including merged ones
+  public record Summary(int capacity, long total, List<CuisineCount> counters) {
+  }
+
+  private static final class Counter {
+
+    private Cuisine cuisine;
+    private long count;
+    private long error;
+    private int index;
+
+    private Counter(final Cuisine cuisine, final long count, final long error) {
+      this.cuisine = cuisine;
+      this.count = count;
+      this.error = error;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.CuisinePopularity;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// New followers per cuisine over a sliding window, counted in a ring of fixed-length intervals per cuisine, so the
+// memory of a cuisine does not grow with its registrations. A slot packs the number of the interval it counts, in its
+// high 32 bits, with the count. Recording is a CAS on one slot that also resets a slot left from an earlier lap of the
+// ring, so windows rotate in O(1) without a sweep and without locks.
+// A ring takes 8 bytes per interval, so only cuisines that gained followers within the last lap keep one: once per
+// interval the first record drops the rings whose every slot is older. trending sums the last window / interval slots
+// of the remaining cuisines, the current partial interval included.
+// Adapters count nothing unless they are given counters, disabled() stands for none and trends no cuisine.
+public class TrendingCounters {
+
+  public static final Duration DEFAULT_INTERVAL = Duration.ofMinutes(5);
+  // a day of five minute intervals
+  public static final int DEFAULT_INTERVALS = 288;
+
+  private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+  private final long intervalMillis;
+  private final int intervals;
+  private final Clock clock;
+  private final ConcurrentMap<Cuisine, AtomicLongArray> counters;
+  // the interval whose first record swept out the stale rings
+  private final AtomicLong sweptInterval;
+
+  public TrendingCounters() {
+    this(DEFAULT_INTERVAL, DEFAULT_INTERVALS, Clock.systemUTC());
+  }
+
+  public TrendingCounters(final Duration interval, final int intervals, final Clock clock) {
+    Preconditions.checkNotNull(interval, "Interval could not be null!");
+    Preconditions.checkArgument(interval.toMillis() > 0, "Interval should be at least a millisecond!");
+    Preconditions.checkArgument(intervals > 0, "Intervals should be greater than zero!");
+    this.intervalMillis = interval.toMillis();
+    this.intervals = intervals;
+    this.clock = Preconditions.checkNotNull(clock, "Clock could not be null!");
+    this.counters = new ConcurrentHashMap<>();
+    this.sweptInterval = new AtomicLong();
+  }
+
+  public static TrendingCounters disabled() {
+    return new Disabled();
+  }
+
+  // A ring swept out while a count went into it is left to the collector, so the count is made again in the ring that
+  // is mapped now. A ring that is still mapped after the count is not stale, a sweep after it keeps the ring.
+  public void record(final Cuisine cuisine, final long followers) {
+    final long interval = currentInterval();
+    sweepOncePer(interval);
+    final int slot = (int) (interval % intervals);
+    final long stamp = (interval & COUNT_MASK) << 32;
+    AtomicLongArray ring;
+    do {
+      ring = counters.computeIfAbsent(cuisine, c -> new AtomicLongArray(intervals));
+      long current;
+      long next;
+      do {
+        current = ring.get(slot);
+        // counts saturate instead of spilling into the interval number
+        next = (current & ~COUNT_MASK) == stamp
+            ? stamp | Math.min(COUNT_MASK, (current & COUNT_MASK) + followers)
+            : stamp | Math.min(COUNT_MASK, followers);
+      } while (!ring.compareAndSet(slot, current, next));
+    } while (counters.get(cuisine) != ring);
+  }
+
+  // most new followers within the window first, cuisines without any are left out
+  public List<CuisinePopularity> trending(final int n, final Duration window) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    final int windowIntervals = windowIntervals(window);
+    final long interval = currentInterval();
+    final PriorityQueue<CuisinePopularity> top = new PriorityQueue<>(Comparator.comparingLong(CuisinePopularity::customers));
+    counters.forEach((cuisine, ring) -> {
+      final long followers = sum(ring, interval, windowIntervals);
+      if (followers > 0 && (top.size() < n || followers > top.peek().customers())) {
+        top.add(CuisinePopularity.of(cuisine, followers));
+        if (top.size() > n) {
+          top.poll();
+        }
+      }
+    });
+    final List<CuisinePopularity> trending = new ArrayList<>(top);
+    trending.sort(Comparator.comparingLong(CuisinePopularity::customers).reversed());
+    return trending;
+  }
+
+  private void sweepOncePer(final long interval) {
+    final long swept = sweptInterval.get();
+    if (swept != interval && sweptInterval.compareAndSet(swept, interval)) {
+      counters.keySet().forEach(cuisine -> counters.computeIfPresent(cuisine, (c, ring) -> isStale(ring, interval) ? null : ring));
+    }
+  }
+
+  // No slot counts an interval of the last lap or a later one, a later one is written by a record that overtook the
+  // sweep. Interval numbers are compared modulo 2^32, like the stamps.
+  private boolean isStale(final AtomicLongArray ring, final long interval) {
+    final long oldest = interval - intervals + 1;
+    for (int i = 0; i < intervals; i++) {
+      final long value = ring.get(i);
+      if ((value & COUNT_MASK) > 0 && (((value >>> 32) - oldest) & COUNT_MASK) < 1L << 31) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int windowIntervals(final Duration window) {
+    Preconditions.checkNotNull(window, "Window could not be null!");
+    Preconditions.checkArgument(!window.isNegative() && !window.isZero(), "Window should be positive!");
+    final long windowIntervals = (window.toMillis() + intervalMillis - 1) / intervalMillis;
+    Preconditions.checkArgument(windowIntervals <= intervals, "Window should not exceed the tracked intervals!");
+    return (int) Math.max(1, windowIntervals);
+  }
+
+  private long sum(final AtomicLongArray ring, final long interval, final int windowIntervals) {
+    long sum = 0;
+    for (long i = Math.max(0, interval - windowIntervals + 1); i <= interval; i++) {
+      final long value = ring.get((int) (i % intervals));
+      if (value >>> 32 == (i & COUNT_MASK)) {
+        sum += value & COUNT_MASK;
+      }
+    }
+    return sum;
+  }
+
+  private long currentInterval() {
+    return clock.millis() / intervalMillis;
+  }
+
+  private static final class Disabled extends TrendingCounters {
+
+    @Override
+    public void record(final Cuisine cuisine, final long followers) {
+    }
+
+    @Override
+    public List<CuisinePopularity> trending(final int n, final Duration window) {
+      Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+      Preconditions.checkNotNull(window, "Window could not be null!");
+      return List.of();
+    }
+  }
+}
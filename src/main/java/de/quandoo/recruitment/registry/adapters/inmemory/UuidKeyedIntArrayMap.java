@@ -0,0 +1,247 @@
+package de.quandoo.recruitment.registry.adapters.inmemory;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Open addressing map from a 128 bit UUID, held as two longs, to a small immutable int array.
+// Keys are spread over lock striped tables: writers lock their stripe, readers never lock.
+// A reader first reads the value slot (a volatile read) and only then the key longs, which are always written before
+// the value is published, so a non null value is always seen with its own key.
+// Value arrays are never mutated once published, writers replace them.
+// A removed key keeps its slot with an empty value array, a tombstone, so probe sequences never break and the key reuses
+// the slot when it comes back. Tombstones are counted: a stripe whose tombstones pass half its threshold, or that runs
+// out of slots, is rebuilt without them into a table sized for its live keys, a fresh one so readers never lock.
+class UuidKeyedIntArrayMap {
+
+  private static final int DEFAULT_STRIPES = 64;
+  private static final int[] NO_VALUES = new int[0];
+  private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+  private final Stripe[] stripes;
+  private final int stripeMask;
+  private final int stripeBits;
+
+  UuidKeyedIntArrayMap() {
+    this(DEFAULT_STRIPES);
+  }
+
+  UuidKeyedIntArrayMap(final int stripes) {
+    final int stripeCount = Integer.highestOneBit(Math.max(1, stripes - 1) << 1);
+    this.stripeMask = stripeCount - 1;
+    this.stripeBits = Integer.numberOfTrailingZeros(stripeCount);
+    this.stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      this.stripes[i] = new Stripe(stripeBits);
+    }
+  }
+
+  int[] get(final long mostSigBits, final long leastSigBits) {
+    final int hash = hash(mostSigBits, leastSigBits);
+    return stripes[hash & stripeMask].get(mostSigBits, leastSigBits, hash >>> stripeBits);
+  }
+
+  // returns false when the value was already present
+  boolean addValue(final long mostSigBits, final long leastSigBits, final int value) {
+    final int hash = hash(mostSigBits, leastSigBits);
+    return stripes[hash & stripeMask].addValue(mostSigBits, leastSigBits, hash >>> stripeBits, value);
+  }
+
+  // returns false when the value was not present
+  boolean removeValue(final long mostSigBits, final long leastSigBits, final int value) {
+    final int hash = hash(mostSigBits, leastSigBits);
+    return stripes[hash & stripeMask].removeValue(mostSigBits, leastSigBits, hash >>> stripeBits, value);
+  }
+
+  // returns the values the key had, null when it had none
+  int[] removeAll(final long mostSigBits, final long leastSigBits) {
+    final int hash = hash(mostSigBits, leastSigBits);
+    return stripes[hash & stripeMask].removeAll(mostSigBits, leastSigBits, hash >>> stripeBits);
+  }
+
+  long size() {
+    long size = 0;
+    for (final Stripe stripe : stripes) {
+      size += stripe.size();
+    }
+    return size;
+  }
+
+  private static boolean contains(final int[] values, final int value) {
+    for (final int v : values) {
+      if (v == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int hash(final long mostSigBits, final long leastSigBits) {
+    long h = mostSigBits * 0x9E3779B97F4A7C15L ^ leastSigBits;
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+  private static final class Stripe {
+
+    // the low hash bits pick the stripe, the remaining ones the slot
+    private final int hashShift;
+    private volatile Table table;
+    // slots holding a key, tombstones included
+    private int used;
+    private int tombstones;
+
+    private Stripe(final int hashShift) {
+      this.hashShift = hashShift;
+      this.table = new Table(INITIAL_STRIPE_CAPACITY);
+    }
+
+    private int[] get(final long mostSigBits, final long leastSigBits, final int hash) {
+      final Table current = table;
+      for (int slot = hash & current.mask; ; slot = (slot + 1) & current.mask) {
+        final int[] values = current.values.get(slot);
+        if (values == null) {
+          return null;
+        }
+        if (current.matches(slot, mostSigBits, leastSigBits)) {
+          return values;
+        }
+      }
+    }
+
+    private synchronized boolean addValue(final long mostSigBits, final long leastSigBits, final int hash, final int value) {
+      Table current = table;
+      int slot = current.find(mostSigBits, leastSigBits, hash);
+      int[] values = current.values.get(slot);
+      if (values == null) {
+        if (used + 1 > current.threshold) {
+          current = rebuild(current, capacityFor(used - tombstones + 1));
+          slot = current.find(mostSigBits, leastSigBits, hash);
+        }
+        current.keys[slot * 2] = mostSigBits;
+        current.keys[slot * 2 + 1] = leastSigBits;
+        current.values.set(slot, new int[]{value});
+        used++;
+        return true;
+      }
+      if (values.length == 0) {
+        current.values.set(slot, new int[]{value});
+        tombstones--;
+        return true;
+      }
+      if (contains(values, value)) {
+        return false;
+      }
+      final int[] replacement = new int[values.length + 1];
+      System.arraycopy(values, 0, replacement, 0, values.length);
+      replacement[values.length] = value;
+      current.values.set(slot, replacement);
+      return true;
+    }
+
+    private synchronized boolean removeValue(final long mostSigBits, final long leastSigBits, final int hash, final int value) {
+      final Table current = table;
+      final int slot = current.find(mostSigBits, leastSigBits, hash);
+      final int[] values = current.values.get(slot);
+      if (values == null || !contains(values, value)) {
+        return false;
+      }
+      final int[] replacement = new int[values.length - 1];
+      int index = 0;
+      for (final int v : values) {
+        if (v != value) {
+          replacement[index++] = v;
+        }
+      }
+      current.values.set(slot, replacement);
+      if (replacement.length == 0) {
+        buried(current);
+      }
+      return true;
+    }
+
+    private synchronized int[] removeAll(final long mostSigBits, final long leastSigBits, final int hash) {
+      final Table current = table;
+      final int slot = current.find(mostSigBits, leastSigBits, hash);
+      final int[] values = current.values.get(slot);
+      if (values == null || values.length == 0) {
+        return null;
+      }
+      current.values.set(slot, NO_VALUES);
+      buried(current);
+      return values;
+    }
+
+    private synchronized int size() {
+      return used - tombstones;
+    }
+
+    private void buried(final Table current) {
+      tombstones++;
+      if (tombstones > current.threshold / 2) {
+        rebuild(current, capacityFor(used - tombstones));
+      }
+    }
+
+    // the new table is filled completely before it is published, readers keep using the old one until then
+    private Table rebuild(final Table current, final int capacity) {
+      final Table resized = new Table(capacity);
+      for (int slot = 0; slot < current.capacity(); slot++) {
+        final int[] values = current.values.get(slot);
+        if (values != null && values.length > 0) {
+          final long mostSigBits = current.keys[slot * 2];
+          final long leastSigBits = current.keys[slot * 2 + 1];
+          final int target = resized.find(mostSigBits, leastSigBits, hash(mostSigBits, leastSigBits) >>> hashShift);
+          resized.keys[target * 2] = mostSigBits;
+          resized.keys[target * 2 + 1] = leastSigBits;
+          resized.values.set(target, values);
+        }
+      }
+      used -= tombstones;
+      tombstones = 0;
+      table = resized;
+      return resized;
+    }
+
+    // a rebuilt table is at most half full
+    private static int capacityFor(final int keys) {
+      int capacity = INITIAL_STRIPE_CAPACITY;
+      while (keys > capacity / 2) {
+        capacity *= 2;
+      }
+      return capacity;
+    }
+  }
+
+  private static final class Table {
+
+    private final long[] keys;
+    private final AtomicReferenceArray<int[]> values;
+    private final int mask;
+    private final int threshold;
+
+    private Table(final int capacity) {
+      this.keys = new long[capacity * 2];
+      this.values = new AtomicReferenceArray<>(capacity);
+      this.mask = capacity - 1;
+      this.threshold = capacity / 4 * 3;
+    }
+
+    private int capacity() {
+      return mask + 1;
+    }
+
+    private boolean matches(final int slot, final long mostSigBits, final long leastSigBits) {
+      return keys[slot * 2] == mostSigBits && keys[slot * 2 + 1] == leastSigBits;
+    }
+
+    // the slot holding the key, or the empty slot where it belongs
+    private int find(final long mostSigBits, final long leastSigBits, final int hash) {
+      for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+        if (values.get(slot) == null || matches(slot, mostSigBits, leastSigBits)) {
+          return slot;
+        }
+      }
+    }
+  }
+}
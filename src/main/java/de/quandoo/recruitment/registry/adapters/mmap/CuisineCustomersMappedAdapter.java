@@ -0,0 +1,268 @@
+package de.quandoo.recruitment.registry.adapters.mmap;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.adapters.inmemory.FrequencyBucketRanking;
+import de.quandoo.recruitment.registry.adapters.inmemory.TrendingCounters;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.CuisinePopularity;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Keeps cuisine -> customers off heap in memory mapped files under the given directory.
+// Reopening a directory only maps its files; the top cuisines ranking is rebuilt from the stored counts of the listed
+// cuisines on the first topCuisines call, without touching the customers, and maintained on register and unregister
+// from then on. compact reclaims the space of removed registrations. Trending counters, when given, are
+// kept on heap and start empty on every open, they only cover registrations since then.
+public class CuisineCustomersMappedAdapter implements CuisineCustomersPort, Closeable {
+
+  private static final int DATA_SEGMENT_SIZE = 1 << 26;
+  private static final int STREAM_PAGE_SIZE = 1_024;
+
+  private final MappedMultimap cuisineCustomers;
+  private final ReadWriteLock lock;
+  private final TrendingCounters trendingCounters;
+  private volatile FrequencyBucketRanking topCuisinesRanking;
+  // guarded by the lock, streams opened before a compaction fail instead of reading moved postings
+  private int compactions;
+
+  public CuisineCustomersMappedAdapter(final Path directory) {
+    this(directory, TrendingCounters.disabled());
+  }
+
+  public CuisineCustomersMappedAdapter(final Path directory, final TrendingCounters trendingCounters) {
+    Preconditions.checkNotNull(directory, "Directory could not be null!");
+    this.cuisineCustomers = MappedMultimap.open(directory, "cuisine-customers", DATA_SEGMENT_SIZE);
+    this.lock = new ReentrantReadWriteLock();
+    this.trendingCounters = Preconditions.checkNotNull(trendingCounters, "Trending counters could not be null!");
+  }
+
+  @Override
+  public void register(final Cuisine cuisine, final Customer customer) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    lock.writeLock().lock();
+    try {
+      addCustomer(cuisine, customer, true);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    addCustomers(registrations, true);
+  }
+
+  @Override
+  public void restoreAll(final Collection<Registration> registrations) {
+    addCustomers(registrations, false);
+  }
+
+  private void addCustomers(final Collection<Registration> registrations, final boolean trending) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    lock.writeLock().lock();
+    try {
+      registrations.forEach(registration -> addCustomer(registration.cuisine(), registration.customer(), trending));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void addCustomer(final Cuisine cuisine, final Customer customer, final boolean trending) {
+    if (!this.cuisineCustomers.put(cuisine.name(), customer.uuid())) {
+      return;
+    }
+    if (trending) {
+      this.trendingCounters.record(cuisine, 1);
+    }
+    if (this.topCuisinesRanking != null) {
+      this.topCuisinesRanking.increment(cuisine);
+    }
+  }
+
+  @Override
+  public void unregister(final Cuisine cuisine, final Customer customer) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    lock.writeLock().lock();
+    try {
+      removeCustomer(cuisine, customer);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void removeCustomer(final Customer customer, final Collection<Cuisine> cuisines) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisines, "Cuisines could not be null!");
+    lock.writeLock().lock();
+    try {
+      cuisines.forEach(cuisine -> removeCustomer(cuisine, customer));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void removeCustomer(final Cuisine cuisine, final Customer customer) {
+    if (this.cuisineCustomers.remove(cuisine.name(), customer.uuid()) && this.topCuisinesRanking != null) {
+      this.topCuisinesRanking.decrement(cuisine, 1);
+    }
+  }
+
+  @Override
+  public List<Cuisine> topCuisines(final int n) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    return topCuisinesRanking().top(n);
+  }
+
+  @Override
+  public List<Cuisine> trendingCuisines(final int n, final Duration window) {
+    return this.trendingCounters.trending(n, window).stream().map(CuisinePopularity::cuisine).toList();
+  }
+
+  @Override
+  public List<Customer> cuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    lock.readLock().lock();
+    try {
+      return this.cuisineCustomers.values(cuisine.name()).stream().map(Customer::of).toList();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // walks the postings a page at a time under the read lock, newest customer first. Customers registered after the
+  // stream was opened are not seen, customers unregistered meanwhile may or may not be. The stream has to be consumed
+  // before the adapter is compacted or closed, it fails on its next page otherwise.
+  @Override
+  public Stream<Customer> streamCuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    lock.readLock().lock();
+    final PagingIterator iterator;
+    try {
+      iterator = new PagingIterator(this.cuisineCustomers.firstNode(cuisine.name()), this.compactions);
+    } finally {
+      lock.readLock().unlock();
+    }
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+  }
+
+  // the stored count of the key, the postings are not walked
+  @Override
+  public long countCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    lock.readLock().lock();
+    try {
+      return this.cuisineCustomers.count(cuisine.name());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void flush() {
+    lock.writeLock().lock();
+    try {
+      this.cuisineCustomers.flush();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // rewrites the stored registrations without the removed ones, blocking every other call meanwhile
+  public void compact() {
+    lock.writeLock().lock();
+    try {
+      this.cuisineCustomers.compact();
+      this.compactions++;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      this.cuisineCustomers.close();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // built under the write lock so that no registration is counted twice or missed
+  private FrequencyBucketRanking topCuisinesRanking() {
+    final FrequencyBucketRanking ranking = this.topCuisinesRanking;
+    if (ranking != null) {
+      return ranking;
+    }
+    lock.writeLock().lock();
+    try {
+      if (this.topCuisinesRanking == null) {
+        final FrequencyBucketRanking built = new FrequencyBucketRanking();
+        this.cuisineCustomers.forEachKey((name, customers) -> built.increment(Cuisine.of(name), customers));
+        this.topCuisinesRanking = built;
+      }
+      return this.topCuisinesRanking;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private final class PagingIterator implements Iterator<Customer> {
+
+    private final List<String> page;
+    private final int compactions;
+    private long nextNode;
+    private int index;
+
+    private PagingIterator(final long firstNode, final int compactions) {
+      this.page = new ArrayList<>(STREAM_PAGE_SIZE);
+      this.compactions = compactions;
+      this.nextNode = firstNode;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (index == page.size() && nextNode != 0) {
+        page.clear();
+        index = 0;
+        lock.readLock().lock();
+        try {
+          if (compactions != CuisineCustomersMappedAdapter.this.compactions) {
+            throw new ConcurrentModificationException("Customers were compacted while streaming!");
+          }
+          nextNode = cuisineCustomers.readValues(nextNode, STREAM_PAGE_SIZE, page);
+        } finally {
+          lock.readLock().unlock();
+        }
+      }
+      return index < page.size();
+    }
+
+    @Override
+    public Customer next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return Customer.of(page.get(index++));
+    }
+  }
+}
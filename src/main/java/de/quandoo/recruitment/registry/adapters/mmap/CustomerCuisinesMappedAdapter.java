@@ -0,0 +1,115 @@
+package de.quandoo.recruitment.registry.adapters.mmap;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Keeps customer -> cuisines off heap in memory mapped files under the given directory. compact reclaims the space of
+// removed registrations.
+public class CustomerCuisinesMappedAdapter implements CustomerCuisinesPort, Closeable {
+
+  private static final int DATA_SEGMENT_SIZE = 1 << 26;
+
+  private final MappedMultimap customerCuisines;
+  private final ReadWriteLock lock;
+
+  public CustomerCuisinesMappedAdapter(final Path directory) {
+    Preconditions.checkNotNull(directory, "Directory could not be null!");
+    this.customerCuisines = MappedMultimap.open(directory, "customer-cuisines", DATA_SEGMENT_SIZE);
+    this.lock = new ReentrantReadWriteLock();
+  }
+
+  @Override
+  public void register(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    lock.writeLock().lock();
+    try {
+      this.customerCuisines.put(customer.uuid(), cuisine.name());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    lock.writeLock().lock();
+    try {
+      registrations.forEach(registration -> this.customerCuisines.put(registration.customer().uuid(), registration.cuisine().name()));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void unregister(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    lock.writeLock().lock();
+    try {
+      this.customerCuisines.remove(customer.uuid(), cuisine.name());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Cuisine> removeCustomer(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    lock.writeLock().lock();
+    try {
+      return this.customerCuisines.removeAll(customer.uuid()).stream().map(Cuisine::of).toList();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Cuisine> customerCuisines(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    lock.readLock().lock();
+    try {
+      return this.customerCuisines.values(customer.uuid()).stream().map(Cuisine::of).toList();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void flush() {
+    lock.writeLock().lock();
+    try {
+      this.customerCuisines.flush();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // rewrites the stored registrations without the removed ones, blocking every other call meanwhile
+  public void compact() {
+    lock.writeLock().lock();
+    try {
+      this.customerCuisines.compact();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      this.customerCuisines.close();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+}
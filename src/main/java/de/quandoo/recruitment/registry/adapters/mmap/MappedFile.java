@@ -0,0 +1,109 @@
+package de.quandoo.recruitment.registry.adapters.mmap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// A file mapped in fixed size segments and addressed with long positions, so it can grow past the 2GB limit of a
+// single MappedByteBuffer. Callers keep every value inside one segment. Not thread safe.
+class MappedFile implements Closeable {
+
+  private final FileChannel channel;
+  private final int segmentSize;
+  private final List<MappedByteBuffer> segments;
+
+  private MappedFile(final FileChannel channel, final int segmentSize) {
+    this.channel = channel;
+    this.segmentSize = segmentSize;
+    this.segments = new ArrayList<>();
+  }
+
+  // maps what is already on disk, nothing is read until it is accessed
+  static MappedFile open(final Path path, final int segmentSize, final long minimumSize) {
+    try {
+      final FileChannel channel = FileChannel.open(path,
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      final MappedFile file = new MappedFile(channel, segmentSize);
+      file.ensureCapacity(Math.max(minimumSize, channel.size()));
+      return file;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not map " + path, e);
+    }
+  }
+
+  int segmentSize() {
+    return segmentSize;
+  }
+
+  long capacity() {
+    return (long) segments.size() * segmentSize;
+  }
+
+  void ensureCapacity(final long size) {
+    try {
+      while (capacity() < size) {
+        segments.add(channel.map(MapMode.READ_WRITE, capacity(), segmentSize));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not grow mapped file", e);
+    }
+  }
+
+  long getLong(final long position) {
+    return segment(position).getLong(offset(position));
+  }
+
+  void putLong(final long position, final long value) {
+    segment(position).putLong(offset(position), value);
+  }
+
+  int getInt(final long position) {
+    return segment(position).getInt(offset(position));
+  }
+
+  void putInt(final long position, final int value) {
+    segment(position).putInt(offset(position), value);
+  }
+
+  byte get(final long position) {
+    return segment(position).get(offset(position));
+  }
+
+  void get(final long position, final byte[] bytes) {
+    segment(position).get(offset(position), bytes);
+  }
+
+  void put(final long position, final byte[] bytes) {
+    segment(position).put(offset(position), bytes);
+  }
+
+  void force() {
+    segments.forEach(MappedByteBuffer::force);
+  }
+
+  @Override
+  public void close() {
+    try {
+      force();
+      segments.clear();
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not close mapped file", e);
+    }
+  }
+
+  private MappedByteBuffer segment(final long position) {
+    return segments.get((int) (position / segmentSize));
+  }
+
+  private int offset(final long position) {
+    return (int) (position % segmentSize);
+  }
+}
@@ -0,0 +1,498 @@
+package de.quandoo.recruitment.registry.adapters.mmap;
+
+import com.google.common.base.Preconditions;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+// Persistent multimap from a string key to a set of distinct string values, kept in three memory mapped files:
+//  <name>.data    a header, then length prefixed UTF-8 strings and posting list nodes, append only
+//  <name>.strings open addressing table of the interned keys and values, a key slot also holds its postings head and size
+//  <name>.edges   open addressing table of (key, value) pairs pointing at their posting node, to reject duplicates in O(1)
+// All state lives in the files, so opening an existing store only maps them whatever their size.
+// Records never straddle two data segments, so the header keeps the segment size the store was written with and it
+// can only be reopened with the same one.
+// Removing a value clears its posting node and its edge in place. The cleared node stays in the list as a tombstone
+// that readers skip and the edge slot is reused if the value comes back, so removal is O(1) and never moves a node.
+// Tombstones, emptied keys and strings no pair uses any more are only dropped by compact, which rewrites the live
+// pairs into a new store and swaps it in. Every key is also linked into a list in the data file, so visiting the keys
+// walks them instead of the strings table, which holds the values too.
+// Not thread safe: callers serialize writers and keep them away from readers.
+class MappedMultimap implements Closeable {
+
+  private static final long MAGIC = 0x4355495349_4E4553L;
+  private static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 64;
+  private static final int MAGIC_OFFSET = 0;
+  private static final int VERSION_OFFSET = 8;
+  private static final int DATA_END_OFFSET = 16;
+  private static final int STRINGS_SIZE_OFFSET = 24;
+  private static final int EDGES_SIZE_OFFSET = 32;
+  private static final int DATA_SEGMENT_SIZE_OFFSET = 40;
+  private static final int KEYS_HEAD_OFFSET = 48;
+  // 0 in stores written before keys were listed, their keys are listed when they are opened
+  private static final int KEYS_LISTED_OFFSET = 56;
+
+  // strings slot: hash int, kind int, record long, postings head long, postings size long
+  // edges slot: key record long, value record long, posting node long, unused long
+  private static final int SLOT_SIZE = 32;
+  private static final int INITIAL_TABLE_CAPACITY = 1024;
+  private static final int MAX_TABLE_SEGMENT_SIZE = 1 << 30;
+  private static final double MAX_LOAD_FACTOR = 0.7;
+
+  private static final int KIND_KEY = 1;
+  private static final int KIND_VALUE = 2;
+
+  private static final List<String> FILES = List.of(".data", ".strings", ".edges");
+  private static final String COMPACTING = ".compacting";
+  private static final String COMPACTED = ".compacted";
+
+  private final Path directory;
+  private final String name;
+  private final int dataSegmentSize;
+  private MappedFile data;
+  private MappedFile strings;
+  private MappedFile edges;
+  private boolean closed;
+
+  private MappedMultimap(final Path directory, final String name, final int dataSegmentSize) {
+    this.directory = directory;
+    this.name = name;
+    this.dataSegmentSize = dataSegmentSize;
+  }
+
+  static MappedMultimap open(final Path directory, final String name, final int dataSegmentSize) {
+    try {
+      Files.createDirectories(directory);
+      finishCompaction(directory, name);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not open " + directory.resolve(name), e);
+    }
+    final MappedMultimap multimap = new MappedMultimap(directory, name, dataSegmentSize);
+    multimap.map();
+    try {
+      multimap.checkHeader();
+    } catch (IllegalStateException e) {
+      multimap.close();
+      throw e;
+    }
+    return multimap;
+  }
+
+  // returns false when the value was already mapped to the key
+  boolean put(final String key, final String value) {
+    checkOpen();
+    // interning may resize the strings table, so only the key slot, interned last, is used afterwards
+    final long valueSlot = intern(KIND_VALUE, value);
+    final long valueRecord = strings.getLong(valueSlot + 8);
+    final long keySlot = intern(KIND_KEY, key);
+    final long keyRecord = strings.getLong(keySlot + 8);
+
+    long edgeSlot = findEdge(keyRecord, valueRecord);
+    if (edges.getLong(edgeSlot) != 0 && edges.getLong(edgeSlot + 16) > 0) {
+      return false;
+    }
+    if (edges.getLong(edgeSlot) == 0) {
+      if (edgesSize() + 1 > tableCapacity(edges) * MAX_LOAD_FACTOR) {
+        edges = resize(edges, name + ".edges", (table, slot) -> pairHash(table.getLong(slot), table.getLong(slot + 8)));
+        edgeSlot = findEdge(keyRecord, valueRecord);
+      }
+      data.putLong(EDGES_SIZE_OFFSET, edgesSize() + 1);
+    }
+
+    final long node = allocate(16);
+    data.putLong(node, valueRecord);
+    data.putLong(node + 8, strings.getLong(keySlot + 16));
+    strings.putLong(keySlot + 16, node);
+    strings.putLong(keySlot + 24, strings.getLong(keySlot + 24) + 1);
+    edges.putLong(edgeSlot, keyRecord);
+    edges.putLong(edgeSlot + 8, valueRecord);
+    edges.putLong(edgeSlot + 16, node);
+    return true;
+  }
+
+  // returns false when the value was not mapped to the key
+  boolean remove(final String key, final String value) {
+    checkOpen();
+    final long keySlot = find(KIND_KEY, utf8(key));
+    final long keyRecord = strings.getLong(keySlot + 8);
+    final long valueRecord = strings.getLong(find(KIND_VALUE, utf8(value)) + 8);
+    if (keyRecord == 0 || valueRecord == 0) {
+      return false;
+    }
+    final long edgeSlot = findEdge(keyRecord, valueRecord);
+    final long node = edges.getLong(edgeSlot + 16);
+    if (edges.getLong(edgeSlot) == 0 || node == 0) {
+      return false;
+    }
+    data.putLong(node, 0);
+    edges.putLong(edgeSlot + 16, 0);
+    strings.putLong(keySlot + 24, strings.getLong(keySlot + 24) - 1);
+    return true;
+  }
+
+  // returns the values the key had. The key starts a new posting list, the old nodes are only left to readers
+  // already walking them.
+  List<String> removeAll(final String key) {
+    checkOpen();
+    final long keySlot = find(KIND_KEY, utf8(key));
+    final long keyRecord = strings.getLong(keySlot + 8);
+    if (keyRecord == 0) {
+      return List.of();
+    }
+    final List<String> values = new ArrayList<>((int) strings.getLong(keySlot + 24));
+    for (long node = strings.getLong(keySlot + 16); node != 0; node = data.getLong(node + 8)) {
+      final long valueRecord = data.getLong(node);
+      if (valueRecord != 0) {
+        values.add(readString(valueRecord));
+        data.putLong(node, 0);
+        edges.putLong(findEdge(keyRecord, valueRecord) + 16, 0);
+      }
+    }
+    strings.putLong(keySlot + 16, 0);
+    strings.putLong(keySlot + 24, 0);
+    return values;
+  }
+
+  List<String> values(final String key) {
+    checkOpen();
+    final long keySlot = find(KIND_KEY, utf8(key));
+    if (strings.getLong(keySlot + 8) == 0) {
+      return List.of();
+    }
+    final List<String> values = new ArrayList<>((int) strings.getLong(keySlot + 24));
+    for (long node = strings.getLong(keySlot + 16); node != 0; node = data.getLong(node + 8)) {
+      if (data.getLong(node) != 0) {
+        values.add(readString(data.getLong(node)));
+      }
+    }
+    return values;
+  }
+
+  // the newest posting node of the key, 0 when it has no values
+  long firstNode(final String key) {
+    checkOpen();
+    final long keySlot = find(KIND_KEY, utf8(key));
+    return strings.getLong(keySlot + 8) == 0 ? 0 : strings.getLong(keySlot + 16);
+  }
+
+  // adds up to max values from node on, newest first, and returns the node to go on from, 0 once all were read.
+  // Posting nodes are only moved by compact, so a node stays valid while the key keeps growing or shrinking.
+  long readValues(final long fromNode, final int max, final List<String> values) {
+    checkOpen();
+    long node = fromNode;
+    for (int read = 0; node != 0 && read < max; node = data.getLong(node + 8)) {
+      if (data.getLong(node) != 0) {
+        values.add(readString(data.getLong(node)));
+        read++;
+      }
+    }
+    return node;
+  }
+
+  long count(final String key) {
+    checkOpen();
+    final long keySlot = find(KIND_KEY, utf8(key));
+    return strings.getLong(keySlot + 8) == 0 ? 0 : strings.getLong(keySlot + 24);
+  }
+
+  // visits every key with at least one value, newest key first, walking the keys only
+  void forEachKey(final ObjLongConsumer<String> consumer) {
+    checkOpen();
+    for (long node = data.getLong(KEYS_HEAD_OFFSET); node != 0; node = data.getLong(node + 8)) {
+      final String key = readString(data.getLong(node));
+      final long count = strings.getLong(find(KIND_KEY, utf8(key)) + 24);
+      if (count > 0) {
+        consumer.accept(key, count);
+      }
+    }
+  }
+
+  // Writes the live pairs, oldest first per key so postings keep their order, into a store next to this one and swaps
+  // it in. The marker file commits the swap: a crash before it drops the new store on the next open, a crash after it
+  // finishes moving the new files in. Positions handed out by firstNode and readValues are invalid afterwards.
+  void compact() {
+    checkOpen();
+    try {
+      try (MappedMultimap compacted = open(directory, name + COMPACTING, dataSegmentSize)) {
+        forEachKey((key, count) -> {
+          final long[] valueRecords = new long[(int) count];
+          int read = 0;
+          for (long node = strings.getLong(find(KIND_KEY, utf8(key)) + 16); node != 0; node = data.getLong(node + 8)) {
+            if (data.getLong(node) != 0) {
+              valueRecords[read++] = data.getLong(node);
+            }
+          }
+          for (int i = read - 1; i >= 0; i--) {
+            compacted.put(key, readString(valueRecords[i]));
+          }
+        });
+      }
+      Files.createFile(directory.resolve(name + COMPACTED));
+      unmap();
+      finishCompaction(directory, name);
+      map();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not compact " + directory.resolve(name), e);
+    }
+  }
+
+  // makes every write durable against power loss, process crashes already keep them in the page cache
+  void flush() {
+    checkOpen();
+    data.force();
+    strings.force();
+    edges.force();
+  }
+
+  @Override
+  public void close() {
+    if (!closed) {
+      unmap();
+    }
+  }
+
+  private void map() {
+    data = MappedFile.open(directory.resolve(name + ".data"), dataSegmentSize, dataSegmentSize);
+    strings = openTable(directory.resolve(name + ".strings"));
+    edges = openTable(directory.resolve(name + ".edges"));
+    closed = false;
+  }
+
+  private void unmap() {
+    closed = true;
+    data.close();
+    strings.close();
+    edges.close();
+  }
+
+  private void checkOpen() {
+    Preconditions.checkState(!closed, "%s is closed!", name);
+  }
+
+  private void checkHeader() {
+    if (data.getLong(MAGIC_OFFSET) == 0) {
+      data.putLong(MAGIC_OFFSET, MAGIC);
+      data.putInt(VERSION_OFFSET, VERSION);
+      data.putLong(DATA_END_OFFSET, HEADER_SIZE);
+      data.putInt(DATA_SEGMENT_SIZE_OFFSET, data.segmentSize());
+      data.putInt(KEYS_LISTED_OFFSET, 1);
+      return;
+    }
+    Preconditions.checkState(data.getLong(MAGIC_OFFSET) == MAGIC, "%s is not a cuisines registry store!", name);
+    Preconditions.checkState(data.getInt(VERSION_OFFSET) == VERSION, "Unsupported store version %s!", data.getInt(VERSION_OFFSET));
+    // stores created before the segment size was recorded were all written with the one size the adapters pass
+    if (data.getInt(DATA_SEGMENT_SIZE_OFFSET) == 0) {
+      data.putInt(DATA_SEGMENT_SIZE_OFFSET, data.segmentSize());
+    }
+    Preconditions.checkState(data.getInt(DATA_SEGMENT_SIZE_OFFSET) == data.segmentSize(),
+        "%s was written with %s byte data segments, not %s!", name, data.getInt(DATA_SEGMENT_SIZE_OFFSET), data.segmentSize());
+    if (data.getInt(KEYS_LISTED_OFFSET) == 0) {
+      final long capacity = tableCapacity(strings);
+      for (long slot = 0; slot < capacity * SLOT_SIZE; slot += SLOT_SIZE) {
+        if (strings.getLong(slot + 8) != 0 && strings.getInt(slot + 4) == KIND_KEY) {
+          listKey(strings.getLong(slot + 8));
+        }
+      }
+      data.putInt(KEYS_LISTED_OFFSET, 1);
+    }
+  }
+
+  private void listKey(final long record) {
+    final long node = allocate(16);
+    data.putLong(node, record);
+    data.putLong(node + 8, data.getLong(KEYS_HEAD_OFFSET));
+    data.putLong(KEYS_HEAD_OFFSET, node);
+  }
+
+  // moves a committed compaction's files over the store, or drops the files of one that never committed
+  private static void finishCompaction(final Path directory, final String name) throws IOException {
+    final Path marker = directory.resolve(name + COMPACTED);
+    if (!Files.exists(marker)) {
+      deleteFiles(directory, name + COMPACTING);
+      return;
+    }
+    for (final String file : FILES) {
+      final Path compacted = directory.resolve(name + COMPACTING + file);
+      if (Files.exists(compacted)) {
+        Files.move(compacted, directory.resolve(name + file), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    Files.delete(marker);
+  }
+
+  private static void deleteFiles(final Path directory, final String name) throws IOException {
+    for (final String file : FILES) {
+      Files.deleteIfExists(directory.resolve(name + file));
+    }
+  }
+
+  private long intern(final int kind, final String string) {
+    final byte[] bytes = utf8(string);
+    long slot = find(kind, bytes);
+    if (strings.getLong(slot + 8) != 0) {
+      return slot;
+    }
+    final long size = data.getLong(STRINGS_SIZE_OFFSET);
+    if (size + 1 > tableCapacity(strings) * MAX_LOAD_FACTOR) {
+      strings = resize(strings, name + ".strings", MappedFile::getInt);
+      slot = find(kind, bytes);
+    }
+    final long record = allocate(4 + bytes.length);
+    data.putInt(record, bytes.length);
+    data.put(record + 4, bytes);
+    strings.putInt(slot, stringHash(kind, bytes));
+    strings.putInt(slot + 4, kind);
+    strings.putLong(slot + 8, record);
+    data.putLong(STRINGS_SIZE_OFFSET, size + 1);
+    if (kind == KIND_KEY) {
+      listKey(record);
+    }
+    return slot;
+  }
+
+  // the slot holding the string, or the empty slot where it belongs
+  private long find(final int kind, final byte[] bytes) {
+    final int hash = stringHash(kind, bytes);
+    final long mask = tableCapacity(strings) - 1;
+    for (long index = hash & mask; ; index = (index + 1) & mask) {
+      final long slot = index * SLOT_SIZE;
+      final long record = strings.getLong(slot + 8);
+      if (record == 0
+          || (strings.getInt(slot) == hash && strings.getInt(slot + 4) == kind && sameBytes(record, bytes))) {
+        return slot;
+      }
+    }
+  }
+
+  private long findEdge(final long keyRecord, final long valueRecord) {
+    final long mask = tableCapacity(edges) - 1;
+    for (long index = pairHash(keyRecord, valueRecord) & mask; ; index = (index + 1) & mask) {
+      final long slot = index * SLOT_SIZE;
+      final long slotKey = edges.getLong(slot);
+      if (slotKey == 0 || (slotKey == keyRecord && edges.getLong(slot + 8) == valueRecord)) {
+        return slot;
+      }
+    }
+  }
+
+  // both slot layouts hold a non zero long at offset 8 once used
+  private static long findEmptySlot(final MappedFile table, final long hash) {
+    final long mask = tableCapacity(table) - 1;
+    for (long index = hash & mask; ; index = (index + 1) & mask) {
+      if (table.getLong(index * SLOT_SIZE + 8) == 0) {
+        return index * SLOT_SIZE;
+      }
+    }
+  }
+
+  // builds the doubled table next to the old one and swaps it in with an atomic rename, a crash keeps the old table
+  private MappedFile resize(final MappedFile table, final String fileName, final SlotHash slotHash) {
+    final Path target = directory.resolve(fileName);
+    final Path resizing = directory.resolve(fileName + ".resizing");
+    final long capacity = tableCapacity(table) * 2;
+    try {
+      Files.deleteIfExists(resizing);
+      final MappedFile resized = MappedFile.open(resizing, tableSegmentSize(capacity), capacity * SLOT_SIZE);
+      final byte[] slotBytes = new byte[SLOT_SIZE];
+      for (long slot = 0; slot < tableCapacity(table) * SLOT_SIZE; slot += SLOT_SIZE) {
+        if (table.getLong(slot + 8) != 0) {
+          table.get(slot, slotBytes);
+          resized.put(findEmptySlot(resized, slotHash.hash(table, slot)), slotBytes);
+        }
+      }
+      resized.force();
+      table.close();
+      Files.move(resizing, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      return resized;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not resize " + target, e);
+    }
+  }
+
+  // 8 byte aligned, never across a segment boundary
+  private long allocate(final int size) {
+    long position = data.getLong(DATA_END_OFFSET);
+    final long segmentSize = data.segmentSize();
+    Preconditions.checkArgument(size <= segmentSize, "Record of %s bytes does not fit in a segment!", size);
+    if (position / segmentSize != (position + size - 1) / segmentSize) {
+      position = (position / segmentSize + 1) * segmentSize;
+    }
+    data.ensureCapacity(position + size);
+    data.putLong(DATA_END_OFFSET, (position + size + 7) & ~7L);
+    return position;
+  }
+
+  private boolean sameBytes(final long record, final byte[] bytes) {
+    if (data.getInt(record) != bytes.length) {
+      return false;
+    }
+    final byte[] stored = new byte[bytes.length];
+    data.get(record + 4, stored);
+    return Arrays.equals(stored, bytes);
+  }
+
+  private String readString(final long record) {
+    final byte[] bytes = new byte[data.getInt(record)];
+    data.get(record + 4, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private long edgesSize() {
+    return data.getLong(EDGES_SIZE_OFFSET);
+  }
+
+  private static MappedFile openTable(final Path path) {
+    long capacity = INITIAL_TABLE_CAPACITY;
+    try {
+      if (Files.exists(path)) {
+        capacity = Math.max(capacity, Files.size(path) / SLOT_SIZE);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read " + path, e);
+    }
+    return MappedFile.open(path, tableSegmentSize(capacity), capacity * SLOT_SIZE);
+  }
+
+  private static int tableSegmentSize(final long capacity) {
+    return (int) Math.min(capacity * SLOT_SIZE, MAX_TABLE_SEGMENT_SIZE);
+  }
+
+  private static long tableCapacity(final MappedFile table) {
+    return table.capacity() / SLOT_SIZE;
+  }
+
+  private static int stringHash(final int kind, final byte[] bytes) {
+    return mix(Arrays.hashCode(bytes) * 31L + kind);
+  }
+
+  private static int pairHash(final long keyRecord, final long valueRecord) {
+    return mix(keyRecord * 0x9E3779B97F4A7C15L ^ valueRecord);
+  }
+
+  private static int mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    return (int) h & Integer.MAX_VALUE;
+  }
+
+  private static byte[] utf8(final String string) {
+    return string.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @FunctionalInterface
+  private interface SlotHash {
+
+    long hash(MappedFile table, long slot);
+  }
+}
@@ -0,0 +1,56 @@
+package de.quandoo.recruitment.registry.adapters.redis;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Maps keys to node names. Every node owns virtualNodes points on a 64 bit ring and a key belongs to the first point
+// at or after its hash, so adding a node only takes keys over from the others, about 1 / nodes of them.
+// Immutable, withNode returns a new ring.
+final class ConsistentHashRing {
+
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private final NavigableMap<Long, String> points;
+  private final int virtualNodes;
+
+  ConsistentHashRing(final Collection<String> nodes, final int virtualNodes) {
+    Preconditions.checkArgument(!nodes.isEmpty(), "Nodes could not be empty!");
+    Preconditions.checkArgument(virtualNodes > 0, "Virtual nodes should be greater than zero!");
+    this.points = new TreeMap<>();
+    this.virtualNodes = virtualNodes;
+    nodes.forEach(this::addPoints);
+  }
+
+  private ConsistentHashRing(final ConsistentHashRing ring) {
+    this.points = new TreeMap<>(ring.points);
+    this.virtualNodes = ring.virtualNodes;
+  }
+
+  ConsistentHashRing withNode(final String node) {
+    Preconditions.checkArgument(!points.containsValue(node), "Node " + node + " is already on the ring!");
+    final ConsistentHashRing ring = new ConsistentHashRing(this);
+    ring.addPoints(node);
+    return ring;
+  }
+
+  String nodeFor(final String key) {
+    final Map.Entry<Long, String> point = points.ceilingEntry(hash(key));
+    return (point == null ? points.firstEntry() : point).getValue();
+  }
+
+  private void addPoints(final String node) {
+    for (int i = 0; i < virtualNodes; i++) {
+      points.put(hash(node + "#" + i), node);
+    }
+  }
+
+  private static long hash(final String key) {
+    return HASH.hashString(key, StandardCharsets.UTF_8).asLong();
+  }
+}
@@ -0,0 +1,157 @@
+package de.quandoo.recruitment.registry.adapters.redis;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+
+// Bounded local cache of cuisineCustomers and a periodically refreshed top cuisines snapshot in front of a
+// CuisineCustomersPort, usually a CuisineCustomersRedisAdapter.
+// Registrations and removals go straight to the delegate and invalidate the cuisine on every instance sharing the topic.
+// The ranking is not invalidated, topCuisines may lag registrations by up to one refresh interval.
+@Slf4j
+public class CuisineCustomersNearCacheAdapter implements CuisineCustomersPort, Closeable {
+
+  private static final String INVALIDATION_TOPIC = "cuisine-customers-invalidation-topic";
+  private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+  private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(1);
+  private static final Duration DEFAULT_TOP_CUISINES_REFRESH_INTERVAL = Duration.ofSeconds(1);
+  private static final int DEFAULT_TOP_CUISINES_SIZE = 100;
+
+  private final CuisineCustomersPort delegate;
+  private final NearCacheInvalidation<Cuisine, List<Customer>> cuisineCustomers;
+  private final int topCuisinesSize;
+  private final ScheduledExecutorService topCuisinesRefresher;
+  // the delegate's topCuisines(topCuisinesSize), null until first loaded
+  private volatile List<Cuisine> topCuisines;
+
+  @Builder
+  private CuisineCustomersNearCacheAdapter(final CuisineCustomersPort delegate,
+                                           final RedissonClient redissonClient,
+                                           final Long maximumSize,
+                                           final Duration timeToLive,
+                                           final Integer topCuisinesSize,
+                                           final Duration topCuisinesRefreshInterval) {
+    this.delegate = Preconditions.checkNotNull(delegate, "Delegate could not be null!");
+    Preconditions.checkNotNull(redissonClient, "Redisson client could not be null!");
+    this.cuisineCustomers = new NearCacheInvalidation<>(redissonClient, INVALIDATION_TOPIC,
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize == null ? DEFAULT_MAXIMUM_SIZE : maximumSize)
+            .expireAfterWrite((timeToLive == null ? DEFAULT_TIME_TO_LIVE : timeToLive).toNanos(), TimeUnit.NANOSECONDS)
+            .build(),
+        Cuisine::of);
+    this.topCuisinesSize = topCuisinesSize == null ? DEFAULT_TOP_CUISINES_SIZE : topCuisinesSize;
+    Preconditions.checkArgument(this.topCuisinesSize > 0, "Top cuisines size should be greater than zero!");
+    final long refreshNanos = (topCuisinesRefreshInterval == null
+        ? DEFAULT_TOP_CUISINES_REFRESH_INTERVAL : topCuisinesRefreshInterval).toNanos();
+    this.topCuisinesRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "top-cuisines-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.topCuisinesRefresher.scheduleWithFixedDelay(this::refreshTopCuisines, refreshNanos, refreshNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void register(final Cuisine cuisine, final Customer customer) {
+    delegate.register(cuisine, customer);
+    cuisineCustomers.invalidate(List.of(cuisine), Cuisine::name);
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    delegate.registerAll(registrations);
+    cuisineCustomers.invalidate(registrations.stream().map(Registration::cuisine).distinct().toList(), Cuisine::name);
+  }
+
+  @Override
+  public void restoreAll(final Collection<Registration> registrations) {
+    delegate.restoreAll(registrations);
+    cuisineCustomers.invalidate(registrations.stream().map(Registration::cuisine).distinct().toList(), Cuisine::name);
+  }
+
+  @Override
+  public void unregister(final Cuisine cuisine, final Customer customer) {
+    delegate.unregister(cuisine, customer);
+    cuisineCustomers.invalidate(List.of(cuisine), Cuisine::name);
+  }
+
+  @Override
+  public void removeCustomer(final Customer customer, final Collection<Cuisine> cuisines) {
+    delegate.removeCustomer(customer, cuisines);
+    cuisineCustomers.invalidate(List.copyOf(cuisines), Cuisine::name);
+  }
+
+  // served from the snapshot when it holds enough cuisines, a larger n goes to the delegate
+  @Override
+  public List<Cuisine> topCuisines(final int n) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    if (n > topCuisinesSize) {
+      return delegate.topCuisines(n);
+    }
+    List<Cuisine> snapshot = topCuisines;
+    if (snapshot == null) {
+      snapshot = refreshTopCuisines();
+    }
+    return snapshot.size() > n ? snapshot.subList(0, n) : snapshot;
+  }
+
+  // not cached, the window slides with the clock and not with invalidations
+  @Override
+  public List<Cuisine> trendingCuisines(final int n, final Duration window) {
+    return delegate.trendingCuisines(n, window);
+  }
+
+  @Override
+  public List<Customer> cuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return cuisineCustomers.get(cuisine, () -> List.copyOf(delegate.cuisineCustomers(cuisine)));
+  }
+
+  // too large to cache, always read from the delegate
+  @Override
+  public Stream<Customer> streamCuisineCustomers(final Cuisine cuisine) {
+    return delegate.streamCuisineCustomers(cuisine);
+  }
+
+  // a single ZSCORE or PFCOUNT on the delegate, cheaper than keeping it coherent here
+  @Override
+  public long countCustomers(final Cuisine cuisine) {
+    return delegate.countCustomers(cuisine);
+  }
+
+  @Override
+  public void close() {
+    topCuisinesRefresher.shutdownNow();
+    cuisineCustomers.close();
+  }
+
+  private List<Cuisine> refreshTopCuisines() {
+    try {
+      final List<Cuisine> snapshot = List.copyOf(delegate.topCuisines(topCuisinesSize));
+      topCuisines = snapshot;
+      return snapshot;
+    } catch (RuntimeException e) {
+      // keeps serving the previous snapshot, a failure must not cancel the schedule
+      log.warn("Could not refresh top cuisines", e);
+      final List<Cuisine> snapshot = topCuisines;
+      if (snapshot == null) {
+        throw e;
+      }
+      return snapshot;
+    }
+  }
+}
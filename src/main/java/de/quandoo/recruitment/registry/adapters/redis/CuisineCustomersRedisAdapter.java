@@ -1,61 +1,410 @@
 package de.quandoo.recruitment.registry.adapters.redis;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import de.quandoo.recruitment.registry.adapters.redis.entitiy.CuisineREntity;
 import de.quandoo.recruitment.registry.adapters.redis.entitiy.CustomerREntity;
 import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.CuisinePopularity;
 import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersAsyncPort;
 import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
-import java.util.Comparator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucket;
+import org.redisson.api.RFuture;
 import org.redisson.api.RMapCache;
+import org.redisson.api.RMapCacheAsync;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RScript;
+import org.redisson.api.RScriptAsync;
 import org.redisson.api.RSetCache;
+import org.redisson.api.RSetCacheAsync;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.protocol.ScoredEntry;
 
-public class CuisineCustomersRedisAdapter implements CuisineCustomersPort {
+// Cuisines matched by the approximate predicate keep a HyperLogLog of their customers instead of the exact set: at most
+// 12KB per cuisine whatever its size, counts within about 1% and no customer list. Their popularity score is the
+// latest PFCOUNT, so they still take part in topCuisines. The predicate has to stay the same for a cuisine's lifetime.
+// New followers of exact cuisines are also counted in a sorted set per five minute interval for trendingCuisines, a
+// HyperLogLog cannot tell how many of its customers are new, so approximate cuisines never trend.
+public class CuisineCustomersRedisAdapter implements CuisineCustomersPort, CuisineCustomersAsyncPort {
+
+  private static final String CUISINE_CUSTOMERS_CACHE = "cuisine-customers-cache";
+  private static final String CUISINE_POPULARITY_ZSET = "cuisine-popularity-zset";
+  private static final String CUISINE_TRENDING_ZSET_PREFIX = "cuisine-trending-zset-";
+  private static final int SCAN_PAGE_SIZE = 1_000;
+  // KEYS: customer set, popularity, trending interval. ARGV: now, customer, cuisine, interval time to live in
+  // milliseconds. Adds the customer like RSetCache does, without an expiry, and only a customer new to the set moves
+  // the cuisine up, in the same step. Returns 1 if the customer is new.
+  private static final String REGISTER_SCRIPT = """
+      local expireDate = redis.call('zscore', KEYS[1], ARGV[2])
+      if expireDate ~= false and tonumber(expireDate) > tonumber(ARGV[1]) then
+        return 0
+      end
+      redis.call('zadd', KEYS[1], 92233720368547758, ARGV[2])
+      redis.call('zincrby', KEYS[2], 1, ARGV[3])
+      redis.call('zincrby', KEYS[3], 1, ARGV[3])
+      redis.call('pexpire', KEYS[3], ARGV[4])
+      return 1
+      """;
+  // KEYS: customer set, popularity. ARGV: now, cuisine. The score becomes the number of customers that have not
+  // expired, counted and written in one step so registrations in flight are neither lost nor counted twice.
+  private static final String BACKFILL_POPULARITY_SCRIPT = """
+      local count = redis.call('zcount', KEYS[1], '(' .. ARGV[1], '+inf')
+      if count > 0 then
+        redis.call('zadd', KEYS[2], count, ARGV[2])
+      else
+        redis.call('zrem', KEYS[2], ARGV[2])
+      end
+      return count
+      """;
+  // KEYS: popularity. ARGV: cuisine. The cuisine moves down by one in O(log N) and leaves the ranking with its last
+  // customer, in one step so no reader sees a score of zero.
+  private static final String DECREMENT_POPULARITY_SCRIPT = """
+      if tonumber(redis.call('zincrby', KEYS[1], -1, ARGV[1])) <= 0 then
+        redis.call('zrem', KEYS[1], ARGV[1])
+      end
+      return 1
+      """;
+
+  // KEYS: HyperLogLog, popularity. ARGV: cuisine, customers. PFADD, PFCOUNT and ZADD run as one step, so writers of the
+  // same cuisine can not interleave and leave an older, lower count behind. PFADD takes the customers in chunks below
+  // Lua's unpack limit. Without customers the score is only brought up to date with the HyperLogLog.
+  private static final String APPROXIMATE_REGISTER_SCRIPT = """
+      local changed = #ARGV == 1 and 1 or 0
+      for i = 2, #ARGV, 1000 do
+        if redis.call('pfadd', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV))) == 1 then
+          changed = 1
+        end
+      end
+      if changed == 0 then
+        return 0
+      end
+      local count = redis.call('pfcount', KEYS[1])
+      if count > 0 then
+        redis.call('zadd', KEYS[2], count, ARGV[1])
+      end
+      return count
+      """;
 
   private final RMapCache<CuisineREntity, RSetCache<CustomerREntity>> cuisineCustomersCache;
+  // customer count per cuisine, kept in step with the customer sets so that ranking is a single ZREVRANGE
+  private final RScoredSortedSet<CuisineREntity> cuisinePopularity;
+  private final TrendingBuckets trendingBuckets;
   private final RedissonClient redissonClient;
+  private final Predicate<Cuisine> approximate;
+  private final Codec codec;
 
   public CuisineCustomersRedisAdapter(final RedissonClient redissonClient) {
+    this(redissonClient, cuisine -> false);
+  }
+
+  public CuisineCustomersRedisAdapter(final RedissonClient redissonClient, final Predicate<Cuisine> approximate) {
     this.redissonClient = redissonClient;
-    this.cuisineCustomersCache = redissonClient.getMapCache("cuisine-customers-cache");
+    this.approximate = Preconditions.checkNotNull(approximate, "Approximate predicate could not be null!");
+    this.cuisineCustomersCache = redissonClient.getMapCache(CUISINE_CUSTOMERS_CACHE);
+    this.cuisinePopularity = redissonClient.getScoredSortedSet(CUISINE_POPULARITY_ZSET);
+    this.trendingBuckets = new TrendingBuckets(CUISINE_TRENDING_ZSET_PREFIX);
+    this.codec = redissonClient.getConfig().getCodec();
   }
 
   @Override
   public void register(final Cuisine cuisine, final Customer customer) {
+    Futures.join(registerAsync(cuisine, customer));
+  }
+
+  // One pipelined round trip: the map entry of the set, which is idempotent, and the script that adds the customer and
+  // ranks the cuisine together, so the popularity never lags behind the set.
+  @Override
+  public CompletableFuture<Void> registerAsync(final Cuisine cuisine, final Customer customer) {
     Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
     Preconditions.checkNotNull(customer, "Customer could not be null!");
     final CuisineREntity cuisineREntity = CuisineREntity.of(cuisine);
     final CustomerREntity customerREntity = CustomerREntity.of(customer);
-    this.cuisineCustomersCache.computeIfAbsent(cuisineREntity, createNewCustomerSetCacheForCuisine()).add(customerREntity);
+    if (approximate.test(cuisine)) {
+      return registerApproximate(redissonClient.getScript(), cuisineREntity, List.of(customerREntity)).toCompletableFuture()
+          .thenApply(count -> null);
+    }
+    final RBatch batch = redissonClient.createBatch();
+    final RMapCacheAsync<CuisineREntity, RSetCache<CustomerREntity>> batchCache = batch.getMapCache(CUISINE_CUSTOMERS_CACHE);
+    batchCache.fastPutIfAbsentAsync(cuisineREntity, createNewCustomerSetCacheForCuisine().apply(cuisineREntity));
+    batch.getScript(ByteArrayCodec.INSTANCE).evalAsync(RScript.Mode.READ_WRITE, REGISTER_SCRIPT, RScript.ReturnType.INTEGER,
+        List.of(customersSetCacheName(cuisineREntity), CUISINE_POPULARITY_ZSET, trendingBuckets.current()),
+        number(System.currentTimeMillis()), encode(customerREntity), encode(cuisineREntity),
+        number(trendingBuckets.timeToLiveMillis()));
+    return batch.executeAsync().toCompletableFuture().thenApply(registered -> null);
+  }
+
+  // One-off rebuild of the popularity from the customer sets, for a keyspace written before the popularity was kept on
+  // register, safe to run while the registry is in use. A page of cuisines per round trip. Approximate cuisines have
+  // no set and are ranked by their own script, they are left as they are. Returns the number of cuisines looked at.
+  public int backfillPopularity() {
+    int cuisines = 0;
+    final Iterator<List<CuisineREntity>> pages = Iterators.partition(cuisineCustomersCache.keySet(SCAN_PAGE_SIZE).iterator(), SCAN_PAGE_SIZE);
+    while (pages.hasNext()) {
+      final List<CuisineREntity> page = pages.next();
+      final RBatch batch = redissonClient.createBatch();
+      final RScriptAsync script = batch.getScript(ByteArrayCodec.INSTANCE);
+      final byte[] now = number(System.currentTimeMillis());
+      page.forEach(cuisineREntity -> script.evalAsync(RScript.Mode.READ_WRITE, BACKFILL_POPULARITY_SCRIPT, RScript.ReturnType.INTEGER,
+          List.of(customersSetCacheName(cuisineREntity), CUISINE_POPULARITY_ZSET), now, encode(cuisineREntity)));
+      batch.execute();
+      cuisines += page.size();
+    }
+    return cuisines;
+  }
+
+  // script arguments as raw bytes, the entities in the client's codec as RSetCache and the popularity store them
+  private byte[] encode(final Object entity) {
+    final ByteBuf buffer;
+    try {
+      buffer = codec.getValueEncoder().encode(entity);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not encode " + entity, e);
+    }
+    try {
+      return ByteBufUtil.getBytes(buffer);
+    } finally {
+      buffer.release();
+    }
+  }
+
+  // and numbers as text, the way Redisson passes them
+  private static byte[] number(final long value) {
+    return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    Futures.join(registerAllAsync(registrations));
+  }
+
+  @Override
+  public void restoreAll(final Collection<Registration> registrations) {
+    Futures.join(registerAllAsync(registrations, false));
+  }
+
+  // two pipelined round trips for the whole collection: the set writes first, then the popularity of the cuisines
+  // whose sets actually grew, since only the first batch tells which customers were new. Approximate cuisines are
+  // ranked by their script in the first one.
+  @Override
+  public CompletableFuture<Void> registerAllAsync(final Collection<Registration> registrations) {
+    return registerAllAsync(registrations, true);
+  }
+
+  private CompletableFuture<Void> registerAllAsync(final Collection<Registration> registrations, final boolean trending) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    final Map<Cuisine, Set<Customer>> customersByCuisine = registrations.stream()
+        .collect(Collectors.groupingBy(Registration::cuisine, Collectors.mapping(Registration::customer, Collectors.toSet())));
+    if (customersByCuisine.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    final RBatch registrationBatch = redissonClient.createBatch();
+    final RMapCacheAsync<CuisineREntity, RSetCache<CustomerREntity>> batchCache = registrationBatch.getMapCache(CUISINE_CUSTOMERS_CACHE);
+    final Map<CuisineREntity, List<RFuture<Boolean>>> additions = new HashMap<>();
+    customersByCuisine.forEach((cuisine, customers) -> {
+      final CuisineREntity cuisineREntity = CuisineREntity.of(cuisine);
+      if (approximate.test(cuisine)) {
+        registerApproximate(registrationBatch.getScript(), cuisineREntity, customers.stream().map(CustomerREntity::of).toList());
+        return;
+      }
+      batchCache.fastPutIfAbsentAsync(cuisineREntity, createNewCustomerSetCacheForCuisine().apply(cuisineREntity));
+      final RSetCacheAsync<CustomerREntity> batchSet = registrationBatch.getSetCache(customersSetCacheName(cuisineREntity));
+      additions.put(cuisineREntity, customers.stream().map(customer -> batchSet.addAsync(CustomerREntity.of(customer))).toList());
+    });
+
+    return registrationBatch.executeAsync().toCompletableFuture().thenCompose(registered -> {
+      final Map<CuisineREntity, Long> newCustomerCounts = new HashMap<>();
+      additions.forEach((cuisineREntity, added) -> {
+        final long count = added.stream().filter(RFuture::getNow).count();
+        if (count > 0) {
+          newCustomerCounts.put(cuisineREntity, count);
+        }
+      });
+      return rank(newCustomerCounts, trending);
+    });
+  }
+
+  private static RFuture<Long> registerApproximate(final RScriptAsync script, final CuisineREntity cuisineREntity,
+      final List<CustomerREntity> customers) {
+    final Object[] values = new Object[customers.size() + 1];
+    values[0] = cuisineREntity;
+    for (int i = 0; i < customers.size(); i++) {
+      values[i + 1] = customers.get(i);
+    }
+    return script.evalAsync(RScript.Mode.READ_WRITE, APPROXIMATE_REGISTER_SCRIPT, RScript.ReturnType.INTEGER,
+        List.of(customersHyperLogLogName(cuisineREntity), CUISINE_POPULARITY_ZSET), values);
+  }
+
+  // the popularity and the current interval's trending set move together, in the same round trip. Restored
+  // registrations only move the popularity.
+  private CompletableFuture<Void> rank(final Map<CuisineREntity, Long> newCustomerCounts, final boolean trending) {
+    if (newCustomerCounts.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    final RBatch batch = redissonClient.createBatch();
+    final RScoredSortedSetAsync<CuisineREntity> batchPopularity = batch.getScoredSortedSet(CUISINE_POPULARITY_ZSET);
+    newCustomerCounts.forEach(batchPopularity::addScoreAsync);
+    if (trending) {
+      final RScoredSortedSetAsync<CuisineREntity> batchTrending = batch.getScoredSortedSet(trendingBuckets.current());
+      newCustomerCounts.forEach(batchTrending::addScoreAsync);
+      batchTrending.expireAsync(trendingBuckets.timeToLiveMillis(), TimeUnit.MILLISECONDS);
+    }
+    return batch.executeAsync().toCompletableFuture().thenApply(ranked -> null);
+  }
+
+  @Override
+  public void unregister(final Cuisine cuisine, final Customer customer) {
+    Futures.join(unregisterAsync(cuisine, customer));
+  }
+
+  // The customer leaves its set through RSetCache, and only a customer that was in it moves the cuisine down.
+  // Registrations racing with it add and subtract ones, which commute, so the score still ends at the set size.
+  // A HyperLogLog cannot forget a customer, so approximate cuisines keep counting the customers unregistered from them.
+  @Override
+  public CompletableFuture<Void> unregisterAsync(final Cuisine cuisine, final Customer customer) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    if (approximate.test(cuisine)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    final CuisineREntity cuisineREntity = CuisineREntity.of(cuisine);
+    return createNewCustomerSetCacheForCuisine().apply(cuisineREntity).removeAsync(CustomerREntity.of(customer))
+        .toCompletableFuture()
+        .thenCompose(removed -> removed
+            ? decrementPopularity(redissonClient.getScript(), cuisineREntity).toCompletableFuture().thenApply(decremented -> (Void) null)
+            : CompletableFuture.<Void>completedFuture(null));
+  }
+
+  @Override
+  public void removeCustomer(final Customer customer, final Collection<Cuisine> cuisines) {
+    Futures.join(removeCustomerAsync(customer, cuisines));
+  }
+
+  // two pipelined round trips whatever the number of cuisines: the removals, then the popularity of the cuisines the
+  // customer actually left
+  @Override
+  public CompletableFuture<Void> removeCustomerAsync(final Customer customer, final Collection<Cuisine> cuisines) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisines, "Cuisines could not be null!");
+    final List<Cuisine> exactCuisines = cuisines.stream().filter(approximate.negate()).toList();
+    if (exactCuisines.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    final RBatch removalBatch = redissonClient.createBatch();
+    final CustomerREntity customerREntity = CustomerREntity.of(customer);
+    final Map<CuisineREntity, RFuture<Boolean>> removals = new HashMap<>();
+    exactCuisines.forEach(cuisine -> {
+      final CuisineREntity cuisineREntity = CuisineREntity.of(cuisine);
+      removals.put(cuisineREntity, removalBatch.getSetCache(customersSetCacheName(cuisineREntity)).removeAsync(customerREntity));
+    });
+    return removalBatch.executeAsync().toCompletableFuture().thenCompose(removed -> {
+      final List<CuisineREntity> left = removals.entrySet().stream()
+          .filter(removal -> removal.getValue().getNow())
+          .map(Map.Entry::getKey)
+          .toList();
+      if (left.isEmpty()) {
+        return CompletableFuture.completedFuture(null);
+      }
+      final RBatch popularityBatch = redissonClient.createBatch();
+      final RScriptAsync script = popularityBatch.getScript();
+      left.forEach(cuisineREntity -> decrementPopularity(script, cuisineREntity));
+      return popularityBatch.executeAsync().thenApply(decremented -> (Void) null);
+    });
+  }
+
+  // the cuisine is encoded by the client codec, exactly as the popularity stores it
+  private static RFuture<Long> decrementPopularity(final RScriptAsync script, final CuisineREntity cuisineREntity) {
+    return script.evalAsync(RScript.Mode.READ_WRITE, DECREMENT_POPULARITY_SCRIPT, RScript.ReturnType.INTEGER,
+        List.of(CUISINE_POPULARITY_ZSET), cuisineREntity);
   }
 
   private Function<CuisineREntity, RSetCache<CustomerREntity>> createNewCustomerSetCacheForCuisine() {
-    return cuisineR -> redissonClient.getSetCache(cuisineR.getName() + "-customers-set-cache");
+    return cuisineR -> redissonClient.getSetCache(customersSetCacheName(cuisineR));
   }
 
-  //TODO: optimize this method. Use Max Heap Tree data structure with redis.
-  // each topCuisines method invokes should be max O(n) but it time complexity is O(nlogn)
+  private static String customersSetCacheName(final CuisineREntity cuisineREntity) {
+    return cuisineREntity.getName() + "-customers-set-cache";
+  }
+
+  private static String customersHyperLogLogName(final CuisineREntity cuisineREntity) {
+    return cuisineREntity.getName() + "-customers-hll";
+  }
+
+  // O(log(N) + n) on the server and a single round trip whatever the number of cuisines
   @Override
   public List<Cuisine> topCuisines(final int n) {
     Preconditions.checkArgument(n > 0, "n should be greater than zero!");
-    return this.cuisineCustomersCache.entrySet()
+    return this.cuisinePopularity.valueRangeReversed(0, n - 1)
         .stream()
-        .sorted(cuisineComparator())
-        .limit(n)
-        .map(Entry::getKey)
         .map(CuisineREntity::toModel)
         .toList();
   }
 
-  private Comparator<Entry<CuisineREntity, RSetCache<CustomerREntity>>> cuisineComparator() {
-    return Comparator.comparingInt((Entry<CuisineREntity, RSetCache<CustomerREntity>> o) -> o.getValue().size()).reversed();
+  @Override
+  public CompletableFuture<List<Cuisine>> topCuisinesAsync(final int n) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    return this.cuisinePopularity.valueRangeReversedAsync(0, n - 1).toCompletableFuture()
+        .thenApply(cuisines -> cuisines.stream().map(CuisineREntity::toModel).toList());
+  }
+
+  // topCuisines with the customer counts, for merging the rankings of several nodes
+  public List<CuisinePopularity> topCuisinePopularity(final int n) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    return this.cuisinePopularity.entryRangeReversed(0, n - 1)
+        .stream()
+        .map(entry -> CuisinePopularity.of(entry.getValue().toModel(), entry.getScore().longValue()))
+        .toList();
+  }
+
+  @Override
+  public List<Cuisine> trendingCuisines(final int n, final Duration window) {
+    return trendingCuisinePopularity(n, window).stream().map(CuisinePopularity::cuisine).toList();
+  }
+
+  // ZUNIONSTORE of the window's interval sets into a set of its own, read and deleted in the same round trip.
+  // Unregistering does not take a follower back out of the interval it was counted in.
+  public List<CuisinePopularity> trendingCuisinePopularity(final int n, final Duration window) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    final List<String> intervals = trendingBuckets.window(window);
+    final RBatch batch = redissonClient.createBatch();
+    final RScoredSortedSetAsync<CuisineREntity> union = batch.getScoredSortedSet(trendingBuckets.union());
+    union.unionAsync(intervals.toArray(String[]::new));
+    final RFuture<Collection<ScoredEntry<CuisineREntity>>> trending = union.entryRangeReversedAsync(0, n - 1);
+    union.deleteAsync();
+    batch.execute();
+    return trending.getNow()
+        .stream()
+        .map(entry -> CuisinePopularity.of(entry.getValue().toModel(), entry.getScore().longValue()))
+        .toList();
   }
 
   @Override
@@ -67,6 +416,113 @@ public class CuisineCustomersRedisAdapter implements CuisineCustomersPort {
         .toList();
   }
 
+  // a single ZRANGE of the customer set, the name of the set follows from the cuisine so the map is not read
+  @Override
+  public CompletableFuture<List<Customer>> cuisineCustomersAsync(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return createNewCustomerSetCacheForCuisine().apply(CuisineREntity.of(cuisine)).readAllAsync().toCompletableFuture()
+        .thenApply(customers -> customers.stream().map(CustomerREntity::toModel).toList());
+  }
+
+  // ZSCAN over the customer set, RSetCache keeps it in a sorted set, a page of customers at a time
+  @Override
+  public Stream<Customer> streamCuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return createNewCustomerSetCacheForCuisine().apply(CuisineREntity.of(cuisine))
+        .stream(SCAN_PAGE_SIZE)
+        .map(CustomerREntity::toModel);
+  }
+
+  // ZSCORE of the popularity kept on register, PFCOUNT for approximate cuisines. One round trip either way.
+  @Override
+  public long countCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    final CuisineREntity cuisineREntity = CuisineREntity.of(cuisine);
+    if (approximate.test(cuisine)) {
+      return redissonClient.getHyperLogLog(customersHyperLogLogName(cuisineREntity)).count();
+    }
+    final Double score = this.cuisinePopularity.getScore(cuisineREntity);
+    return score == null ? 0 : score.longValue();
+  }
+
+  @Override
+  public CompletableFuture<Long> countCustomersAsync(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    final CuisineREntity cuisineREntity = CuisineREntity.of(cuisine);
+    if (approximate.test(cuisine)) {
+      return redissonClient.getHyperLogLog(customersHyperLogLogName(cuisineREntity)).countAsync().toCompletableFuture();
+    }
+    return this.cuisinePopularity.getScoreAsync(cuisineREntity).toCompletableFuture()
+        .thenApply(score -> score == null ? 0 : score.longValue());
+  }
+
+  // every cuisine with at least one customer, scanned a page at a time
+  Stream<Cuisine> cuisines() {
+    return this.cuisinePopularity.stream(SCAN_PAGE_SIZE).map(CuisineREntity::toModel);
+  }
+
+  // Adds the customers of the cuisine to another node, idempotent, so it can be repeated to pick up later
+  // registrations. They are restored, the moved customers do not trend on the target. A HyperLogLog is copied as raw bytes next to the target's one and merged into it with PFMERGE.
+  void copyTo(final Cuisine cuisine, final CuisineCustomersRedisAdapter target) {
+    final CuisineREntity cuisineREntity = CuisineREntity.of(cuisine);
+    if (approximate.test(cuisine)) {
+      final String name = customersHyperLogLogName(cuisineREntity);
+      final byte[] registers = redissonClient.<byte[]>getBucket(name, ByteArrayCodec.INSTANCE).get();
+      if (registers == null) {
+        return;
+      }
+      final RBucket<byte[]> migrating = target.redissonClient.getBucket(name + "-migrating", ByteArrayCodec.INSTANCE);
+      migrating.set(registers);
+      target.redissonClient.getHyperLogLog(name).mergeWith(migrating.getName());
+      migrating.delete();
+      Futures.join(registerApproximate(target.redissonClient.getScript(), cuisineREntity, List.of()).toCompletableFuture());
+      return;
+    }
+    final List<Registration> page = new ArrayList<>(SCAN_PAGE_SIZE);
+    streamCuisineCustomers(cuisine).forEach(customer -> {
+      page.add(Registration.of(customer, cuisine));
+      if (page.size() == SCAN_PAGE_SIZE) {
+        target.restoreAll(page);
+        page.clear();
+      }
+    });
+    target.restoreAll(page);
+  }
+
+  // Makes the target's customers of the cuisine exactly this node's, for a cuisine nothing writes any more. The target
+  // drops the customers unregistered here since an earlier copy and restores the missing ones. A HyperLogLog never
+  // drops a customer, merging it again is exact.
+  void reconcileTo(final Cuisine cuisine, final CuisineCustomersRedisAdapter target) {
+    if (approximate.test(cuisine)) {
+      copyTo(cuisine, target);
+      return;
+    }
+    final Set<Customer> onlyOnTarget = target.streamCuisineCustomers(cuisine).collect(Collectors.toSet());
+    final List<Registration> missing = new ArrayList<>();
+    streamCuisineCustomers(cuisine).forEach(customer -> {
+      if (!onlyOnTarget.remove(customer)) {
+        missing.add(Registration.of(customer, cuisine));
+      }
+    });
+    onlyOnTarget.forEach(customer -> target.unregister(cuisine, customer));
+    Lists.partition(missing, SCAN_PAGE_SIZE).forEach(target::restoreAll);
+  }
+
+  boolean holds(final Cuisine cuisine) {
+    return this.cuisinePopularity.contains(CuisineREntity.of(cuisine));
+  }
+
+  void remove(final Cuisine cuisine) {
+    final CuisineREntity cuisineREntity = CuisineREntity.of(cuisine);
+    if (approximate.test(cuisine)) {
+      redissonClient.getHyperLogLog(customersHyperLogLogName(cuisineREntity)).delete();
+    } else {
+      this.cuisineCustomersCache.fastRemove(cuisineREntity);
+      redissonClient.getSetCache(customersSetCacheName(cuisineREntity)).delete();
+    }
+    this.cuisinePopularity.remove(cuisineREntity);
+  }
+
   // using mapMulti (jdk17) instead of flatmap for stream performance
   private void toModel(RSetCache<CustomerREntity> customerREntities, Consumer<Customer> consumer) {
     customerREntities.forEach(customerREntity -> consumer.accept(customerREntity.toModel()));
@@ -0,0 +1,78 @@
+package de.quandoo.recruitment.registry.adapters.redis;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.Builder;
+import org.redisson.api.RedissonClient;
+
+// Bounded local cache of customerCuisines in front of a CustomerCuisinesPort, usually a CustomerCuisinesRedisAdapter.
+// Registrations and removals go straight to the delegate and invalidate the customer on every instance sharing the topic.
+public class CustomerCuisinesNearCacheAdapter implements CustomerCuisinesPort, Closeable {
+
+  private static final String INVALIDATION_TOPIC = "customer-cuisines-invalidation-topic";
+  private static final long DEFAULT_MAXIMUM_SIZE = 100_000;
+  private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(1);
+
+  private final CustomerCuisinesPort delegate;
+  private final NearCacheInvalidation<Customer, List<Cuisine>> customerCuisines;
+
+  @Builder
+  private CustomerCuisinesNearCacheAdapter(final CustomerCuisinesPort delegate,
+                                           final RedissonClient redissonClient,
+                                           final Long maximumSize,
+                                           final Duration timeToLive) {
+    this.delegate = Preconditions.checkNotNull(delegate, "Delegate could not be null!");
+    Preconditions.checkNotNull(redissonClient, "Redisson client could not be null!");
+    this.customerCuisines = new NearCacheInvalidation<>(redissonClient, INVALIDATION_TOPIC,
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize == null ? DEFAULT_MAXIMUM_SIZE : maximumSize)
+            .expireAfterWrite((timeToLive == null ? DEFAULT_TIME_TO_LIVE : timeToLive).toNanos(), TimeUnit.NANOSECONDS)
+            .build(),
+        Customer::of);
+  }
+
+  @Override
+  public void register(final Customer customer, final Cuisine cuisine) {
+    delegate.register(customer, cuisine);
+    customerCuisines.invalidate(List.of(customer), Customer::uuid);
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    delegate.registerAll(registrations);
+    customerCuisines.invalidate(registrations.stream().map(Registration::customer).distinct().toList(), Customer::uuid);
+  }
+
+  @Override
+  public void unregister(final Customer customer, final Cuisine cuisine) {
+    delegate.unregister(customer, cuisine);
+    customerCuisines.invalidate(List.of(customer), Customer::uuid);
+  }
+
+  @Override
+  public List<Cuisine> removeCustomer(final Customer customer) {
+    final List<Cuisine> cuisines = delegate.removeCustomer(customer);
+    customerCuisines.invalidate(List.of(customer), Customer::uuid);
+    return cuisines;
+  }
+
+  @Override
+  public List<Cuisine> customerCuisines(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    return customerCuisines.get(customer, () -> List.copyOf(delegate.customerCuisines(customer)));
+  }
+
+  @Override
+  public void close() {
+    customerCuisines.close();
+  }
+}
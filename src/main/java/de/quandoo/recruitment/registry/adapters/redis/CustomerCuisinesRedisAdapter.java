@@ -5,25 +5,40 @@ import de.quandoo.recruitment.registry.adapters.redis.entitiy.CuisineREntity;
 import de.quandoo.recruitment.registry.adapters.redis.entitiy.CustomerREntity;
 import de.quandoo.recruitment.registry.model.Cuisine;
 import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesAsyncPort;
 import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
 import org.redisson.api.RMapCache;
+import org.redisson.api.RMapCacheAsync;
 import org.redisson.api.RSetCache;
+import org.redisson.api.RSetCacheAsync;
 import org.redisson.api.RedissonClient;
 
-public class CustomerCuisinesRedisAdapter implements CustomerCuisinesPort {
+public class CustomerCuisinesRedisAdapter implements CustomerCuisinesPort, CustomerCuisinesAsyncPort {
+
+  private static final String CUSTOMER_CUISINES_CACHE = "customer-cuisines-cache";
 
   private final RMapCache<CustomerREntity, RSetCache<CuisineREntity>> customerCuisinesCache;
   private final RedissonClient redissonClient;
 
   public CustomerCuisinesRedisAdapter(final RedissonClient redissonClient) {
     this.redissonClient = redissonClient;
-    this.customerCuisinesCache = redissonClient.getMapCache("customer-cuisines-cache");
+    this.customerCuisinesCache = redissonClient.getMapCache(CUSTOMER_CUISINES_CACHE);
   }
 
   @Override
@@ -35,8 +50,83 @@ public class CustomerCuisinesRedisAdapter implements CustomerCuisinesPort {
         .add(CuisineREntity.of(cuisine));
   }
 
+  @Override
+  public CompletableFuture<Void> registerAsync(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    final CustomerREntity customerREntity = CustomerREntity.of(customer);
+    final RSetCache<CuisineREntity> cuisines = createNewCuisineSetCacheForCustomer().apply(customerREntity);
+    return this.customerCuisinesCache.fastPutIfAbsentAsync(customerREntity, cuisines).toCompletableFuture()
+        .thenCompose(put -> cuisines.addAsync(CuisineREntity.of(cuisine)))
+        .thenApply(added -> null);
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    Futures.join(registerAllAsync(registrations));
+  }
+
+  // a single pipelined round trip for the whole collection
+  @Override
+  public CompletableFuture<Void> registerAllAsync(final Collection<Registration> registrations) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    final Map<Customer, Set<Cuisine>> cuisinesByCustomer = registrations.stream()
+        .collect(Collectors.groupingBy(Registration::customer, Collectors.mapping(Registration::cuisine, Collectors.toSet())));
+    if (cuisinesByCustomer.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    final RBatch batch = redissonClient.createBatch();
+    final RMapCacheAsync<CustomerREntity, RSetCache<CuisineREntity>> batchCache = batch.getMapCache(CUSTOMER_CUISINES_CACHE);
+    cuisinesByCustomer.forEach((customer, cuisines) -> {
+      final CustomerREntity customerREntity = CustomerREntity.of(customer);
+      batchCache.fastPutIfAbsentAsync(customerREntity, createNewCuisineSetCacheForCustomer().apply(customerREntity));
+      batch.<CuisineREntity>getSetCache(cuisinesSetCacheName(customerREntity))
+          .addAllAsync(cuisines.stream().map(CuisineREntity::of).toList());
+    });
+    return batch.executeAsync().toCompletableFuture().thenApply(registered -> null);
+  }
+
+  @Override
+  public void unregister(final Customer customer, final Cuisine cuisine) {
+    Futures.join(unregisterAsync(customer, cuisine));
+  }
+
+  // the customer keeps its entry when its last cuisine is unregistered
+  @Override
+  public CompletableFuture<Void> unregisterAsync(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return createNewCuisineSetCacheForCustomer().apply(CustomerREntity.of(customer)).removeAsync(CuisineREntity.of(cuisine))
+        .toCompletableFuture()
+        .thenApply(removed -> null);
+  }
+
+  @Override
+  public List<Cuisine> removeCustomer(final Customer customer) {
+    return Futures.join(removeCustomerAsync(customer));
+  }
+
+  // reads and deletes the cuisine set and the map entry in one MULTI/EXEC, so a concurrent registration either
+  // lands before and is returned or after and starts a new set
+  @Override
+  public CompletableFuture<List<Cuisine>> removeCustomerAsync(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    final CustomerREntity customerREntity = CustomerREntity.of(customer);
+    final RBatch batch = redissonClient.createBatch(BatchOptions.defaults().executionMode(BatchOptions.ExecutionMode.IN_MEMORY_ATOMIC));
+    final RSetCacheAsync<CuisineREntity> batchSet = batch.getSetCache(cuisinesSetCacheName(customerREntity));
+    final RFuture<Set<CuisineREntity>> cuisines = batchSet.readAllAsync();
+    batchSet.deleteAsync();
+    batch.getMapCache(CUSTOMER_CUISINES_CACHE).fastRemoveAsync(customerREntity);
+    return batch.executeAsync().toCompletableFuture()
+        .thenApply(removed -> cuisines.getNow().stream().map(CuisineREntity::toModel).toList());
+  }
+
   private Function<CustomerREntity, RSetCache<CuisineREntity>> createNewCuisineSetCacheForCustomer() {
-    return customerREntity -> redissonClient.getSetCache(customerREntity.getUuid() + "-cuisines-set-cache");
+    return customerREntity -> redissonClient.getSetCache(cuisinesSetCacheName(customerREntity));
+  }
+
+  private static String cuisinesSetCacheName(final CustomerREntity customerREntity) {
+    return customerREntity.getUuid() + "-cuisines-set-cache";
   }
 
   @Override
@@ -48,6 +138,45 @@ public class CustomerCuisinesRedisAdapter implements CustomerCuisinesPort {
         .toList();
   }
 
+  // a single ZRANGE of the cuisine set, the name of the set follows from the customer so the map is not read
+  @Override
+  public CompletableFuture<List<Cuisine>> customerCuisinesAsync(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    return createNewCuisineSetCacheForCustomer().apply(CustomerREntity.of(customer)).readAllAsync().toCompletableFuture()
+        .thenApply(cuisines -> cuisines.stream().map(CuisineREntity::toModel).toList());
+  }
+
+  // every customer with at least one cuisine, scanned a page at a time
+  Stream<Customer> customers() {
+    return this.customerCuisinesCache.keySet().stream().map(CustomerREntity::toModel);
+  }
+
+  // idempotent, so it can be repeated to pick up later registrations
+  void copyTo(final Customer customer, final CustomerCuisinesRedisAdapter target) {
+    target.registerAll(customerCuisines(customer).stream().map(cuisine -> Registration.of(customer, cuisine)).toList());
+  }
+
+  // makes the target's cuisines of the customer exactly this node's, for a customer nothing writes any more
+  void reconcileTo(final Customer customer, final CustomerCuisinesRedisAdapter target) {
+    final Set<Cuisine> onlyOnTarget = new HashSet<>(target.customerCuisines(customer));
+    final List<Registration> missing = customerCuisines(customer).stream()
+        .filter(cuisine -> !onlyOnTarget.remove(cuisine))
+        .map(cuisine -> Registration.of(customer, cuisine))
+        .toList();
+    onlyOnTarget.forEach(cuisine -> target.unregister(customer, cuisine));
+    target.registerAll(missing);
+  }
+
+  boolean holds(final Customer customer) {
+    return this.customerCuisinesCache.containsKey(CustomerREntity.of(customer));
+  }
+
+  void remove(final Customer customer) {
+    final CustomerREntity customerREntity = CustomerREntity.of(customer);
+    this.customerCuisinesCache.fastRemove(customerREntity);
+    redissonClient.getSetCache(cuisinesSetCacheName(customerREntity)).delete();
+  }
+
   // using mapMulti (jdk17) instead of flatmap for stream performance
   private void toModel(Set<CuisineREntity> cuisineREntities, Consumer<Cuisine> consumer) {
     cuisineREntities.forEach(cuisineREntity -> consumer.accept(cuisineREntity.toModel()));
@@ -0,0 +1,19 @@
+package de.quandoo.recruitment.registry.adapters.redis;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+final class Futures {
+
+  private Futures() {
+  }
+
+  // waits like Redisson's blocking calls do and throws what they would throw, not a CompletionException
+  static <T> T join(final CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+  }
+}
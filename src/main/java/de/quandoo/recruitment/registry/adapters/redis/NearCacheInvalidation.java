@@ -0,0 +1,72 @@
+package de.quandoo.recruitment.registry.adapters.redis;
+
+import com.google.common.cache.Cache;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.JsonJacksonCodec;
+
+// A local cache kept coherent across instances: every write publishes the keys it touched on a Redis topic and every
+// instance, the writer included, drops them when the message arrives. Keys travel as strings.
+// Pub/sub is fire and forget, so a message lost while an instance is disconnected leaves its entries stale until they
+// expire, which is why the caches are built with a time to live.
+class NearCacheInvalidation<K, V> implements Closeable {
+
+  private final Cache<K, V> cache;
+  private final RTopic topic;
+  private final int listenerId;
+  // bumped by every invalidation, a load that overlapped one is not cached
+  private final AtomicLong generation;
+
+  NearCacheInvalidation(final RedissonClient redissonClient, final String topicName, final Cache<K, V> cache,
+                        final Function<String, K> keyDecoder) {
+    this.cache = cache;
+    this.topic = redissonClient.getTopic(topicName, JsonJacksonCodec.INSTANCE);
+    this.generation = new AtomicLong();
+    this.listenerId = topic.addListener(List.class, (channel, keys) -> {
+      generation.incrementAndGet();
+      for (final Object key : keys) {
+        cache.invalidate(keyDecoder.apply((String) key));
+      }
+    });
+  }
+
+  V get(final K key, final Supplier<V> loader) {
+    final V cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+    final long loadGeneration = generation.get();
+    final V loaded = loader.get();
+    cache.put(key, loaded);
+    if (generation.get() != loadGeneration) {
+      // an invalidation raced with the load, the value may predate it
+      cache.invalidate(key);
+    }
+    return loaded;
+  }
+
+  // drops the keys here right away and on every other instance once the message is delivered
+  void invalidate(final Collection<K> keys, final Function<K, String> keyEncoder) {
+    if (keys.isEmpty()) {
+      return;
+    }
+    generation.incrementAndGet();
+    cache.invalidateAll(keys);
+    // an ArrayList, JsonJacksonCodec records the concrete class and could not instantiate an immutable one
+    topic.publishAsync(keys.stream().map(keyEncoder).collect(Collectors.toCollection(ArrayList::new)));
+  }
+
+  @Override
+  public void close() {
+    topic.removeListener(listenerId);
+    cache.invalidateAll();
+  }
+}
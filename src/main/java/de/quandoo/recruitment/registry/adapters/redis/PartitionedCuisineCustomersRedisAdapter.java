@@ -0,0 +1,158 @@
+package de.quandoo.recruitment.registry.adapters.redis;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.CuisinePopularity;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import lombok.Builder;
+import org.redisson.api.RedissonClient;
+
+// Spreads cuisines over several independent Redis nodes, each holding the customer sets and the popularity zset
+// of its own cuisines. A cuisine lives on one node only, so topCuisines merges the top n of every node exactly.
+// Operations on a cuisine moving to a joining node wait while the migration makes the copy on that node exact.
+// Trending counts stay on the node that made them, a cuisine that moves starts trending afresh on its new node.
+public class PartitionedCuisineCustomersRedisAdapter implements CuisineCustomersPort, Closeable {
+
+  private static final int DEFAULT_VIRTUAL_NODES = 160;
+
+  private final RedisPartitions<Cuisine, CuisineCustomersRedisAdapter> partitions;
+
+  // nodes by name, the names place them on the ring and have to stay the same across restarts
+  @Builder
+  private PartitionedCuisineCustomersRedisAdapter(final Map<String, RedissonClient> nodes,
+                                                  final Integer virtualNodes,
+                                                  final Predicate<Cuisine> approximate) {
+    final Predicate<Cuisine> approximateCuisines = approximate == null ? cuisine -> false : approximate;
+    this.partitions = new RedisPartitions<>(nodes, virtualNodes == null ? DEFAULT_VIRTUAL_NODES : virtualNodes,
+        Cuisine::name,
+        redissonClient -> new CuisineCustomersRedisAdapter(redissonClient, approximateCuisines),
+        new RedisPartitions.Migration<>() {
+          @Override
+          public Stream<Cuisine> keys(final CuisineCustomersRedisAdapter source) {
+            return source.cuisines();
+          }
+
+          @Override
+          public void copy(final Cuisine cuisine, final CuisineCustomersRedisAdapter source,
+                           final CuisineCustomersRedisAdapter target) {
+            source.copyTo(cuisine, target);
+          }
+
+          @Override
+          public void reconcile(final Cuisine cuisine, final CuisineCustomersRedisAdapter source,
+                                final CuisineCustomersRedisAdapter target) {
+            source.reconcileTo(cuisine, target);
+          }
+
+          @Override
+          public void remove(final Cuisine cuisine, final CuisineCustomersRedisAdapter source) {
+            source.remove(cuisine);
+          }
+
+          @Override
+          public boolean holds(final Cuisine cuisine, final CuisineCustomersRedisAdapter source) {
+            return source.holds(cuisine);
+          }
+        },
+        "cuisine-customers-partition");
+  }
+
+  // blocks until the cuisines the node takes over are moved to it
+  public void addNode(final String name, final RedissonClient redissonClient) {
+    partitions.addNode(name, redissonClient);
+  }
+
+  @Override
+  public void register(final Cuisine cuisine, final Customer customer) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    partitions.onOwner(cuisine, adapter -> {
+      adapter.register(cuisine, customer);
+      return null;
+    });
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    partitions.onOwners(registrations, Registration::cuisine, CuisineCustomersRedisAdapter::registerAll);
+  }
+
+  @Override
+  public void restoreAll(final Collection<Registration> registrations) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    partitions.onOwners(registrations, Registration::cuisine, CuisineCustomersRedisAdapter::restoreAll);
+  }
+
+  @Override
+  public void unregister(final Cuisine cuisine, final Customer customer) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    partitions.onOwner(cuisine, adapter -> {
+      adapter.unregister(cuisine, customer);
+      return null;
+    });
+  }
+
+  // every node drops the customer from its own share of the cuisines
+  @Override
+  public void removeCustomer(final Customer customer, final Collection<Cuisine> cuisines) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisines, "Cuisines could not be null!");
+    partitions.onOwners(cuisines, cuisine -> cuisine, (adapter, nodeCuisines) -> adapter.removeCustomer(customer, nodeCuisines));
+  }
+
+  // every node is asked in parallel
+  @Override
+  public List<Cuisine> topCuisines(final int n) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    return partitions.onEveryNode(adapter -> adapter.topCuisinePopularity(n)).stream()
+        .flatMap(List::stream)
+        .sorted(Comparator.comparingLong(CuisinePopularity::customers).reversed())
+        .limit(n)
+        .map(CuisinePopularity::cuisine)
+        .toList();
+  }
+
+  @Override
+  public List<Cuisine> trendingCuisines(final int n, final Duration window) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    return partitions.onEveryNode(adapter -> adapter.trendingCuisinePopularity(n, window)).stream()
+        .flatMap(List::stream)
+        .sorted(Comparator.comparingLong(CuisinePopularity::customers).reversed())
+        .limit(n)
+        .map(CuisinePopularity::cuisine)
+        .toList();
+  }
+
+  @Override
+  public List<Customer> cuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return partitions.onOwner(cuisine, adapter -> adapter.cuisineCustomers(cuisine));
+  }
+
+  @Override
+  public Stream<Customer> streamCuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return partitions.onOwner(cuisine, adapter -> adapter.streamCuisineCustomers(cuisine));
+  }
+
+  @Override
+  public long countCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return partitions.onOwner(cuisine, adapter -> adapter.countCustomers(cuisine));
+  }
+
+  @Override
+  public void close() {
+    partitions.close();
+  }
+}
@@ -0,0 +1,107 @@
+package de.quandoo.recruitment.registry.adapters.redis;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import lombok.Builder;
+import org.redisson.api.RedissonClient;
+
+// Spreads customers over several independent Redis nodes, each holding the cuisine sets of its own customers.
+// Operations on a customer moving to a joining node wait while the migration makes the copy on that node exact.
+public class PartitionedCustomerCuisinesRedisAdapter implements CustomerCuisinesPort, Closeable {
+
+  private static final int DEFAULT_VIRTUAL_NODES = 160;
+
+  private final RedisPartitions<Customer, CustomerCuisinesRedisAdapter> partitions;
+
+  // nodes by name, the names place them on the ring and have to stay the same across restarts
+  @Builder
+  private PartitionedCustomerCuisinesRedisAdapter(final Map<String, RedissonClient> nodes,
+                                                  final Integer virtualNodes) {
+    this.partitions = new RedisPartitions<>(nodes, virtualNodes == null ? DEFAULT_VIRTUAL_NODES : virtualNodes,
+        Customer::uuid,
+        CustomerCuisinesRedisAdapter::new,
+        new RedisPartitions.Migration<>() {
+          @Override
+          public Stream<Customer> keys(final CustomerCuisinesRedisAdapter source) {
+            return source.customers();
+          }
+
+          @Override
+          public void copy(final Customer customer, final CustomerCuisinesRedisAdapter source,
+                           final CustomerCuisinesRedisAdapter target) {
+            source.copyTo(customer, target);
+          }
+
+          @Override
+          public void reconcile(final Customer customer, final CustomerCuisinesRedisAdapter source,
+                                final CustomerCuisinesRedisAdapter target) {
+            source.reconcileTo(customer, target);
+          }
+
+          @Override
+          public void remove(final Customer customer, final CustomerCuisinesRedisAdapter source) {
+            source.remove(customer);
+          }
+
+          @Override
+          public boolean holds(final Customer customer, final CustomerCuisinesRedisAdapter source) {
+            return source.holds(customer);
+          }
+        },
+        "customer-cuisines-partition");
+  }
+
+  // blocks until the customers the node takes over are moved to it
+  public void addNode(final String name, final RedissonClient redissonClient) {
+    partitions.addNode(name, redissonClient);
+  }
+
+  @Override
+  public void register(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    partitions.onOwner(customer, adapter -> {
+      adapter.register(customer, cuisine);
+      return null;
+    });
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    partitions.onOwners(registrations, Registration::customer, CustomerCuisinesRedisAdapter::registerAll);
+  }
+
+  @Override
+  public void unregister(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    partitions.onOwner(customer, adapter -> {
+      adapter.unregister(customer, cuisine);
+      return null;
+    });
+  }
+
+  @Override
+  public List<Cuisine> removeCustomer(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    return partitions.onOwner(customer, adapter -> adapter.removeCustomer(customer));
+  }
+
+  @Override
+  public List<Cuisine> customerCuisines(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    return partitions.onOwner(customer, adapter -> adapter.customerCuisines(customer));
+  }
+
+  @Override
+  public void close() {
+    partitions.close();
+  }
+}
@@ -0,0 +1,215 @@
+package de.quandoo.recruitment.registry.adapters.redis;
+
+import com.google.common.base.Preconditions;
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+
+// One adapter per independent Redis node, each key owned by the node the consistent-hash ring picks.
+// Operations run under a shared lock, only the switch to a ring with a new node takes it exclusively.
+//
+// Adding a node copies the keys it takes over while the old ring still serves. It then holds back every operation
+// on those keys, makes the new node's copy of each one exact, adding what was registered and dropping what was
+// removed during the first copy, removes them from their old nodes and switches rings. Operations on other keys go
+// on meanwhile, the held back ones run on the new ring once it is in place.
+@Slf4j
+final class RedisPartitions<K, A> implements Closeable {
+
+  interface Migration<K, A> {
+
+    Stream<K> keys(A source);
+
+    // idempotent and additive, runs while the source still takes writes
+    void copy(K key, A source, A target);
+
+    // makes the target hold exactly what the source holds, runs while nothing writes the key
+    void reconcile(K key, A source, A target);
+
+    void remove(K key, A source);
+
+    boolean holds(K key, A source);
+  }
+
+  private final Function<K, String> keyName;
+  private final Function<RedissonClient, A> adapterFactory;
+  private final Migration<K, A> migration;
+  private final ReadWriteLock lock;
+  // held exclusively by a migration while it reconciles, taken before the lock by operations on moving keys
+  private final ReadWriteLock movingKeysLock;
+  private final ExecutorService executor;
+  private volatile ConsistentHashRing ring;
+  private volatile Map<String, A> adapters;
+  // key names moving to a joining node, null when none are
+  private volatile Predicate<String> moving;
+
+  RedisPartitions(final Map<String, RedissonClient> nodes, final int virtualNodes, final Function<K, String> keyName,
+                  final Function<RedissonClient, A> adapterFactory, final Migration<K, A> migration,
+                  final String threadName) {
+    Preconditions.checkNotNull(nodes, "Nodes could not be null!");
+    this.keyName = keyName;
+    this.adapterFactory = adapterFactory;
+    this.migration = migration;
+    this.lock = new ReentrantReadWriteLock();
+    this.movingKeysLock = new ReentrantReadWriteLock();
+    final AtomicInteger threads = new AtomicInteger();
+    this.executor = Executors.newCachedThreadPool(runnable -> {
+      final Thread thread = new Thread(runnable, threadName + "-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.ring = new ConsistentHashRing(nodes.keySet(), virtualNodes);
+    final Map<String, A> nodeAdapters = new HashMap<>();
+    nodes.forEach((name, redissonClient) -> nodeAdapters.put(name, adapterFactory.apply(redissonClient)));
+    this.adapters = Map.copyOf(nodeAdapters);
+  }
+
+  <T> T onOwner(final K key, final Function<A, T> operation) {
+    final String name = keyName.apply(key);
+    return outsideMigration(moving -> moving.test(name), () -> operation.apply(adapters.get(ring.nodeFor(name))));
+  }
+
+  // the values are split by owning node and every node gets its share in parallel
+  <V> void onOwners(final Collection<V> values, final Function<V, K> key, final BiConsumer<A, List<V>> operation) {
+    outsideMigration(moving -> values.stream().anyMatch(value -> moving.test(keyName.apply(key.apply(value)))), () -> {
+      final ConsistentHashRing currentRing = ring;
+      final Map<String, List<V>> valuesByNode = values.stream()
+          .collect(Collectors.groupingBy(value -> currentRing.nodeFor(keyName.apply(key.apply(value)))));
+      final Map<String, A> currentAdapters = adapters;
+      if (valuesByNode.size() == 1) {
+        valuesByNode.forEach((node, nodeValues) -> operation.accept(currentAdapters.get(node), nodeValues));
+        return null;
+      }
+      joinAll(valuesByNode.entrySet().stream()
+          .map(entry -> CompletableFuture.runAsync(
+              () -> operation.accept(currentAdapters.get(entry.getKey()), entry.getValue()), executor))
+          .toList());
+      return null;
+    });
+  }
+
+  <T> List<T> onEveryNode(final Function<A, T> operation) {
+    lock.readLock().lock();
+    try {
+      return joinAll(adapters.values().stream()
+          .map(adapter -> CompletableFuture.supplyAsync(() -> operation.apply(adapter), executor))
+          .toList());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  synchronized void addNode(final String name, final RedissonClient redissonClient) {
+    Preconditions.checkNotNull(name, "Node name could not be null!");
+    Preconditions.checkNotNull(redissonClient, "Redisson client could not be null!");
+    final ConsistentHashRing newRing = ring.withNode(name);
+    final A target = adapterFactory.apply(redissonClient);
+    final Map<String, A> oldAdapters = adapters;
+    final long copied = migrate(oldAdapters, newRing, name, (key, source) -> migration.copy(key, source, target));
+
+    final Map<String, A> newAdapters = new HashMap<>(oldAdapters);
+    newAdapters.put(name, target);
+    final long moved;
+    movingKeysLock.writeLock().lock();
+    try {
+      // operations already running finish first, later ones on moving keys wait for the new ring
+      lock.writeLock().lock();
+      try {
+        moving = key -> newRing.nodeFor(key).equals(name);
+      } finally {
+        lock.writeLock().unlock();
+      }
+      // a key whose values were all removed during the copy is no longer listed on its old node
+      migration.keys(target).toList().stream()
+          .filter(key -> !migration.holds(key, oldAdapters.get(ring.nodeFor(keyName.apply(key)))))
+          .forEach(key -> migration.remove(key, target));
+      moved = migrate(oldAdapters, newRing, name, (key, source) -> {
+        migration.reconcile(key, source, target);
+        migration.remove(key, source);
+      });
+      lock.writeLock().lock();
+      try {
+        ring = newRing;
+        adapters = Map.copyOf(newAdapters);
+        moving = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    } finally {
+      movingKeysLock.writeLock().unlock();
+    }
+    log.info("Node {} joined, {} keys copied and {} moved to it", name, copied, moved);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  // An operation that finds its keys moving waits for the migration to finish and runs on the new ring. The moving
+  // keys lock is always taken before the lock, by the migration as well, so neither waits for the other holding one.
+  private <T> T outsideMigration(final Predicate<Predicate<String>> touchesMovingKeys, final Supplier<T> operation) {
+    lock.readLock().lock();
+    try {
+      final Predicate<String> movingKeys = moving;
+      if (movingKeys == null || !touchesMovingKeys.test(movingKeys)) {
+        return operation.get();
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    movingKeysLock.readLock().lock();
+    try {
+      lock.readLock().lock();
+      try {
+        return operation.get();
+      } finally {
+        lock.readLock().unlock();
+      }
+    } finally {
+      movingKeysLock.readLock().unlock();
+    }
+  }
+
+  private long migrate(final Map<String, A> sources, final ConsistentHashRing newRing, final String node,
+                       final BiConsumer<K, A> step) {
+    return joinAll(sources.values().stream()
+        .map(source -> CompletableFuture.supplyAsync(() -> {
+          final AtomicInteger keys = new AtomicInteger();
+          migration.keys(source)
+              .filter(key -> newRing.nodeFor(keyName.apply(key)).equals(node))
+              .forEach(key -> {
+                step.accept(key, source);
+                keys.incrementAndGet();
+              });
+          return (long) keys.get();
+        }, executor))
+        .toList())
+        .stream().mapToLong(Long::longValue).sum();
+  }
+
+  private static <T> List<T> joinAll(final List<CompletableFuture<T>> futures) {
+    try {
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+      return futures.stream().map(CompletableFuture::join).toList();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+  }
+}
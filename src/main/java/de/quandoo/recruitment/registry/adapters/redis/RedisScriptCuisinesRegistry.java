@@ -0,0 +1,228 @@
+package de.quandoo.recruitment.registry.adapters.redis;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RScript;
+import org.redisson.api.RScriptAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+
+// Redis registry whose registration is a single EVALSHA of a preloaded script. The script adds the customer to the
+// cuisine's set, the cuisine to the customer's set and, when the customer is new to the cuisine, bumps the cuisine's
+// popularity and its count in the current interval's trending set, all atomically and in one round trip. Removals
+// are scripts too and lower the popularity the same way. Names are stored as plain strings in plain sets, this layout
+// is not shared with CuisineCustomersRedisAdapter and CustomerCuisinesRedisAdapter. The keys of one registration are
+// not in the same hash slot, so it needs a single Redis node.
+public class RedisScriptCuisinesRegistry implements CuisinesRegistry {
+
+  private static final String CUISINE_CUSTOMERS_PREFIX = "registry:cuisine-customers:";
+  private static final String CUSTOMER_CUISINES_PREFIX = "registry:customer-cuisines:";
+  private static final String CUISINE_POPULARITY_ZSET = "registry:cuisine-popularity";
+  private static final String CUISINE_TRENDING_ZSET_PREFIX = "registry:cuisine-trending:";
+  private static final int SCAN_PAGE_SIZE = 1_000;
+  // KEYS: cuisine customers, customer cuisines, popularity, trending interval. ARGV: cuisine, customer, interval time to
+  // live in milliseconds. Returns 1 if the customer is new.
+  private static final String REGISTER_SCRIPT = """
+      local added = redis.call('sadd', KEYS[1], ARGV[2])
+      redis.call('sadd', KEYS[2], ARGV[1])
+      if added == 1 then
+        redis.call('zincrby', KEYS[3], 1, ARGV[1])
+        redis.call('zincrby', KEYS[4], 1, ARGV[1])
+        redis.call('pexpire', KEYS[4], ARGV[3])
+      end
+      return added
+      """;
+  // the first three keys and first two arguments of the register script. Returns 1 if the customer followed the cuisine.
+  private static final String UNREGISTER_SCRIPT = """
+      local removed = redis.call('srem', KEYS[1], ARGV[2])
+      redis.call('srem', KEYS[2], ARGV[1])
+      if removed == 1 and tonumber(redis.call('zincrby', KEYS[3], -1, ARGV[1])) <= 0 then
+        redis.call('zrem', KEYS[3], ARGV[1])
+      end
+      return removed
+      """;
+  // KEYS: customer cuisines, popularity. ARGV: customer, cuisine customers key prefix. The cuisine sets are only known
+  // once the customer's set is read, so their keys are built in the script. Returns the number of cuisines removed.
+  private static final String REMOVE_CUSTOMER_SCRIPT = """
+      local cuisines = redis.call('smembers', KEYS[1])
+      for _, cuisine in ipairs(cuisines) do
+        if redis.call('srem', ARGV[2] .. cuisine, ARGV[1]) == 1
+            and tonumber(redis.call('zincrby', KEYS[2], -1, cuisine)) <= 0 then
+          redis.call('zrem', KEYS[2], cuisine)
+        end
+      end
+      redis.call('del', KEYS[1])
+      return #cuisines
+      """;
+
+  private final RedissonClient redissonClient;
+  private final TrendingBuckets trendingBuckets;
+  private final String registerSha;
+  private final String unregisterSha;
+  private final String removeCustomerSha;
+
+  public RedisScriptCuisinesRegistry(final RedissonClient redissonClient) {
+    this.redissonClient = Preconditions.checkNotNull(redissonClient, "Redisson client could not be null!");
+    this.trendingBuckets = new TrendingBuckets(CUISINE_TRENDING_ZSET_PREFIX);
+    this.registerSha = loadScript(REGISTER_SCRIPT);
+    this.unregisterSha = loadScript(UNREGISTER_SCRIPT);
+    this.removeCustomerSha = loadScript(REMOVE_CUSTOMER_SCRIPT);
+  }
+
+  @Override
+  public void register(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    withScripts(() -> redissonClient.getScript(StringCodec.INSTANCE)
+        .evalSha(RScript.Mode.READ_WRITE, registerSha, RScript.ReturnType.INTEGER,
+            registrationKeys(customer, cuisine), cuisine.name(), customer.uuid(), trendingBuckets.timeToLiveMillis()));
+  }
+
+  // one script call per registration, all of them pipelined in a single round trip. Each registration is atomic,
+  // the collection is not.
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    if (registrations.isEmpty()) {
+      return;
+    }
+    withScripts(() -> {
+      final RBatch batch = redissonClient.createBatch();
+      final RScriptAsync script = batch.getScript(StringCodec.INSTANCE);
+      registrations.stream().distinct().forEach(registration -> script.evalShaAsync(RScript.Mode.READ_WRITE, registerSha,
+          RScript.ReturnType.INTEGER, registrationKeys(registration.customer(), registration.cuisine()),
+          registration.cuisine().name(), registration.customer().uuid(), trendingBuckets.timeToLiveMillis()));
+      return batch.execute();
+    });
+  }
+
+  @Override
+  public void unregister(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    withScripts(() -> redissonClient.getScript(StringCodec.INSTANCE)
+        .evalSha(RScript.Mode.READ_WRITE, unregisterSha, RScript.ReturnType.INTEGER,
+            membershipKeys(customer, cuisine), cuisine.name(), customer.uuid()));
+  }
+
+  @Override
+  public void removeCustomer(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    withScripts(() -> redissonClient.getScript(StringCodec.INSTANCE)
+        .evalSha(RScript.Mode.READ_WRITE, removeCustomerSha, RScript.ReturnType.INTEGER,
+            List.of(CUSTOMER_CUISINES_PREFIX + customer.uuid(), CUISINE_POPULARITY_ZSET), customer.uuid(), CUISINE_CUSTOMERS_PREFIX));
+  }
+
+  @Override
+  public List<Cuisine> customerCuisines(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    return redissonClient.<String>getSet(CUSTOMER_CUISINES_PREFIX + customer.uuid(), StringCodec.INSTANCE)
+        .readAll()
+        .stream()
+        .map(Cuisine::of)
+        .toList();
+  }
+
+  @Override
+  public List<Cuisine> topCuisines(final int n) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    return redissonClient.<String>getScoredSortedSet(CUISINE_POPULARITY_ZSET, StringCodec.INSTANCE)
+        .valueRangeReversed(0, n - 1)
+        .stream()
+        .map(Cuisine::of)
+        .toList();
+  }
+
+  // ZUNIONSTORE of the window's interval sets, read and deleted in the same round trip
+  @Override
+  public List<Cuisine> trendingCuisines(final int n, final Duration window) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    final List<String> intervals = trendingBuckets.window(window);
+    final RBatch batch = redissonClient.createBatch();
+    final RScoredSortedSetAsync<String> union = batch.getScoredSortedSet(trendingBuckets.union(), StringCodec.INSTANCE);
+    union.unionAsync(intervals.toArray(String[]::new));
+    final RFuture<Collection<String>> trending = union.valueRangeReversedAsync(0, n - 1);
+    union.deleteAsync();
+    batch.execute();
+    return trending.getNow()
+        .stream()
+        .map(Cuisine::of)
+        .toList();
+  }
+
+  @Override
+  public List<Customer> cuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return redissonClient.<String>getSet(CUISINE_CUSTOMERS_PREFIX + cuisine.name(), StringCodec.INSTANCE)
+        .readAll()
+        .stream()
+        .map(Customer::of)
+        .toList();
+  }
+
+  // SSCAN, a page of customers per round trip
+  @Override
+  public Stream<Customer> streamCuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return redissonClient.<String>getSet(CUISINE_CUSTOMERS_PREFIX + cuisine.name(), StringCodec.INSTANCE)
+        .stream(SCAN_PAGE_SIZE)
+        .map(Customer::of);
+  }
+
+  // SCARD of the cuisine's set
+  @Override
+  public long countCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return redissonClient.getSet(CUISINE_CUSTOMERS_PREFIX + cuisine.name(), StringCodec.INSTANCE).size();
+  }
+
+  private static List<Object> membershipKeys(final Customer customer, final Cuisine cuisine) {
+    return List.of(CUISINE_CUSTOMERS_PREFIX + cuisine.name(), CUSTOMER_CUISINES_PREFIX + customer.uuid(), CUISINE_POPULARITY_ZSET);
+  }
+
+  private List<Object> registrationKeys(final Customer customer, final Cuisine cuisine) {
+    return List.of(CUISINE_CUSTOMERS_PREFIX + cuisine.name(), CUSTOMER_CUISINES_PREFIX + customer.uuid(), CUISINE_POPULARITY_ZSET,
+        trendingBuckets.current());
+  }
+
+  private String loadScript(final String script) {
+    return redissonClient.getScript(StringCodec.INSTANCE).scriptLoad(script);
+  }
+
+  // The script cache is gone after a restart or a SCRIPT FLUSH. The scripts are reloaded, their shas do not change,
+  // and the call repeated once, which is safe since every script applied twice is the same as applied once.
+  private <T> T withScripts(final Supplier<T> call) {
+    try {
+      return call.get();
+    } catch (RedisException e) {
+      if (!isNoScript(e)) {
+        throw e;
+      }
+      loadScript(REGISTER_SCRIPT);
+      loadScript(UNREGISTER_SCRIPT);
+      loadScript(REMOVE_CUSTOMER_SCRIPT);
+      return call.get();
+    }
+  }
+
+  private static boolean isNoScript(final Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,126 @@
+package de.quandoo.recruitment.registry.adapters.redis;
+
+import de.quandoo.recruitment.registry.adapters.redis.entitiy.CuisineREntity;
+import de.quandoo.recruitment.registry.adapters.redis.entitiy.CustomerREntity;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.handler.State;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+import org.redisson.codec.JsonJacksonCodec;
+
+// Writes the registry entities as a tag byte followed by the raw UTF-8 name, or by the 16 bytes of a customer uuid
+// that is a canonical UUID. Everything else, like the set references held by the map caches, is left to
+// JsonJacksonCodec, JSON never starts with one of the tags. Keys and set members are stored in a different form than
+// with JsonJacksonCodec, a keyspace written with one codec can not be looked up with the other.
+public class RegistryCodec extends BaseCodec {
+
+  public static final RegistryCodec INSTANCE = new RegistryCodec();
+
+  private static final byte CUISINE = 1;
+  private static final byte CUSTOMER = 2;
+  private static final byte CUSTOMER_UUID = 3;
+  private static final int UUID_LENGTH = 36;
+
+  private final JsonJacksonCodec fallback;
+
+  private final Encoder encoder;
+  private final Decoder<Object> decoder;
+
+  public RegistryCodec() {
+    this(new JsonJacksonCodec());
+  }
+
+  public RegistryCodec(final ClassLoader classLoader) {
+    this(new JsonJacksonCodec(classLoader));
+  }
+
+  // used by Redisson to copy the codec to another class loader
+  public RegistryCodec(final ClassLoader classLoader, final RegistryCodec codec) {
+    this(classLoader);
+  }
+
+  private RegistryCodec(final JsonJacksonCodec fallback) {
+    this.fallback = fallback;
+    this.encoder = this::encode;
+    this.decoder = this::decode;
+  }
+
+  @Override
+  public Decoder<Object> getValueDecoder() {
+    return decoder;
+  }
+
+  @Override
+  public Encoder getValueEncoder() {
+    return encoder;
+  }
+
+  @Override
+  public ClassLoader getClassLoader() {
+    return fallback.getClassLoader();
+  }
+
+  private ByteBuf encode(final Object in) throws IOException {
+    if (in instanceof CuisineREntity cuisine) {
+      return utf8(CUISINE, cuisine.getName());
+    }
+    if (in instanceof CustomerREntity customer) {
+      final UUID uuid = canonicalUuid(customer.getUuid());
+      if (uuid == null) {
+        return utf8(CUSTOMER, customer.getUuid());
+      }
+      final ByteBuf out = ByteBufAllocator.DEFAULT.buffer(17);
+      out.writeByte(CUSTOMER_UUID);
+      out.writeLong(uuid.getMostSignificantBits());
+      out.writeLong(uuid.getLeastSignificantBits());
+      return out;
+    }
+    return fallback.getValueEncoder().encode(in);
+  }
+
+  private Object decode(final ByteBuf buf, final State state) throws IOException {
+    if (!buf.isReadable()) {
+      return fallback.getValueDecoder().decode(buf, state);
+    }
+    switch (buf.getByte(buf.readerIndex())) {
+      case CUISINE:
+        buf.skipBytes(1);
+        return new CuisineREntity(buf.readCharSequence(buf.readableBytes(), StandardCharsets.UTF_8).toString());
+      case CUSTOMER:
+        buf.skipBytes(1);
+        return new CustomerREntity(buf.readCharSequence(buf.readableBytes(), StandardCharsets.UTF_8).toString());
+      case CUSTOMER_UUID:
+        buf.skipBytes(1);
+        return new CustomerREntity(new UUID(buf.readLong(), buf.readLong()).toString());
+      default:
+        return fallback.getValueDecoder().decode(buf, state);
+    }
+  }
+
+  private static ByteBuf utf8(final byte tag, final String value) {
+    final ByteBuf out = ByteBufAllocator.DEFAULT.buffer(1 + ByteBufUtil.utf8MaxBytes(value));
+    out.writeByte(tag);
+    out.writeCharSequence(value, StandardCharsets.UTF_8);
+    return out;
+  }
+
+  // only a uuid that reads back exactly as written is stored as 16 bytes, upper case or other forms keep their text
+  private static UUID canonicalUuid(final String value) {
+    if (value.length() != UUID_LENGTH || value.charAt(8) != '-' || value.charAt(13) != '-'
+        || value.charAt(18) != '-' || value.charAt(23) != '-') {
+      return null;
+    }
+    try {
+      final UUID uuid = UUID.fromString(value);
+      return uuid.toString().equals(value) ? uuid : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package de.quandoo.recruitment.registry.adapters.redis;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.adapters.inmemory.TrendingCounters;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+// Names of the sorted sets that count new followers per cuisine and interval, the Redis side of TrendingCounters.
+// Every interval writes its own set, which expires once it has left the longest window, so the sets of a day take
+// the place of a ring and nothing has to rotate them. Intervals are numbered by the writer's clock.
+final class TrendingBuckets {
+
+  private final String prefix;
+  private final long intervalMillis;
+  private final int intervals;
+  private final Clock clock;
+
+  TrendingBuckets(final String prefix) {
+    this(prefix, TrendingCounters.DEFAULT_INTERVAL, TrendingCounters.DEFAULT_INTERVALS, Clock.systemUTC());
+  }
+
+  TrendingBuckets(final String prefix, final Duration interval, final int intervals, final Clock clock) {
+    this.prefix = prefix;
+    this.intervalMillis = interval.toMillis();
+    this.intervals = intervals;
+    this.clock = clock;
+  }
+
+  String current() {
+    return prefix + currentInterval();
+  }
+
+  // long enough for the last interval of the longest window, the current one is partial
+  long timeToLiveMillis() {
+    return (intervals + 1L) * intervalMillis;
+  }
+
+  // the sets of the last window / interval intervals, the current one included
+  List<String> window(final Duration window) {
+    Preconditions.checkNotNull(window, "Window could not be null!");
+    Preconditions.checkArgument(!window.isNegative() && !window.isZero(), "Window should be positive!");
+    final long windowIntervals = Math.max(1, (window.toMillis() + intervalMillis - 1) / intervalMillis);
+    Preconditions.checkArgument(windowIntervals <= intervals, "Window should not exceed the tracked intervals!");
+    final long interval = currentInterval();
+    return LongStream.rangeClosed(interval - windowIntervals + 1, interval).mapToObj(i -> prefix + i).toList();
+  }
+
+  // unique per query, so queries running at the same time never share the union they read
+  String union() {
+    return prefix + "union-" + UUID.randomUUID();
+  }
+
+  private long currentInterval() {
+    return clock.millis() / intervalMillis;
+  }
+}
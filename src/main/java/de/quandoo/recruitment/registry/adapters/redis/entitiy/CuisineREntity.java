@@ -1,20 +1,25 @@
 package de.quandoo.recruitment.registry.adapters.redis.entitiy;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import de.quandoo.recruitment.registry.model.Cuisine;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
-//TODO: This class should be immutable.Class Fields should be final and setter methods should be deleted.
-// But redisson uses Jackson Codec for serialization and deserialization.
-// Jackson  needs to setter getter and default constructor for serialization and deserialization.
-// That's why  this class is mutable
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+// RegistryCodec writes the name as raw UTF-8, the class is not final because
+// JsonJacksonCodec only records the type of non-final classes and the creator serves clients still configured with it
+@Getter
+@EqualsAndHashCode
+@ToString
 public class CuisineREntity {
 
-  private String name;
+  private final String name;
+
+  @JsonCreator
+  public CuisineREntity(@JsonProperty("name") final String name) {
+    this.name = name;
+  }
 
   //for memory efficiency
   public static CuisineREntity of(final Cuisine cuisine) {
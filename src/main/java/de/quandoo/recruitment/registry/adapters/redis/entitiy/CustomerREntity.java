@@ -1,20 +1,26 @@
 package de.quandoo.recruitment.registry.adapters.redis.entitiy;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import de.quandoo.recruitment.registry.model.Customer;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
-//TODO: This class should be immutable.Class Fields should be final and setter methods should be deleted.
-// But redisson uses Jackson Codec for serialization and deserialization.
-// Jackson  needs to setter getter and default constructor for serialization and deserialization.
-// That's why  this class is mutable
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+// RegistryCodec writes a canonical UUID as its 16 bytes and any other uuid as raw UTF-8, the class is not
+// final because JsonJacksonCodec only records the type of non-final classes and the creator serves clients still
+// configured with it
+@Getter
+@EqualsAndHashCode
+@ToString
 public class CustomerREntity {
 
-  private String uuid;
+  private final String uuid;
+
+  @JsonCreator
+  public CustomerREntity(@JsonProperty("uuid") final String uuid) {
+    this.uuid = uuid;
+  }
 
   //for memory efficiency
   public static CustomerREntity of(final Customer customer) {
@@ -2,15 +2,35 @@ package de.quandoo.recruitment.registry.api;
 
 import de.quandoo.recruitment.registry.model.Cuisine;
 import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface CuisinesRegistry {
 
     void register(Customer customer, Cuisine cuisine);
 
+    void registerAll(Collection<Registration> registrations);
+
+    void unregister(Customer customer, Cuisine cuisine);
+
+    void removeCustomer(Customer customer);
+
     List<Cuisine> customerCuisines(Customer customer);
 
     List<Cuisine> topCuisines(int n);
 
+    // the cuisines that gained the most followers within the last window, a day at most by default
+    List<Cuisine> trendingCuisines(int n, Duration window);
+
     List<Customer> cuisineCustomers(Cuisine cuisine);
+
+    // lazily iterated, memory use does not depend on the number of customers and registrations made while the stream is
+    // consumed may or may not be seen
+    Stream<Customer> streamCuisineCustomers(Cuisine cuisine);
+
+    // number of customers following the cuisine without reading them, exact unless the adapter says otherwise
+    long countCustomers(Cuisine cuisine);
 }
@@ -0,0 +1,29 @@
+package de.quandoo.recruitment.registry.api;
+
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// CuisinesRegistry for callers that must not block. Redis backed futures complete on Redisson I/O threads, stages
+// chained to them without an executor must not block either.
+public interface CuisinesRegistryAsync {
+
+    CompletableFuture<Void> registerAsync(Customer customer, Cuisine cuisine);
+
+    CompletableFuture<Void> registerAllAsync(Collection<Registration> registrations);
+
+    CompletableFuture<Void> unregisterAsync(Customer customer, Cuisine cuisine);
+
+    CompletableFuture<Void> removeCustomerAsync(Customer customer);
+
+    CompletableFuture<List<Cuisine>> customerCuisinesAsync(Customer customer);
+
+    CompletableFuture<List<Cuisine>> topCuisinesAsync(int n);
+
+    CompletableFuture<List<Customer>> cuisineCustomersAsync(Cuisine cuisine);
+
+    CompletableFuture<Long> countCustomersAsync(Cuisine cuisine);
+}
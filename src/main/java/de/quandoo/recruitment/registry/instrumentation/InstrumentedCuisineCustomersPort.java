@@ -0,0 +1,97 @@
+package de.quandoo.recruitment.registry.instrumentation;
+
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class InstrumentedCuisineCustomersPort implements CuisineCustomersPort {
+
+  private final CuisineCustomersPort delegate;
+  private final OperationMetricsGroup metrics;
+  private final OperationMetrics register;
+  private final OperationMetrics registerAll;
+  private final OperationMetrics unregister;
+  private final OperationMetrics removeCustomer;
+  private final OperationMetrics topCuisines;
+  private final OperationMetrics trendingCuisines;
+  private final OperationMetrics cuisineCustomers;
+  private final OperationMetrics streamCuisineCustomers;
+  private final OperationMetrics countCustomers;
+
+  public InstrumentedCuisineCustomersPort(final CuisineCustomersPort delegate, final String name) {
+    this.delegate = delegate;
+    this.metrics = new OperationMetricsGroup("CuisineCustomersPort", name);
+    this.register = metrics.operation("register");
+    this.registerAll = metrics.operation("registerAll");
+    this.unregister = metrics.operation("unregister");
+    this.removeCustomer = metrics.operation("removeCustomer");
+    this.topCuisines = metrics.operation("topCuisines");
+    this.trendingCuisines = metrics.operation("trendingCuisines");
+    this.cuisineCustomers = metrics.operation("cuisineCustomers");
+    this.streamCuisineCustomers = metrics.operation("streamCuisineCustomers");
+    this.countCustomers = metrics.operation("countCustomers");
+  }
+
+  public OperationMetricsGroup metrics() {
+    return metrics;
+  }
+
+  @Override
+  public void register(final Cuisine cuisine, final Customer customer) {
+    register.time(() -> delegate.register(cuisine, customer));
+  }
+
+  // the result size of a bulk registration is its number of registrations
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    registerAll.time(() -> delegate.registerAll(registrations), registrations.size());
+  }
+
+  // timed as a bulk registration, which it is apart from trending
+  @Override
+  public void restoreAll(final Collection<Registration> registrations) {
+    registerAll.time(() -> delegate.restoreAll(registrations), registrations.size());
+  }
+
+  @Override
+  public void unregister(final Cuisine cuisine, final Customer customer) {
+    unregister.time(() -> delegate.unregister(cuisine, customer));
+  }
+
+  // the result size of a customer removal is its number of cuisines
+  @Override
+  public void removeCustomer(final Customer customer, final Collection<Cuisine> cuisines) {
+    removeCustomer.time(() -> delegate.removeCustomer(customer, cuisines), cuisines.size());
+  }
+
+  @Override
+  public List<Cuisine> topCuisines(final int n) {
+    return topCuisines.time(() -> delegate.topCuisines(n), List::size);
+  }
+
+  @Override
+  public List<Cuisine> trendingCuisines(final int n, final Duration window) {
+    return trendingCuisines.time(() -> delegate.trendingCuisines(n, window), List::size);
+  }
+
+  @Override
+  public List<Customer> cuisineCustomers(final Cuisine cuisine) {
+    return cuisineCustomers.time(() -> delegate.cuisineCustomers(cuisine), List::size);
+  }
+
+  // only opening the stream is timed, consuming it is up to the caller
+  @Override
+  public Stream<Customer> streamCuisineCustomers(final Cuisine cuisine) {
+    return streamCuisineCustomers.time(() -> delegate.streamCuisineCustomers(cuisine));
+  }
+
+  @Override
+  public long countCustomers(final Cuisine cuisine) {
+    return countCustomers.time(() -> delegate.countCustomers(cuisine));
+  }
+}
@@ -0,0 +1,96 @@
+package de.quandoo.recruitment.registry.instrumentation;
+
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class InstrumentedCuisinesRegistry implements CuisinesRegistry {
+
+  private final CuisinesRegistry delegate;
+  private final OperationMetricsGroup metrics;
+  private final OperationMetrics register;
+  private final OperationMetrics registerAll;
+  private final OperationMetrics unregister;
+  private final OperationMetrics removeCustomer;
+  private final OperationMetrics customerCuisines;
+  private final OperationMetrics topCuisines;
+  private final OperationMetrics trendingCuisines;
+  private final OperationMetrics cuisineCustomers;
+  private final OperationMetrics streamCuisineCustomers;
+  private final OperationMetrics countCustomers;
+
+  public InstrumentedCuisinesRegistry(final CuisinesRegistry delegate, final String name) {
+    this.delegate = delegate;
+    this.metrics = new OperationMetricsGroup("CuisinesRegistry", name);
+    this.register = metrics.operation("register");
+    this.registerAll = metrics.operation("registerAll");
+    this.unregister = metrics.operation("unregister");
+    this.removeCustomer = metrics.operation("removeCustomer");
+    this.customerCuisines = metrics.operation("customerCuisines");
+    this.topCuisines = metrics.operation("topCuisines");
+    this.trendingCuisines = metrics.operation("trendingCuisines");
+    this.cuisineCustomers = metrics.operation("cuisineCustomers");
+    this.streamCuisineCustomers = metrics.operation("streamCuisineCustomers");
+    this.countCustomers = metrics.operation("countCustomers");
+  }
+
+  public OperationMetricsGroup metrics() {
+    return metrics;
+  }
+
+  @Override
+  public void register(final Customer customer, final Cuisine cuisine) {
+    register.time(() -> delegate.register(customer, cuisine));
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    registerAll.time(() -> delegate.registerAll(registrations), registrations.size());
+  }
+
+  @Override
+  public void unregister(final Customer customer, final Cuisine cuisine) {
+    unregister.time(() -> delegate.unregister(customer, cuisine));
+  }
+
+  @Override
+  public void removeCustomer(final Customer customer) {
+    removeCustomer.time(() -> delegate.removeCustomer(customer));
+  }
+
+  @Override
+  public List<Cuisine> customerCuisines(final Customer customer) {
+    return customerCuisines.time(() -> delegate.customerCuisines(customer), List::size);
+  }
+
+  @Override
+  public List<Cuisine> topCuisines(final int n) {
+    return topCuisines.time(() -> delegate.topCuisines(n), List::size);
+  }
+
+  @Override
+  public List<Cuisine> trendingCuisines(final int n, final Duration window) {
+    return trendingCuisines.time(() -> delegate.trendingCuisines(n, window), List::size);
+  }
+
+  @Override
+  public List<Customer> cuisineCustomers(final Cuisine cuisine) {
+    return cuisineCustomers.time(() -> delegate.cuisineCustomers(cuisine), List::size);
+  }
+
+  // only opening the stream is timed, consuming it is up to the caller
+  @Override
+  public Stream<Customer> streamCuisineCustomers(final Cuisine cuisine) {
+    return streamCuisineCustomers.time(() -> delegate.streamCuisineCustomers(cuisine));
+  }
+
+  @Override
+  public long countCustomers(final Cuisine cuisine) {
+    return countCustomers.time(() -> delegate.countCustomers(cuisine));
+  }
+}
@@ -0,0 +1,58 @@
+package de.quandoo.recruitment.registry.instrumentation;
+
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.util.Collection;
+import java.util.List;
+
+public class InstrumentedCustomerCuisinesPort implements CustomerCuisinesPort {
+
+  private final CustomerCuisinesPort delegate;
+  private final OperationMetricsGroup metrics;
+  private final OperationMetrics register;
+  private final OperationMetrics registerAll;
+  private final OperationMetrics unregister;
+  private final OperationMetrics removeCustomer;
+  private final OperationMetrics customerCuisines;
+
+  public InstrumentedCustomerCuisinesPort(final CustomerCuisinesPort delegate, final String name) {
+    this.delegate = delegate;
+    this.metrics = new OperationMetricsGroup("CustomerCuisinesPort", name);
+    this.register = metrics.operation("register");
+    this.registerAll = metrics.operation("registerAll");
+    this.unregister = metrics.operation("unregister");
+    this.removeCustomer = metrics.operation("removeCustomer");
+    this.customerCuisines = metrics.operation("customerCuisines");
+  }
+
+  public OperationMetricsGroup metrics() {
+    return metrics;
+  }
+
+  @Override
+  public void register(final Customer customer, final Cuisine cuisine) {
+    register.time(() -> delegate.register(customer, cuisine));
+  }
+
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    registerAll.time(() -> delegate.registerAll(registrations), registrations.size());
+  }
+
+  @Override
+  public void unregister(final Customer customer, final Cuisine cuisine) {
+    unregister.time(() -> delegate.unregister(customer, cuisine));
+  }
+
+  @Override
+  public List<Cuisine> removeCustomer(final Customer customer) {
+    return removeCustomer.time(() -> delegate.removeCustomer(customer), List::size);
+  }
+
+  @Override
+  public List<Cuisine> customerCuisines(final Customer customer) {
+    return customerCuisines.time(() -> delegate.customerCuisines(customer), List::size);
+  }
+}
@@ -0,0 +1,158 @@
+package de.quandoo.recruitment.registry.instrumentation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+// Latency and result size histograms of one operation.
+// Callers record into HdrHistogram Recorders, which are wait free for writers. Readers swap out the interval histograms
+// and fold them into cumulative ones, so the cost of percentiles is only paid when they are read.
+public final class OperationMetrics implements OperationMetricsMXBean {
+
+  private static final int SIGNIFICANT_DIGITS = 2;
+  private static final double NANOS_PER_MICRO = 1_000.0;
+
+  private final String name;
+  private final Recorder latencies;
+  private final Recorder resultSizes;
+  private final LongAdder errors;
+
+  // guarded by this
+  private final Histogram cumulativeLatencies;
+  private final Histogram cumulativeResultSizes;
+  private Histogram latencyInterval;
+  private Histogram resultSizeInterval;
+  private long resetNanos;
+
+  OperationMetrics(final String name) {
+    this.name = name;
+    this.latencies = new Recorder(SIGNIFICANT_DIGITS);
+    this.resultSizes = new Recorder(SIGNIFICANT_DIGITS);
+    this.errors = new LongAdder();
+    this.cumulativeLatencies = new Histogram(SIGNIFICANT_DIGITS);
+    this.cumulativeResultSizes = new Histogram(SIGNIFICANT_DIGITS);
+    this.resetNanos = System.nanoTime();
+  }
+
+  public String name() {
+    return name;
+  }
+
+  // runs the operation and records its latency, or an error when it throws
+  void time(final Runnable operation) {
+    time(() -> {
+      operation.run();
+      return null;
+    });
+  }
+
+  void time(final Runnable operation, final int resultSize) {
+    time(() -> {
+      operation.run();
+      return null;
+    }, result -> resultSize);
+  }
+
+  <T> T time(final Supplier<T> operation) {
+    return time(operation, null);
+  }
+
+  // a null resultSize records the latency only
+  <T> T time(final Supplier<T> operation, final ToIntFunction<T> resultSize) {
+    final long start = System.nanoTime();
+    final T result;
+    try {
+      result = operation.get();
+    } catch (RuntimeException e) {
+      latencies.recordValue(System.nanoTime() - start);
+      errors.increment();
+      throw e;
+    }
+    latencies.recordValue(System.nanoTime() - start);
+    if (resultSize != null) {
+      resultSizes.recordValue(resultSize.applyAsInt(result));
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized long getCount() {
+    return latencies().getTotalCount();
+  }
+
+  @Override
+  public long getErrorCount() {
+    return errors.sum();
+  }
+
+  @Override
+  public synchronized double getThroughputPerSecond() {
+    final long elapsedNanos = Math.max(1, System.nanoTime() - resetNanos);
+    return latencies().getTotalCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+  }
+
+  @Override
+  public synchronized double getMeanLatencyMicros() {
+    return latencies().getMean() / NANOS_PER_MICRO;
+  }
+
+  @Override
+  public synchronized double getLatencyP50Micros() {
+    return latencies().getValueAtPercentile(50) / NANOS_PER_MICRO;
+  }
+
+  @Override
+  public synchronized double getLatencyP90Micros() {
+    return latencies().getValueAtPercentile(90) / NANOS_PER_MICRO;
+  }
+
+  @Override
+  public synchronized double getLatencyP99Micros() {
+    return latencies().getValueAtPercentile(99) / NANOS_PER_MICRO;
+  }
+
+  @Override
+  public synchronized double getLatencyP999Micros() {
+    return latencies().getValueAtPercentile(99.9) / NANOS_PER_MICRO;
+  }
+
+  @Override
+  public synchronized double getMaxLatencyMicros() {
+    return latencies().getMaxValue() / NANOS_PER_MICRO;
+  }
+
+  @Override
+  public synchronized double getMeanResultSize() {
+    return resultSizes().getMean();
+  }
+
+  @Override
+  public synchronized long getMaxResultSize() {
+    return resultSizes().getMaxValue();
+  }
+
+  @Override
+  public synchronized void reset() {
+    latencies();
+    resultSizes();
+    cumulativeLatencies.reset();
+    cumulativeResultSizes.reset();
+    errors.reset();
+    resetNanos = System.nanoTime();
+  }
+
+  private Histogram latencies() {
+    latencyInterval = latencies.getIntervalHistogram(latencyInterval);
+    cumulativeLatencies.add(latencyInterval);
+    return cumulativeLatencies;
+  }
+
+  private Histogram resultSizes() {
+    resultSizeInterval = resultSizes.getIntervalHistogram(resultSizeInterval);
+    cumulativeResultSizes.add(resultSizeInterval);
+    return cumulativeResultSizes;
+  }
+}
@@ -0,0 +1,83 @@
+package de.quandoo.recruitment.registry.instrumentation;
+
+import com.google.common.base.Preconditions;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// The operations of one decorated component, exposed as MXBeans named
+// de.quandoo.recruitment.registry:type=<type>,name=<name>,operation=<operation>
+public final class OperationMetricsGroup implements Closeable {
+
+  private static final String DOMAIN = "de.quandoo.recruitment.registry";
+
+  private final String type;
+  private final String name;
+  private final Map<String, OperationMetrics> operations;
+  private MBeanServer mBeanServer;
+
+  public OperationMetricsGroup(final String type, final String name) {
+    this.type = Preconditions.checkNotNull(type, "Type could not be null!");
+    this.name = Preconditions.checkNotNull(name, "Name could not be null!");
+    this.operations = new LinkedHashMap<>();
+  }
+
+  public synchronized OperationMetrics operation(final String operation) {
+    return operations.computeIfAbsent(operation, OperationMetrics::new);
+  }
+
+  public synchronized Collection<OperationMetrics> operations() {
+    return Collections.unmodifiableCollection(operations.values());
+  }
+
+  public void registerMBeans() {
+    registerMBeans(ManagementFactory.getPlatformMBeanServer());
+  }
+
+  public synchronized void registerMBeans(final MBeanServer server) {
+    Preconditions.checkState(mBeanServer == null, "MBeans are already registered!");
+    try {
+      for (final OperationMetrics operation : operations.values()) {
+        server.registerMBean(operation, objectName(operation));
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException("Could not register MBeans of " + name, e);
+    }
+    mBeanServer = server;
+  }
+
+  // unregisters the MBeans, if any
+  @Override
+  public synchronized void close() {
+    if (mBeanServer == null) {
+      return;
+    }
+    try {
+      for (final OperationMetrics operation : operations.values()) {
+        final ObjectName objectName = objectName(operation);
+        if (mBeanServer.isRegistered(objectName)) {
+          mBeanServer.unregisterMBean(objectName);
+        }
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException("Could not unregister MBeans of " + name, e);
+    } finally {
+      mBeanServer = null;
+    }
+  }
+
+  public ObjectName objectName(final OperationMetrics operation) {
+    try {
+      return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name)
+          + ",operation=" + operation.name());
+    } catch (JMException e) {
+      throw new IllegalArgumentException("Invalid MBean name for " + name, e);
+    }
+  }
+}
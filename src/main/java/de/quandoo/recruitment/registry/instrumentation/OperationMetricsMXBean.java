@@ -0,0 +1,29 @@
+package de.quandoo.recruitment.registry.instrumentation;
+
+// Statistics of one decorated operation since it was created or last reset, latencies in microseconds
+public interface OperationMetricsMXBean {
+
+  long getCount();
+
+  long getErrorCount();
+
+  double getThroughputPerSecond();
+
+  double getMeanLatencyMicros();
+
+  double getLatencyP50Micros();
+
+  double getLatencyP90Micros();
+
+  double getLatencyP99Micros();
+
+  double getLatencyP999Micros();
+
+  double getMaxLatencyMicros();
+
+  double getMeanResultSize();
+
+  long getMaxResultSize();
+
+  void reset();
+}
@@ -0,0 +1,15 @@
+package de.quandoo.recruitment.registry.model;
+
+import com.google.common.base.Preconditions;
+
+public record CuisinePopularity(Cuisine cuisine, long customers) {
+
+  public CuisinePopularity(Cuisine cuisine, long customers) {
+    this.cuisine = Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    this.customers = customers;
+  }
+
+  public static CuisinePopularity of(Cuisine cuisine, long customers) {
+    return new CuisinePopularity(cuisine, customers);
+  }
+}
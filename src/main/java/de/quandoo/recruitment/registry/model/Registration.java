@@ -0,0 +1,15 @@
+package de.quandoo.recruitment.registry.model;
+
+import com.google.common.base.Preconditions;
+
+public record Registration(Customer customer, Cuisine cuisine) {
+
+  public Registration(Customer customer, Cuisine cuisine) {
+    this.customer = Preconditions.checkNotNull(customer, "Customer could not be null!");
+    this.cuisine = Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+  }
+
+  public static Registration of(Customer customer, Cuisine cuisine) {
+    return new Registration(customer, cuisine);
+  }
+}
@@ -0,0 +1,31 @@
+package de.quandoo.recruitment.registry.ports;
+
+import de.quandoo.recruitment.registry.adapters.inmemory.CuisineCustomersInMemoryAsyncAdapter;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface CuisineCustomersAsyncPort {
+
+  static CuisineCustomersAsyncPort getDefaultInstance() {
+    return new CuisineCustomersInMemoryAsyncAdapter(CuisineCustomersPort.getDefaultInstance());
+  }
+
+  CompletableFuture<Void> registerAsync(Cuisine cuisine, Customer customer);
+
+  CompletableFuture<Void> registerAllAsync(Collection<Registration> registrations);
+
+  CompletableFuture<Void> unregisterAsync(Cuisine cuisine, Customer customer);
+
+  CompletableFuture<Void> removeCustomerAsync(Customer customer, Collection<Cuisine> cuisines);
+
+  CompletableFuture<List<Cuisine>> topCuisinesAsync(int n);
+
+  CompletableFuture<List<Customer>> cuisineCustomersAsync(Cuisine cuisine);
+
+  CompletableFuture<Long> countCustomersAsync(Cuisine cuisine);
+
+}
@@ -3,7 +3,11 @@ package de.quandoo.recruitment.registry.ports;
 import de.quandoo.recruitment.registry.adapters.inmemory.CuisineCustomersInMemoryAdapter;
 import de.quandoo.recruitment.registry.model.Cuisine;
 import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface CuisineCustomersPort {
 
@@ -13,8 +17,27 @@ public interface CuisineCustomersPort {
 
   void register(Cuisine cuisine, Customer customer);
 
+  void registerAll(Collection<Registration> registrations);
+
+  // registrations already counted once, replayed from a log or moved from another node: ranked like registerAll but
+  // not counted as new followers by trendingCuisines
+  default void restoreAll(final Collection<Registration> registrations) {
+    registerAll(registrations);
+  }
+
+  void unregister(Cuisine cuisine, Customer customer);
+
+  // drops the customer from each of the given cuisines, the ones the customer cuisines side knew of
+  void removeCustomer(Customer customer, Collection<Cuisine> cuisines);
+
   List<Cuisine> topCuisines(int n);
 
+  List<Cuisine> trendingCuisines(int n, Duration window);
+
   List<Customer> cuisineCustomers(Cuisine cuisine);
 
+  Stream<Customer> streamCuisineCustomers(Cuisine cuisine);
+
+  long countCustomers(Cuisine cuisine);
+
 }
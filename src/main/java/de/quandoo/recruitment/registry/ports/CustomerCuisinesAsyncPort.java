@@ -0,0 +1,26 @@
+package de.quandoo.recruitment.registry.ports;
+
+import de.quandoo.recruitment.registry.adapters.inmemory.CustomerCuisinesInMemoryAsyncAdapter;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface CustomerCuisinesAsyncPort {
+
+  static CustomerCuisinesAsyncPort getDefaultInstance() {
+    return new CustomerCuisinesInMemoryAsyncAdapter(CustomerCuisinesPort.getDefaultInstance());
+  }
+
+  CompletableFuture<Void> registerAsync(Customer customer, Cuisine cuisine);
+
+  CompletableFuture<Void> registerAllAsync(Collection<Registration> registrations);
+
+  CompletableFuture<Void> unregisterAsync(Customer customer, Cuisine cuisine);
+
+  CompletableFuture<List<Cuisine>> removeCustomerAsync(Customer customer);
+
+  CompletableFuture<List<Cuisine>> customerCuisinesAsync(Customer customer);
+}
@@ -3,6 +3,8 @@ package de.quandoo.recruitment.registry.ports;
 import de.quandoo.recruitment.registry.adapters.inmemory.CustomerCuisinesInMemoryAdapter;
 import de.quandoo.recruitment.registry.model.Cuisine;
 import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.util.Collection;
 import java.util.List;
 
 public interface CustomerCuisinesPort {
@@ -13,5 +15,12 @@ public interface CustomerCuisinesPort {
 
   void register(Customer customer, Cuisine cuisine);
 
+  void registerAll(Collection<Registration> registrations);
+
+  void unregister(Customer customer, Cuisine cuisine);
+
+  // returns the cuisines the customer had
+  List<Cuisine> removeCustomer(Customer customer);
+
   List<Cuisine> customerCuisines(Customer customer);
 }
@@ -0,0 +1,100 @@
+package de.quandoo.recruitment.registry.sharded;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Insertion ordered set that can be read a page at a time, so a large set can be handed out in pieces.
+// Every element is numbered by its insertion and pages are cursored by that number, not by position. A removal leaves
+// a tombstone, and once tombstones outnumber the elements the slots are compacted in order, so neither moves an
+// element past a cursor: an element present throughout a paged read is returned exactly once.
+// Not thread safe, owned by a single shard.
+final class IndexedSet<E> {
+
+  record Page<E>(List<E> elements, long next) {
+  }
+
+  private static final int INITIAL_CAPACITY = 8;
+  private static final int MIN_TOMBSTONES_TO_COMPACT = 64;
+
+  private final Map<E, Integer> positions = new HashMap<>();
+  // null where an element was removed, until the next compaction
+  private final List<E> elements = new ArrayList<>();
+  // insertion number of every slot, ascending, so a cursor is found by binary search
+  private long[] sequences = new long[INITIAL_CAPACITY];
+  private long nextSequence;
+  private int tombstones;
+
+  boolean add(final E element) {
+    if (positions.putIfAbsent(element, elements.size()) != null) {
+      return false;
+    }
+    if (elements.size() == sequences.length) {
+      sequences = Arrays.copyOf(sequences, sequences.length * 2);
+    }
+    sequences[elements.size()] = nextSequence++;
+    elements.add(element);
+    return true;
+  }
+
+  boolean remove(final E element) {
+    final Integer position = positions.remove(element);
+    if (position == null) {
+      return false;
+    }
+    elements.set(position, null);
+    tombstones++;
+    if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones > size()) {
+      compact();
+    }
+    return true;
+  }
+
+  int size() {
+    return elements.size() - tombstones;
+  }
+
+  // up to max elements inserted at or after the cursor, fewer only on the last page
+  Page<E> page(final long cursor, final int max) {
+    final int found = Arrays.binarySearch(sequences, 0, elements.size(), cursor);
+    int position = found >= 0 ? found : -found - 1;
+    final List<E> page = new ArrayList<>(Math.min(max, size()));
+    long next = cursor;
+    while (position < elements.size() && page.size() < max) {
+      final E element = elements.get(position);
+      if (element != null) {
+        page.add(element);
+      }
+      next = sequences[position] + 1;
+      position++;
+    }
+    return new Page<>(page, next);
+  }
+
+  List<E> toList() {
+    final List<E> list = new ArrayList<>(size());
+    for (final E element : elements) {
+      if (element != null) {
+        list.add(element);
+      }
+    }
+    return list;
+  }
+
+  private void compact() {
+    int live = 0;
+    for (int i = 0; i < elements.size(); i++) {
+      final E element = elements.get(i);
+      if (element != null) {
+        elements.set(live, element);
+        sequences[live] = sequences[i];
+        positions.put(element, live);
+        live++;
+      }
+    }
+    elements.subList(live, elements.size()).clear();
+    tombstones = 0;
+  }
+}
@@ -0,0 +1,202 @@
+package de.quandoo.recruitment.registry.sharded;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.adapters.inmemory.FrequencyBucketRanking;
+import de.quandoo.recruitment.registry.adapters.inmemory.TrendingCounters;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.CuisinePopularity;
+import de.quandoo.recruitment.registry.model.Customer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+// One partition of the registry and the only thread that touches it. Callers hand tasks over through a lock-free
+// queue, the shard thread runs them in arrival order, so a read queued after a write always sees it.
+// The maps below are plain collections, they are never shared with another thread.
+@Slf4j
+final class Shard {
+
+  // producers wait once this many tasks are queued, so a slow shard cannot fill the heap
+  private static final int MAX_PENDING_TASKS = 1 << 16;
+  private static final int SPINS_BEFORE_PARK = 100;
+
+  private final ConcurrentLinkedQueue<Runnable> tasks;
+  private final AtomicInteger pending;
+  private final Thread thread;
+  private volatile boolean parked;
+  private volatile boolean stopped;
+
+  // shard thread only
+  private final Map<Cuisine, IndexedSet<Customer>> cuisineCustomers;
+  private final Map<Customer, Set<Cuisine>> customerCuisines;
+  private final FrequencyBucketRanking topCuisinesRanking;
+  private final TrendingCounters trendingCounters;
+
+  Shard(final int index, final TrendingCounters trendingCounters) {
+    this.tasks = new ConcurrentLinkedQueue<>();
+    this.pending = new AtomicInteger();
+    this.cuisineCustomers = new HashMap<>();
+    this.customerCuisines = new HashMap<>();
+    this.topCuisinesRanking = new FrequencyBucketRanking();
+    this.trendingCounters = trendingCounters;
+    this.thread = new Thread(this::runLoop, "registry-shard-" + index);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  // A stopped shard rejects tasks, no thread would ever run them. A task offered while the shard stops is taken back
+  // if it is still queued, then the shard thread may already be gone; one the thread took is run as usual.
+  void execute(final Runnable task) {
+    while (pending.get() >= MAX_PENDING_TASKS) {
+      checkRunning();
+      Thread.yield();
+    }
+    checkRunning();
+    pending.incrementAndGet();
+    tasks.offer(task);
+    if (stopped && tasks.remove(task)) {
+      pending.decrementAndGet();
+      checkRunning();
+    }
+    if (parked) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  <T> CompletableFuture<T> submit(final Supplier<T> task) {
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    execute(() -> {
+      try {
+        result.complete(task.get());
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+    });
+    return result;
+  }
+
+  // runs everything queued so far, then stops the shard thread
+  void stop() {
+    stopped = true;
+    LockSupport.unpark(thread);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void checkRunning() {
+    Preconditions.checkState(!stopped, "Shard is stopped!");
+  }
+
+  void addCustomer(final Cuisine cuisine, final Customer customer) {
+    if (cuisineCustomers.computeIfAbsent(cuisine, c -> new IndexedSet<>()).add(customer)) {
+      topCuisinesRanking.increment(cuisine);
+      trendingCounters.record(cuisine, 1);
+    }
+  }
+
+  void addCustomers(final Cuisine cuisine, final List<Customer> customers) {
+    final IndexedSet<Customer> cuisineSet = cuisineCustomers.computeIfAbsent(cuisine, c -> new IndexedSet<>());
+    final long added = customers.stream().filter(cuisineSet::add).count();
+    if (added > 0) {
+      topCuisinesRanking.increment(cuisine, added);
+      trendingCounters.record(cuisine, added);
+    }
+  }
+
+  void addCuisine(final Customer customer, final Cuisine cuisine) {
+    customerCuisines.computeIfAbsent(customer, c -> new LinkedHashSet<>()).add(cuisine);
+  }
+
+  void removeCustomer(final Cuisine cuisine, final Customer customer) {
+    final IndexedSet<Customer> customers = cuisineCustomers.get(cuisine);
+    if (customers != null && customers.remove(customer)) {
+      topCuisinesRanking.decrement(cuisine, 1);
+    }
+  }
+
+  void removeCuisine(final Customer customer, final Cuisine cuisine) {
+    final Set<Cuisine> cuisines = customerCuisines.get(customer);
+    if (cuisines != null) {
+      cuisines.remove(cuisine);
+    }
+  }
+
+  List<Cuisine> removeCustomer(final Customer customer) {
+    final Set<Cuisine> cuisines = customerCuisines.remove(customer);
+    return cuisines == null ? new ArrayList<>() : new ArrayList<>(cuisines);
+  }
+
+  List<Customer> customers(final Cuisine cuisine) {
+    final IndexedSet<Customer> customers = cuisineCustomers.get(cuisine);
+    return customers == null ? new ArrayList<>() : customers.toList();
+  }
+
+  IndexedSet.Page<Customer> customers(final Cuisine cuisine, final long cursor, final int max) {
+    final IndexedSet<Customer> customers = cuisineCustomers.get(cuisine);
+    return customers == null ? new IndexedSet.Page<>(List.of(), cursor) : customers.page(cursor, max);
+  }
+
+  long countCustomers(final Cuisine cuisine) {
+    final IndexedSet<Customer> customers = cuisineCustomers.get(cuisine);
+    return customers == null ? 0 : customers.size();
+  }
+
+  List<Cuisine> cuisines(final Customer customer) {
+    final Set<Cuisine> cuisines = customerCuisines.get(customer);
+    return cuisines == null ? new ArrayList<>() : new ArrayList<>(cuisines);
+  }
+
+  // exact for the cuisines of this shard, which no other shard counts
+  List<CuisinePopularity> topCuisines(final int n) {
+    return topCuisinesRanking.top(n).stream()
+        .map(cuisine -> CuisinePopularity.of(cuisine, cuisineCustomers.get(cuisine).size()))
+        .toList();
+  }
+
+  List<CuisinePopularity> trendingCuisines(final int n, final Duration window) {
+    return trendingCounters.trending(n, window);
+  }
+
+  private void runLoop() {
+    int idleSpins = 0;
+    while (true) {
+      final Runnable task = tasks.poll();
+      if (task != null) {
+        pending.decrementAndGet();
+        idleSpins = 0;
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          log.error("Shard task failed", e);
+        }
+        continue;
+      }
+      if (stopped) {
+        return;
+      }
+      if (idleSpins++ < SPINS_BEFORE_PARK) {
+        Thread.onSpinWait();
+        continue;
+      }
+      // the queue is checked again after announcing the park, so an offer racing with it is never missed
+      parked = true;
+      if (tasks.isEmpty() && !stopped) {
+        LockSupport.park(this);
+      }
+      parked = false;
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package de.quandoo.recruitment.registry.sharded;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.adapters.inmemory.TrendingCounters;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.CuisinePopularity;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// In-memory registry split into single-writer shards, one thread each and typically one per core.
+// A cuisine with its customers and its count lives on the shard its hash picks, a customer with its cuisines on the
+// shard the customer's hash picks, so writers never share a map or a lock. A registration is queued on both shards
+// and returns without waiting. Every read is queued behind the writes of the same caller, so callers still read
+// their own registrations. topCuisines gathers the top n of every shard and merges them; cuisines are not split
+// across shards, so the result is exact.
+public class ShardedCuisinesRegistry implements CuisinesRegistry, Closeable {
+
+  private static final int STREAM_PAGE_SIZE = 1_024;
+
+  private final Shard[] shards;
+
+  public ShardedCuisinesRegistry() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public ShardedCuisinesRegistry(final int shards) {
+    this(shards, TrendingCounters::disabled);
+  }
+
+  // every shard counts its own cuisines in counters of its own
+  public ShardedCuisinesRegistry(final int shards, final Supplier<TrendingCounters> trendingCounters) {
+    Preconditions.checkArgument(shards > 0, "Shards should be greater than zero!");
+    Preconditions.checkNotNull(trendingCounters, "Trending counters could not be null!");
+    this.shards = new Shard[shards];
+    for (int i = 0; i < shards; i++) {
+      this.shards[i] = new Shard(i, Preconditions.checkNotNull(trendingCounters.get(), "Trending counters could not be null!"));
+    }
+  }
+
+  @Override
+  public void register(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    final Shard cuisineShard = shardOf(cuisine);
+    cuisineShard.execute(() -> cuisineShard.addCustomer(cuisine, customer));
+    final Shard customerShard = shardOf(customer);
+    customerShard.execute(() -> customerShard.addCuisine(customer, cuisine));
+  }
+
+  // one task per shard and side instead of two per registration
+  @Override
+  public void registerAll(final Collection<Registration> registrations) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    final Map<Shard, Map<Cuisine, List<Customer>>> customersByCuisineShard = registrations.stream()
+        .collect(Collectors.groupingBy(registration -> shardOf(registration.cuisine()),
+            Collectors.groupingBy(Registration::cuisine, Collectors.mapping(Registration::customer, Collectors.toList()))));
+    customersByCuisineShard.forEach((shard, customersByCuisine) ->
+        shard.execute(() -> customersByCuisine.forEach(shard::addCustomers)));
+    final Map<Shard, List<Registration>> registrationsByCustomerShard = registrations.stream()
+        .collect(Collectors.groupingBy(registration -> shardOf(registration.customer())));
+    registrationsByCustomerShard.forEach((shard, shardRegistrations) -> shard.execute(() ->
+        shardRegistrations.forEach(registration -> shard.addCuisine(registration.customer(), registration.cuisine()))));
+  }
+
+  @Override
+  public void unregister(final Customer customer, final Cuisine cuisine) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    final Shard cuisineShard = shardOf(cuisine);
+    cuisineShard.execute(() -> cuisineShard.removeCustomer(cuisine, customer));
+    final Shard customerShard = shardOf(customer);
+    customerShard.execute(() -> customerShard.removeCuisine(customer, cuisine));
+  }
+
+  // waits for the customer's shard to hand over the customer's cuisines, then queues the removal on their shards
+  @Override
+  public void removeCustomer(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    final Shard customerShard = shardOf(customer);
+    final List<Cuisine> cuisines = join(customerShard.submit(() -> customerShard.removeCustomer(customer)));
+    cuisines.forEach(cuisine -> {
+      final Shard cuisineShard = shardOf(cuisine);
+      cuisineShard.execute(() -> cuisineShard.removeCustomer(cuisine, customer));
+    });
+  }
+
+  @Override
+  public List<Cuisine> customerCuisines(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    final Shard shard = shardOf(customer);
+    return join(shard.submit(() -> shard.cuisines(customer)));
+  }
+
+  @Override
+  public List<Cuisine> topCuisines(final int n) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    return topCuisinePopularity(n).stream().map(CuisinePopularity::cuisine).toList();
+  }
+
+  // scatter to every shard, gather their local top n and keep the n most followed
+  public List<CuisinePopularity> topCuisinePopularity(final int n) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    final List<CompletableFuture<List<CuisinePopularity>>> shardTops = Stream.of(shards)
+        .map(shard -> shard.submit(() -> shard.topCuisines(n)))
+        .toList();
+    return shardTops.stream()
+        .flatMap(shardTop -> join(shardTop).stream())
+        .sorted(Comparator.comparingLong(CuisinePopularity::customers).reversed())
+        .limit(n)
+        .toList();
+  }
+
+  @Override
+  public List<Cuisine> trendingCuisines(final int n, final Duration window) {
+    return trendingCuisinePopularity(n, window).stream().map(CuisinePopularity::cuisine).toList();
+  }
+
+  // cuisines live on a single shard, so the local counts are already the totals
+  public List<CuisinePopularity> trendingCuisinePopularity(final int n, final Duration window) {
+    Preconditions.checkArgument(n > 0, "n should be greater than zero!");
+    final List<CompletableFuture<List<CuisinePopularity>>> shardTrends = Stream.of(shards)
+        .map(shard -> shard.submit(() -> shard.trendingCuisines(n, window)))
+        .toList();
+    return shardTrends.stream()
+        .flatMap(shardTrend -> join(shardTrend).stream())
+        .sorted(Comparator.comparingLong(CuisinePopularity::customers).reversed())
+        .limit(n)
+        .toList();
+  }
+
+  @Override
+  public List<Customer> cuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    final Shard shard = shardOf(cuisine);
+    return join(shard.submit(() -> shard.customers(cuisine)));
+  }
+
+  // every page is a separate task on the cuisine's shard, in registration order and cursored by it, so removals
+  // between pages never make the stream skip or repeat a customer that stays registered
+  @Override
+  public Stream<Customer> streamCuisineCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new PagingIterator(shardOf(cuisine), cuisine),
+        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+  }
+
+  @Override
+  public long countCustomers(final Cuisine cuisine) {
+    Preconditions.checkNotNull(cuisine, "Cuisine could not be null!");
+    final Shard shard = shardOf(cuisine);
+    return join(shard.submit(() -> shard.countCustomers(cuisine)));
+  }
+
+  // registrations queued before are applied first
+  @Override
+  public void close() {
+    for (final Shard shard : shards) {
+      shard.stop();
+    }
+  }
+
+  private Shard shardOf(final Object key) {
+    final int hash = key.hashCode();
+    return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+  }
+
+  private static <T> T join(final CompletableFuture<T> result) {
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+  }
+
+  private static final class PagingIterator implements Iterator<Customer> {
+
+    private final Shard shard;
+    private final Cuisine cuisine;
+    private List<Customer> page;
+    private long cursor;
+    private int index;
+    private boolean lastPage;
+
+    private PagingIterator(final Shard shard, final Cuisine cuisine) {
+      this.shard = shard;
+      this.cuisine = cuisine;
+      this.page = List.of();
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (index == page.size() && !lastPage) {
+        final long pageCursor = cursor;
+        final IndexedSet.Page<Customer> next = join(shard.submit(() -> shard.customers(cuisine, pageCursor, STREAM_PAGE_SIZE)));
+        page = next.elements();
+        cursor = next.next();
+        index = 0;
+        lastPage = page.size() < STREAM_PAGE_SIZE;
+      }
+      return index < page.size();
+    }
+
+    @Override
+    public Customer next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return page.get(index++);
+    }
+  }
+}
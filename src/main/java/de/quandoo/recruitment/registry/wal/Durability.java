@@ -0,0 +1,11 @@
+package de.quandoo.recruitment.registry.wal;
+
+public enum Durability {
+
+  // a registration is acknowledged once it has been forced to disk, concurrent registrations share one fsync
+  SYNC,
+
+  // a registration is acknowledged once it has been buffered, buffers are written and forced every sync interval,
+  // so a crash loses at most the registrations of the last interval
+  ASYNC
+}
@@ -0,0 +1,447 @@
+package de.quandoo.recruitment.registry.wal;
+
+import com.google.common.base.Preconditions;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+
+// Append only log of registrations and removals with group commit.
+// Callers copy their records into a shared buffer under a short lock. A single committer thread swaps it with a second
+// buffer, writes it and forces the file once for everything appended meanwhile, so concurrent callers share an fsync.
+// Record: payload length int, CRC32 of the payload int, payload of customer uuid and cuisine name, both length prefixed
+// UTF-8. A removal's payload starts with a negative type tag instead, an unregister is followed by customer and cuisine,
+// a removed customer by the customer only. A registration has no tag, so logs written before removals still replay.
+// A torn or corrupt tail left by a crash is dropped when the log is opened.
+// The log grows with every write until truncate empties it, once a snapshot holds everything it recorded.
+@Slf4j
+public final class WriteAheadLog implements Closeable {
+
+  // receives the logged operations in append order
+  public interface Replayer {
+
+    void register(Registration registration);
+
+    void unregister(Registration registration);
+
+    void removeCustomer(Customer customer);
+  }
+
+  public static final Duration DEFAULT_SYNC_INTERVAL = Duration.ofMillis(10);
+
+  private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+  private static final int UNREGISTER_TAG = -1;
+  private static final int REMOVE_CUSTOMER_TAG = -2;
+  private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+  // callers wait for the committer once this much is pending, so a slow disk cannot fill the heap
+  private static final int MAX_PENDING_BYTES = 1 << 22;
+
+  private final FileChannel channel;
+  private final Durability durability;
+  private final long syncIntervalNanos;
+  private final ReentrantLock lock;
+  private final Condition appended;
+  private final Condition committed;
+  private final Thread committer;
+
+  // guarded by lock
+  private long validEnd;
+  private ByteBuffer filling;
+  private long appendedSequence;
+  private long committedSequence;
+  private IOException failure;
+  private boolean closed;
+
+  // committer thread only
+  private ByteBuffer draining;
+
+  private WriteAheadLog(final FileChannel channel, final Durability durability, final Duration syncInterval,
+                        final long validEnd) {
+    this.channel = channel;
+    this.durability = durability;
+    this.syncIntervalNanos = syncInterval.toNanos();
+    this.lock = new ReentrantLock();
+    this.appended = lock.newCondition();
+    this.committed = lock.newCondition();
+    this.validEnd = validEnd;
+    this.filling = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    this.draining = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    this.committer = new Thread(this::commitLoop, "write-ahead-log-committer");
+    this.committer.setDaemon(true);
+  }
+
+  public static WriteAheadLog open(final Path file, final Durability durability) {
+    return open(file, durability, DEFAULT_SYNC_INTERVAL);
+  }
+
+  // sync interval only applies to ASYNC durability
+  public static WriteAheadLog open(final Path file, final Durability durability, final Duration syncInterval) {
+    Preconditions.checkNotNull(file, "File could not be null!");
+    Preconditions.checkNotNull(durability, "Durability could not be null!");
+    Preconditions.checkArgument(syncInterval != null && !syncInterval.isNegative() && !syncInterval.isZero(),
+        "Sync interval should be greater than zero!");
+    try {
+      final FileChannel channel = FileChannel.open(file,
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      final long validEnd = scan(channel, null);
+      if (validEnd < channel.size()) {
+        log.warn("Dropping {} bytes of torn records at the end of {}", channel.size() - validEnd, file);
+        channel.truncate(validEnd);
+        channel.force(true);
+      }
+      channel.position(validEnd);
+      final WriteAheadLog writeAheadLog = new WriteAheadLog(channel, durability, syncInterval, validEnd);
+      writeAheadLog.committer.start();
+      return writeAheadLog;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not open write-ahead log " + file, e);
+    }
+  }
+
+  // feeds every operation logged before this log was opened to the replayer, in append order
+  public void replay(final Replayer replayer) {
+    Preconditions.checkNotNull(replayer, "Replayer could not be null!");
+    final long end;
+    lock.lock();
+    try {
+      end = validEnd;
+    } finally {
+      lock.unlock();
+    }
+    try {
+      scan(channel, replayer, end);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not replay write-ahead log", e);
+    }
+  }
+
+  public void append(final Registration registration) {
+    Preconditions.checkNotNull(registration, "Registration could not be null!");
+    appendAll(List.of(registration));
+  }
+
+  // the registrations are appended contiguously and share one commit
+  public void appendAll(final Collection<Registration> registrations) {
+    Preconditions.checkNotNull(registrations, "Registrations could not be null!");
+    if (registrations.isEmpty()) {
+      return;
+    }
+    appendRecords(registrations.stream().map(WriteAheadLog::encode).toArray(byte[][]::new));
+  }
+
+  public void appendUnregister(final Registration registration) {
+    Preconditions.checkNotNull(registration, "Registration could not be null!");
+    appendRecords(new byte[][]{encode(UNREGISTER_TAG, registration.customer().uuid(), registration.cuisine().name())});
+  }
+
+  public void appendRemoveCustomer(final Customer customer) {
+    Preconditions.checkNotNull(customer, "Customer could not be null!");
+    appendRecords(new byte[][]{encode(REMOVE_CUSTOMER_TAG, customer.uuid())});
+  }
+
+  private void appendRecords(final byte[][] records) {
+    lock.lock();
+    try {
+      checkWritable();
+      while (filling.position() > MAX_PENDING_BYTES) {
+        appended.signal();
+        committed.awaitUninterruptibly();
+        checkFailure();
+      }
+      for (final byte[] record : records) {
+        ensureCapacity(record.length);
+        filling.put(record);
+      }
+      final long sequence = ++appendedSequence;
+      if (durability == Durability.SYNC) {
+        appended.signal();
+        while (committedSequence < sequence) {
+          committed.awaitUninterruptibly();
+          checkFailure();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // blocks until everything appended so far is on disk, whatever the durability
+  public void sync() {
+    lock.lock();
+    try {
+      final long sequence = appendedSequence;
+      while (committedSequence < sequence) {
+        checkFailure();
+        appended.signal();
+        committed.awaitUninterruptibly();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Commits everything appended so far, then drops all of it from the file. Meant for a checkpoint that has just
+  // persisted what the log recorded: records appended between that snapshot and this call are dropped with the rest.
+  public void truncate() {
+    lock.lock();
+    try {
+      checkWritable();
+      // appends made while this waits are committed too, the committer only writes while a commit is pending
+      while (committedSequence < appendedSequence) {
+        appended.signal();
+        committed.awaitUninterruptibly();
+        checkFailure();
+      }
+      channel.truncate(0);
+      channel.force(true);
+      validEnd = 0;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not truncate write-ahead log", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      appended.signal();
+    } finally {
+      lock.unlock();
+    }
+    try {
+      committer.join();
+      channel.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not close write-ahead log", e);
+    }
+    if (failure != null) {
+      throw new UncheckedIOException("Write-ahead log failed", failure);
+    }
+  }
+
+  private void commitLoop() {
+    while (true) {
+      final long sequence;
+      lock.lock();
+      try {
+        if (durability == Durability.ASYNC) {
+          // batch everything appended during one interval, unless sync, backpressure or close asks for it earlier
+          if (!closed) {
+            appended.awaitNanos(syncIntervalNanos);
+          }
+        } else {
+          while (!closed && committedSequence == appendedSequence) {
+            appended.await();
+          }
+        }
+        if (committedSequence == appendedSequence) {
+          if (closed) {
+            return;
+          }
+          continue;
+        }
+        sequence = appendedSequence;
+        final ByteBuffer full = filling;
+        filling = draining;
+        draining = full;
+      } catch (InterruptedException e) {
+        // nothing would commit the pending records any more, waiting callers fail instead of hanging
+        Thread.currentThread().interrupt();
+        failure = new InterruptedIOException("Write-ahead log committer was interrupted");
+        committed.signalAll();
+        log.error("Write-ahead log committer was interrupted, no more registrations are accepted");
+        return;
+      } finally {
+        lock.unlock();
+      }
+
+      IOException writeFailure = null;
+      try {
+        draining.flip();
+        while (draining.hasRemaining()) {
+          channel.write(draining);
+        }
+        channel.force(false);
+      } catch (IOException e) {
+        writeFailure = e;
+      }
+      draining.clear();
+
+      lock.lock();
+      try {
+        if (writeFailure != null) {
+          failure = writeFailure;
+        } else {
+          committedSequence = sequence;
+        }
+        committed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      if (writeFailure != null) {
+        log.error("Write-ahead log failed, no more registrations are accepted", writeFailure);
+        return;
+      }
+    }
+  }
+
+  private void checkWritable() {
+    checkFailure();
+    Preconditions.checkState(!closed, "Write-ahead log is closed!");
+  }
+
+  // a close still commits everything appended before it, only a failed write lets waiting callers down
+  private void checkFailure() {
+    if (failure != null) {
+      throw new UncheckedIOException("Write-ahead log failed", failure);
+    }
+  }
+
+  private void ensureCapacity(final int size) {
+    if (filling.remaining() < size) {
+      final ByteBuffer grown = ByteBuffer.allocate(Math.max(filling.capacity() * 2, filling.position() + size));
+      filling.flip();
+      grown.put(filling);
+      filling = grown;
+    }
+  }
+
+  private static byte[] encode(final Registration registration) {
+    return encode(null, registration.customer().uuid(), registration.cuisine().name());
+  }
+
+  // a null tag writes a registration
+  private static byte[] encode(final Integer tag, final String... strings) {
+    final byte[][] bytes = new byte[strings.length][];
+    int payloadSize = tag == null ? 0 : Integer.BYTES;
+    for (int i = 0; i < strings.length; i++) {
+      bytes[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+      payloadSize += Integer.BYTES + bytes[i].length;
+    }
+    final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payloadSize);
+    record.putInt(payloadSize).putInt(0);
+    if (tag != null) {
+      record.putInt(tag);
+    }
+    for (final byte[] string : bytes) {
+      record.putInt(string.length).put(string);
+    }
+    final CRC32 crc = new CRC32();
+    crc.update(record.array(), RECORD_HEADER_SIZE, payloadSize);
+    record.putInt(Integer.BYTES, (int) crc.getValue());
+    return record.array();
+  }
+
+  private static long scan(final FileChannel channel, final Replayer replayer) throws IOException {
+    return scan(channel, replayer, channel.size());
+  }
+
+  // returns the end of the last intact record before limit, a null replayer only validates
+  private static long scan(final FileChannel channel, final Replayer replayer, final long limit)
+      throws IOException {
+    final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    final CRC32 crc = new CRC32();
+    long position = 0;
+    while (position + RECORD_HEADER_SIZE <= limit) {
+      header.clear();
+      readFully(channel, header, position);
+      final int payloadSize = header.getInt(0);
+      if (payloadSize < 2 * Integer.BYTES || position + RECORD_HEADER_SIZE + payloadSize > limit) {
+        break;
+      }
+      final ByteBuffer payload = ByteBuffer.allocate(payloadSize);
+      readFully(channel, payload, position + RECORD_HEADER_SIZE);
+      crc.reset();
+      crc.update(payload.array());
+      if ((int) crc.getValue() != header.getInt(Integer.BYTES)) {
+        break;
+      }
+      if (!decode(payload.flip(), replayer)) {
+        break;
+      }
+      position += RECORD_HEADER_SIZE + payloadSize;
+    }
+    return position;
+  }
+
+  // false for a payload that is not a whole record, nothing is replayed from it
+  private static boolean decode(final ByteBuffer payload, final Replayer replayer) {
+    final int tag = payload.getInt(0);
+    if (tag < 0) {
+      if (tag != UNREGISTER_TAG && tag != REMOVE_CUSTOMER_TAG) {
+        return false;
+      }
+      payload.position(Integer.BYTES);
+    }
+    final String customer = readString(payload);
+    if (customer == null) {
+      return false;
+    }
+    if (tag == REMOVE_CUSTOMER_TAG) {
+      if (payload.hasRemaining()) {
+        return false;
+      }
+      if (replayer != null) {
+        replayer.removeCustomer(Customer.of(customer));
+      }
+      return true;
+    }
+    final String cuisine = readString(payload);
+    if (cuisine == null || payload.hasRemaining()) {
+      return false;
+    }
+    if (replayer != null) {
+      final Registration registration = Registration.of(Customer.of(customer), Cuisine.of(cuisine));
+      if (tag == UNREGISTER_TAG) {
+        replayer.unregister(registration);
+      } else {
+        replayer.register(registration);
+      }
+    }
+    return true;
+  }
+
+  private static String readString(final ByteBuffer payload) {
+    if (payload.remaining() < Integer.BYTES) {
+      return null;
+    }
+    final int length = payload.getInt();
+    if (length < 0 || length > payload.remaining()) {
+      return null;
+    }
+    final String string = new String(payload.array(), payload.position(), length, StandardCharsets.UTF_8);
+    payload.position(payload.position() + length);
+    return string;
+  }
+
+  private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of write-ahead log");
+      }
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import de.quandoo.recruitment.registry.adapters.inmemory.CuisineCustomersInMemoryAdapter;
+import de.quandoo.recruitment.registry.adapters.inmemory.SpaceSavingRanking;
+import de.quandoo.recruitment.registry.adapters.inmemory.SpaceSavingRanking.CuisineCount;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.math3.distribution.ZipfDistribution;
+import org.apache.commons.math3.random.JDKRandomGenerator;
+import org.junit.jupiter.api.Test;
+
+@Slf4j
+class ApproximateTopCuisinesTest {
+
+  private static final int CUISINES = 50_000;
+  private static final int REGISTRATIONS = 200_000;
+  private static final double MAX_ERROR = 0.001;
+
+  @Test
+  void shouldRankLikeExactModeUnderZipfianLoad() {
+    //given:
+    final CuisineCustomersPort exact = new CuisineCustomersInMemoryAdapter();
+    final SpaceSavingRanking ranking = SpaceSavingRanking.withMaxError(MAX_ERROR);
+    final CuisineCustomersPort approximate = new CuisineCustomersInMemoryAdapter(ranking);
+    final List<Registration> registrations = zipfianRegistrations(42, "customer");
+
+    //when:
+    registrations.forEach(registration -> {
+      exact.register(registration.cuisine(), registration.customer());
+      approximate.register(registration.cuisine(), registration.customer());
+    });
+
+    //then:
+    final double precision = precision(exact.topCuisines(50), approximate.topCuisines(50));
+    log.info("Top 50 precision {} with {} counters for {} cuisines", precision, ranking.capacity(), CUISINES);
+    assertThat(ranking.capacity()).isEqualTo(1_000);
+    assertThat(ranking.summary().counters()).hasSizeLessThanOrEqualTo(ranking.capacity());
+    assertThat(approximate.topCuisines(10)).isEqualTo(exact.topCuisines(10));
+    assertThat(precision).isGreaterThanOrEqualTo(0.9);
+    assertWithinErrorBound(ranking, exact, REGISTRATIONS);
+  }
+
+  @Test
+  void shouldMergeRankingsOfSeveralInstances() {
+    //given: two instances taking different halves of the traffic
+    final CuisineCustomersPort exact = new CuisineCustomersInMemoryAdapter();
+    final SpaceSavingRanking first = SpaceSavingRanking.withMaxError(MAX_ERROR);
+    final SpaceSavingRanking second = SpaceSavingRanking.withMaxError(MAX_ERROR);
+    final CuisineCustomersPort firstInstance = new CuisineCustomersInMemoryAdapter(first);
+    final CuisineCustomersPort secondInstance = new CuisineCustomersInMemoryAdapter(second);
+    final List<Registration> firstHalf = zipfianRegistrations(1, "first");
+    final List<Registration> secondHalf = zipfianRegistrations(2, "second");
+    firstHalf.forEach(registration -> firstInstance.register(registration.cuisine(), registration.customer()));
+    secondHalf.forEach(registration -> secondInstance.register(registration.cuisine(), registration.customer()));
+    exact.registerAll(firstHalf);
+    exact.registerAll(secondHalf);
+
+    //when:
+    first.merge(second.summary());
+
+    //then:
+    assertThat(first.summary().total()).isEqualTo(2L * REGISTRATIONS);
+    assertThat(first.summary().counters()).hasSizeLessThanOrEqualTo(first.capacity());
+    assertThat(first.top(10)).isEqualTo(exact.topCuisines(10));
+    assertThat(precision(exact.topCuisines(50), first.top(50))).isGreaterThanOrEqualTo(0.9);
+    assertWithinErrorBound(first, exact, 2 * REGISTRATIONS);
+  }
+
+  @Test
+  void shouldRejectInvalidErrorBound() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> SpaceSavingRanking.withMaxError(0))
+        .withMessage("Max error should be between zero and one!");
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> new SpaceSavingRanking(0))
+        .withMessage("Capacity should be greater than zero!");
+  }
+
+  // counts never underestimate and are over by no more than registrations / capacity
+  private static void assertWithinErrorBound(final SpaceSavingRanking ranking, final CuisineCustomersPort exact,
+                                             final long registrations) {
+    final long bound = registrations / ranking.capacity();
+    for (final CuisineCount count : ranking.summary().counters()) {
+      final long exactCount = exact.countCustomers(count.cuisine());
+      assertThat(count.count()).isBetween(exactCount, exactCount + bound);
+      assertThat(count.count() - count.error()).isLessThanOrEqualTo(exactCount);
+    }
+  }
+
+  private static double precision(final List<Cuisine> exact, final List<Cuisine> approximate) {
+    final Set<Cuisine> common = new HashSet<>(exact);
+    common.retainAll(approximate);
+    return (double) common.size() / exact.size();
+  }
+
+  private static List<Registration> zipfianRegistrations(final int seed, final String customerPrefix) {
+    final JDKRandomGenerator random = new JDKRandomGenerator();
+    random.setSeed(seed);
+    final ZipfDistribution cuisines = new ZipfDistribution(random, CUISINES, 1.1);
+    return IntStream.range(0, REGISTRATIONS)
+        .mapToObj(i -> Registration.of(Customer.of(customerPrefix + "-" + i), Cuisine.of("cuisine-" + cuisines.sample())))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,246 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import de.quandoo.recruitment.registry.adapters.redis.CuisineCustomersRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.CustomerCuisinesRedisAdapter;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.api.CuisinesRegistryAsync;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersAsyncPort;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesAsyncPort;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.config.Config;
+
+@Slf4j
+public class AsyncCuisinesRegistryTest extends AbstractIntegrationTest {
+
+  private static RedissonClient redissonClient;
+
+  @BeforeAll
+  public static void beforeAll() {
+    AbstractIntegrationTest.startCluster();
+    final Config config = new Config();
+    config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+    config.setCodec(JsonJacksonCodec.INSTANCE);
+    redissonClient = Redisson.create(config);
+  }
+
+  @AfterAll
+  public static void afterAll() {
+    redissonClient.shutdown();
+    AbstractIntegrationTest.stopCluster();
+  }
+
+  @BeforeEach
+  void setUp() {
+    redissonClient.getKeys().flushall();
+  }
+
+  @Test
+  void shouldCompleteInMemoryCallsOnTheCallingThread() {
+    //given:
+    final CuisinesRegistryAsync cuisinesRegistry = new CuisinesRegistryAsyncImpl(
+        CuisineCustomersAsyncPort.getDefaultInstance(), CustomerCuisinesAsyncPort.getDefaultInstance());
+
+    //when:
+    final CompletableFuture<Void> registered = cuisinesRegistry.registerAsync(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.registerAllAsync(List.of(
+        Registration.of(Customer.of("2"), Cuisine.of("french")),
+        Registration.of(Customer.of("2"), Cuisine.of("german"))));
+
+    //then:
+    assertThat(registered).isDone();
+    assertThat(cuisinesRegistry.customerCuisinesAsync(Customer.of("2")).getNow(null))
+        .containsExactlyInAnyOrder(Cuisine.of("french"), Cuisine.of("german"));
+    assertThat(cuisinesRegistry.cuisineCustomersAsync(Cuisine.of("french")).getNow(null))
+        .containsExactlyInAnyOrder(Customer.of("1"), Customer.of("2"));
+    assertThat(cuisinesRegistry.topCuisinesAsync(1).getNow(null)).containsExactly(Cuisine.of("french"));
+    assertThat(cuisinesRegistry.countCustomersAsync(Cuisine.of("german")).getNow(null)).isEqualTo(1);
+  }
+
+  @Test
+  void shouldRetryTheFailedIndexWrite() {
+    //given: the customer index fails once
+    final FlakyCustomerCuisinesAsyncPort customerCuisinesPort = new FlakyCustomerCuisinesAsyncPort(1);
+    final CuisinesRegistryAsync cuisinesRegistry = new CuisinesRegistryAsyncImpl(CuisineCustomersAsyncPort.getDefaultInstance(), customerCuisinesPort);
+
+    //when:
+    cuisinesRegistry.registerAsync(Customer.of("1"), Cuisine.of("french")).join();
+
+    //then:
+    assertThat(customerCuisinesPort.calls.get()).isEqualTo(2);
+    assertThat(cuisinesRegistry.customerCuisinesAsync(Customer.of("1")).join()).containsExactly(Cuisine.of("french"));
+  }
+
+  @Test
+  void shouldKeepExistingRegistrationsWhenTheRetryFails() {
+    //given:
+    final FlakyCustomerCuisinesAsyncPort customerCuisinesPort = new FlakyCustomerCuisinesAsyncPort(0);
+    final CuisinesRegistryAsync cuisinesRegistry = new CuisinesRegistryAsyncImpl(CuisineCustomersAsyncPort.getDefaultInstance(), customerCuisinesPort);
+    cuisinesRegistry.registerAsync(Customer.of("1"), Cuisine.of("french")).join();
+
+    //when: the customer index fails the repeated write and its retry
+    customerCuisinesPort.failures.set(2);
+    final CompletableFuture<Void> registered = cuisinesRegistry.registerAsync(Customer.of("1"), Cuisine.of("french"));
+
+    //then: the registration survived on both indexes
+    assertThatExceptionOfType(CompletionException.class)
+        .isThrownBy(registered::join)
+        .havingCause()
+        .withMessage("Customer index is down!")
+        .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1));
+    assertThat(cuisinesRegistry.customerCuisinesAsync(Customer.of("1")).join()).containsExactly(Cuisine.of("french"));
+    assertThat(cuisinesRegistry.cuisineCustomersAsync(Cuisine.of("french")).join()).containsExactly(Customer.of("1"));
+    assertThat(cuisinesRegistry.topCuisinesAsync(1).join()).containsExactly(Cuisine.of("french"));
+  }
+
+  @Test
+  void shouldFailTheFutureWhenAnInMemoryPortThrows() {
+    //given:
+    final CuisineCustomersAsyncPort cuisineCustomersPort = CuisineCustomersAsyncPort.getDefaultInstance();
+    final CustomerCuisinesAsyncPort customerCuisinesPort = CustomerCuisinesAsyncPort.getDefaultInstance();
+
+    //when:
+    final CompletableFuture<Void> registered = cuisineCustomersPort.registerAsync(null, Customer.of("1"));
+    final CompletableFuture<List<Cuisine>> topCuisines = cuisineCustomersPort.topCuisinesAsync(0);
+    final CompletableFuture<List<Cuisine>> removed = customerCuisinesPort.removeCustomerAsync(null);
+
+    //then:
+    assertThat(registered).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(NullPointerException.class);
+    assertThat(topCuisines).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(IllegalArgumentException.class);
+    assertThat(removed).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void shouldRegisterOnRedisAsynchronously() {
+    //given:
+    final CuisinesRegistryAsync cuisinesRegistry = new CuisinesRegistryAsyncImpl(
+        new CuisineCustomersRedisAdapter(redissonClient), new CustomerCuisinesRedisAdapter(redissonClient));
+
+    //when:
+    CompletableFuture.allOf(
+        cuisinesRegistry.registerAsync(Customer.of("1"), Cuisine.of("async-french")),
+        cuisinesRegistry.registerAsync(Customer.of("1"), Cuisine.of("async-french")),
+        cuisinesRegistry.registerAllAsync(List.of(
+            Registration.of(Customer.of("2"), Cuisine.of("async-french")),
+            Registration.of(Customer.of("2"), Cuisine.of("async-german"))))).join();
+
+    //then: the blocking adapters read the same keys
+    final CuisinesRegistry blockingRegistry = new CuisinesRegistryImpl(
+        new CuisineCustomersRedisAdapter(redissonClient), new CustomerCuisinesRedisAdapter(redissonClient));
+    assertThat(blockingRegistry.cuisineCustomers(Cuisine.of("async-french"))).containsExactlyInAnyOrder(Customer.of("1"), Customer.of("2"));
+    assertThat(blockingRegistry.customerCuisines(Customer.of("2"))).containsExactlyInAnyOrder(Cuisine.of("async-french"), Cuisine.of("async-german"));
+    assertThat(cuisinesRegistry.cuisineCustomersAsync(Cuisine.of("async-french")).join()).containsExactlyInAnyOrder(Customer.of("1"), Customer.of("2"));
+    assertThat(cuisinesRegistry.countCustomersAsync(Cuisine.of("async-french")).join()).isEqualTo(2);
+    assertThat(cuisinesRegistry.countCustomersAsync(Cuisine.of("async-italian")).join()).isZero();
+    assertThat(cuisinesRegistry.topCuisinesAsync(2).join()).containsExactly(Cuisine.of("async-french"), Cuisine.of("async-german"));
+  }
+
+  @Test
+  void shouldRemoveCustomerOnRedisAsynchronously() {
+    //given:
+    final CuisinesRegistryAsync cuisinesRegistry = new CuisinesRegistryAsyncImpl(
+        new CuisineCustomersRedisAdapter(redissonClient), new CustomerCuisinesRedisAdapter(redissonClient));
+    cuisinesRegistry.registerAllAsync(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("french")),
+        Registration.of(Customer.of("1"), Cuisine.of("german")),
+        Registration.of(Customer.of("2"), Cuisine.of("german")))).join();
+
+    //when:
+    CompletableFuture.allOf(
+        cuisinesRegistry.removeCustomerAsync(Customer.of("1")),
+        cuisinesRegistry.unregisterAsync(Customer.of("2"), Cuisine.of("french"))).join();
+
+    //then:
+    assertThat(cuisinesRegistry.customerCuisinesAsync(Customer.of("1")).join()).isEmpty();
+    assertThat(cuisinesRegistry.cuisineCustomersAsync(Cuisine.of("german")).join()).containsExactly(Customer.of("2"));
+    assertThat(cuisinesRegistry.countCustomersAsync(Cuisine.of("french")).join()).isZero();
+    assertThat(cuisinesRegistry.topCuisinesAsync(2).join()).containsExactly(Cuisine.of("german"));
+  }
+
+  @Test
+  void shouldKeepThousandsOfLookupsInFlightWithoutThreads() {
+    //given:
+    final CuisinesRegistryAsync cuisinesRegistry = new CuisinesRegistryAsyncImpl(
+        new CuisineCustomersRedisAdapter(redissonClient), new CustomerCuisinesRedisAdapter(redissonClient));
+    cuisinesRegistry.registerAllAsync(IntStream.range(0, 100)
+        .mapToObj(i -> Registration.of(Customer.of("in-flight-" + i), Cuisine.of("in-flight-" + i % 10)))
+        .collect(Collectors.toList())).join();
+    final int threadsBefore = Thread.activeCount();
+
+    //when: issued from this thread without waiting for any of them
+    final List<CompletableFuture<List<Cuisine>>> lookups = IntStream.range(0, 5_000)
+        .mapToObj(i -> cuisinesRegistry.customerCuisinesAsync(Customer.of("in-flight-" + i % 100)))
+        .toList();
+    CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new)).join();
+    log.info("5000 lookups in flight with {} threads before and {} after", threadsBefore, Thread.activeCount());
+
+    //then: at most Redisson's I/O threads were started
+    assertThat(lookups.get(4_999).join()).containsExactly(Cuisine.of("in-flight-9"));
+    assertThat(Thread.activeCount() - threadsBefore).isLessThan(64);
+  }
+
+  // fails the given number of writes before it starts working
+  private static class FlakyCustomerCuisinesAsyncPort implements CustomerCuisinesAsyncPort {
+
+    private final CustomerCuisinesAsyncPort delegate = CustomerCuisinesAsyncPort.getDefaultInstance();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failures;
+
+    private FlakyCustomerCuisinesAsyncPort(final int failures) {
+      this.failures = new AtomicInteger(failures);
+    }
+
+    @Override
+    public CompletableFuture<Void> registerAsync(final Customer customer, final Cuisine cuisine) {
+      calls.incrementAndGet();
+      if (failures.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+        return CompletableFuture.failedFuture(new IllegalStateException("Customer index is down!"));
+      }
+      return delegate.registerAsync(customer, cuisine);
+    }
+
+    @Override
+    public CompletableFuture<Void> registerAllAsync(final Collection<Registration> registrations) {
+      return delegate.registerAllAsync(registrations);
+    }
+
+    @Override
+    public CompletableFuture<Void> unregisterAsync(final Customer customer, final Cuisine cuisine) {
+      return delegate.unregisterAsync(customer, cuisine);
+    }
+
+    @Override
+    public CompletableFuture<List<Cuisine>> removeCustomerAsync(final Customer customer) {
+      return delegate.removeCustomerAsync(customer);
+    }
+
+    @Override
+    public CompletableFuture<List<Cuisine>> customerCuisinesAsync(final Customer customer) {
+      return delegate.customerCuisinesAsync(customer);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.quandoo.recruitment.registry.adapters.inmemory.CuisineCustomersBitmapInMemoryAdapter;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@Slf4j
+class BitmapInMemoryCuisinesRegistryTest {
+
+  private CuisineCustomersBitmapInMemoryAdapter cuisineCustomersPort;
+  private CuisinesRegistry cuisinesRegistry;
+
+  @BeforeEach
+  void setUp() {
+    cuisineCustomersPort = new CuisineCustomersBitmapInMemoryAdapter();
+    cuisinesRegistry = new CuisinesRegistryImpl(cuisineCustomersPort, CustomerCuisinesPort.getDefaultInstance());
+  }
+
+  @Test
+  void shouldRegisterSameCuisineForCustomer() {
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("3"), Cuisine.of("german"));
+
+    final List<Customer> frCustomerList = cuisinesRegistry.cuisineCustomers(Cuisine.of("french"));
+
+    assertThat(frCustomerList).containsExactly(Customer.of("1"), Customer.of("2"));
+    assertThat(frCustomerList.get(1)).isEqualTo(Customer.of("2"));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("italian"))).isEmpty();
+  }
+
+  @Test
+  void shouldGetTopNCuisines() {
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("german")),
+        Registration.of(Customer.of("2"), Cuisine.of("german")),
+        Registration.of(Customer.of("2"), Cuisine.of("german")),
+        Registration.of(Customer.of("3"), Cuisine.of("italian"))));
+    cuisinesRegistry.register(Customer.of("4"), Cuisine.of("italian"));
+    cuisinesRegistry.register(Customer.of("5"), Cuisine.of("italian"));
+    cuisinesRegistry.register(Customer.of("6"), Cuisine.of("french"));
+
+    assertThat(cuisinesRegistry.topCuisines(3))
+        .containsExactly(Cuisine.of("italian"), Cuisine.of("german"), Cuisine.of("french"));
+  }
+
+  @Test
+  void shouldKeepSnapshotOfCustomersWhenRegisteringAfterRead() {
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    final List<Customer> frCustomerList = cuisinesRegistry.cuisineCustomers(Cuisine.of("french"));
+
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+
+    assertThat(frCustomerList).containsExactly(Customer.of("1"));
+  }
+
+  @Test
+  void shouldReportMemoryPerEdge() {
+    //given: 200k customers following 5 of 50 cuisines each
+    final int customers = 200_000;
+    final SplittableRandom random = new SplittableRandom(42);
+    final List<Registration> registrations = new ArrayList<>();
+    IntStream.range(0, customers).forEach(customer -> random.ints(5, 0, 50).distinct()
+        .forEach(cuisine -> registrations.add(Registration.of(Customer.of("customer-" + customer), Cuisine.of("cuisine-" + cuisine)))));
+
+    //when:
+    cuisineCustomersPort.registerAll(registrations);
+
+    //then:
+    final long edges = IntStream.range(0, 50)
+        .mapToLong(cuisine -> cuisinesRegistry.cuisineCustomers(Cuisine.of("cuisine-" + cuisine)).size())
+        .sum();
+    final long postingLists = cuisineCustomersPort.postingListsSizeInBytes();
+    // everything the adapter retains: posting lists, the customer dictionary with its customers, ranking and counters
+    final long adapter = RetainedSize.of(cuisineCustomersPort);
+    log.info("{} edges in {} bytes of posting lists, {} bytes per edge, {} bytes per edge with the customer dictionary",
+        edges, postingLists, String.format("%.2f", (double) postingLists / edges), String.format("%.2f", (double) adapter / edges));
+
+    assertThat(edges).isEqualTo(registrations.size());
+    assertThat((double) postingLists / edges).isLessThan(4);
+    // about 1.3 bytes per edge in the bitmaps, the dictionary of 200k customers brings it to about 30
+    assertThat(adapter).isGreaterThan(postingLists);
+    assertThat((double) adapter / edges).isLessThan(40);
+  }
+
+  @Test
+  void shouldStreamCustomersPageByPage() {
+    //given: several pages of customers
+    cuisinesRegistry.registerAll(IntStream.range(0, 5_000)
+        .mapToObj(i -> Registration.of(Customer.of("customer-" + i), Cuisine.of("french")))
+        .collect(Collectors.toList()));
+
+    //when:
+    final List<Customer> streamed = new ArrayList<>();
+    try (Stream<Customer> customers = cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french"))) {
+      final Iterator<Customer> iterator = customers.iterator();
+      streamed.add(iterator.next());
+      cuisinesRegistry.register(Customer.of("latecomer"), Cuisine.of("french"));
+      iterator.forEachRemaining(streamed::add);
+    }
+
+    //then: customers get ascending ids, so one registered while streaming shows up at the end
+    assertThat(streamed).hasSize(5_001);
+    assertThat(streamed.subList(0, 5_000)).containsExactlyElementsOf(cuisinesRegistry.cuisineCustomers(Cuisine.of("french")).subList(0, 5_000));
+    assertThat(streamed.get(5_000)).isEqualTo(Customer.of("latecomer"));
+    assertThat(cuisinesRegistry.streamCuisineCustomers(Cuisine.of("italian"))).isEmpty();
+  }
+
+  @Test
+  void shouldCountCustomersOfCuisine() {
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("2"), Cuisine.of("german")),
+        Registration.of(Customer.of("3"), Cuisine.of("french"))));
+
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isEqualTo(3);
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("german"))).isEqualTo(1);
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("italian"))).isZero();
+  }
+
+  @Test
+  void shouldClearCustomerBitsOnRemoval() {
+    //given:
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("french")),
+        Registration.of(Customer.of("2"), Cuisine.of("french")),
+        Registration.of(Customer.of("1"), Cuisine.of("german")),
+        Registration.of(Customer.of("3"), Cuisine.of("italian"))));
+
+    //when:
+    cuisinesRegistry.unregister(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.removeCustomer(Customer.of("1"));
+    cuisinesRegistry.unregister(Customer.of("unknown"), Cuisine.of("french"));
+
+    //then:
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).isEmpty();
+    assertThat(cuisinesRegistry.streamCuisineCustomers(Cuisine.of("german"))).isEmpty();
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isZero();
+    assertThat(cuisinesRegistry.topCuisines(3)).containsExactly(Cuisine.of("italian"));
+  }
+}
@@ -0,0 +1,88 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.quandoo.recruitment.registry.adapters.inmemory.CuisineCustomersInMemoryAdapter;
+import de.quandoo.recruitment.registry.adapters.inmemory.CustomerCuisinesInMemoryAdapter;
+import de.quandoo.recruitment.registry.adapters.inmemory.SpaceSavingRanking;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import java.util.List;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+@Slf4j
+class BoundedInMemoryCuisinesRegistryTest {
+
+  private static final List<Cuisine> CUISINES = List.of(Cuisine.of("french"), Cuisine.of("german"), Cuisine.of("italian"));
+
+  @Test
+  void shouldEvictCustomerFromBothIndexesAndRanking() {
+    //given:
+    final CuisineCustomersInMemoryAdapter cuisineCustomers = new CuisineCustomersInMemoryAdapter();
+    final CuisinesRegistry cuisinesRegistry = new CuisinesRegistryImpl(cuisineCustomers,
+        new CustomerCuisinesInMemoryAdapter(1, cuisineCustomers::removeCustomer));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("german"));
+
+    //when:
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("italian"));
+
+    //then:
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).isEmpty();
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).isEmpty();
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("german"))).isZero();
+    assertThat(cuisinesRegistry.topCuisines(3)).containsExactly(Cuisine.of("italian"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("2"))).containsExactly(Cuisine.of("italian"));
+  }
+
+  @Test
+  void shouldKeepRecentlyUsedCustomersWithinTheLimit() {
+    //given:
+    final CuisineCustomersInMemoryAdapter cuisineCustomers = new CuisineCustomersInMemoryAdapter();
+    final CuisinesRegistry cuisinesRegistry = new CuisinesRegistryImpl(cuisineCustomers,
+        new CustomerCuisinesInMemoryAdapter(1_000, cuisineCustomers::removeCustomer));
+    final List<Customer> hot = IntStream.range(0, 20).mapToObj(i -> Customer.of("hot-" + i)).toList();
+    hot.forEach(customer -> cuisinesRegistry.register(customer, Cuisine.of("french")));
+
+    //when: the hot customers are looked up while ten times the limit of idle ones register
+    IntStream.range(0, 10_000).forEach(i -> {
+      cuisinesRegistry.register(Customer.of("idle-" + i), CUISINES.get(i % CUISINES.size()));
+      cuisinesRegistry.customerCuisines(hot.get(i % hot.size()));
+    });
+
+    //then:
+    final long customers = CUISINES.stream().mapToLong(cuisinesRegistry::countCustomers).sum();
+    log.info("{} customers left of {} registered", customers, 10_000 + hot.size());
+    assertThat(customers).isEqualTo(1_000);
+    hot.forEach(customer -> assertThat(cuisinesRegistry.customerCuisines(customer)).containsExactly(Cuisine.of("french")));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("german")))
+        .hasSize((int) cuisinesRegistry.countCustomers(Cuisine.of("german")))
+        .allSatisfy(customer -> assertThat(cuisinesRegistry.customerCuisines(customer)).containsExactly(Cuisine.of("german")));
+    assertThat(cuisinesRegistry.topCuisines(1)).containsExactly(CUISINES.stream()
+        .max((first, second) -> Long.compare(cuisinesRegistry.countCustomers(first), cuisinesRegistry.countCustomers(second)))
+        .orElseThrow());
+  }
+
+  @Test
+  void shouldMoveEvictedCuisinesDownTheApproximateRanking() {
+    //given:
+    final SpaceSavingRanking ranking = new SpaceSavingRanking(10);
+    final CuisineCustomersInMemoryAdapter cuisineCustomers = new CuisineCustomersInMemoryAdapter(ranking);
+    final CuisinesRegistry cuisinesRegistry = new CuisinesRegistryImpl(cuisineCustomers,
+        new CustomerCuisinesInMemoryAdapter(3, cuisineCustomers::removeCustomer));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("3"), Cuisine.of("german"));
+
+    //when: registrations over the limit evict the french and german customers
+    IntStream.range(4, 20).forEach(i -> cuisinesRegistry.register(Customer.of(String.valueOf(i)), Cuisine.of("italian")));
+
+    //then:
+    assertThat(cuisinesRegistry.topCuisines(1)).containsExactly(Cuisine.of("italian"));
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("italian"))).isLessThanOrEqualTo(3);
+    assertThat(ranking.summary().counters()).extracting(SpaceSavingRanking.CuisineCount::cuisine).containsExactly(Cuisine.of("italian"));
+  }
+}
@@ -0,0 +1,116 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import de.quandoo.recruitment.registry.adapters.cache.CuisineCustomersTopCuisinesCacheAdapter;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.instrumentation.InstrumentedCuisineCustomersPort;
+import de.quandoo.recruitment.registry.instrumentation.OperationMetrics;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@Slf4j
+class CachedTopCuisinesTest {
+
+  private static final Duration MAX_STALENESS = Duration.ofMillis(200);
+
+  private InstrumentedCuisineCustomersPort delegate;
+  private CuisineCustomersTopCuisinesCacheAdapter cache;
+  private CuisinesRegistry cuisinesRegistry;
+
+  @BeforeEach
+  void setUp() {
+    delegate = new InstrumentedCuisineCustomersPort(CuisineCustomersPort.getDefaultInstance(), "cached-top-cuisines");
+    cache = CuisineCustomersTopCuisinesCacheAdapter.builder()
+        .delegate(delegate)
+        .topCuisinesSize(3)
+        .maxStaleness(MAX_STALENESS)
+        .build();
+    cuisinesRegistry = new CuisinesRegistryImpl(cache, CustomerCuisinesPort.getDefaultInstance());
+  }
+
+  @AfterEach
+  void tearDown() {
+    cache.close();
+    delegate.metrics().close();
+  }
+
+  @Test
+  void shouldServeSmallerNFromTheCachedPrefix() {
+    //given:
+    registerFollowers("french", 3);
+    registerFollowers("german", 2);
+    registerFollowers("italian", 1);
+
+    //when:
+    final List<Cuisine> top = cuisinesRegistry.topCuisines(3);
+    IntStream.range(0, 10_000).forEach(i -> cuisinesRegistry.topCuisines(1 + i % 3));
+
+    //then: one load for every n up to the cached size, larger ones go to the delegate
+    assertThat(top).containsExactly(Cuisine.of("french"), Cuisine.of("german"), Cuisine.of("italian"));
+    assertThat(cuisinesRegistry.topCuisines(2)).containsExactly(Cuisine.of("french"), Cuisine.of("german"))
+        .isSameAs(cuisinesRegistry.topCuisines(2));
+    assertThat(topCuisines().getCount()).isEqualTo(1);
+    assertThat(cuisinesRegistry.topCuisines(4)).hasSize(3);
+    assertThat(topCuisines().getCount()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldRefreshOnceWithinTheStalenessBoundForManyWrites() {
+    //given:
+    registerFollowers("french", 3);
+    assertThat(cuisinesRegistry.topCuisines(1)).containsExactly(Cuisine.of("french"));
+
+    //when: a burst of registrations overtakes the cached leader
+    registerFollowers("german", 1_000);
+
+    //then: the refresh scheduled by the first write lands within the bound, at most one more picks up the rest
+    eventually(() -> cuisinesRegistry.topCuisines(1), List.of(Cuisine.of("german")), MAX_STALENESS.multipliedBy(3));
+    eventually(cache::cachedEpoch, cache.epoch(), MAX_STALENESS.multipliedBy(3));
+    log.info("{} registrations refreshed the ranking {} times", 1_000, topCuisines().getCount() - 1);
+    assertThat(topCuisines().getCount() - 1).isBetween(1L, 2L);
+  }
+
+  @Test
+  void shouldValidateConfiguration() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> CuisineCustomersTopCuisinesCacheAdapter.builder().delegate(delegate).topCuisinesSize(0).build())
+        .withMessage("Top cuisines size should be greater than zero!");
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> CuisineCustomersTopCuisinesCacheAdapter.builder().delegate(delegate).maxStaleness(Duration.ofSeconds(-1)).build())
+        .withMessage("Max staleness could not be negative!");
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> cuisinesRegistry.topCuisines(0))
+        .withMessage("n should be greater than zero!");
+  }
+
+  private void registerFollowers(final String cuisine, final int followers) {
+    IntStream.range(0, followers).forEach(i -> cuisinesRegistry.register(Customer.of(cuisine + "-" + i), Cuisine.of(cuisine)));
+  }
+
+  private OperationMetrics topCuisines() {
+    return delegate.metrics().operation("topCuisines");
+  }
+
+  @SneakyThrows(InterruptedException.class)
+  private static <T> void eventually(final Supplier<T> actual, final T expected, final Duration timeout) {
+    final long deadline = System.nanoTime() + timeout.toNanos();
+    while (!actual.get().equals(expected) && System.nanoTime() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(1);
+    }
+    assertThat(actual.get()).isEqualTo(expected);
+  }
+}
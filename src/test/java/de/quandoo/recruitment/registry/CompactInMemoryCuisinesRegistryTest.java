@@ -0,0 +1,159 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.quandoo.recruitment.registry.adapters.inmemory.CustomerCuisinesCompactInMemoryAdapter;
+import de.quandoo.recruitment.registry.adapters.inmemory.CustomerCuisinesInMemoryAdapter;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@Slf4j
+class CompactInMemoryCuisinesRegistryTest {
+
+  private CuisinesRegistry cuisinesRegistry;
+
+  @BeforeEach
+  void setUp() {
+    cuisinesRegistry = new CuisinesRegistryImpl(CuisineCustomersPort.getDefaultInstance(), new CustomerCuisinesCompactInMemoryAdapter());
+  }
+
+  @Test
+  void shouldRegisterSameCustomerForCuisine() {
+    final Customer customer = Customer.of("0f8fad5b-d9cb-469f-a165-70867728950e");
+    cuisinesRegistry.register(customer, Cuisine.of("french"));
+    cuisinesRegistry.register(customer, Cuisine.of("german"));
+    cuisinesRegistry.register(customer, Cuisine.of("german"));
+    cuisinesRegistry.register(customer, Cuisine.of("italian"));
+
+    assertThat(cuisinesRegistry.customerCuisines(customer))
+        .containsExactly(Cuisine.of("french"), Cuisine.of("german"), Cuisine.of("italian"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("7c9e6679-7425-40de-944b-e07fc1f90ae7"))).isEmpty();
+  }
+
+  @Test
+  void shouldRegisterCustomersWithNonUuidIds() {
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("german"));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("0F8FAD5B-D9CB-469F-A165-70867728950E"), Cuisine.of("italian"));
+
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).containsExactly(Cuisine.of("french"), Cuisine.of("german"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("0f8fad5b-d9cb-469f-a165-70867728950e"))).isEmpty();
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("0F8FAD5B-D9CB-469F-A165-70867728950E")))
+        .containsExactly(Cuisine.of("italian"));
+  }
+
+  @Test
+  void shouldReadWhileOtherThreadsRegister() {
+    //given:
+    final List<Customer> customers = IntStream.range(0, 100_000).mapToObj(i -> Customer.of(UUID.randomUUID().toString())).toList();
+    final AtomicBoolean writing = new AtomicBoolean(true);
+
+    //when: one reader keeps checking the first customer while the tables are resized under it
+    cuisinesRegistry.register(customers.get(0), Cuisine.of("french"));
+    final CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+      while (writing.get()) {
+        assertThat(cuisinesRegistry.customerCuisines(customers.get(0))).contains(Cuisine.of("french"));
+      }
+    });
+    final CompletableFuture<?>[] writers = IntStream.range(0, 4)
+        .mapToObj(w -> CompletableFuture.runAsync(() -> customers.forEach(customer ->
+            cuisinesRegistry.register(customer, Cuisine.of("cuisine-" + w)))))
+        .toArray(CompletableFuture[]::new);
+    CompletableFuture.allOf(writers).join();
+    writing.set(false);
+    reader.join();
+
+    //then:
+    assertThat(customers).allSatisfy(customer -> assertThat(cuisinesRegistry.customerCuisines(customer)).hasSizeBetween(4, 5));
+  }
+
+  @Test
+  void shouldRemoveCuisinesOfUuidAndOtherCustomers() {
+    //given:
+    final Customer uuidCustomer = Customer.of("0f8fad5b-d9cb-469f-a165-70867728950e");
+    final Customer otherCustomer = Customer.of("1");
+    List.of(uuidCustomer, otherCustomer).forEach(customer -> {
+      cuisinesRegistry.register(customer, Cuisine.of("french"));
+      cuisinesRegistry.register(customer, Cuisine.of("german"));
+    });
+
+    //when:
+    cuisinesRegistry.unregister(uuidCustomer, Cuisine.of("french"));
+    cuisinesRegistry.unregister(otherCustomer, Cuisine.of("german"));
+    cuisinesRegistry.unregister(otherCustomer, Cuisine.of("spanish"));
+
+    //then:
+    assertThat(cuisinesRegistry.customerCuisines(uuidCustomer)).containsExactly(Cuisine.of("german"));
+    assertThat(cuisinesRegistry.customerCuisines(otherCustomer)).containsExactly(Cuisine.of("french"));
+
+    //when: removed customers can come back
+    cuisinesRegistry.removeCustomer(uuidCustomer);
+    cuisinesRegistry.removeCustomer(otherCustomer);
+
+    //then:
+    assertThat(cuisinesRegistry.customerCuisines(uuidCustomer)).isEmpty();
+    assertThat(cuisinesRegistry.customerCuisines(otherCustomer)).isEmpty();
+    assertThat(cuisinesRegistry.topCuisines(2)).isEmpty();
+    cuisinesRegistry.register(uuidCustomer, Cuisine.of("italian"));
+    assertThat(cuisinesRegistry.customerCuisines(uuidCustomer)).containsExactly(Cuisine.of("italian"));
+  }
+
+  @Test
+  void shouldNotGrowWithCustomersThatLeft() {
+    //given:
+    final CustomerCuisinesPort port = new CustomerCuisinesCompactInMemoryAdapter();
+    churn(port, 0);
+    final long retainedAfterFirstRound = RetainedSize.of(port);
+
+    //when: every round brings new customers and removes them again
+    IntStream.range(1, 10).forEach(round -> churn(port, round));
+
+    //then: the tables only hold what is registered right now
+    assertThat(RetainedSize.of(port)).isLessThan(retainedAfterFirstRound * 2);
+    assertThat(port.customerCuisines(Customer.of(new UUID(0, 7).toString()))).isEmpty();
+    port.register(Customer.of(new UUID(0, 7).toString()), Cuisine.of("french"));
+    assertThat(port.customerCuisines(Customer.of(new UUID(0, 7).toString()))).containsExactly(Cuisine.of("french"));
+  }
+
+  @Test
+  void shouldUseAFractionOfTheHeapOfTheDefaultAdapter() {
+    final long compact = retainedHeap(new CustomerCuisinesCompactInMemoryAdapter()) / 200_000;
+    final long regular = retainedHeap(new CustomerCuisinesInMemoryAdapter()) / 200_000;
+    log.info("200k customers with 2 cuisines each: {} bytes per customer compact, {} bytes per customer with the default adapter",
+        compact, regular);
+
+    // a compact customer holds at least its two key longs and an int array of two cuisine ids
+    assertThat(compact).isGreaterThanOrEqualTo(2 * 8 + 24);
+    // 71 against 282 bytes with the layout RetainedSize assumes, 3.5x leaves room for JDK collection changes
+    assertThat(compact * 7 / 2).isLessThan(regular);
+  }
+
+  private static void churn(final CustomerCuisinesPort port, final int round) {
+    final List<Customer> customers = IntStream.range(0, 20_000).mapToObj(i -> Customer.of(new UUID(round, i).toString())).toList();
+    customers.forEach(customer -> port.register(customer, Cuisine.of("french")));
+    customers.subList(0, 10_000).forEach(port::removeCustomer);
+    customers.subList(10_000, 20_000).forEach(customer -> port.unregister(customer, Cuisine.of("french")));
+  }
+
+  private static long retainedHeap(final CustomerCuisinesPort port) {
+    for (int i = 0; i < 200_000; i++) {
+      final Customer customer = Customer.of(new UUID(i, -i).toString());
+      port.register(customer, Cuisine.of("french"));
+      port.register(customer, Cuisine.of("cuisine-" + i % 100));
+    }
+    assertThat(port.customerCuisines(Customer.of(new UUID(7, -7).toString()))).hasSize(2);
+    return RetainedSize.of(port);
+  }
+}
@@ -0,0 +1,138 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.quandoo.recruitment.registry.adapters.inmemory.FrequencyBucketRanking;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentInMemoryCuisinesRegistryTest {
+
+  private static final int THREADS = 16;
+
+  private CuisinesRegistry cuisinesRegistry;
+  private ExecutorService executorService;
+
+  @BeforeEach
+  void setUp() {
+    cuisinesRegistry = new CuisinesRegistryImpl(
+        CuisineCustomersPort.getDefaultInstance(),
+        CustomerCuisinesPort.getDefaultInstance()
+    );
+    executorService = Executors.newFixedThreadPool(THREADS);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executorService.shutdownNow();
+    cuisinesRegistry = null;
+  }
+
+  @Test
+  void shouldRankCuisinesCorrectlyWhenRegisteringFromManyThreads() {
+    //given: cuisine-i is followed by (i + 1) * 100 customers, every pair is registered by every thread
+    final int cuisines = 20;
+    hammer(thread -> {
+      for (int i = 0; i < cuisines; i++) {
+        for (int c = 0; c < (i + 1) * 100; c++) {
+          cuisinesRegistry.register(Customer.of("customer-" + c), Cuisine.of("cuisine-" + i));
+        }
+      }
+    });
+
+    //when:
+    final List<Cuisine> topCuisines = cuisinesRegistry.topCuisines(cuisines);
+
+    //then:
+    final List<Cuisine> expected = IntStream.iterate(cuisines - 1, i -> i >= 0, i -> i - 1)
+        .mapToObj(i -> Cuisine.of("cuisine-" + i))
+        .toList();
+    assertThat(topCuisines).containsExactlyElementsOf(expected);
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("cuisine-0"))).hasSize(100);
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("customer-0"))).hasSize(cuisines);
+  }
+
+  @Test
+  void shouldKeepTopCuisinesOrderedWhileRegistering() {
+    //given: a reader walks the ranking while writers keep moving cuisines between buckets
+    final FrequencyBucketRanking ranking = new FrequencyBucketRanking();
+    final CountDownLatch writersDone = new CountDownLatch(THREADS - 1);
+    final List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < THREADS - 1; t++) {
+      final int thread = t;
+      futures.add(executorService.submit(() -> {
+        try {
+          for (int i = 0; i < 20_000; i++) {
+            ranking.increment(Cuisine.of("cuisine-" + ((i * 31 + thread) % 50)));
+          }
+        } finally {
+          writersDone.countDown();
+        }
+      }));
+    }
+    futures.add(executorService.submit(() -> {
+      while (writersDone.getCount() > 0) {
+        assertThat(ranking.top(50)).doesNotHaveDuplicates();
+      }
+    }));
+
+    //when:
+    futures.forEach(this::await);
+
+    //then:
+    final List<Long> counts = ranking.top(50).stream().map(ranking::count).toList();
+    assertThat(counts).hasSize(50).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+    assertThat(counts.stream().mapToLong(Long::longValue).sum()).isEqualTo((THREADS - 1) * 20_000L);
+  }
+
+  @Test
+  void shouldReturnAllCuisinesWhenNGreaterThanCuisineCount() {
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("german"));
+
+    assertThat(cuisinesRegistry.topCuisines(10)).containsExactly(Cuisine.of("french"), Cuisine.of("german"));
+  }
+
+  @SneakyThrows
+  private void hammer(final ThrowingConsumer task) {
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final int thread = t;
+      futures.add(executorService.submit(() -> {
+        start.await();
+        task.accept(thread);
+        return null;
+      }));
+    }
+    start.countDown();
+    futures.forEach(this::await);
+  }
+
+  @SneakyThrows
+  private void await(final Future<?> future) {
+    future.get(1, TimeUnit.MINUTES);
+  }
+
+  @FunctionalInterface
+  private interface ThrowingConsumer {
+
+    void accept(int thread) throws Exception;
+  }
+}
@@ -0,0 +1,150 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.quandoo.recruitment.registry.adapters.redis.CuisineCustomersNearCacheAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.CuisineCustomersRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.CustomerCuisinesNearCacheAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.CustomerCuisinesRedisAdapter;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.config.Config;
+
+// several registry instances, each with its own Redis connection and near caches, sharing one Redis
+@Slf4j
+public class CuisinesRegistryNearCacheIntegrationTest extends AbstractIntegrationTest {
+
+  private static final int INSTANCES = 3;
+  private static final Duration TOP_CUISINES_REFRESH_INTERVAL = Duration.ofMillis(100);
+
+  private static final List<RedissonClient> REDISSON_CLIENTS = new ArrayList<>();
+  private static final List<AutoCloseable> NEAR_CACHES = new ArrayList<>();
+  private static final List<CuisinesRegistry> REGISTRIES = new ArrayList<>();
+
+  @BeforeAll
+  public static void beforeAll() {
+    AbstractIntegrationTest.startCluster();
+    for (int i = 0; i < INSTANCES; i++) {
+      final Config config = new Config();
+      config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+      config.setCodec(JsonJacksonCodec.INSTANCE);
+      final RedissonClient redissonClient = Redisson.create(config);
+      final CuisineCustomersNearCacheAdapter cuisineCustomersPort = CuisineCustomersNearCacheAdapter.builder()
+          .delegate(new CuisineCustomersRedisAdapter(redissonClient))
+          .redissonClient(redissonClient)
+          .topCuisinesRefreshInterval(TOP_CUISINES_REFRESH_INTERVAL)
+          .build();
+      final CustomerCuisinesNearCacheAdapter customerCuisinesPort = CustomerCuisinesNearCacheAdapter.builder()
+          .delegate(new CustomerCuisinesRedisAdapter(redissonClient))
+          .redissonClient(redissonClient)
+          .build();
+      REDISSON_CLIENTS.add(redissonClient);
+      NEAR_CACHES.add(cuisineCustomersPort);
+      NEAR_CACHES.add(customerCuisinesPort);
+      REGISTRIES.add(new CuisinesRegistryImpl(cuisineCustomersPort, customerCuisinesPort));
+    }
+  }
+
+  @AfterAll
+  @SneakyThrows
+  public static void afterAll() {
+    for (final AutoCloseable nearCache : NEAR_CACHES) {
+      nearCache.close();
+    }
+    REDISSON_CLIENTS.forEach(RedissonClient::shutdown);
+    AbstractIntegrationTest.stopCluster();
+  }
+
+  @Test
+  void shouldInvalidateCustomerCuisinesOnEveryInstance() {
+    //given: every instance has the customer cached
+    REGISTRIES.get(0).register(Customer.of("near-1"), Cuisine.of("french"));
+    REGISTRIES.forEach(registry -> assertThat(registry.customerCuisines(Customer.of("near-1"))).containsExactly(Cuisine.of("french")));
+
+    //when:
+    REGISTRIES.get(1).register(Customer.of("near-1"), Cuisine.of("german"));
+
+    //then:
+    REGISTRIES.forEach(registry -> eventually(() -> Set.copyOf(registry.customerCuisines(Customer.of("near-1"))),
+        Set.of(Cuisine.of("french"), Cuisine.of("german"))));
+  }
+
+  @Test
+  void shouldInvalidateCuisineCustomersOnEveryInstanceAfterBulkRegistration() {
+    //given:
+    REGISTRIES.get(0).register(Customer.of("near-2"), Cuisine.of("near-italian"));
+    REGISTRIES.forEach(registry -> assertThat(registry.cuisineCustomers(Cuisine.of("near-italian"))).hasSize(1));
+
+    //when:
+    REGISTRIES.get(2).registerAll(List.of(
+        Registration.of(Customer.of("near-3"), Cuisine.of("near-italian")),
+        Registration.of(Customer.of("near-4"), Cuisine.of("near-italian"))));
+
+    //then:
+    REGISTRIES.forEach(registry -> eventually(() -> registry.cuisineCustomers(Cuisine.of("near-italian")).size(), 3));
+  }
+
+  @Test
+  void shouldRefreshTopCuisinesOnSchedule() {
+    //given:
+    final CuisinesRegistry reader = REGISTRIES.get(0);
+    reader.topCuisines(1);
+
+    //when: a cuisine overtakes every other one on another instance
+    final List<Registration> registrations = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      registrations.add(Registration.of(Customer.of("near-top-" + i), Cuisine.of("near-top")));
+    }
+    REGISTRIES.get(1).registerAll(registrations);
+
+    //then:
+    eventually(() -> reader.topCuisines(1), List.of(Cuisine.of("near-top")));
+  }
+
+  @Test
+  void shouldServeHotReadsLocally() {
+    //given:
+    final CuisinesRegistry registry = REGISTRIES.get(0);
+    registry.register(Customer.of("near-hot"), Cuisine.of("french"));
+    registry.customerCuisines(Customer.of("near-hot"));
+    registry.topCuisines(5);
+
+    //when:
+    final int reads = 100_000;
+    final long start = System.nanoTime();
+    for (int i = 0; i < reads; i++) {
+      registry.customerCuisines(Customer.of("near-hot"));
+      registry.topCuisines(5);
+    }
+    final long nanosPerRead = (System.nanoTime() - start) / (2L * reads);
+    log.info("Hot near cache reads took {} ns each", nanosPerRead);
+
+    //then: far below a network round trip
+    assertThat(nanosPerRead).isLessThan(TimeUnit.MICROSECONDS.toNanos(50));
+  }
+
+  @SneakyThrows(InterruptedException.class)
+  private static <T> void eventually(final Supplier<T> actual, final T expected) {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!actual.get().equals(expected) && System.nanoTime() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertThat(actual.get()).isEqualTo(expected);
+  }
+}
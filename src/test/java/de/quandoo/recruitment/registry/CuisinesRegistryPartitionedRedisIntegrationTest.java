@@ -0,0 +1,260 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.quandoo.recruitment.registry.adapters.redis.PartitionedCuisineCustomersRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.PartitionedCustomerCuisinesRedisAdapter;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+// three independent Redis nodes plus a spare one that joins during a test
+@Slf4j
+public class CuisinesRegistryPartitionedRedisIntegrationTest extends AbstractIntegrationTest {
+
+  private static final int NODES = 3;
+  private static final int CUISINES = 30;
+
+  private static final List<RedisServer> REDIS_SERVERS = new ArrayList<>();
+  private static final List<RedissonClient> REDISSON_CLIENTS = new ArrayList<>();
+
+  private PartitionedCuisineCustomersRedisAdapter cuisineCustomersPort;
+  private PartitionedCustomerCuisinesRedisAdapter customerCuisinesPort;
+  private CuisinesRegistry cuisinesRegistry;
+
+  @BeforeAll
+  public static void beforeAll() {
+    AbstractIntegrationTest.startCluster();
+    REDISSON_CLIENTS.add(redissonClient(port));
+    for (int i = 1; i <= NODES; i++) {
+      final int nodePort = findAvailableTcpPort();
+      final RedisServer redisServer = RedisServer.builder().port(nodePort).build();
+      redisServer.start();
+      REDIS_SERVERS.add(redisServer);
+      REDISSON_CLIENTS.add(redissonClient(nodePort));
+    }
+  }
+
+  @AfterAll
+  public static void afterAll() {
+    REDISSON_CLIENTS.forEach(RedissonClient::shutdown);
+    REDIS_SERVERS.forEach(RedisServer::stop);
+    AbstractIntegrationTest.stopCluster();
+  }
+
+  @BeforeEach
+  void setUp() {
+    REDISSON_CLIENTS.forEach(redissonClient -> redissonClient.getKeys().flushall());
+    final Map<String, RedissonClient> nodes = new LinkedHashMap<>();
+    for (int i = 0; i < NODES; i++) {
+      nodes.put("node-" + i, REDISSON_CLIENTS.get(i));
+    }
+    cuisineCustomersPort = PartitionedCuisineCustomersRedisAdapter.builder().nodes(nodes).build();
+    customerCuisinesPort = PartitionedCustomerCuisinesRedisAdapter.builder().nodes(nodes).build();
+    cuisinesRegistry = new CuisinesRegistryImpl(cuisineCustomersPort, customerCuisinesPort);
+  }
+
+  @AfterEach
+  void tearDown() {
+    cuisineCustomersPort.close();
+    customerCuisinesPort.close();
+  }
+
+  @Test
+  void shouldSpreadCuisinesAndCustomersOverNodes() {
+    //given:
+    registerTestData();
+    cuisinesRegistry.register(Customer.of("single"), Cuisine.of("cuisine-0"));
+
+    //then: every node holds part of the data and no cuisine is on two nodes
+    final List<Integer> cuisinesPerNode = IntStream.range(0, NODES).mapToObj(this::cuisinesOn).toList();
+    log.info("Cuisines per node {}", cuisinesPerNode);
+    assertThat(cuisinesPerNode).allMatch(cuisines -> cuisines > 0);
+    assertThat(cuisinesPerNode.stream().mapToInt(Integer::intValue).sum()).isEqualTo(CUISINES);
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("cuisine-0"))).containsExactlyInAnyOrder(Customer.of("customer-0"), Customer.of("single"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("customer-5")))
+        .containsExactlyInAnyOrderElementsOf(IntStream.range(5, CUISINES).mapToObj(i -> Cuisine.of("cuisine-" + i)).toList());
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("cuisine-29"))).isEqualTo(30);
+    assertThat(cuisinesRegistry.topCuisines(3)).containsExactly(Cuisine.of("cuisine-29"), Cuisine.of("cuisine-28"), Cuisine.of("cuisine-27"));
+  }
+
+  @Test
+  void shouldMoveKeysToJoiningNode() {
+    //given:
+    registerTestData();
+    final List<Cuisine> topCuisines = cuisinesRegistry.topCuisines(CUISINES);
+
+    //when:
+    cuisineCustomersPort.addNode("node-" + NODES, REDISSON_CLIENTS.get(NODES));
+    customerCuisinesPort.addNode("node-" + NODES, REDISSON_CLIENTS.get(NODES));
+
+    //then: the new node took over some cuisines, which were removed from their old nodes
+    final List<Integer> cuisinesPerNode = IntStream.rangeClosed(0, NODES).mapToObj(this::cuisinesOn).toList();
+    log.info("Cuisines per node after rebalancing {}", cuisinesPerNode);
+    assertThat(cuisinesPerNode.get(NODES)).isPositive();
+    assertThat(cuisinesPerNode.stream().mapToInt(Integer::intValue).sum()).isEqualTo(CUISINES);
+    assertThat(REDISSON_CLIENTS.get(NODES).getMapCache("customer-cuisines-cache").size()).isPositive();
+    assertThat(cuisinesRegistry.topCuisines(CUISINES)).containsExactlyElementsOf(topCuisines);
+    IntStream.range(0, CUISINES).forEach(i -> {
+      assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("cuisine-" + i))).hasSize(i + 1);
+      assertThat(cuisinesRegistry.customerCuisines(Customer.of("customer-" + i))).hasSize(CUISINES - i);
+    });
+
+    //when: registrations keep working on the new ring
+    cuisinesRegistry.register(Customer.of("late"), Cuisine.of("cuisine-0"));
+
+    //then:
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("cuisine-0"))).contains(Customer.of("late"));
+  }
+
+  @Test
+  void shouldKeepRemovalsMadeWhileKeysMoveToJoiningNode() {
+    //given:
+    cuisinesRegistry.registerAll(IntStream.range(0, CUISINES)
+        .boxed()
+        .flatMap(i -> IntStream.range(0, 200).mapToObj(c -> Registration.of(Customer.of("customer-" + c), Cuisine.of("cuisine-" + i))))
+        .collect(Collectors.toList()));
+
+    //when: the even cuisines and the first customers are taken back while both ports move keys
+    final CompletableFuture<Void> removals = CompletableFuture.runAsync(() -> IntStream.range(0, 200).forEach(c -> {
+      if (c < 50) {
+        cuisinesRegistry.removeCustomer(Customer.of("customer-" + c));
+      } else {
+        IntStream.range(0, CUISINES).filter(i -> i % 2 == 0)
+            .forEach(i -> cuisinesRegistry.unregister(Customer.of("customer-" + c), Cuisine.of("cuisine-" + i)));
+      }
+    }));
+    cuisineCustomersPort.addNode("node-" + NODES, REDISSON_CLIENTS.get(NODES));
+    customerCuisinesPort.addNode("node-" + NODES, REDISSON_CLIENTS.get(NODES));
+    removals.join();
+
+    //then: no removal came back on the new node
+    assertThat(cuisinesOn(NODES)).isPositive();
+    IntStream.range(0, CUISINES).forEach(i -> {
+      final long expected = i % 2 == 0 ? 0 : 150;
+      assertThat(cuisinesRegistry.countCustomers(Cuisine.of("cuisine-" + i))).isEqualTo(expected);
+      assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("cuisine-" + i))).hasSize((int) expected);
+    });
+    IntStream.range(0, 200).forEach(c -> assertThat(cuisinesRegistry.customerCuisines(Customer.of("customer-" + c)))
+        .hasSize(c < 50 ? 0 : CUISINES / 2)
+        .allMatch(cuisine -> Integer.parseInt(cuisine.name().substring("cuisine-".length())) % 2 == 1));
+    assertThat(cuisinesRegistry.topCuisines(CUISINES)).hasSize(CUISINES / 2);
+  }
+
+  @Test
+  void shouldMoveHyperLogLogCuisinesToJoiningNode() {
+    //given: the same data, every other cuisine counted with a HyperLogLog
+    final Map<String, RedissonClient> nodes = new LinkedHashMap<>();
+    for (int i = 0; i < NODES; i++) {
+      nodes.put("node-" + i, REDISSON_CLIENTS.get(i));
+    }
+    try (PartitionedCuisineCustomersRedisAdapter approximatePort = PartitionedCuisineCustomersRedisAdapter.builder()
+        .nodes(nodes)
+        .approximate(cuisine -> Integer.parseInt(cuisine.name().substring("cuisine-".length())) % 2 == 1)
+        .build()) {
+      cuisinesRegistry = new CuisinesRegistryImpl(approximatePort, customerCuisinesPort);
+      registerTestData();
+      final List<Cuisine> topCuisines = cuisinesRegistry.topCuisines(CUISINES);
+
+      //when:
+      approximatePort.addNode("node-" + NODES, REDISSON_CLIENTS.get(NODES));
+
+      //then: the new node holds merged HyperLogLogs, each one on a single node and counting what it did before
+      final List<Integer> hyperLogLogsPerNode = IntStream.rangeClosed(0, NODES)
+          .mapToObj(node -> (int) REDISSON_CLIENTS.get(node).getKeys().getKeysStreamByPattern("*-customers-hll").count())
+          .toList();
+      log.info("HyperLogLogs per node after rebalancing {}", hyperLogLogsPerNode);
+      assertThat(hyperLogLogsPerNode.get(NODES)).isPositive();
+      assertThat(hyperLogLogsPerNode.stream().mapToInt(Integer::intValue).sum()).isEqualTo(CUISINES / 2);
+      assertThat(REDISSON_CLIENTS.get(NODES).getKeys().getKeysStreamByPattern("*-migrating")).isEmpty();
+      assertThat(IntStream.rangeClosed(0, NODES).map(this::cuisinesOn).sum()).isEqualTo(CUISINES);
+      assertThat(cuisinesRegistry.topCuisines(CUISINES)).containsExactlyElementsOf(topCuisines);
+      IntStream.range(0, CUISINES).forEach(i -> assertThat(cuisinesRegistry.countCustomers(Cuisine.of("cuisine-" + i))).isEqualTo(i + 1));
+
+      //when: registrations keep counting on the new ring, an old customer is still recognised
+      IntStream.range(0, CUISINES).forEach(i -> {
+        cuisinesRegistry.register(Customer.of("customer-0"), Cuisine.of("cuisine-" + i));
+        cuisinesRegistry.register(Customer.of("late"), Cuisine.of("cuisine-" + i));
+      });
+
+      //then:
+      IntStream.range(0, CUISINES).forEach(i -> assertThat(cuisinesRegistry.countCustomers(Cuisine.of("cuisine-" + i))).isEqualTo(i + 2));
+    }
+  }
+
+  @Test
+  void shouldMergeTrendingCuisinesOfEveryNode() {
+    //given:
+    registerTestData();
+
+    //when: one cuisine gains followers one registration at a time, an unregister does not take them back
+    IntStream.range(0, 40).forEach(i -> cuisinesRegistry.register(Customer.of("new-" + i), Cuisine.of("cuisine-3")));
+    cuisinesRegistry.unregister(Customer.of("new-0"), Cuisine.of("cuisine-3"));
+
+    //then: the interval sets expire, the unions they are read through are gone
+    assertThat(cuisinesRegistry.trendingCuisines(3, Duration.ofHours(1)))
+        .containsExactly(Cuisine.of("cuisine-3"), Cuisine.of("cuisine-29"), Cuisine.of("cuisine-28"));
+    assertThat(cuisinesRegistry.topCuisines(1)).containsExactly(Cuisine.of("cuisine-3"));
+    REDISSON_CLIENTS.subList(0, NODES).forEach(redissonClient -> {
+      assertThat(redissonClient.getKeys().getKeysStreamByPattern("cuisine-trending-zset-*"))
+          .isNotEmpty()
+          .allMatch(key -> redissonClient.getKeys().remainTimeToLive(key) > 0)
+          .noneMatch(key -> key.contains("union"));
+    });
+  }
+
+  @Test
+  void shouldNotTrendCuisinesMovedToJoiningNode() {
+    //given:
+    registerTestData();
+    IntStream.range(0, 40).forEach(i -> cuisinesRegistry.register(Customer.of("new-" + i), Cuisine.of("cuisine-3")));
+    final List<Cuisine> trendingCuisines = cuisinesRegistry.trendingCuisines(CUISINES, Duration.ofHours(1));
+
+    //when:
+    cuisineCustomersPort.addNode("node-" + NODES, REDISSON_CLIENTS.get(NODES));
+
+    //then: the moved followers are ranked on the new node but counted as new followers nowhere again
+    assertThat(cuisinesOn(NODES)).isPositive();
+    assertThat(REDISSON_CLIENTS.get(NODES).getKeys().getKeysStreamByPattern("cuisine-trending-zset-*")).isEmpty();
+    assertThat(cuisinesRegistry.trendingCuisines(CUISINES, Duration.ofHours(1))).containsExactlyElementsOf(trendingCuisines);
+  }
+
+  // cuisine-i is followed by customer-0 to customer-i
+  private void registerTestData() {
+    cuisinesRegistry.registerAll(IntStream.range(0, CUISINES)
+        .boxed()
+        .flatMap(i -> IntStream.rangeClosed(0, i).mapToObj(c -> Registration.of(Customer.of("customer-" + c), Cuisine.of("cuisine-" + i))))
+        .collect(Collectors.toList()));
+  }
+
+  private int cuisinesOn(final int node) {
+    return REDISSON_CLIENTS.get(node).getScoredSortedSet("cuisine-popularity-zset").size();
+  }
+
+  private static RedissonClient redissonClient(final int port) {
+    final Config config = new Config();
+    config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+    config.setCodec(JsonJacksonCodec.INSTANCE);
+    return Redisson.create(config);
+  }
+}
@@ -0,0 +1,124 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.quandoo.recruitment.registry.adapters.redis.CuisineCustomersRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.CustomerCuisinesRedisAdapter;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.NettyHook;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.config.Config;
+
+public class CuisinesRegistryRedisBulkIntegrationTest extends AbstractIntegrationTest {
+
+  // every flush on a Redis connection is one request sent over the network
+  private static final AtomicLong FLUSHES = new AtomicLong();
+
+  private static RedissonClient redissonClient;
+  private static CuisinesRegistry cuisinesRegistry;
+
+  @BeforeAll
+  public static void beforeAll() {
+    AbstractIntegrationTest.startCluster();
+
+    final Config config = new Config();
+    config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+    config.setCodec(JsonJacksonCodec.INSTANCE);
+    config.setNettyHook(new FlushCountingNettyHook());
+    redissonClient = Redisson.create(config);
+
+    cuisinesRegistry = new CuisinesRegistryImpl(
+        new CuisineCustomersRedisAdapter(redissonClient),
+        new CustomerCuisinesRedisAdapter(redissonClient));
+  }
+
+  @AfterAll
+  public static void afterAll() {
+    redissonClient.shutdown();
+    AbstractIntegrationTest.stopCluster();
+    cuisinesRegistry = null;
+  }
+
+  @Test
+  void shouldRegisterAllPairs() {
+    //given:
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("bulk-french"));
+
+    //when:
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("bulk-french")),
+        Registration.of(Customer.of("2"), Cuisine.of("bulk-french")),
+        Registration.of(Customer.of("2"), Cuisine.of("bulk-german")),
+        Registration.of(Customer.of("3"), Cuisine.of("bulk-german")),
+        Registration.of(Customer.of("4"), Cuisine.of("bulk-german"))));
+
+    //then:
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("bulk-french")))
+        .containsExactlyInAnyOrder(Customer.of("1"), Customer.of("2"));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("bulk-german")))
+        .containsExactlyInAnyOrder(Customer.of("2"), Customer.of("3"), Customer.of("4"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("2")))
+        .containsExactlyInAnyOrder(Cuisine.of("bulk-french"), Cuisine.of("bulk-german"));
+    assertThat(cuisinesRegistry.topCuisines(2)).containsExactly(Cuisine.of("bulk-german"), Cuisine.of("bulk-french"));
+  }
+
+  @Test
+  void shouldNotScaleRoundTripsWithNumberOfPairs() {
+    final long tenPairs = flushesFor(registrations("ten", 10));
+    final long thousandPairs = flushesFor(registrations("thousand", 1_000));
+    final long singleRegistrations = flushesFor(() -> registrations("single", 10)
+        .forEach(registration -> cuisinesRegistry.register(registration.customer(), registration.cuisine())));
+
+    assertThat(thousandPairs).isEqualTo(tenPairs);
+    assertThat(singleRegistrations).isGreaterThan(5 * tenPairs);
+  }
+
+  private static List<Registration> registrations(final String prefix, final int pairs) {
+    return IntStream.range(0, pairs)
+        .mapToObj(i -> Registration.of(Customer.of(prefix + "-customer-" + i), Cuisine.of(prefix + "-cuisine-" + i % 7)))
+        .toList();
+  }
+
+  private static long flushesFor(final List<Registration> registrations) {
+    return flushesFor(() -> cuisinesRegistry.registerAll(registrations));
+  }
+
+  private static long flushesFor(final Runnable runnable) {
+    final long before = FLUSHES.get();
+    runnable.run();
+    return FLUSHES.get() - before;
+  }
+
+  private static class FlushCountingNettyHook implements NettyHook {
+
+    @Override
+    public void afterBoostrapInitialization(final Bootstrap bootstrap) {
+    }
+
+    @Override
+    public void afterChannelInitialization(final Channel channel) {
+      channel.pipeline().addFirst(new ChannelOutboundHandlerAdapter() {
+        @Override
+        public void flush(final ChannelHandlerContext ctx) throws Exception {
+          FLUSHES.incrementAndGet();
+          super.flush(ctx);
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.quandoo.recruitment.registry.adapters.redis.CuisineCustomersRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.CustomerCuisinesRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.RegistryCodec;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.Node;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.config.Config;
+
+@Slf4j
+public class CuisinesRegistryRedisCodecIntegrationTest extends AbstractIntegrationTest {
+
+  private static RedissonClient jsonClient;
+  private static RedissonClient binaryClient;
+
+  @BeforeAll
+  public static void beforeAll() {
+    AbstractIntegrationTest.startCluster();
+    jsonClient = client(JsonJacksonCodec.INSTANCE);
+    binaryClient = client(RegistryCodec.INSTANCE);
+  }
+
+  @AfterAll
+  public static void afterAll() {
+    jsonClient.shutdown();
+    binaryClient.shutdown();
+    AbstractIntegrationTest.stopCluster();
+  }
+
+  @BeforeEach
+  void setUp() {
+    binaryClient.getKeys().flushall();
+  }
+
+  @Test
+  void shouldRegisterWithBinaryCodec() {
+    //given: a canonical uuid, an upper case one and plain ids
+    final String uuid = UUID.randomUUID().toString();
+    final String upperCaseUuid = UUID.randomUUID().toString().toUpperCase();
+    final CuisinesRegistry cuisinesRegistry = registry(binaryClient);
+
+    //when:
+    cuisinesRegistry.register(Customer.of(uuid), Cuisine.of("cr\u00eapes"));
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of(upperCaseUuid), Cuisine.of("cr\u00eapes")),
+        Registration.of(Customer.of("3"), Cuisine.of("german"))));
+
+    //then:
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("cr\u00eapes")))
+        .containsExactlyInAnyOrder(Customer.of(uuid), Customer.of(upperCaseUuid));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of(upperCaseUuid))).containsExactly(Cuisine.of("cr\u00eapes"));
+    assertThat(cuisinesRegistry.topCuisines(2)).containsExactly(Cuisine.of("cr\u00eapes"), Cuisine.of("german"));
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("german"))).isEqualTo(1);
+  }
+
+  @Test
+  void shouldUseLessRedisMemoryThanJson() {
+    //given: 2k uuid customers following 3 of 20 cuisines each
+    final SplittableRandom random = new SplittableRandom(42);
+    final List<Registration> registrations = IntStream.range(0, 2_000)
+        .mapToObj(i -> new UUID(random.nextLong(), random.nextLong()).toString())
+        .flatMap(uuid -> random.ints(3, 0, 20).distinct()
+            .mapToObj(cuisine -> Registration.of(Customer.of(uuid), Cuisine.of("cuisine-" + cuisine))))
+        .collect(Collectors.toList());
+
+    //when:
+    final long jsonBytes = usedMemoryOf(jsonClient, registrations);
+    jsonClient.getKeys().flushall();
+    final long binaryBytes = usedMemoryOf(binaryClient, registrations);
+    log.info("{} registrations take {} bytes with JsonJacksonCodec and {} bytes with RegistryCodec",
+        registrations.size(), jsonBytes, binaryBytes);
+
+    //then:
+    assertThat(binaryBytes).isLessThan(jsonBytes / 2);
+  }
+
+  private static long usedMemoryOf(final RedissonClient redissonClient, final List<Registration> registrations) {
+    final long before = usedMemory(redissonClient);
+    registry(redissonClient).registerAll(registrations);
+    return usedMemory(redissonClient) - before;
+  }
+
+  @SuppressWarnings("deprecation")
+  private static long usedMemory(final RedissonClient redissonClient) {
+    final Node node = redissonClient.getNodesGroup().getNodes().iterator().next();
+    return Long.parseLong(node.info(Node.InfoSection.MEMORY).get("used_memory"));
+  }
+
+  private static CuisinesRegistry registry(final RedissonClient redissonClient) {
+    return new CuisinesRegistryImpl(new CuisineCustomersRedisAdapter(redissonClient), new CustomerCuisinesRedisAdapter(redissonClient));
+  }
+
+  private static RedissonClient client(final Codec codec) {
+    final Config config = new Config();
+    config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+    config.setCodec(codec);
+    return Redisson.create(config);
+  }
+}
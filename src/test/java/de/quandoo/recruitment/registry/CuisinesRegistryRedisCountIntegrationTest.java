@@ -0,0 +1,139 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.quandoo.recruitment.registry.adapters.redis.CuisineCustomersRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.CustomerCuisinesRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.entitiy.CuisineREntity;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.assertj.core.data.Percentage;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.config.Config;
+
+// cuisines whose name starts with "approximate-" are counted with a HyperLogLog
+@Slf4j
+public class CuisinesRegistryRedisCountIntegrationTest extends AbstractIntegrationTest {
+
+  private static RedissonClient redissonClient;
+  private static CuisinesRegistry cuisinesRegistry;
+
+  @BeforeAll
+  public static void beforeAll() {
+    AbstractIntegrationTest.startCluster();
+
+    final Config config = new Config();
+    config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+    config.setCodec(JsonJacksonCodec.INSTANCE);
+    redissonClient = Redisson.create(config);
+
+    cuisinesRegistry = new CuisinesRegistryImpl(
+        new CuisineCustomersRedisAdapter(redissonClient, cuisine -> cuisine.name().startsWith("approximate-")),
+        new CustomerCuisinesRedisAdapter(redissonClient));
+  }
+
+  @AfterAll
+  public static void afterAll() {
+    redissonClient.shutdown();
+    AbstractIntegrationTest.stopCluster();
+    cuisinesRegistry = null;
+  }
+
+  @Test
+  void shouldCountCustomersExactly() {
+    //given:
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("exact-french"));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("exact-french"));
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("exact-french")),
+        Registration.of(Customer.of("2"), Cuisine.of("exact-french")),
+        Registration.of(Customer.of("3"), Cuisine.of("exact-german"))));
+
+    //then:
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("exact-french"))).isEqualTo(2);
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("exact-german"))).isEqualTo(1);
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("exact-italian"))).isZero();
+  }
+
+  @Test
+  void shouldCountCustomersApproximatelyWithoutKeepingThem() {
+    //given: 20k customers, registered twice over, and one cuisine with a handful
+    final List<Registration> registrations = IntStream.range(0, 20_000)
+        .mapToObj(i -> Registration.of(Customer.of("customer-" + i), Cuisine.of("approximate-french")))
+        .collect(Collectors.toList());
+    cuisinesRegistry.registerAll(registrations.subList(0, 10_000));
+    registrations.subList(5_000, 20_000).forEach(registration -> cuisinesRegistry.register(registration.customer(), registration.cuisine()));
+    cuisinesRegistry.registerAll(registrations);
+    IntStream.range(0, 10).forEach(i -> cuisinesRegistry.register(Customer.of("customer-" + i), Cuisine.of("approximate-german")));
+
+    //when:
+    final long count = cuisinesRegistry.countCustomers(Cuisine.of("approximate-french"));
+    log.info("Approximate count of 20000 customers is {}", count);
+
+    //then:
+    assertThat(count).isCloseTo(20_000, Percentage.withPercentage(2));
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("approximate-german"))).isEqualTo(10);
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("approximate-french"))).isEmpty();
+    assertThat(cuisinesRegistry.topCuisines(2)).containsExactly(Cuisine.of("approximate-french"), Cuisine.of("approximate-german"));
+    // a dense HyperLogLog is a 16 byte header and 16384 six bit registers
+    final Long bytes = redissonClient.getScript().eval(RScript.Mode.READ_ONLY, "return redis.call('strlen', KEYS[1])",
+        RScript.ReturnType.INTEGER, List.of("approximate-french-customers-hll"));
+    assertThat(bytes).isLessThanOrEqualTo(16 + 12 * 1024);
+  }
+
+  @Test
+  void shouldBackfillThePopularityFromTheCustomerSets() {
+    //given: one cuisine missing from the ranking and one ranked wrong, as in a keyspace from before the ranking
+    final CuisineCustomersRedisAdapter adapter = new CuisineCustomersRedisAdapter(redissonClient, cuisine -> cuisine.name().startsWith("approximate-"));
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("backfill-french")),
+        Registration.of(Customer.of("2"), Cuisine.of("backfill-french")),
+        Registration.of(Customer.of("3"), Cuisine.of("backfill-french")),
+        Registration.of(Customer.of("1"), Cuisine.of("backfill-german"))));
+    final RScoredSortedSet<CuisineREntity> popularity = redissonClient.getScoredSortedSet("cuisine-popularity-zset");
+    popularity.remove(CuisineREntity.of(Cuisine.of("backfill-french")));
+    popularity.add(99, CuisineREntity.of(Cuisine.of("backfill-german")));
+
+    //when:
+    final int cuisines = adapter.backfillPopularity();
+    cuisinesRegistry.register(Customer.of("4"), Cuisine.of("backfill-french"));
+
+    //then:
+    assertThat(cuisines).isGreaterThanOrEqualTo(2);
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("backfill-french"))).isEqualTo(4);
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("backfill-german"))).isEqualTo(1);
+  }
+
+  @Test
+  void shouldNeverRankApproximateCuisinesBelowTheirCountWhenWritersRace() {
+    //given: single and batched registrations of the same cuisine in flight together
+    final Cuisine cuisine = Cuisine.of("approximate-spanish");
+    final CuisineCustomersRedisAdapter adapter = new CuisineCustomersRedisAdapter(redissonClient, c -> true);
+    final List<CompletableFuture<Void>> writes = IntStream.range(0, 2_000)
+        .mapToObj(i -> i % 100 == 0
+            ? adapter.registerAllAsync(IntStream.range(i, i + 100).mapToObj(j -> Registration.of(Customer.of("racer-" + j), cuisine)).toList())
+            : adapter.registerAsync(cuisine, Customer.of("racer-" + i)))
+        .toList();
+
+    //when:
+    CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+
+    //then: the last write to the ranking carries the final count
+    final Double score = redissonClient.getScoredSortedSet("cuisine-popularity-zset").getScore(CuisineREntity.of(cuisine));
+    assertThat(score).isEqualTo((double) cuisinesRegistry.countCustomers(cuisine));
+  }
+}
@@ -6,6 +6,7 @@ import static org.assertj.core.api.Assertions.assertThatNullPointerException;
 
 import de.quandoo.recruitment.registry.adapters.redis.CuisineCustomersRedisAdapter;
 import de.quandoo.recruitment.registry.adapters.redis.CustomerCuisinesRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.entitiy.CuisineREntity;
 import de.quandoo.recruitment.registry.api.CuisinesRegistry;
 import de.quandoo.recruitment.registry.model.Cuisine;
 import de.quandoo.recruitment.registry.model.Customer;
@@ -22,6 +23,7 @@ import org.redisson.config.Config;
 
 public class CuisinesRegistryRedisIntegrationTest extends AbstractIntegrationTest {
 
+  private static RedissonClient redissonClient;
   private static CuisinesRegistry cuisinesRegistry;
 
   @BeforeAll
@@ -31,7 +33,7 @@ public class CuisinesRegistryRedisIntegrationTest extends AbstractIntegrationTes
     final Config config = new Config();
     config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
     config.setCodec(JsonJacksonCodec.INSTANCE);
-    final RedissonClient redissonClient = Redisson.create(config);
+    redissonClient = Redisson.create(config);
 
     final CuisineCustomersPort cuisineCustomersPort = new CuisineCustomersRedisAdapter(redissonClient);
     final CustomerCuisinesPort customerCuisinesPort = new CustomerCuisinesRedisAdapter(redissonClient);
@@ -43,6 +45,7 @@ public class CuisinesRegistryRedisIntegrationTest extends AbstractIntegrationTes
 
   @AfterAll
   public static void afterAll() {
+    redissonClient.shutdown();
     AbstractIntegrationTest.stopCluster();
     cuisinesRegistry = null;
   }
@@ -112,6 +115,25 @@ public class CuisinesRegistryRedisIntegrationTest extends AbstractIntegrationTes
     assertThat(frCustomerList).containsExactlyInAnyOrder(Cuisine.of("american"), Cuisine.of("french"), Cuisine.of("italian"));
   }
 
+  @Test
+  void shouldRemoveCustomerFromBothIndexesAndPopularity() {
+    //given:
+    cuisinesRegistry.register(Customer.of("removed-1"), Cuisine.of("greek"));
+    cuisinesRegistry.register(Customer.of("removed-1"), Cuisine.of("ethiopian"));
+    cuisinesRegistry.register(Customer.of("removed-2"), Cuisine.of("greek"));
+
+    //when:
+    cuisinesRegistry.unregister(Customer.of("removed-2"), Cuisine.of("greek"));
+    cuisinesRegistry.removeCustomer(Customer.of("removed-1"));
+
+    //then:
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("removed-1"))).isEmpty();
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("removed-2"))).isEmpty();
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("greek"))).isEmpty();
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("ethiopian"))).isZero();
+    assertThat(cuisinesRegistry.topCuisines(10)).doesNotContain(Cuisine.of("greek"), Cuisine.of("ethiopian"));
+  }
+
   @Test
   void shouldThrowExceptionNullCuisineOnGetCustomers() {
     assertThatNullPointerException()
@@ -153,6 +175,24 @@ public class CuisinesRegistryRedisIntegrationTest extends AbstractIntegrationTes
     assertThat(top2Cuisines).containsExactlyInAnyOrder(Cuisine.of("german"), Cuisine.of("turkish"));
   }
 
+  @Test
+  void shouldCountCustomerOnceWhenRegisteredForSameCuisineAgain() {
+    //given:
+    for (int i = 0; i < 5; i++) {
+      cuisinesRegistry.register(Customer.of("500"), Cuisine.of("korean"));
+      cuisinesRegistry.register(Customer.of("501"), Cuisine.of("korean"));
+      cuisinesRegistry.register(Customer.of("502"), Cuisine.of("vietnamese"));
+    }
+
+    //when:
+    final List<Cuisine> topCuisines = cuisinesRegistry.topCuisines(100);
+
+    //then: the popularity score counts customers, not registrations
+    assertThat(topCuisines.indexOf(Cuisine.of("korean"))).isGreaterThan(topCuisines.indexOf(Cuisine.of("italian")));
+    assertThat(popularityScore(Cuisine.of("vietnamese"))).isEqualTo(1);
+    assertThat(popularityScore(Cuisine.of("korean"))).isEqualTo(2);
+  }
+
   @Test
   void shouldThrowIllegalArgExWhenTopNCuisinesLessThan1() {
     assertThatIllegalArgumentException()
@@ -179,4 +219,7 @@ public class CuisinesRegistryRedisIntegrationTest extends AbstractIntegrationTes
         .withMessage("Cuisine could not be null!");
   }
 
+  private static Double popularityScore(final Cuisine cuisine) {
+    return redissonClient.getScoredSortedSet("cuisine-popularity-zset").getScore(CuisineREntity.of(cuisine));
+  }
 }
@@ -0,0 +1,130 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.quandoo.recruitment.registry.adapters.redis.RedisScriptCuisinesRegistry;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+
+public class CuisinesRegistryRedisScriptIntegrationTest extends AbstractIntegrationTest {
+
+  private static RedissonClient redissonClient;
+  private static CuisinesRegistry cuisinesRegistry;
+
+  @BeforeAll
+  public static void beforeAll() {
+    AbstractIntegrationTest.startCluster();
+
+    final Config config = new Config();
+    config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+    redissonClient = Redisson.create(config);
+
+    cuisinesRegistry = new RedisScriptCuisinesRegistry(redissonClient);
+  }
+
+  @AfterAll
+  public static void afterAll() {
+    redissonClient.shutdown();
+    AbstractIntegrationTest.stopCluster();
+    cuisinesRegistry = null;
+  }
+
+  @BeforeEach
+  void setUp() {
+    redissonClient.getKeys().flushall();
+  }
+
+  @Test
+  void shouldRegisterBothIndexesAndPopularity() {
+    //given:
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("german")),
+        Registration.of(Customer.of("2"), Cuisine.of("french")),
+        Registration.of(Customer.of("2"), Cuisine.of("french")),
+        Registration.of(Customer.of("3"), Cuisine.of("italian"))));
+
+    //then:
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).containsExactlyInAnyOrder(Cuisine.of("french"), Cuisine.of("german"));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactlyInAnyOrder(Customer.of("1"), Customer.of("2"));
+    assertThat(cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french"))).containsExactlyInAnyOrder(Customer.of("1"), Customer.of("2"));
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isEqualTo(2);
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("spanish"))).isZero();
+    assertThat(cuisinesRegistry.topCuisines(1)).containsExactly(Cuisine.of("french"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("4"))).isEmpty();
+  }
+
+  @Test
+  void shouldRemoveFromBothIndexesAndPopularityInOneScript() {
+    //given:
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("french")),
+        Registration.of(Customer.of("1"), Cuisine.of("german")),
+        Registration.of(Customer.of("2"), Cuisine.of("french")),
+        Registration.of(Customer.of("2"), Cuisine.of("italian")),
+        Registration.of(Customer.of("3"), Cuisine.of("italian"))));
+
+    //when:
+    cuisinesRegistry.unregister(Customer.of("2"), Cuisine.of("italian"));
+    cuisinesRegistry.unregister(Customer.of("2"), Cuisine.of("italian"));
+    cuisinesRegistry.removeCustomer(Customer.of("1"));
+
+    //then:
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).isEmpty();
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("2"))).containsExactly(Cuisine.of("french"));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactly(Customer.of("2"));
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("italian"))).isEqualTo(1);
+    assertThat(cuisinesRegistry.topCuisines(3)).containsExactlyInAnyOrder(Cuisine.of("french"), Cuisine.of("italian"));
+  }
+
+  @Test
+  void shouldRankCuisinesByNewFollowersWithinTheWindow() {
+    //given:
+    cuisinesRegistry.registerAll(IntStream.range(0, 5)
+        .mapToObj(i -> Registration.of(Customer.of(String.valueOf(i)), Cuisine.of("german")))
+        .collect(Collectors.toList()));
+
+    //when:
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("german"));
+
+    //then:
+    assertThat(cuisinesRegistry.trendingCuisines(3, Duration.ofMinutes(10))).containsExactly(Cuisine.of("german"), Cuisine.of("french"));
+    assertThat(cuisinesRegistry.trendingCuisines(1, Duration.ofMinutes(10))).containsExactly(Cuisine.of("german"));
+    assertThat(redissonClient.getKeys().getKeysStreamByPattern("registry:cuisine-trending:union-*")).isEmpty();
+  }
+
+  @Test
+  void shouldReloadScriptWhenRedisLostIt() {
+    //given:
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    redissonClient.getScript().scriptFlush();
+
+    //when:
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    redissonClient.getScript().scriptFlush();
+    cuisinesRegistry.registerAll(IntStream.range(3, 10)
+        .mapToObj(i -> Registration.of(Customer.of(String.valueOf(i)), Cuisine.of("german")))
+        .collect(Collectors.toList()));
+
+    //then:
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isEqualTo(2);
+    assertThat(cuisinesRegistry.topCuisines(2)).containsExactly(Cuisine.of("german"), Cuisine.of("french"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("9"))).containsExactly(Cuisine.of("german"));
+  }
+}
@@ -0,0 +1,94 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.quandoo.recruitment.registry.adapters.redis.CuisineCustomersRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.CustomerCuisinesRedisAdapter;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.config.Config;
+
+public class CuisinesRegistryRedisStreamingIntegrationTest extends AbstractIntegrationTest {
+
+  private static RedissonClient redissonClient;
+  private static CuisinesRegistry cuisinesRegistry;
+
+  @BeforeAll
+  public static void beforeAll() {
+    AbstractIntegrationTest.startCluster();
+
+    final Config config = new Config();
+    config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+    config.setCodec(JsonJacksonCodec.INSTANCE);
+    redissonClient = Redisson.create(config);
+
+    cuisinesRegistry = new CuisinesRegistryImpl(
+        new CuisineCustomersRedisAdapter(redissonClient),
+        new CustomerCuisinesRedisAdapter(redissonClient));
+  }
+
+  @AfterAll
+  public static void afterAll() {
+    redissonClient.shutdown();
+    AbstractIntegrationTest.stopCluster();
+    cuisinesRegistry = null;
+  }
+
+  @Test
+  void shouldStreamCustomersOfLargeCuisine() {
+    //given: more customers than one scan returns
+    cuisinesRegistry.registerAll(customers("french", 5_000));
+
+    //when:
+    final List<Customer> streamed;
+    try (Stream<Customer> customers = cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french"))) {
+      streamed = customers.collect(Collectors.toList());
+    }
+
+    //then:
+    assertThat(streamed).containsExactlyInAnyOrderElementsOf(cuisinesRegistry.cuisineCustomers(Cuisine.of("french")));
+    assertThat(streamed).hasSize(5_000);
+    assertThat(cuisinesRegistry.streamCuisineCustomers(Cuisine.of("swedish"))).isEmpty();
+  }
+
+  @Test
+  void shouldNotLoseCustomersRegisteredBeforeStreamWhileRegisteringDuringIt() {
+    //given:
+    cuisinesRegistry.registerAll(customers("german", 3_000));
+
+    //when:
+    final List<Customer> streamed = new ArrayList<>();
+    try (Stream<Customer> customers = cuisinesRegistry.streamCuisineCustomers(Cuisine.of("german"))) {
+      final Iterator<Customer> iterator = customers.iterator();
+      streamed.add(iterator.next());
+      cuisinesRegistry.registerAll(customers("german-late", 1_000).stream()
+          .map(registration -> Registration.of(registration.customer(), Cuisine.of("german")))
+          .collect(Collectors.toList()));
+      iterator.forEachRemaining(streamed::add);
+    }
+
+    //then: a scan returns everything present for its whole duration, late customers may show up or not
+    assertThat(streamed).containsAll(customers("german", 3_000).stream().map(Registration::customer).collect(Collectors.toList()));
+    assertThat(streamed.size()).isBetween(3_000, 4_000);
+  }
+
+  private static List<Registration> customers(final String cuisine, final int customers) {
+    return IntStream.range(0, customers)
+        .mapToObj(i -> Registration.of(Customer.of(cuisine + "-customer-" + i), Cuisine.of(cuisine)))
+        .collect(Collectors.toList());
+  }
+}
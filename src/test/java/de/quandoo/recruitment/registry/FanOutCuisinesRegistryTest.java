@@ -0,0 +1,220 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+import de.quandoo.recruitment.registry.adapters.redis.CuisineCustomersRedisAdapter;
+import de.quandoo.recruitment.registry.adapters.redis.CustomerCuisinesRedisAdapter;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.config.Config;
+
+@Slf4j
+public class FanOutCuisinesRegistryTest extends AbstractIntegrationTest {
+
+  private static ExecutorService executorService;
+  private static RedissonClient redissonClient;
+
+  @BeforeAll
+  public static void beforeAll() {
+    AbstractIntegrationTest.startCluster();
+    final Config config = new Config();
+    config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+    config.setCodec(JsonJacksonCodec.INSTANCE);
+    redissonClient = Redisson.create(config);
+    executorService = Executors.newCachedThreadPool();
+  }
+
+  @AfterAll
+  public static void afterAll() {
+    executorService.shutdownNow();
+    redissonClient.shutdown();
+    AbstractIntegrationTest.stopCluster();
+  }
+
+  @Test
+  void shouldWriteBothIndexesConcurrentlyOnRedis() {
+    //given:
+    final CuisinesRegistry sequential = new CuisinesRegistryImpl(
+        new CuisineCustomersRedisAdapter(redissonClient), new CustomerCuisinesRedisAdapter(redissonClient));
+    final CuisinesRegistry fanOut = CuisinesRegistryImpl.builder()
+        .cuisineCustomersPort(new CuisineCustomersRedisAdapter(redissonClient))
+        .customerCuisinesPort(new CustomerCuisinesRedisAdapter(redissonClient))
+        .fanOutExecutor(executorService)
+        .build();
+    register(sequential, "warm-up-sequential", 200);
+    register(fanOut, "warm-up-fan-out", 200);
+
+    //when:
+    final long sequentialNanos = register(sequential, "sequential", 500);
+    final long fanOutNanos = register(fanOut, "fan-out", 500);
+    log.info("500 registrations took {} ms one index after the other and {} ms fanned out",
+        TimeUnit.NANOSECONDS.toMillis(sequentialNanos), TimeUnit.NANOSECONDS.toMillis(fanOutNanos));
+
+    //then:
+    assertThat(fanOut.cuisineCustomers(Cuisine.of("fan-out"))).hasSize(500);
+    assertThat(fanOut.customerCuisines(Customer.of("fan-out-499"))).containsExactly(Cuisine.of("fan-out"));
+  }
+
+  @Test
+  void shouldRetryTheFailedIndexWrite() {
+    //given: the customer index fails once
+    final FlakyCustomerCuisinesPort customerCuisinesPort = new FlakyCustomerCuisinesPort(1);
+    final CuisinesRegistry cuisinesRegistry = fanOutRegistry(customerCuisinesPort);
+
+    //when:
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.registerAll(List.of(Registration.of(Customer.of("2"), Cuisine.of("french"))));
+
+    //then:
+    assertThat(customerCuisinesPort.calls.get()).isEqualTo(3);
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).containsExactly(Cuisine.of("french"));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactlyInAnyOrder(Customer.of("1"), Customer.of("2"));
+  }
+
+  @Test
+  void shouldReportASingleFailureWhenTheRetryFails() {
+    //given: the customer index is down
+    final CuisinesRegistry cuisinesRegistry = fanOutRegistry(new FlakyCustomerCuisinesPort(Integer.MAX_VALUE));
+
+    //when, then: the retry's failure is suppressed
+    assertThatIllegalStateException()
+        .isThrownBy(() -> cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french")))
+        .withMessage("Customer index is down!")
+        .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1));
+  }
+
+  @Test
+  void shouldKeepExistingRegistrationsWhenTheRetryFails() {
+    //given:
+    final FlakyCustomerCuisinesPort customerCuisinesPort = new FlakyCustomerCuisinesPort(0);
+    final CuisinesRegistry cuisinesRegistry = fanOutRegistry(customerCuisinesPort);
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+
+    //when: the customer index goes down while the pairs are registered again
+    customerCuisinesPort.failures.set(Integer.MAX_VALUE);
+    assertThatIllegalStateException()
+        .isThrownBy(() -> cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french")));
+    assertThatIllegalStateException()
+        .isThrownBy(() -> cuisinesRegistry.registerAll(List.of(Registration.of(Customer.of("2"), Cuisine.of("french")))));
+
+    //then: both registrations survived on both indexes
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).containsExactly(Cuisine.of("french"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("2"))).containsExactly(Cuisine.of("french"));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactlyInAnyOrder(Customer.of("1"), Customer.of("2"));
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isEqualTo(2);
+    assertThat(cuisinesRegistry.topCuisines(1)).containsExactly(Cuisine.of("french"));
+  }
+
+  @Test
+  void shouldNotRegisterWhatAFailedUnregisterLeftBehind() {
+    //given:
+    final FlakyCustomerCuisinesPort customerCuisinesPort = new FlakyCustomerCuisinesPort(0);
+    final CuisinesRegistry cuisinesRegistry = fanOutRegistry(customerCuisinesPort);
+
+    //when: the customer index is down while a pair that was never registered is taken back
+    customerCuisinesPort.failures.set(Integer.MAX_VALUE);
+    assertThatIllegalStateException()
+        .isThrownBy(() -> cuisinesRegistry.unregister(Customer.of("1"), Cuisine.of("french")));
+    customerCuisinesPort.failures.set(0);
+
+    //then:
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).isEmpty();
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).isEmpty();
+  }
+
+  @Test
+  void shouldValidateArgumentsBeforeWriting() {
+    final FlakyCustomerCuisinesPort customerCuisinesPort = new FlakyCustomerCuisinesPort(0);
+    final CuisinesRegistry cuisinesRegistry = fanOutRegistry(customerCuisinesPort);
+
+    assertThatNullPointerException()
+        .isThrownBy(() -> cuisinesRegistry.register(null, Cuisine.of("french")))
+        .withMessage("Customer could not be null!");
+    assertThatNullPointerException()
+        .isThrownBy(() -> cuisinesRegistry.register(Customer.of("1"), null))
+        .withMessage("Cuisine could not be null!");
+    assertThat(customerCuisinesPort.calls.get()).isZero();
+  }
+
+  private static long register(final CuisinesRegistry cuisinesRegistry, final String cuisine, final int customers) {
+    final long start = System.nanoTime();
+    IntStream.range(0, customers).forEach(i -> cuisinesRegistry.register(Customer.of(cuisine + "-" + i), Cuisine.of(cuisine)));
+    return System.nanoTime() - start;
+  }
+
+  private static CuisinesRegistry fanOutRegistry(final CustomerCuisinesPort customerCuisinesPort) {
+    return CuisinesRegistryImpl.builder()
+        .cuisineCustomersPort(CuisineCustomersPort.getDefaultInstance())
+        .customerCuisinesPort(customerCuisinesPort)
+        .fanOutExecutor(executorService)
+        .build();
+  }
+
+  // fails the given number of writes before it starts working
+  private static class FlakyCustomerCuisinesPort implements CustomerCuisinesPort {
+
+    private final CustomerCuisinesPort delegate = CustomerCuisinesPort.getDefaultInstance();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failures;
+
+    private FlakyCustomerCuisinesPort(final int failures) {
+      this.failures = new AtomicInteger(failures);
+    }
+
+    @Override
+    public void register(final Customer customer, final Cuisine cuisine) {
+      failFirstCalls();
+      delegate.register(customer, cuisine);
+    }
+
+    @Override
+    public void registerAll(final Collection<Registration> registrations) {
+      failFirstCalls();
+      delegate.registerAll(registrations);
+    }
+
+    @Override
+    public void unregister(final Customer customer, final Cuisine cuisine) {
+      failFirstCalls();
+      delegate.unregister(customer, cuisine);
+    }
+
+    @Override
+    public List<Cuisine> removeCustomer(final Customer customer) {
+      return delegate.removeCustomer(customer);
+    }
+
+    @Override
+    public List<Cuisine> customerCuisines(final Customer customer) {
+      return delegate.customerCuisines(customer);
+    }
+
+    private void failFirstCalls() {
+      calls.incrementAndGet();
+      if (failures.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+        throw new IllegalStateException("Customer index is down!");
+      }
+    }
+  }
+}
@@ -2,15 +2,24 @@ package de.quandoo.recruitment.registry;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.assertj.core.api.Assertions.assertThatNullPointerException;
 
 import de.quandoo.recruitment.registry.api.CuisinesRegistry;
 import de.quandoo.recruitment.registry.model.Cuisine;
 import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
 import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
 import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -79,6 +88,26 @@ class InMemoryCuisinesRegistryTest {
     assertThat(frCustomerList).containsExactlyInAnyOrder(Cuisine.of("german"), Cuisine.of("french"), Cuisine.of("italian"));
   }
 
+  @Test
+  void shouldRegisterAll() {
+    //given:
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+
+    //when:
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("french")),
+        Registration.of(Customer.of("2"), Cuisine.of("french")),
+        Registration.of(Customer.of("2"), Cuisine.of("german")),
+        Registration.of(Customer.of("3"), Cuisine.of("german")),
+        Registration.of(Customer.of("3"), Cuisine.of("german")),
+        Registration.of(Customer.of("4"), Cuisine.of("german"))));
+
+    //then:
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactlyInAnyOrder(Customer.of("1"), Customer.of("2"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("2"))).containsExactlyInAnyOrder(Cuisine.of("french"), Cuisine.of("german"));
+    assertThat(cuisinesRegistry.topCuisines(2)).containsExactly(Cuisine.of("german"), Cuisine.of("french"));
+  }
+
   @Test
   void shouldThrowExceptionNullCuisineOnGetCustomers() {
     assertThatNullPointerException()
@@ -237,5 +266,144 @@ class InMemoryCuisinesRegistryTest {
         .withMessage("Cuisine could not be null!");
   }
 
+  @Test
+  void shouldStreamCustomersRegisteredWhileIterating() {
+    //given:
+    cuisinesRegistry.registerAll(IntStream.range(0, 10_000)
+        .mapToObj(i -> Registration.of(Customer.of("customer-" + i), Cuisine.of("french")))
+        .collect(Collectors.toList()));
+
+    //when:
+    final long streamed;
+    try (Stream<Customer> customers = cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french"))) {
+      final Iterator<Customer> iterator = customers.iterator();
+      iterator.next();
+      cuisinesRegistry.register(Customer.of("latecomer"), Cuisine.of("french"));
+      long count = 1;
+      for (; iterator.hasNext(); iterator.next()) {
+        count++;
+      }
+      streamed = count;
+    }
+
+    //then: weakly consistent, the latecomer may or may not be seen but nothing is lost or repeated
+    assertThat(streamed).isBetween(10_000L, 10_001L);
+    assertThat(cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french")).distinct().count()).isEqualTo(10_001);
+    assertThat(cuisinesRegistry.streamCuisineCustomers(Cuisine.of("italian"))).isEmpty();
+  }
+
+  @Test
+  void shouldCountCustomersOfCuisine() {
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("2"), Cuisine.of("german")),
+        Registration.of(Customer.of("3"), Cuisine.of("french"))));
+
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isEqualTo(3);
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("german"))).isEqualTo(1);
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("italian"))).isZero();
+  }
+
+  @Test
+  void shouldMoveCuisineDownTopCuisinesOnUnregister() {
+    //given:
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("french")),
+        Registration.of(Customer.of("2"), Cuisine.of("french")),
+        Registration.of(Customer.of("3"), Cuisine.of("french")),
+        Registration.of(Customer.of("4"), Cuisine.of("french")),
+        Registration.of(Customer.of("1"), Cuisine.of("german")),
+        Registration.of(Customer.of("2"), Cuisine.of("german")),
+        Registration.of(Customer.of("3"), Cuisine.of("german")),
+        Registration.of(Customer.of("1"), Cuisine.of("italian")),
+        Registration.of(Customer.of("2"), Cuisine.of("italian"))));
+
+    //when:
+    cuisinesRegistry.unregister(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.unregister(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.unregister(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.unregister(Customer.of("3"), Cuisine.of("french"));
+    cuisinesRegistry.unregister(Customer.of("5"), Cuisine.of("spanish"));
+
+    //then:
+    assertThat(cuisinesRegistry.topCuisines(3)).containsExactly(Cuisine.of("german"), Cuisine.of("italian"), Cuisine.of("french"));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactly(Customer.of("4"));
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isEqualTo(1);
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).containsExactlyInAnyOrder(Cuisine.of("german"), Cuisine.of("italian"));
+  }
+
+  @Test
+  void shouldRemoveCustomerFromBothIndexes() {
+    //given:
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("german"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("german"));
+
+    //when:
+    cuisinesRegistry.removeCustomer(Customer.of("1"));
+    cuisinesRegistry.removeCustomer(Customer.of("3"));
+
+    //then:
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).isEmpty();
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("german"))).containsExactly(Customer.of("2"));
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isZero();
+    assertThat(cuisinesRegistry.topCuisines(2)).containsExactly(Cuisine.of("german"));
+
+    //when: registering again starts from scratch
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+
+    //then:
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).containsExactly(Cuisine.of("french"));
+    assertThat(cuisinesRegistry.topCuisines(2)).containsExactly(Cuisine.of("german"), Cuisine.of("french"));
+  }
+
+  @Test
+  void shouldShareUnmodifiableSnapshotsBetweenReads() {
+    //given:
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    final List<Customer> customers = cuisinesRegistry.cuisineCustomers(Cuisine.of("french"));
+    final List<Cuisine> cuisines = cuisinesRegistry.customerCuisines(Customer.of("1"));
 
+    //when:
+    cuisinesRegistry.register(Customer.of("3"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("german"));
+    cuisinesRegistry.unregister(Customer.of("2"), Cuisine.of("french"));
+
+    //then: earlier reads keep their snapshot, reads without a write in between get the same one
+    assertThat(customers).containsExactly(Customer.of("1"), Customer.of("2"));
+    assertThat(cuisines).containsExactly(Cuisine.of("french"));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french")))
+        .containsExactly(Customer.of("1"), Customer.of("3"))
+        .isSameAs(cuisinesRegistry.cuisineCustomers(Cuisine.of("french")));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1")))
+        .isSameAs(cuisinesRegistry.customerCuisines(Customer.of("1")));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("4"))).isEmpty();
+    assertThat((Object) cuisinesRegistry.customerCuisines(Customer.of("4"))).isSameAs(cuisinesRegistry.cuisineCustomers(Cuisine.of("italian")));
+    assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> customers.add(Customer.of("4")));
+  }
+
+  @Test
+  void shouldKeepFollowersAndEarlierSnapshotsWhileManyLeave() {
+    //given: enough followers for the snapshot to span several levels of leaves
+    final List<Customer> followers = IntStream.range(0, 40_000).mapToObj(String::valueOf).map(Customer::of).collect(Collectors.toList());
+    followers.forEach(customer -> cuisinesRegistry.register(customer, Cuisine.of("french")));
+    final List<Customer> before = cuisinesRegistry.cuisineCustomers(Cuisine.of("french"));
+    final List<Customer> leaving = new ArrayList<>(followers.subList(0, 30_000));
+    Collections.shuffle(leaving, new Random(7));
+
+    //when:
+    leaving.forEach(customer -> cuisinesRegistry.unregister(customer, Cuisine.of("french")));
+    final List<Customer> afterLeaving = cuisinesRegistry.cuisineCustomers(Cuisine.of("french"));
+    followers.subList(0, 10).forEach(customer -> cuisinesRegistry.register(customer, Cuisine.of("french")));
+    followers.subList(0, 40_000).forEach(customer -> cuisinesRegistry.unregister(customer, Cuisine.of("french")));
+
+    //then:
+    assertThat(before).containsExactlyElementsOf(followers);
+    assertThat(afterLeaving).containsExactlyInAnyOrderElementsOf(followers.subList(30_000, 40_000));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).isEmpty();
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isZero();
+  }
 }
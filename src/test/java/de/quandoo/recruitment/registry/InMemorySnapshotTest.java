@@ -0,0 +1,164 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import de.quandoo.recruitment.registry.adapters.inmemory.CuisineCustomersInMemoryAdapter;
+import de.quandoo.recruitment.registry.adapters.inmemory.CustomerCuisinesInMemoryAdapter;
+import de.quandoo.recruitment.registry.adapters.inmemory.InMemorySnapshot;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.wal.Durability;
+import de.quandoo.recruitment.registry.wal.WriteAheadLog;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Slf4j
+class InMemorySnapshotTest {
+
+  @TempDir
+  Path directory;
+
+  private Path snapshot;
+  private CuisineCustomersInMemoryAdapter cuisineCustomersPort;
+  private CustomerCuisinesInMemoryAdapter customerCuisinesPort;
+  private CuisinesRegistry cuisinesRegistry;
+
+  @BeforeEach
+  void setUp() {
+    snapshot = directory.resolve("registry.snapshot");
+    cuisineCustomersPort = new CuisineCustomersInMemoryAdapter();
+    customerCuisinesPort = new CustomerCuisinesInMemoryAdapter();
+    cuisinesRegistry = new CuisinesRegistryImpl(cuisineCustomersPort, customerCuisinesPort);
+  }
+
+  @Test
+  void shouldRestoreRegistrationsAndRanking() {
+    //given:
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("german"));
+    cuisinesRegistry.register(Customer.of("3"), Cuisine.of("german"));
+    cuisinesRegistry.register(Customer.of("3"), Cuisine.of("\u017curek"));
+    InMemorySnapshot.write(snapshot, cuisineCustomersPort, customerCuisinesPort);
+
+    //when:
+    final CuisinesRegistry restored = restore();
+
+    //then:
+    assertThat(restored.cuisineCustomers(Cuisine.of("german"))).containsExactlyInAnyOrder(Customer.of("2"), Customer.of("3"));
+    assertThat(restored.customerCuisines(Customer.of("3"))).containsExactlyInAnyOrder(Cuisine.of("german"), Cuisine.of("\u017curek"));
+    assertThat(restored.topCuisines(1)).containsExactly(Cuisine.of("german"));
+    restored.register(Customer.of("4"), Cuisine.of("french"));
+    restored.register(Customer.of("5"), Cuisine.of("french"));
+    assertThat(restored.topCuisines(1)).containsExactly(Cuisine.of("french"));
+  }
+
+  @Test
+  void shouldRestoreLargeCuisinesSplitAcrossBlocks() {
+    //given: more customers than fit in a single block
+    final List<Registration> registrations = IntStream.range(0, 200_000)
+        .mapToObj(i -> Registration.of(Customer.of("customer-" + i), Cuisine.of(i % 10 == 0 ? "cuisine-rare" : "cuisine-popular")))
+        .toList();
+    cuisinesRegistry.registerAll(registrations);
+    InMemorySnapshot.write(snapshot, cuisineCustomersPort, customerCuisinesPort);
+
+    //when:
+    final CuisinesRegistry restored = restore();
+
+    //then:
+    assertThat(restored.cuisineCustomers(Cuisine.of("cuisine-popular"))).hasSize(180_000);
+    assertThat(restored.cuisineCustomers(Cuisine.of("cuisine-rare"))).hasSize(20_000);
+    assertThat(restored.customerCuisines(Customer.of("customer-199999"))).containsExactly(Cuisine.of("cuisine-popular"));
+    assertThat(restored.topCuisines(2)).containsExactly(Cuisine.of("cuisine-popular"), Cuisine.of("cuisine-rare"));
+  }
+
+  @Test
+  void shouldWriteSnapshotWhileRegistering() {
+    //given: registrations made before the snapshot starts, and a writer that keeps going while it is written
+    IntStream.range(0, 10_000).forEach(i -> cuisinesRegistry.register(Customer.of("before-" + i), Cuisine.of("cuisine-" + i % 50)));
+    final AtomicBoolean writing = new AtomicBoolean(true);
+    final CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+      for (int i = 0; writing.get(); i++) {
+        cuisinesRegistry.register(Customer.of("during-" + i), Cuisine.of("cuisine-" + i % 50));
+      }
+    });
+
+    //when:
+    InMemorySnapshot.write(snapshot, cuisineCustomersPort, customerCuisinesPort);
+    writing.set(false);
+    writer.join();
+    final CuisinesRegistry restored = restore();
+
+    //then: everything registered before the snapshot started is in it
+    IntStream.range(0, 50).forEach(i -> assertThat(restored.cuisineCustomers(Cuisine.of("cuisine-" + i))).hasSizeGreaterThanOrEqualTo(200));
+    assertThat(restored.customerCuisines(Customer.of("before-9999"))).containsExactly(Cuisine.of("cuisine-49"));
+  }
+
+  // A coarse check only, the best of a few warm runs each against replaying the write-ahead log the registry would
+  // otherwise start from. SnapshotRestoreBenchmark measures the two up to 50M edges.
+  @Test
+  void shouldRestoreALargeRegistryFasterThanReplayingItsLog() {
+    //given:
+    final List<Registration> registrations = IntStream.range(0, 500_000)
+        .mapToObj(i -> Registration.of(Customer.of("customer-" + i % 100_000), Cuisine.of("cuisine-" + i % 997)))
+        .toList();
+    final WriteAheadLog writeAheadLog = WriteAheadLog.open(directory.resolve("registry.wal"), Durability.ASYNC);
+    new CuisinesRegistryImpl(cuisineCustomersPort, customerCuisinesPort, writeAheadLog).registerAll(registrations);
+    writeAheadLog.close();
+    InMemorySnapshot.write(snapshot, cuisineCustomersPort, customerCuisinesPort);
+
+    //when:
+    final long replayNanos = bestOf(3, () -> {
+      final WriteAheadLog replayed = WriteAheadLog.open(directory.resolve("registry.wal"), Durability.ASYNC);
+      new CuisinesRegistryImpl(new CuisineCustomersInMemoryAdapter(), new CustomerCuisinesInMemoryAdapter(), replayed);
+      replayed.close();
+    });
+    final long restoreNanos = bestOf(3, this::restore);
+    final CuisinesRegistry restored = restore();
+    log.info("Replayed {} registrations in {} ms, restored them in {} ms", registrations.size(),
+        TimeUnit.NANOSECONDS.toMillis(replayNanos), TimeUnit.NANOSECONDS.toMillis(restoreNanos));
+
+    //then:
+    assertThat(restoreNanos * 3).isLessThan(replayNanos);
+    assertThat(restored.topCuisines(997)).containsExactlyInAnyOrderElementsOf(cuisinesRegistry.topCuisines(997));
+    assertThat(restored.customerCuisines(Customer.of("customer-7"))).hasSize(5);
+    assertThat(restored.cuisineCustomers(Cuisine.of("cuisine-7"))).hasSameSizeAs(cuisinesRegistry.cuisineCustomers(Cuisine.of("cuisine-7")));
+  }
+
+  @Test
+  void shouldOnlyRestoreIntoEmptyAdapters() {
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    InMemorySnapshot.write(snapshot, cuisineCustomersPort, customerCuisinesPort);
+
+    assertThatIllegalStateException()
+        .isThrownBy(() -> InMemorySnapshot.restore(snapshot, cuisineCustomersPort, customerCuisinesPort))
+        .withMessage("Snapshot can only be restored into empty adapters!");
+  }
+
+  private static long bestOf(final int runs, final Runnable run) {
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < runs; i++) {
+      final long start = System.nanoTime();
+      run.run();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return best;
+  }
+
+  private CuisinesRegistry restore() {
+    final CuisineCustomersInMemoryAdapter cuisineCustomers = new CuisineCustomersInMemoryAdapter();
+    final CustomerCuisinesInMemoryAdapter customerCuisines = new CustomerCuisinesInMemoryAdapter();
+    InMemorySnapshot.restore(snapshot, cuisineCustomers, customerCuisines);
+    return new CuisinesRegistryImpl(cuisineCustomers, customerCuisines);
+  }
+}
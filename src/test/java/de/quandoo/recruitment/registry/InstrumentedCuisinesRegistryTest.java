@@ -0,0 +1,120 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.instrumentation.InstrumentedCuisineCustomersPort;
+import de.quandoo.recruitment.registry.instrumentation.InstrumentedCuisinesRegistry;
+import de.quandoo.recruitment.registry.instrumentation.InstrumentedCustomerCuisinesPort;
+import de.quandoo.recruitment.registry.instrumentation.OperationMetrics;
+import de.quandoo.recruitment.registry.instrumentation.OperationMetricsGroup;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.stream.IntStream;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InstrumentedCuisinesRegistryTest {
+
+  private InstrumentedCuisineCustomersPort cuisineCustomersPort;
+  private InstrumentedCustomerCuisinesPort customerCuisinesPort;
+  private InstrumentedCuisinesRegistry cuisinesRegistry;
+
+  @BeforeEach
+  void setUp() {
+    cuisineCustomersPort = new InstrumentedCuisineCustomersPort(CuisineCustomersPort.getDefaultInstance(), "test");
+    customerCuisinesPort = new InstrumentedCustomerCuisinesPort(CustomerCuisinesPort.getDefaultInstance(), "test");
+    cuisinesRegistry = new InstrumentedCuisinesRegistry(new CuisinesRegistryImpl(cuisineCustomersPort, customerCuisinesPort), "test");
+  }
+
+  @AfterEach
+  void tearDown() {
+    cuisinesRegistry.metrics().close();
+  }
+
+  @Test
+  void shouldCountCallsAndResultSizes() {
+    //given:
+    IntStream.range(0, 10).forEach(i -> cuisinesRegistry.register(Customer.of("customer-" + i), Cuisine.of("french")));
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("german")),
+        Registration.of(Customer.of("2"), Cuisine.of("german"))));
+
+    //when:
+    cuisinesRegistry.cuisineCustomers(Cuisine.of("french"));
+    cuisinesRegistry.cuisineCustomers(Cuisine.of("german"));
+    cuisinesRegistry.topCuisines(5);
+
+    //then:
+    final OperationMetrics register = operation(cuisinesRegistry.metrics(), "register");
+    assertThat(register.getCount()).isEqualTo(10);
+    assertThat(register.getErrorCount()).isZero();
+    assertThat(register.getLatencyP99Micros()).isPositive().isLessThanOrEqualTo(register.getMaxLatencyMicros());
+    assertThat(operation(cuisinesRegistry.metrics(), "registerAll").getMaxResultSize()).isEqualTo(2);
+    final OperationMetrics cuisineCustomers = operation(cuisinesRegistry.metrics(), "cuisineCustomers");
+    assertThat(cuisineCustomers.getCount()).isEqualTo(2);
+    assertThat(cuisineCustomers.getMeanResultSize()).isEqualTo(6.0);
+    assertThat(cuisineCustomers.getMaxResultSize()).isEqualTo(10);
+    assertThat(operation(cuisinesRegistry.metrics(), "topCuisines").getMaxResultSize()).isEqualTo(2);
+    assertThat(operation(cuisineCustomersPort.metrics(), "register").getCount()).isEqualTo(10);
+    assertThat(operation(customerCuisinesPort.metrics(), "registerAll").getCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldCountErrors() {
+    //when:
+    assertThatNullPointerException().isThrownBy(() -> cuisinesRegistry.register(null, Cuisine.of("french")));
+    assertThatNullPointerException().isThrownBy(() -> cuisinesRegistry.cuisineCustomers(null));
+
+    //then:
+    assertThat(operation(cuisinesRegistry.metrics(), "register").getErrorCount()).isEqualTo(1);
+    assertThat(operation(cuisinesRegistry.metrics(), "register").getCount()).isEqualTo(1);
+    assertThat(operation(cuisinesRegistry.metrics(), "cuisineCustomers").getErrorCount()).isEqualTo(1);
+    assertThat(operation(cuisinesRegistry.metrics(), "cuisineCustomers").getMaxResultSize()).isZero();
+  }
+
+  @Test
+  void shouldResetStatistics() {
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    final OperationMetrics register = operation(cuisinesRegistry.metrics(), "register");
+
+    register.reset();
+
+    assertThat(register.getCount()).isZero();
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    assertThat(register.getCount()).isEqualTo(1);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldExposeStatisticsThroughJmx() {
+    //given:
+    final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    cuisinesRegistry.metrics().registerMBeans(mBeanServer);
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    final ObjectName objectName = new ObjectName("de.quandoo.recruitment.registry:type=CuisinesRegistry,name=\"test\",operation=register");
+
+    //when:
+    final Object count = mBeanServer.getAttribute(objectName, "Count");
+
+    //then:
+    assertThat(count).isEqualTo(1L);
+    assertThat(mBeanServer.queryNames(new ObjectName("de.quandoo.recruitment.registry:type=CuisinesRegistry,*"), null)).hasSize(10);
+    cuisinesRegistry.metrics().close();
+    assertThat(mBeanServer.isRegistered(objectName)).isFalse();
+  }
+
+  private static OperationMetrics operation(final OperationMetricsGroup metrics, final String name) {
+    return metrics.operations().stream().filter(operation -> operation.name().equals(name)).findFirst().orElseThrow();
+  }
+}
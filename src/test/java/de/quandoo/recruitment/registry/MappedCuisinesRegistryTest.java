@@ -0,0 +1,328 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+import de.quandoo.recruitment.registry.adapters.mmap.CuisineCustomersMappedAdapter;
+import de.quandoo.recruitment.registry.adapters.mmap.CustomerCuisinesMappedAdapter;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Slf4j
+class MappedCuisinesRegistryTest {
+
+  @TempDir
+  Path directory;
+
+  private CuisineCustomersMappedAdapter cuisineCustomersPort;
+  private CustomerCuisinesMappedAdapter customerCuisinesPort;
+  private CuisinesRegistry cuisinesRegistry;
+
+  @BeforeEach
+  void setUp() {
+    open();
+  }
+
+  @AfterEach
+  void tearDown() {
+    close();
+  }
+
+  @Test
+  void shouldRegisterCuisinesAndCustomers() {
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("german"));
+
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactlyInAnyOrder(Customer.of("1"), Customer.of("2"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("2"))).containsExactlyInAnyOrder(Cuisine.of("french"), Cuisine.of("german"));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("italian"))).isEmpty();
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("3"))).isEmpty();
+    assertThat(cuisinesRegistry.topCuisines(2)).containsExactly(Cuisine.of("french"), Cuisine.of("german"));
+  }
+
+  @Test
+  void shouldNotMixCustomerIdsAndCuisineNames() {
+    cuisinesRegistry.register(Customer.of("french"), Cuisine.of("german"));
+
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).isEmpty();
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("german"))).isEmpty();
+  }
+
+  @Test
+  void shouldKeepRegistrationsAfterReopening() {
+    //given:
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("french")),
+        Registration.of(Customer.of("2"), Cuisine.of("german")),
+        Registration.of(Customer.of("3"), Cuisine.of("german"))));
+    cuisinesRegistry.topCuisines(1);
+
+    //when:
+    close();
+    open();
+    cuisinesRegistry.register(Customer.of("4"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("5"), Cuisine.of("french"));
+
+    //then:
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("german"))).containsExactlyInAnyOrder(Customer.of("2"), Customer.of("3"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).containsExactly(Cuisine.of("french"));
+    assertThat(cuisinesRegistry.topCuisines(2)).containsExactly(Cuisine.of("french"), Cuisine.of("german"));
+  }
+
+  @Test
+  void shouldGrowTablesAndReopenQuickly() {
+    //given: enough strings and pairs to resize both tables several times
+    final List<Registration> registrations = IntStream.range(0, 50_000)
+        .mapToObj(i -> Registration.of(Customer.of("customer-" + i), Cuisine.of("cuisine-" + i % 500)))
+        .toList();
+    cuisinesRegistry.registerAll(registrations);
+
+    //when:
+    close();
+    final long start = System.nanoTime();
+    open();
+    final long reopenMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    log.info("Reopened {} registrations in {} ms", registrations.size(), reopenMillis);
+
+    //then:
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("cuisine-7"))).hasSize(100).contains(Customer.of("customer-7"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("customer-49999"))).containsExactly(Cuisine.of("cuisine-499"));
+    assertThat(cuisinesRegistry.topCuisines(500)).hasSize(500);
+  }
+
+  @Test
+  void shouldValidateArguments() {
+    assertThatNullPointerException()
+        .isThrownBy(() -> cuisinesRegistry.register(null, Cuisine.of("french")))
+        .withMessage("Customer could not be null!");
+    assertThatNullPointerException()
+        .isThrownBy(() -> cuisinesRegistry.cuisineCustomers(null))
+        .withMessage("Cuisine could not be null!");
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> cuisinesRegistry.topCuisines(0))
+        .withMessage("n should be greater than zero!");
+  }
+
+  @Test
+  void shouldStreamCustomersPageByPage() {
+    //given: several pages of customers
+    cuisinesRegistry.registerAll(IntStream.range(0, 5_000)
+        .mapToObj(i -> Registration.of(Customer.of("customer-" + i), Cuisine.of("french")))
+        .collect(Collectors.toList()));
+
+    //when:
+    final List<Customer> streamed;
+    try (Stream<Customer> customers = cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french"))) {
+      streamed = customers.peek(customer -> cuisinesRegistry.register(Customer.of("latecomer"), Cuisine.of("french")))
+          .collect(Collectors.toList());
+    }
+
+    //then: customers registered after the stream was opened are not seen
+    assertThat(streamed).hasSize(5_000).doesNotHaveDuplicates().doesNotContain(Customer.of("latecomer"));
+    assertThat(streamed).containsExactlyInAnyOrderElementsOf(IntStream.range(0, 5_000)
+        .mapToObj(i -> Customer.of("customer-" + i)).collect(Collectors.toList()));
+    assertThat(cuisinesRegistry.streamCuisineCustomers(Cuisine.of("italian"))).isEmpty();
+  }
+
+  @Test
+  void shouldCountCustomersOfCuisineAcrossReopen() {
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("2"), Cuisine.of("german")),
+        Registration.of(Customer.of("3"), Cuisine.of("french"))));
+
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isEqualTo(3);
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("german"))).isEqualTo(1);
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("italian"))).isZero();
+    close();
+    open();
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isEqualTo(3);
+  }
+
+  @Test
+  void shouldKeepRemovalsAfterReopening() {
+    //given:
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("french")),
+        Registration.of(Customer.of("1"), Cuisine.of("german")),
+        Registration.of(Customer.of("2"), Cuisine.of("french")),
+        Registration.of(Customer.of("3"), Cuisine.of("french"))));
+
+    //when:
+    cuisinesRegistry.unregister(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.removeCustomer(Customer.of("1"));
+    close();
+    open();
+
+    //then:
+    assertThat(cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french"))).containsExactly(Customer.of("3"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).isEmpty();
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isEqualTo(1);
+    assertThat(cuisinesRegistry.topCuisines(2)).containsExactly(Cuisine.of("french"));
+
+    //when: a removed registration can be made again
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+
+    //then:
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactlyInAnyOrder(Customer.of("2"), Customer.of("3"));
+  }
+
+  @Test
+  @SneakyThrows(IOException.class)
+  void shouldRejectStoreWrittenWithAnotherSegmentSize() {
+    //given:
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    close();
+
+    //when: the header says the data file was laid out in 1MB segments
+    final int segmentSize;
+    try (FileChannel data = FileChannel.open(directory.resolve("cuisine-customers.data"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+      data.read(header, 40);
+      segmentSize = header.getInt(0);
+      data.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 1 << 20), 40);
+    }
+
+    //then:
+    assertThat(segmentSize).isEqualTo(1 << 26);
+    assertThatIllegalStateException()
+        .isThrownBy(() -> new CuisineCustomersMappedAdapter(directory))
+        .withMessage("cuisine-customers was written with 1048576 byte data segments, not 67108864!");
+
+    //when: the original header is back
+    try (FileChannel data = FileChannel.open(directory.resolve("cuisine-customers.data"), StandardOpenOption.WRITE)) {
+      data.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, segmentSize), 40);
+    }
+    open();
+
+    //then:
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactly(Customer.of("1"));
+  }
+
+  @Test
+  @SneakyThrows(IOException.class)
+  void shouldCompactRemovedRegistrations() {
+    //given: most customers gone again
+    cuisinesRegistry.registerAll(IntStream.range(0, 20_000)
+        .mapToObj(i -> Registration.of(Customer.of("customer-" + i), Cuisine.of(i % 2 == 0 ? "french" : "german")))
+        .collect(Collectors.toList()));
+    IntStream.range(100, 20_000).forEach(i -> cuisinesRegistry.removeCustomer(Customer.of("customer-" + i)));
+    cuisinesRegistry.register(Customer.of("customer-0"), Cuisine.of("italian"));
+    final List<Customer> french = cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french")).toList();
+    final long stringsBefore = Files.size(directory.resolve("customer-cuisines.strings"));
+
+    //when:
+    cuisineCustomersPort.compact();
+    customerCuisinesPort.compact();
+
+    //then: only the live registrations are left, in their order
+    assertThat(Files.size(directory.resolve("customer-cuisines.strings"))).isLessThan(stringsBefore / 10);
+    assertThat(cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french"))).hasSize(50).containsExactlyElementsOf(french);
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("customer-0"))).containsExactlyInAnyOrder(Cuisine.of("french"), Cuisine.of("italian"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("customer-200"))).isEmpty();
+    assertThat(cuisinesRegistry.topCuisines(3)).containsExactly(Cuisine.of("french"), Cuisine.of("german"), Cuisine.of("italian"));
+    assertThat(Files.list(directory)).noneMatch(file -> file.getFileName().toString().contains(".compact"));
+
+    //when:
+    close();
+    open();
+    cuisinesRegistry.register(Customer.of("customer-200"), Cuisine.of("german"));
+
+    //then:
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("german"))).isEqualTo(51);
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactlyElementsOf(french);
+  }
+
+  @Test
+  void shouldFailStreamsOnceCompactedOrClosed() {
+    //given: streams with pages left to read
+    cuisinesRegistry.registerAll(IntStream.range(0, 5_000)
+        .mapToObj(i -> Registration.of(Customer.of("customer-" + i), Cuisine.of("french")))
+        .collect(Collectors.toList()));
+    final Iterator<Customer> compacted = cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french")).iterator();
+    compacted.next();
+
+    //when: then:
+    cuisineCustomersPort.compact();
+    assertThatExceptionOfType(ConcurrentModificationException.class)
+        .isThrownBy(() -> compacted.forEachRemaining(customer -> { }))
+        .withMessage("Customers were compacted while streaming!");
+
+    //given:
+    final Iterator<Customer> closed = cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french")).iterator();
+    closed.next();
+
+    //when: then:
+    close();
+    assertThatIllegalStateException()
+        .isThrownBy(() -> closed.forEachRemaining(customer -> { }))
+        .withMessage("cuisine-customers is closed!");
+    assertThatIllegalStateException()
+        .isThrownBy(() -> cuisineCustomersPort.countCustomers(Cuisine.of("french")))
+        .withMessage("cuisine-customers is closed!");
+  }
+
+  @Test
+  @SneakyThrows(IOException.class)
+  void shouldListTheCuisinesOfStoresWrittenWithoutTheList() {
+    //given:
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("1"), Cuisine.of("french")),
+        Registration.of(Customer.of("2"), Cuisine.of("german")),
+        Registration.of(Customer.of("3"), Cuisine.of("german"))));
+    close();
+
+    //when: the header has no list of cuisines
+    try (FileChannel data = FileChannel.open(directory.resolve("cuisine-customers.data"), StandardOpenOption.WRITE)) {
+      data.write(ByteBuffer.allocate(16), 48);
+    }
+    open();
+
+    //then:
+    assertThat(cuisinesRegistry.topCuisines(3)).containsExactly(Cuisine.of("german"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("italian"));
+    close();
+    open();
+    assertThat(cuisinesRegistry.topCuisines(3)).startsWith(Cuisine.of("german"))
+        .containsExactlyInAnyOrder(Cuisine.of("german"), Cuisine.of("french"), Cuisine.of("italian"));
+  }
+
+  private void open() {
+    cuisineCustomersPort = new CuisineCustomersMappedAdapter(directory);
+    customerCuisinesPort = new CustomerCuisinesMappedAdapter(directory);
+    cuisinesRegistry = new CuisinesRegistryImpl(cuisineCustomersPort, customerCuisinesPort);
+  }
+
+  private void close() {
+    cuisineCustomersPort.close();
+    customerCuisinesPort.close();
+  }
+}
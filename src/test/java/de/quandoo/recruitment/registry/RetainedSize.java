@@ -0,0 +1,113 @@
+package de.quandoo.recruitment.registry;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Bytes reachable from a root, added up object by object instead of read off the heap after a GC, so the same graph
+// always gives the same size. Shallow sizes follow the 64 bit HotSpot layout with compressed oops and class pointers:
+// a 12 byte header, 16 for arrays, 4 byte references, fields packed and every object aligned to 8 bytes.
+// Classes are shared by everything and not counted. Reading JDK internals needs the --add-opens of the test task.
+final class RetainedSize {
+
+  private static final int OBJECT_HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 4;
+  private static final int ALIGNMENT = 8;
+
+  private static final Map<Class<?>, List<Field>> FIELDS = new IdentityHashMap<>();
+
+  private RetainedSize() {
+  }
+
+  static long of(final Object root) {
+    final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    final Deque<Object> pending = new ArrayDeque<>();
+    pending.push(root);
+    long size = 0;
+    while (!pending.isEmpty()) {
+      final Object object = pending.pop();
+      if (object instanceof Class<?> || !visited.add(object)) {
+        continue;
+      }
+      final Class<?> type = object.getClass();
+      if (type.isArray()) {
+        final int length = Array.getLength(object);
+        final Class<?> component = type.getComponentType();
+        size += align(ARRAY_HEADER + (long) length * width(component));
+        if (!component.isPrimitive()) {
+          for (int i = 0; i < length; i++) {
+            push(pending, Array.get(object, i));
+          }
+        }
+        continue;
+      }
+      long shallow = OBJECT_HEADER;
+      for (final Field field : fields(type)) {
+        shallow += width(field.getType());
+        if (!field.getType().isPrimitive()) {
+          push(pending, read(field, object));
+        }
+      }
+      size += align(shallow);
+    }
+    return size;
+  }
+
+  private static void push(final Deque<Object> pending, final Object object) {
+    if (object != null) {
+      pending.push(object);
+    }
+  }
+
+  private static List<Field> fields(final Class<?> type) {
+    return FIELDS.computeIfAbsent(type, t -> {
+      final List<Field> fields = new ArrayList<>();
+      for (Class<?> c = t; c != null; c = c.getSuperclass()) {
+        for (final Field field : c.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers())) {
+            field.setAccessible(true);
+            fields.add(field);
+          }
+        }
+      }
+      return fields;
+    });
+  }
+
+  private static Object read(final Field field, final Object object) {
+    try {
+      return field.get(object);
+    } catch (final IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static int width(final Class<?> type) {
+    if (!type.isPrimitive()) {
+      return REFERENCE;
+    }
+    if (type == long.class || type == double.class) {
+      return 8;
+    }
+    if (type == int.class || type == float.class) {
+      return 4;
+    }
+    if (type == short.class || type == char.class) {
+      return 2;
+    }
+    return 1;
+  }
+
+  private static long align(final long size) {
+    return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+  }
+}
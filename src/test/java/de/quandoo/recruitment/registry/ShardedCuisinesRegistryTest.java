@@ -0,0 +1,197 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.CuisinePopularity;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.sharded.ShardedCuisinesRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@Slf4j
+class ShardedCuisinesRegistryTest {
+
+  private static final int SHARDS = 4;
+  private static final int THREADS = 8;
+
+  private ShardedCuisinesRegistry cuisinesRegistry;
+
+  @BeforeEach
+  void setUp() {
+    cuisinesRegistry = new ShardedCuisinesRegistry(SHARDS);
+  }
+
+  @AfterEach
+  void tearDown() {
+    cuisinesRegistry.close();
+  }
+
+  @Test
+  void shouldReadOwnRegistrations() {
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("2"), Cuisine.of("german")),
+        Registration.of(Customer.of("3"), Cuisine.of("french"))));
+
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactly(Customer.of("1"), Customer.of("2"), Customer.of("3"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("2"))).containsExactly(Cuisine.of("french"), Cuisine.of("german"));
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isEqualTo(3);
+    assertThat(cuisinesRegistry.topCuisines(5)).containsExactly(Cuisine.of("french"), Cuisine.of("german"));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("italian"))).isEmpty();
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("4"))).isEmpty();
+  }
+
+  @Test
+  void shouldMergeTopCuisinesOfAllShards() {
+    //given: cuisine-i is followed by i + 1 customers, spread over every shard
+    cuisinesRegistry.registerAll(IntStream.range(0, 64)
+        .boxed()
+        .flatMap(i -> IntStream.rangeClosed(0, i).mapToObj(c -> Registration.of(Customer.of("customer-" + c), Cuisine.of("cuisine-" + i))))
+        .collect(Collectors.toList()));
+
+    //when:
+    final List<CuisinePopularity> top = cuisinesRegistry.topCuisinePopularity(10);
+
+    //then:
+    assertThat(top).containsExactlyElementsOf(IntStream.iterate(63, i -> i > 53, i -> i - 1)
+        .mapToObj(i -> CuisinePopularity.of(Cuisine.of("cuisine-" + i), i + 1))
+        .toList());
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("customer-0"))).hasSize(64);
+  }
+
+  @Test
+  void shouldApplyEveryRegistrationOfConcurrentWriters() {
+    //given:
+    final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+    final int registrations = 20_000;
+
+    //when:
+    final long start = System.nanoTime();
+    CompletableFuture.allOf(IntStream.range(0, THREADS)
+        .mapToObj(thread -> CompletableFuture.runAsync(() -> IntStream.range(0, registrations)
+            .forEach(i -> cuisinesRegistry.register(Customer.of(thread + "-" + i), Cuisine.of("cuisine-" + i % 100))), executorService))
+        .toArray(CompletableFuture[]::new)).join();
+    log.info("{} registrations from {} threads on {} shards in {} ms", THREADS * registrations, THREADS, SHARDS,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    executorService.shutdown();
+
+    //then:
+    IntStream.range(0, 100).forEach(cuisine ->
+        assertThat(cuisinesRegistry.countCustomers(Cuisine.of("cuisine-" + cuisine))).isEqualTo(THREADS * registrations / 100));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("0-7"))).containsExactly(Cuisine.of("cuisine-7"));
+  }
+
+  @Test
+  void shouldStreamCustomersPageByPage() {
+    //given:
+    cuisinesRegistry.registerAll(IntStream.range(0, 5_000)
+        .mapToObj(i -> Registration.of(Customer.of("customer-" + i), Cuisine.of("french")))
+        .collect(Collectors.toList()));
+
+    //when:
+    final List<Customer> streamed;
+    try (Stream<Customer> customers = cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french"))) {
+      streamed = customers.collect(Collectors.toList());
+    }
+
+    //then:
+    assertThat(streamed).containsExactlyElementsOf(IntStream.range(0, 5_000).mapToObj(i -> Customer.of("customer-" + i)).toList());
+    assertThat(cuisinesRegistry.streamCuisineCustomers(Cuisine.of("italian"))).isEmpty();
+  }
+
+  @Test
+  void shouldStreamCustomersRegisteredThroughoutDespiteRemovals() {
+    //given:
+    cuisinesRegistry.registerAll(IntStream.range(0, 5_000)
+        .mapToObj(i -> Registration.of(Customer.of("customer-" + i), Cuisine.of("french")))
+        .collect(Collectors.toList()));
+    final Iterator<Customer> customers = cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french")).iterator();
+    final List<Customer> streamed = new ArrayList<>(List.of(customers.next()));
+
+    //when: more than half leave while the stream is on its first page, which also compacts the set
+    IntStream.range(0, 3_000).forEach(i -> cuisinesRegistry.unregister(Customer.of("customer-" + i), Cuisine.of("french")));
+    customers.forEachRemaining(streamed::add);
+
+    //then: no customer moved behind the cursor
+    assertThat(streamed).doesNotHaveDuplicates()
+        .containsAll(IntStream.range(3_000, 5_000).mapToObj(i -> Customer.of("customer-" + i)).toList());
+    assertThat(cuisinesRegistry.streamCuisineCustomers(Cuisine.of("french")))
+        .containsExactlyElementsOf(IntStream.range(3_000, 5_000).mapToObj(i -> Customer.of("customer-" + i)).toList());
+  }
+
+  @Test
+  void shouldRemoveCustomerFromEveryShard() {
+    //given:
+    IntStream.range(0, 20).forEach(i -> cuisinesRegistry.register(Customer.of("1"), Cuisine.of("cuisine-" + i)));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("cuisine-0"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("cuisine-1"));
+
+    //when:
+    cuisinesRegistry.unregister(Customer.of("2"), Cuisine.of("cuisine-1"));
+    cuisinesRegistry.removeCustomer(Customer.of("1"));
+
+    //then:
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).isEmpty();
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("2"))).containsExactly(Cuisine.of("cuisine-0"));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("cuisine-0"))).containsExactly(Customer.of("2"));
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("cuisine-19"))).isZero();
+    assertThat(cuisinesRegistry.topCuisines(5)).containsExactly(Cuisine.of("cuisine-0"));
+  }
+
+  @Test
+  void shouldRejectCallsOnceClosed() {
+    //given:
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+
+    //when:
+    cuisinesRegistry.close();
+
+    //then: nothing is queued for a shard thread that is gone
+    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+      assertThatIllegalStateException()
+          .isThrownBy(() -> cuisinesRegistry.cuisineCustomers(Cuisine.of("french")))
+          .withMessage("Shard is stopped!");
+      assertThatIllegalStateException()
+          .isThrownBy(() -> cuisinesRegistry.topCuisines(1));
+      assertThatIllegalStateException()
+          .isThrownBy(() -> cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french")));
+    });
+  }
+
+  @Test
+  void shouldValidateArgumentsOnCallingThread() {
+    assertThatNullPointerException()
+        .isThrownBy(() -> cuisinesRegistry.register(null, Cuisine.of("french")))
+        .withMessage("Customer could not be null!");
+    assertThatNullPointerException()
+        .isThrownBy(() -> cuisinesRegistry.cuisineCustomers(null))
+        .withMessage("Cuisine could not be null!");
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> cuisinesRegistry.topCuisines(0))
+        .withMessage("n should be greater than zero!");
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> new ShardedCuisinesRegistry(0))
+        .withMessage("Shards should be greater than zero!");
+  }
+}
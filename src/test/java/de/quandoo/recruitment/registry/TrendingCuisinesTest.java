@@ -0,0 +1,198 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import de.quandoo.recruitment.registry.adapters.inmemory.CuisineCustomersInMemoryAdapter;
+import de.quandoo.recruitment.registry.adapters.inmemory.FrequencyBucketRanking;
+import de.quandoo.recruitment.registry.adapters.inmemory.TrendingCounters;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.CuisinePopularity;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import de.quandoo.recruitment.registry.sharded.ShardedCuisinesRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TrendingCuisinesTest {
+
+  private static final Duration INTERVAL = Duration.ofMinutes(1);
+
+  private TickingClock clock;
+  private TrendingCounters trendingCounters;
+  private CuisinesRegistry cuisinesRegistry;
+
+  @BeforeEach
+  void setUp() {
+    clock = new TickingClock();
+    trendingCounters = new TrendingCounters(INTERVAL, 10, clock);
+    cuisinesRegistry = new CuisinesRegistryImpl(
+        new CuisineCustomersInMemoryAdapter(new FrequencyBucketRanking(), trendingCounters),
+        CustomerCuisinesPort.getDefaultInstance());
+  }
+
+  @Test
+  void shouldRankNewFollowersWithinTheWindow() {
+    //given: french was popular long ago, german and italian gain followers now
+    registerFollowers("french", 0, 5);
+    clock.advance(INTERVAL.multipliedBy(5));
+    registerFollowers("german", 0, 2);
+    clock.advance(INTERVAL);
+    registerFollowers("italian", 0, 3);
+    registerFollowers("german", 0, 2);
+
+    //then: registering an existing follower again does not count
+    assertThat(cuisinesRegistry.trendingCuisines(3, INTERVAL.multipliedBy(2)))
+        .containsExactly(Cuisine.of("italian"), Cuisine.of("german"));
+    assertThat(cuisinesRegistry.trendingCuisines(1, INTERVAL)).containsExactly(Cuisine.of("italian"));
+    assertThat(cuisinesRegistry.trendingCuisines(3, INTERVAL.multipliedBy(10)))
+        .containsExactly(Cuisine.of("french"), Cuisine.of("italian"), Cuisine.of("german"));
+    assertThat(cuisinesRegistry.topCuisines(1)).containsExactly(Cuisine.of("french"));
+  }
+
+  @Test
+  void shouldReuseTheSlotsOfIntervalsThatLeftTheRing() {
+    //given:
+    registerFollowers("french", 0, 4);
+    registerFollowers("german", 0, 1);
+
+    //when: a full lap later french's slot comes round again
+    clock.advance(INTERVAL.multipliedBy(10));
+    registerFollowers("french", 4, 1);
+    registerFollowers("italian", 0, 2);
+
+    //then: the lap before is gone, not added to
+    assertThat(cuisinesRegistry.trendingCuisines(3, INTERVAL.multipliedBy(10)))
+        .containsExactly(Cuisine.of("italian"), Cuisine.of("french"));
+    clock.advance(INTERVAL.multipliedBy(20));
+    assertThat(cuisinesRegistry.trendingCuisines(3, INTERVAL.multipliedBy(10))).isEmpty();
+  }
+
+  @Test
+  void shouldCountConcurrentRegistrationsWithoutLosingAny() throws InterruptedException {
+    //given:
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    //when:
+    IntStream.range(0, 8).forEach(thread -> executor.execute(() -> registerFollowers("french", thread * 10_000, 10_000)));
+    executor.shutdown();
+
+    //then:
+    assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+    assertThat(trendingCounters.trending(1, INTERVAL)).containsExactly(CuisinePopularity.of(Cuisine.of("french"), 80_000));
+  }
+
+  @Test
+  void shouldMergeTrendingCuisinesOfEveryShard() {
+    //given:
+    try (ShardedCuisinesRegistry shardedRegistry = new ShardedCuisinesRegistry(4, TrendingCounters::new)) {
+      shardedRegistry.registerAll(IntStream.range(0, 60)
+          .mapToObj(i -> Registration.of(Customer.of(String.valueOf(i)), Cuisine.of(i % 10 < 4 ? "french" : i % 10 < 7 ? "german" : "italian")))
+          .toList());
+      shardedRegistry.register(Customer.of("1"), Cuisine.of("french"));
+      shardedRegistry.register(Customer.of("60"), Cuisine.of("italian"));
+
+      //when:
+      final List<CuisinePopularity> trending = shardedRegistry.trendingCuisinePopularity(2, Duration.ofHours(1));
+
+      //then:
+      assertThat(trending).containsExactly(
+          CuisinePopularity.of(Cuisine.of("french"), 24), CuisinePopularity.of(Cuisine.of("italian"), 19));
+      assertThat(shardedRegistry.trendingCuisines(3, Duration.ofHours(1)))
+          .containsExactly(Cuisine.of("french"), Cuisine.of("italian"), Cuisine.of("german"));
+    }
+  }
+
+  @Test
+  void shouldDropTheRingsOfCuisinesThatStoppedTrending() {
+    //given:
+    IntStream.range(0, 100).forEach(cuisine -> registerFollowers("cuisine-" + cuisine, 0, 1));
+    final long retainedBefore = RetainedSize.of(trendingCounters);
+
+    //when: a full lap later another cuisine gains a follower
+    clock.advance(INTERVAL.multipliedBy(10));
+    registerFollowers("french", 0, 1);
+
+    //then:
+    final long retainedAfter = RetainedSize.of(trendingCounters);
+    assertThat(retainedAfter).isLessThan(retainedBefore / 10);
+    assertThat(cuisinesRegistry.trendingCuisines(3, INTERVAL.multipliedBy(10))).containsExactly(Cuisine.of("french"));
+  }
+
+  @Test
+  void shouldNotTrendUnlessGivenCounters() {
+    //given:
+    final CuisinesRegistry untracked = new CuisinesRegistryImpl(
+        CuisineCustomersPort.getDefaultInstance(), CustomerCuisinesPort.getDefaultInstance());
+    untracked.register(Customer.of("1"), Cuisine.of("french"));
+
+    //then:
+    assertThat(untracked.trendingCuisines(1, Duration.ofHours(1))).isEmpty();
+    assertThat(untracked.topCuisines(1)).containsExactly(Cuisine.of("french"));
+    try (ShardedCuisinesRegistry shardedRegistry = new ShardedCuisinesRegistry(2)) {
+      shardedRegistry.register(Customer.of("1"), Cuisine.of("french"));
+      assertThat(shardedRegistry.trendingCuisines(1, Duration.ofHours(1))).isEmpty();
+    }
+  }
+
+  @Test
+  void shouldValidateTheWindow() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> cuisinesRegistry.trendingCuisines(1, Duration.ZERO))
+        .withMessage("Window should be positive!");
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> cuisinesRegistry.trendingCuisines(1, INTERVAL.multipliedBy(11)))
+        .withMessage("Window should not exceed the tracked intervals!");
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> cuisinesRegistry.trendingCuisines(0, INTERVAL))
+        .withMessage("n should be greater than zero!");
+  }
+
+  private void registerFollowers(final String cuisine, final int from, final int followers) {
+    IntStream.range(from, from + followers).forEach(i -> cuisinesRegistry.register(Customer.of(cuisine + "-" + i), Cuisine.of(cuisine)));
+  }
+
+  // moves only when told to
+  private static final class TickingClock extends Clock {
+
+    private final AtomicLong millis = new AtomicLong(Instant.parse("2024-01-01T00:00:00Z").toEpochMilli());
+
+    private void advance(final Duration duration) {
+      millis.addAndGet(duration.toMillis());
+    }
+
+    @Override
+    public long millis() {
+      return millis.get();
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis());
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(final ZoneId zone) {
+      return this;
+    }
+  }
+}
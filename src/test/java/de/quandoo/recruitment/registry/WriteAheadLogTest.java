@@ -0,0 +1,360 @@
+package de.quandoo.recruitment.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.quandoo.recruitment.registry.adapters.inmemory.CuisineCustomersInMemoryAdapter;
+import de.quandoo.recruitment.registry.adapters.inmemory.CustomerCuisinesInMemoryAdapter;
+import de.quandoo.recruitment.registry.adapters.inmemory.FrequencyBucketRanking;
+import de.quandoo.recruitment.registry.adapters.inmemory.InMemorySnapshot;
+import de.quandoo.recruitment.registry.adapters.inmemory.TrendingCounters;
+import de.quandoo.recruitment.registry.api.CuisinesRegistry;
+import de.quandoo.recruitment.registry.model.Cuisine;
+import de.quandoo.recruitment.registry.model.Customer;
+import de.quandoo.recruitment.registry.model.Registration;
+import de.quandoo.recruitment.registry.ports.CuisineCustomersPort;
+import de.quandoo.recruitment.registry.ports.CustomerCuisinesPort;
+import de.quandoo.recruitment.registry.wal.Durability;
+import de.quandoo.recruitment.registry.wal.WriteAheadLog;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Slf4j
+class WriteAheadLogTest {
+
+  private static final int THREADS = 8;
+
+  @TempDir
+  Path directory;
+
+  private WriteAheadLog writeAheadLog;
+
+  @AfterEach
+  void tearDown() {
+    writeAheadLog.close();
+  }
+
+  @Test
+  void shouldReplayRegistrationsOnStartup() {
+    //given:
+    CuisinesRegistry cuisinesRegistry = open(Durability.SYNC);
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("german"));
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("3"), Cuisine.of("german")),
+        Registration.of(Customer.of("3"), Cuisine.of("italian"))));
+
+    //when: the in-memory ports are lost
+    writeAheadLog.close();
+    cuisinesRegistry = open(Durability.SYNC);
+
+    //then:
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("german"))).containsExactlyInAnyOrder(Customer.of("2"), Customer.of("3"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("3"))).containsExactlyInAnyOrder(Cuisine.of("german"), Cuisine.of("italian"));
+    assertThat(cuisinesRegistry.topCuisines(1)).containsExactly(Cuisine.of("german"));
+  }
+
+  @Test
+  void shouldNotTrendReplayedRegistrations() {
+    //given:
+    CuisinesRegistry cuisinesRegistry = openTrending();
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.registerAll(List.of(
+        Registration.of(Customer.of("2"), Cuisine.of("french")),
+        Registration.of(Customer.of("3"), Cuisine.of("german"))));
+    assertThat(cuisinesRegistry.trendingCuisines(2, Duration.ofHours(1))).containsExactly(Cuisine.of("french"), Cuisine.of("german"));
+
+    //when:
+    writeAheadLog.close();
+    cuisinesRegistry = openTrending();
+    cuisinesRegistry.register(Customer.of("4"), Cuisine.of("german"));
+
+    //then: only the registration made since the restart trends
+    assertThat(cuisinesRegistry.topCuisines(2)).containsExactly(Cuisine.of("french"), Cuisine.of("german"));
+    assertThat(cuisinesRegistry.trendingCuisines(2, Duration.ofHours(1))).containsExactly(Cuisine.of("german"));
+  }
+
+  @Test
+  void shouldCommitEveryRegistrationOfConcurrentCallers() {
+    //given:
+    final CuisinesRegistry cuisinesRegistry = open(Durability.SYNC);
+    final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+
+    //when:
+    final long start = System.nanoTime();
+    CompletableFuture.allOf(IntStream.range(0, THREADS)
+        .mapToObj(thread -> CompletableFuture.runAsync(() -> IntStream.range(0, 500)
+            .forEach(i -> cuisinesRegistry.register(Customer.of(thread + "-" + i), Cuisine.of("cuisine-" + thread))), executorService))
+        .toArray(CompletableFuture[]::new)).join();
+    log.info("Committed {} synchronous registrations from {} threads in {} ms",
+        THREADS * 500, THREADS, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    executorService.shutdown();
+
+    //then:
+    writeAheadLog.close();
+    final CuisinesRegistry replayed = open(Durability.SYNC);
+    IntStream.range(0, THREADS).forEach(thread -> assertThat(replayed.cuisineCustomers(Cuisine.of("cuisine-" + thread))).hasSize(500));
+  }
+
+  @Test
+  void shouldReplayTheStateConcurrentCallersLeft() {
+    //given: callers racing to register and unregister the same pairs
+    final CuisinesRegistry cuisinesRegistry = open(Durability.ASYNC);
+    final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+
+    //when:
+    CompletableFuture.allOf(IntStream.range(0, THREADS)
+        .mapToObj(thread -> CompletableFuture.runAsync(() -> IntStream.range(0, 2_000).forEach(i -> {
+          final Customer customer = Customer.of(String.valueOf(i % 10));
+          final Cuisine cuisine = Cuisine.of("cuisine-" + i % 3);
+          if ((thread + i) % 2 == 0) {
+            cuisinesRegistry.register(customer, cuisine);
+          } else {
+            cuisinesRegistry.unregister(customer, cuisine);
+          }
+        }), executorService))
+        .toArray(CompletableFuture[]::new)).join();
+    executorService.shutdown();
+
+    //then: replay applies the writes in the order the ports saw them
+    writeAheadLog.close();
+    final CuisinesRegistry replayed = open(Durability.SYNC);
+    IntStream.range(0, 10).mapToObj(String::valueOf).map(Customer::of).forEach(customer ->
+        assertThat(replayed.customerCuisines(customer)).containsExactlyInAnyOrderElementsOf(cuisinesRegistry.customerCuisines(customer)));
+    IntStream.range(0, 3).mapToObj(i -> Cuisine.of("cuisine-" + i)).forEach(cuisine ->
+        assertThat(replayed.cuisineCustomers(cuisine)).containsExactlyInAnyOrderElementsOf(cuisinesRegistry.cuisineCustomers(cuisine)));
+  }
+
+  @Test
+  @SneakyThrows(IOException.class)
+  void shouldReplayOnlyWhatWasLoggedSinceTheCheckpoint() {
+    //given:
+    final Path snapshot = directory.resolve("registry.snapshot");
+    CuisineCustomersInMemoryAdapter cuisineCustomers = new CuisineCustomersInMemoryAdapter();
+    CustomerCuisinesInMemoryAdapter customerCuisines = new CustomerCuisinesInMemoryAdapter();
+    writeAheadLog = WriteAheadLog.open(directory.resolve("registry.wal"), Durability.SYNC);
+    final CuisinesRegistryImpl cuisinesRegistry = new CuisinesRegistryImpl(cuisineCustomers, customerCuisines, writeAheadLog);
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("german"));
+
+    //when:
+    final CuisineCustomersInMemoryAdapter checkpointedCuisineCustomers = cuisineCustomers;
+    final CustomerCuisinesInMemoryAdapter checkpointedCustomerCuisines = customerCuisines;
+    cuisinesRegistry.checkpoint(() -> InMemorySnapshot.write(snapshot, checkpointedCuisineCustomers, checkpointedCustomerCuisines));
+    final long checkpointedLogSize = Files.size(directory.resolve("registry.wal"));
+    cuisinesRegistry.register(Customer.of("3"), Cuisine.of("german"));
+    cuisinesRegistry.unregister(Customer.of("1"), Cuisine.of("french"));
+    writeAheadLog.close();
+
+    //then: the snapshot holds what the log no longer does
+    assertThat(checkpointedLogSize).isZero();
+    cuisineCustomers = new CuisineCustomersInMemoryAdapter();
+    customerCuisines = new CustomerCuisinesInMemoryAdapter();
+    InMemorySnapshot.restore(snapshot, cuisineCustomers, customerCuisines);
+    writeAheadLog = WriteAheadLog.open(directory.resolve("registry.wal"), Durability.SYNC);
+    final CuisinesRegistry restarted = new CuisinesRegistryImpl(cuisineCustomers, customerCuisines, writeAheadLog);
+    assertThat(restarted.cuisineCustomers(Cuisine.of("german"))).containsExactlyInAnyOrder(Customer.of("2"), Customer.of("3"));
+    assertThat(restarted.customerCuisines(Customer.of("1"))).isEmpty();
+    assertThat(restarted.topCuisines(2)).containsExactly(Cuisine.of("german"));
+  }
+
+  @Test
+  void shouldNotCheckpointWithoutAWriteAheadLog() {
+    //given:
+    writeAheadLog = WriteAheadLog.open(directory.resolve("registry.wal"), Durability.SYNC);
+    final CuisinesRegistryImpl cuisinesRegistry = new CuisinesRegistryImpl(
+        CuisineCustomersPort.getDefaultInstance(), CustomerCuisinesPort.getDefaultInstance());
+
+    //when: then:
+    assertThatIllegalStateException()
+        .isThrownBy(() -> cuisinesRegistry.checkpoint(() -> { }))
+        .withMessage("Checkpoints need a write-ahead log!");
+  }
+
+  @Test
+  void shouldKeepAsynchronousRegistrationsOnceSynced() {
+    //given:
+    final CuisinesRegistry cuisinesRegistry = open(Durability.ASYNC);
+    final long[] latencies = new long[100_000];
+    for (int i = 0; i < latencies.length; i++) {
+      final long start = System.nanoTime();
+      cuisinesRegistry.register(Customer.of("customer-" + i), Cuisine.of("cuisine-" + i % 10));
+      latencies[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(latencies);
+    log.info("Asynchronous register p50 {} us, p99 {} us", latencies[latencies.length / 2] / 1_000,
+        latencies[latencies.length * 99 / 100] / 1_000);
+
+    //when:
+    writeAheadLog.sync();
+    final List<Registration> logged = new ArrayList<>();
+    try (WriteAheadLog reopened = WriteAheadLog.open(directory.resolve("registry.wal"), Durability.ASYNC)) {
+      reopened.replay(new WriteAheadLog.Replayer() {
+        @Override
+        public void register(final Registration registration) {
+          logged.add(registration);
+        }
+
+        @Override
+        public void unregister(final Registration registration) {
+          throw new AssertionError("Nothing was unregistered");
+        }
+
+        @Override
+        public void removeCustomer(final Customer customer) {
+          throw new AssertionError("Nothing was removed");
+        }
+      });
+    }
+
+    //then:
+    assertThat(logged).hasSize(latencies.length);
+    assertThat(logged.get(latencies.length - 1)).isEqualTo(Registration.of(Customer.of("customer-99999"), Cuisine.of("cuisine-9")));
+  }
+
+  @Test
+  @SneakyThrows(IOException.class)
+  void shouldDropTornRecordOnStartup() {
+    //given: a crash in the middle of the last record
+    CuisinesRegistry cuisinesRegistry = open(Durability.SYNC);
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    writeAheadLog.close();
+    final Path file = directory.resolve("registry.wal");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(Files.size(file) - 3);
+    }
+
+    //when:
+    cuisinesRegistry = open(Durability.SYNC);
+    cuisinesRegistry.register(Customer.of("3"), Cuisine.of("french"));
+    writeAheadLog.close();
+    cuisinesRegistry = open(Durability.SYNC);
+
+    //then:
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactlyInAnyOrder(Customer.of("1"), Customer.of("3"));
+  }
+
+  @Test
+  @SneakyThrows(IOException.class)
+  void shouldDropCorruptRecordOnStartup() {
+    //given:
+    CuisinesRegistry cuisinesRegistry = open(Durability.SYNC);
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("french"));
+    writeAheadLog.close();
+    final Path file = directory.resolve("registry.wal");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{'x'}), Files.size(file) - 1);
+    }
+
+    //when:
+    cuisinesRegistry = open(Durability.SYNC);
+
+    //then:
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).containsExactly(Customer.of("1"));
+  }
+
+  @Test
+  void shouldRejectRegistrationsOnceClosed() {
+    final CuisinesRegistry cuisinesRegistry = open(Durability.ASYNC);
+    writeAheadLog.close();
+
+    assertThatIllegalStateException()
+        .isThrownBy(() -> cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french")))
+        .withMessage("Write-ahead log is closed!");
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("french"))).isEmpty();
+  }
+
+  @Test
+  void shouldReplayRemovalsInLogOrder() {
+    //given:
+    CuisinesRegistry cuisinesRegistry = open(Durability.SYNC);
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.register(Customer.of("1"), Cuisine.of("german"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("german"));
+    cuisinesRegistry.unregister(Customer.of("1"), Cuisine.of("french"));
+    cuisinesRegistry.removeCustomer(Customer.of("2"));
+    cuisinesRegistry.register(Customer.of("2"), Cuisine.of("italian"));
+    cuisinesRegistry.unregister(Customer.of("1"), Cuisine.of("french"));
+
+    //when:
+    writeAheadLog.close();
+    cuisinesRegistry = open(Durability.SYNC);
+
+    //then: removals undo only the registrations logged before them
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("1"))).containsExactly(Cuisine.of("german"));
+    assertThat(cuisinesRegistry.customerCuisines(Customer.of("2"))).containsExactly(Cuisine.of("italian"));
+    assertThat(cuisinesRegistry.cuisineCustomers(Cuisine.of("german"))).containsExactly(Customer.of("1"));
+    assertThat(cuisinesRegistry.countCustomers(Cuisine.of("french"))).isZero();
+    assertThat(cuisinesRegistry.topCuisines(3)).containsExactlyInAnyOrder(Cuisine.of("german"), Cuisine.of("italian"));
+  }
+
+  @Test
+  @SneakyThrows(InterruptedException.class)
+  void shouldFailCallersOnceTheCommitterIsInterrupted() {
+    //given: a registration the committer would only pick up an hour later
+    final Set<Thread> threads = Thread.getAllStackTraces().keySet();
+    writeAheadLog = WriteAheadLog.open(directory.resolve("registry.wal"), Durability.ASYNC, Duration.ofHours(1));
+    final Thread committer = Thread.getAllStackTraces().keySet().stream()
+        .filter(thread -> thread.getName().equals("write-ahead-log-committer") && !threads.contains(thread))
+        .findFirst()
+        .orElseThrow();
+    writeAheadLog.append(Registration.of(Customer.of("1"), Cuisine.of("french")));
+
+    //when:
+    committer.interrupt();
+    committer.join(TimeUnit.SECONDS.toMillis(5));
+
+    //then: a caller waiting for the pending registration fails instead of hanging, and so do later ones
+    assertThat(committer.isAlive()).isFalse();
+    assertThat(CompletableFuture.runAsync(writeAheadLog::sync))
+        .failsWithin(Duration.ofSeconds(5))
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(UncheckedIOException.class);
+    assertThatThrownBy(() -> writeAheadLog.append(Registration.of(Customer.of("2"), Cuisine.of("french"))))
+        .isInstanceOf(UncheckedIOException.class)
+        .hasMessage("Write-ahead log failed");
+    assertThatThrownBy(writeAheadLog::close).isInstanceOf(UncheckedIOException.class);
+  }
+
+  private CuisinesRegistry open(final Durability durability) {
+    writeAheadLog = WriteAheadLog.open(directory.resolve("registry.wal"), durability);
+    return new CuisinesRegistryImpl(
+        CuisineCustomersPort.getDefaultInstance(),
+        CustomerCuisinesPort.getDefaultInstance(),
+        writeAheadLog
+    );
+  }
+
+  private CuisinesRegistry openTrending() {
+    writeAheadLog = WriteAheadLog.open(directory.resolve("registry.wal"), Durability.SYNC);
+    return new CuisinesRegistryImpl(
+        new CuisineCustomersInMemoryAdapter(new FrequencyBucketRanking(), new TrendingCounters()),
+        CustomerCuisinesPort.getDefaultInstance(),
+        writeAheadLog
+    );
+  }
+}